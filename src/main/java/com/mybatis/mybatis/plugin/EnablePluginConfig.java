@@ -4,7 +4,10 @@ import com.mybatis.mybatis.plugin.aware.InterceptorAware;
 import com.mybatis.mybatis.plugin.aware.InterceptorAwareCollect;
 import com.mybatis.mybatis.plugin.aware.InterceptorAwareCollections;
 import com.mybatis.mybatis.plugin.aware.MybatisInterceptorAware;
+import com.mybatis.mybatis.plugin.aware.SqlSourcePrecompiler;
 import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.metrics.MicrometerPluginMetrics;
+import com.mybatis.mybatis.plugin.metrics.PluginMetrics;
 import com.mybatis.mybatis.plugin.process.PluginRuleProcess;
 import com.mybatis.mybatis.plugin.process.PluginRuleProcessImpl;
 import com.mybatis.mybatis.plugin.process.PluginsProcess;
@@ -17,8 +20,11 @@ import com.mybatis.mybatis.plugin.process.field.RuleFieldValueFailPolicyProcess;
 import com.mybatis.mybatis.plugin.process.field.RuleFieldValuePolicyProcess;
 import com.mybatis.mybatis.plugin.process.field.RuleFieldValuePolicyProcessImpl;
 import com.mybatis.mybatis.plugin.utils.SpringContextUtil;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.ibatis.plugin.Interceptor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -28,6 +34,7 @@ import org.springframework.context.annotation.DependsOn;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * @program: mybatis plugin
@@ -51,9 +58,15 @@ public class EnablePluginConfig {
     @Autowired
     private MybatisPluginsConfig mybatisPluginsConfig;
 
+    /**
+     * 只有存在 MeterRegistry 时才统计
+     */
+    @Autowired(required = false)
+    private PluginMetrics pluginMetrics;
+
     @Bean(name = "mybatisPluginInterceptor")
     public Interceptor mybatisPluginInterceptor() {
-        return new MybatisPluginInterceptor(mybatisInterceptorAwares);
+        return new MybatisPluginInterceptor(mybatisInterceptorAwares, pluginMetrics);
     }
 
     @Bean
@@ -109,9 +122,33 @@ public class EnablePluginConfig {
     @DependsOn({"pluginsProcess", "interceptorAwareCollect"})
     public MybatisInterceptorAware mybatisInterceptorAware(PluginsProcess pluginsProcess,
                                                            InterceptorAwareCollect interceptorAwareCollect) {
-        MybatisInterceptorAware mybatisInterceptorAware = new MybatisInterceptorAware(pluginsProcess);
+        MybatisInterceptorAware mybatisInterceptorAware = new MybatisInterceptorAware(pluginsProcess,
+                Objects.isNull(mybatisPluginsConfig) ? null : mybatisPluginsConfig.getMappedStatementCache());
+        mybatisInterceptorAware.setMetrics(pluginMetrics);
         mybatisInterceptorAware.registerInterceptorAware(interceptorAwareCollect);
         return mybatisInterceptorAware;
     }
 
+    @Bean
+    @ConditionalOnProperty(prefix = "guarder", name = {"precompile"}, havingValue = "true")
+    public SqlSourcePrecompiler sqlSourcePrecompiler(PluginsProcess pluginsProcess) {
+        SqlSourcePrecompiler sqlSourcePrecompiler = new SqlSourcePrecompiler(pluginsProcess);
+        sqlSourcePrecompiler.setMetrics(pluginMetrics);
+        return sqlSourcePrecompiler;
+    }
+
+    /**
+     * classpath 中有 Micrometer 并且存在 MeterRegistry 时记录拦截器的统计，否则不注册 PluginMetrics，
+     * 拦截器使用不统计的 PluginMetrics.NOOP
+     */
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    static class PluginMetricsConfig {
+
+        @Bean
+        public PluginMetrics pluginMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+            MeterRegistry registry = meterRegistry.getIfUnique();
+            return registry == null ? PluginMetrics.NOOP : new MicrometerPluginMetrics(registry);
+        }
+    }
 }
@@ -1,6 +1,8 @@
 package com.mybatis.mybatis.plugin;
 
 import com.mybatis.mybatis.plugin.aware.InterceptorAware;
+import com.mybatis.mybatis.plugin.metrics.PluginMetrics;
+import com.mybatis.mybatis.plugin.metrics.PluginPhase;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.mapping.BoundSql;
@@ -39,8 +41,18 @@ public class MybatisPluginInterceptor implements Interceptor {
 
     private List<InterceptorAware> mybatisInterceptorAwares;
 
+    private final PluginMetrics metrics;
+
     public MybatisPluginInterceptor(List<InterceptorAware> mybatisInterceptorAwares) {
+        this(mybatisInterceptorAwares, PluginMetrics.NOOP);
+    }
+
+    /**
+     * @param metrics 记录所有 InterceptorAware 前置处理的总耗时，为空时不统计
+     */
+    public MybatisPluginInterceptor(List<InterceptorAware> mybatisInterceptorAwares, PluginMetrics metrics) {
         this.mybatisInterceptorAwares = mybatisInterceptorAwares;
+        this.metrics = metrics == null ? PluginMetrics.NOOP : metrics;
     }
 
     @Override
@@ -49,19 +61,31 @@ public class MybatisPluginInterceptor implements Interceptor {
             logger.debug("mybatis plugin intercept invocation,method name {}", invocation.getMethod().getName());
         }
 
-        if (!CollectionUtils.isEmpty(mybatisInterceptorAwares)) {
+        if (CollectionUtils.isEmpty(mybatisInterceptorAwares)) {
+            return invocation.proceed();
+        }
+
+        Object proceed;
+        try {
+            // 前置处理会替换 args[0]，统计使用原始的 MappedStatement
+            MappedStatement statement = metrics.isEnabled() ? (MappedStatement) invocation.getArgs()[0] : null;
+            long start = statement == null ? 0L : System.nanoTime();
             for (InterceptorAware aware : mybatisInterceptorAwares) {
                 aware.mybatisBeforeExecutor(invocation);
             }
-        }
-
-        Object proceed = invocation.proceed();
-
-        if (!CollectionUtils.isEmpty(mybatisInterceptorAwares)) {
+            if (statement != null) {
+                metrics.record(PluginPhase.intercept, statement, System.nanoTime() - start);
+            }
+            proceed = invocation.proceed();
+        } finally {
             for (InterceptorAware aware : mybatisInterceptorAwares) {
-                aware.mybatisAfterExecutor(proceed);
+                aware.mybatisCompleteExecutor(invocation);
             }
         }
+
+        for (InterceptorAware aware : mybatisInterceptorAwares) {
+            aware.mybatisAfterExecutor(proceed);
+        }
         return proceed;
     }
 
@@ -0,0 +1,346 @@
+package com.mybatis.mybatis.plugin.aware;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mybatis.mybatis.plugin.config.MappedStatementCacheConfig;
+import com.mybatis.mybatis.plugin.process.BindValue;
+import com.mybatis.mybatis.plugin.process.PluginsProcess;
+import com.mybatis.mybatis.plugin.process.SqlStatementContext;
+import com.mybatis.mybatis.plugin.utils.SqlParserUtil;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
+import org.apache.ibatis.session.Configuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * @program: mybatis plugin
+ * @description: 改写后的 MappedStatement 缓存，开启后同一个 MappedStatement 与同一条改写后的 SQL 总是得到同一个对象，
+ * BatchExecutor 按 MappedStatement 判断是否追加到当前批次，ReuseExecutor 按 SQL 复用 Statement，缓存后都可以正常工作；
+ * 未开启时每次改写都创建新的 MappedStatement。构建时直接使用 Builder，不再通过 MetaObject 反射修改。
+ * 绑定参数模式下改写后的 SQL 与字段值无关，不同租户共享同一个 MappedStatement，字段值随 BoundSql 传递
+ */
+public class DerivedMappedStatementCache {
+
+    public static final long DEFAULT_MAXIMUM_SIZE = 10000L;
+
+    /**
+     * 绑定参数的附加参数名前缀，完整名称为 __guarder_bind_{下标}
+     */
+    public static final String BIND_PARAMETER_PREFIX = "__guarder_bind_";
+
+    /**
+     * 每个线程最多保留的待使用 BoundSql 数量，selectKey 等嵌套执行时外层的记录不会被覆盖
+     */
+    private static final int MAX_PENDING = 8;
+
+    /**
+     * 拦截器中已经生成的 BoundSql，执行器随后调用改写后的 MappedStatement#getBoundSql 时直接使用，避免动态 SQL 计算两次
+     */
+    private static final ThreadLocal<List<PendingBoundSql>> PENDING = new ThreadLocal<>();
+
+    private final Cache<Key, MappedStatement> cache;
+
+    /**
+     * 绑定参数模式下没有拦截器记录时，用它重新改写得到字段值
+     */
+    private final PluginsProcess pluginsProcess;
+
+    /**
+     * 不缓存，每次改写都创建新的 MappedStatement
+     */
+    public DerivedMappedStatementCache(PluginsProcess pluginsProcess) {
+        this(null, pluginsProcess);
+    }
+
+    public DerivedMappedStatementCache(MappedStatementCacheConfig config, PluginsProcess pluginsProcess) {
+        this.pluginsProcess = pluginsProcess;
+        if (Objects.isNull(config) || !Boolean.TRUE.equals(config.getEnable())) {
+            this.cache = null;
+            return;
+        }
+        long maximumSize = Objects.isNull(config.getMaximumSize()) ? DEFAULT_MAXIMUM_SIZE : config.getMaximumSize();
+        this.cache = Caffeine.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    /**
+     * @param ms  原始 MappedStatement
+     * @param sql 改写后的 SQL
+     * @return 使用改写后 SQL 的 MappedStatement
+     */
+    public MappedStatement get(MappedStatement ms, String sql) {
+        return get(ms, sql, false);
+    }
+
+    /**
+     * @param ms   原始 MappedStatement
+     * @param sql  改写后的 SQL
+     * @param bind 改写后的 SQL 是否包含绑定参数，绑定参数模式是全局配置，同一条 SQL 不会两种模式都出现
+     * @return 使用改写后 SQL 的 MappedStatement
+     */
+    public MappedStatement get(MappedStatement ms, String sql, boolean bind) {
+        if (!isEnabled()) {
+            return build(ms, new RewrittenSqlSource(ms, sql, bind, pluginsProcess));
+        }
+        return cache.get(new Key(ms, sql), key -> build(ms, new RewrittenSqlSource(ms, sql, bind, pluginsProcess)));
+    }
+
+    public boolean isEnabled() {
+        return Objects.nonNull(cache);
+    }
+
+    public long size() {
+        return isEnabled() ? cache.estimatedSize() : 0L;
+    }
+
+    /**
+     * 记录本线程即将执行的原始 BoundSql
+     */
+    static void handoff(MappedStatement ms, BoundSql boundSql) {
+        handoff(ms, boundSql, Collections.<BindValue>emptyList());
+    }
+
+    /**
+     * 记录本线程即将执行的原始 BoundSql 以及需要绑定的字段值，同一个 MappedStatement 只保留最新一条
+     */
+    static void handoff(MappedStatement ms, BoundSql boundSql, List<BindValue> bindValues) {
+        List<PendingBoundSql> pending = PENDING.get();
+        if (pending == null) {
+            pending = new ArrayList<>(2);
+            PENDING.set(pending);
+        }
+        pending.removeIf(p -> p.ms == ms);
+        if (pending.size() >= MAX_PENDING) {
+            pending.remove(0);
+        }
+        pending.add(new PendingBoundSql(ms, boundSql, bindValues));
+    }
+
+    static void clearHandoff() {
+        PENDING.remove();
+    }
+
+    /**
+     * 执行结束后移除本次执行没有使用的记录，避免记录一直留在线程池的线程中；
+     * 只移除当前 MappedStatement 的记录，selectKey 等嵌套执行结束时不影响外层记录
+     *
+     * @param ms 执行器实际执行的 MappedStatement，不是改写后的 MappedStatement 时不处理
+     */
+    static void discardHandoff(MappedStatement ms, Object parameterObject) {
+        if (ms.getSqlSource() instanceof RewrittenSqlSource) {
+            takePending(((RewrittenSqlSource) ms.getSqlSource()).original, parameterObject);
+        }
+    }
+
+    /**
+     * 取出并移除与 MappedStatement、参数对象都相同的待使用记录
+     */
+    private static PendingBoundSql takePending(MappedStatement ms, Object parameterObject) {
+        List<PendingBoundSql> pending = PENDING.get();
+        if (pending == null) {
+            return null;
+        }
+        PendingBoundSql found = null;
+        for (Iterator<PendingBoundSql> iterator = pending.iterator(); iterator.hasNext(); ) {
+            PendingBoundSql candidate = iterator.next();
+            if (candidate.ms == ms && candidate.boundSql.getParameterObject() == parameterObject) {
+                iterator.remove();
+                found = candidate;
+                break;
+            }
+        }
+        if (pending.isEmpty()) {
+            PENDING.remove();
+        }
+        return found;
+    }
+
+    /**
+     * 复制 BoundSql 并替换 SQL，参数映射不变，foreach 等产生的附加参数按参数映射复制
+     */
+    static BoundSql copyBoundSql(Configuration configuration, BoundSql original, String sql) {
+        return copyBoundSql(configuration, original, sql, Collections.<BindValue>emptyList());
+    }
+
+    /**
+     * 复制 BoundSql 并替换 SQL，绑定的字段值按 ? 的位置插入参数映射，字段值作为附加参数
+     *
+     * @param bindValues 改写时新增的 ? 对应的字段值，按位置升序
+     */
+    static BoundSql copyBoundSql(Configuration configuration, BoundSql original, String sql,
+                                 List<BindValue> bindValues) {
+        List<ParameterMapping> parameterMappings = original.getParameterMappings();
+        List<ParameterMapping> mappings = parameterMappings;
+        if (!bindValues.isEmpty()) {
+            int originalSize = parameterMappings == null ? 0 : parameterMappings.size();
+            mappings = new ArrayList<>(originalSize + bindValues.size());
+            int next = 0;
+            for (int i = 0; i < bindValues.size(); i++) {
+                int position = bindValues.get(i).getPosition();
+                while (mappings.size() < position && next < originalSize) {
+                    mappings.add(parameterMappings.get(next++));
+                }
+                Object value = bindValues.get(i).getValue();
+                mappings.add(new ParameterMapping.Builder(configuration, BIND_PARAMETER_PREFIX + i,
+                        value == null ? Object.class : value.getClass()).build());
+            }
+            while (next < originalSize) {
+                mappings.add(parameterMappings.get(next++));
+            }
+        }
+        BoundSql boundSql = new BoundSql(configuration, sql, mappings, original.getParameterObject());
+        if (parameterMappings != null) {
+            for (ParameterMapping parameterMapping : parameterMappings) {
+                String name = new PropertyTokenizer(parameterMapping.getProperty()).getName();
+                if (original.hasAdditionalParameter(name) && !boundSql.hasAdditionalParameter(name)) {
+                    boundSql.setAdditionalParameter(name, original.getAdditionalParameter(name));
+                }
+            }
+        }
+        for (int i = 0; i < bindValues.size(); i++) {
+            boundSql.setAdditionalParameter(BIND_PARAMETER_PREFIX + i, bindValues.get(i).getValue());
+        }
+        return boundSql;
+    }
+
+    private static MappedStatement build(MappedStatement ms, SqlSource sqlSource) {
+        MappedStatement.Builder builder =
+                new MappedStatement.Builder(ms.getConfiguration(), ms.getId(), sqlSource, ms.getSqlCommandType());
+        builder.resource(ms.getResource());
+        builder.fetchSize(ms.getFetchSize());
+        builder.statementType(ms.getStatementType());
+        builder.keyGenerator(ms.getKeyGenerator());
+        builder.keyProperty(join(ms.getKeyProperties()));
+        builder.keyColumn(join(ms.getKeyColumns()));
+        builder.databaseId(ms.getDatabaseId());
+        builder.lang(ms.getLang());
+        builder.resultOrdered(ms.isResultOrdered());
+        builder.resultSets(join(ms.getResultSets()));
+        builder.timeout(ms.getTimeout());
+        builder.parameterMap(ms.getParameterMap());
+        builder.resultMaps(ms.getResultMaps());
+        builder.resultSetType(ms.getResultSetType());
+        builder.cache(ms.getCache());
+        builder.flushCacheRequired(ms.isFlushCacheRequired());
+        builder.useCache(ms.isUseCache());
+        return builder.build();
+    }
+
+    private static String join(String[] values) {
+        if (values == null || values.length == 0) {
+            return null;
+        }
+        return String.join(",", values);
+    }
+
+    /**
+     * 改写后的 SqlSource，参数映射与附加参数来自原始 MappedStatement
+     */
+    static final class RewrittenSqlSource implements SqlSource {
+
+        private final MappedStatement original;
+
+        private final String sql;
+
+        /**
+         * SQL 中包含绑定参数，字段值从拦截器记录的 BoundSql 中获取，没有记录时重新改写
+         */
+        private final boolean bind;
+
+        private final PluginsProcess pluginsProcess;
+
+        RewrittenSqlSource(MappedStatement original, String sql, boolean bind, PluginsProcess pluginsProcess) {
+            this.original = original;
+            this.sql = sql;
+            this.bind = bind;
+            this.pluginsProcess = pluginsProcess;
+        }
+
+        @Override
+        public BoundSql getBoundSql(Object parameterObject) {
+            PendingBoundSql pending = takePending(original, parameterObject);
+            if (pending != null) {
+                return copyBoundSql(original.getConfiguration(), pending.boundSql, sql, pending.bindValues);
+            }
+            BoundSql boundSql = original.getBoundSql(parameterObject);
+            if (bind && Objects.nonNull(pluginsProcess)) {
+                return rewrite(boundSql);
+            }
+            return copyBoundSql(original.getConfiguration(), boundSql, sql);
+        }
+
+        /**
+         * 按拦截器的流程重新改写原始 BoundSql，字段值按当前线程重新获取
+         */
+        private BoundSql rewrite(BoundSql boundSql) {
+            SqlStatementContext context = pluginsProcess.newContext(original.getId(), boundSql.getSql());
+            context.setBindable(StatementType.PREPARED.equals(original.getStatementType()));
+            if (SqlParserUtil.hasRuleField(context, pluginsProcess.getRuleFieldDetector())) {
+                return boundSql;
+            }
+            String newSql = pluginsProcess.pluginsProcess(context);
+            if (newSql == null || newSql.equals(boundSql.getSql())) {
+                return boundSql;
+            }
+            return copyBoundSql(original.getConfiguration(), boundSql, newSql, context.getBindValues());
+        }
+    }
+
+    private static final class PendingBoundSql {
+
+        private final MappedStatement ms;
+
+        private final BoundSql boundSql;
+
+        private final List<BindValue> bindValues;
+
+        private PendingBoundSql(MappedStatement ms, BoundSql boundSql, List<BindValue> bindValues) {
+            this.ms = ms;
+            this.boundSql = boundSql;
+            this.bindValues = bindValues;
+        }
+    }
+
+    /**
+     * 原始 MappedStatement 按对象比较，SQL 按内容比较
+     */
+    private static final class Key {
+
+        private final MappedStatement ms;
+
+        private final String sql;
+
+        private final int hash;
+
+        private Key(MappedStatement ms, String sql) {
+            this.ms = ms;
+            this.sql = sql;
+            this.hash = 31 * System.identityHashCode(ms) + sql.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return ms == that.ms && sql.equals(that.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
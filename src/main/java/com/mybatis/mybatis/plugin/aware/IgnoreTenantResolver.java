@@ -0,0 +1,81 @@
+package com.mybatis.mybatis.plugin.aware;
+
+import com.mybatis.mybatis.plugin.IgnoreTenant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @program: mybatis plugin
+ * @description: 按 MappedStatement id 解析是否忽略自动添加租户条件，Mapper 类或方法上有 IgnoreTenant 注解时忽略；
+ * 解析结果按 id 缓存，类加载失败同样缓存为不忽略，之后每次执行只需要一次 map 查询
+ */
+public class IgnoreTenantResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(IgnoreTenantResolver.class);
+
+    /**
+     * 分页插件生成的 count 语句 id 后缀
+     */
+    static final String PAGE_HELP_COUNT = "_COUNT";
+
+    private final Map<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+    /**
+     * @param statementId MappedStatement id
+     * @return 是否忽略自动添加租户条件
+     */
+    public boolean isIgnored(String statementId) {
+        if (statementId == null) {
+            return false;
+        }
+        Boolean ignored = decisions.get(statementId);
+        if (ignored == null) {
+            ignored = decisions.computeIfAbsent(statementId, this::resolve);
+        }
+        return ignored;
+    }
+
+    /**
+     * 已经缓存的 statement id 数量
+     */
+    public int size() {
+        return decisions.size();
+    }
+
+    private Boolean resolve(String statementId) {
+        int lastDot = statementId.lastIndexOf('.');
+        // 没有命名空间的 statement id 不对应 Mapper 类
+        if (lastDot <= 0) {
+            return false;
+        }
+        String className = statementId.substring(0, lastDot);
+        String methodName = statementId.substring(lastDot + 1);
+        Class<?> cls;
+        try {
+            cls = Class.forName(className);
+        } catch (ClassNotFoundException | LinkageError e) {
+            logger.warn("mapper class {} of statement {} can not be loaded, ignore tenant resolved as false",
+                    className, statementId);
+            return false;
+        }
+        if (cls.isAnnotationPresent(IgnoreTenant.class)) {
+            //如果Mapper类中包含IgnoreTenant注解，则不需要自动添加租户过滤条件
+            return true;
+        }
+        if (methodName.endsWith(PAGE_HELP_COUNT)) {
+            //解决分页插件中count与真实查询SQL可能不匹配的问题
+            methodName = methodName.substring(0, methodName.length() - PAGE_HELP_COUNT.length());
+        }
+        for (Method method : cls.getMethods()) {
+            //如果方法中包含IgnoreTenant注解，则不需要自动添加租户过滤条件
+            if (method.getName().equals(methodName) && method.isAnnotationPresent(IgnoreTenant.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
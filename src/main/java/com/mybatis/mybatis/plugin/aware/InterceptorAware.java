@@ -25,4 +25,10 @@ public interface InterceptorAware {
      * @Date: 2020/8/14 10:22 下午
      */
     void mybatisAfterExecutor(Object result);
+
+    /**
+     * SQL 执行结束后调用，执行抛出异常时同样调用，用于清理前置处理留下的线程状态
+     */
+    default void mybatisCompleteExecutor(Invocation invocation) {
+    }
 }
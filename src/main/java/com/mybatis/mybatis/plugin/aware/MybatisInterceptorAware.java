@@ -1,26 +1,26 @@
 package com.mybatis.mybatis.plugin.aware;
 
-import com.mybatis.mybatis.plugin.Filtered;
-import com.mybatis.mybatis.plugin.IgnoreTenant;
+import com.mybatis.mybatis.plugin.config.MappedStatementCacheConfig;
+import com.mybatis.mybatis.plugin.exception.RuleProcessPolicyException;
+import com.mybatis.mybatis.plugin.metrics.PluginMetrics;
+import com.mybatis.mybatis.plugin.metrics.PluginOutcome;
+import com.mybatis.mybatis.plugin.metrics.PluginPhase;
+import com.mybatis.mybatis.plugin.process.BindValue;
+import com.mybatis.mybatis.plugin.process.PluginsGate;
 import com.mybatis.mybatis.plugin.process.PluginsProcess;
+import com.mybatis.mybatis.plugin.process.SqlStatementContext;
 import com.mybatis.mybatis.plugin.utils.SqlParserUtil;
-import net.sf.jsqlparser.JSQLParserException;
-import net.sf.jsqlparser.parser.CCJSqlParserUtil;
-import net.sf.jsqlparser.statement.Statement;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
-import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.plugin.Invocation;
-import org.apache.ibatis.reflection.DefaultReflectorFactory;
-import org.apache.ibatis.reflection.MetaObject;
-import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
-import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.apache.ibatis.session.RowBounds;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
+import java.util.List;
+
 
 /**
  * @program: mybatis plugin
@@ -34,17 +34,51 @@ public class MybatisInterceptorAware implements InterceptorAware, InterceptorAwa
 
     private PluginsProcess pluginsProcess;
 
+    private final IgnoreTenantResolver ignoreTenantResolver = new IgnoreTenantResolver();
+
+    private final DerivedMappedStatementCache derivedMappedStatements;
+
+    private PluginMetrics metrics = PluginMetrics.NOOP;
+
     public MybatisInterceptorAware(PluginsProcess pluginsProcess) {
-        this.pluginsProcess = pluginsProcess;
+        this(pluginsProcess, null);
     }
 
-    final String PAGE_HELP_COUNT = "_COUNT";
+    /**
+     * @param mappedStatementCache 改写后 MappedStatement 的缓存配置，为空时不缓存
+     */
+    public MybatisInterceptorAware(PluginsProcess pluginsProcess, MappedStatementCacheConfig mappedStatementCache) {
+        this.pluginsProcess = pluginsProcess;
+        this.derivedMappedStatements = new DerivedMappedStatementCache(mappedStatementCache, pluginsProcess);
+    }
 
     @Override
     public void mybatisBeforeExecutor(Invocation invocation) {
         if (invocation.getTarget() instanceof Executor) {
             Object[] args = invocation.getArgs();
             MappedStatement statement = (MappedStatement) args[0];
+            // 启动时已经预编译，SqlSource 生成 BoundSql 时已经完成改写
+            if (statement.getSqlSource() instanceof PrecompiledSqlSource) {
+                return;
+            }
+            boolean timed = metrics.isEnabled();
+            long start = timed ? System.nanoTime() : 0L;
+            // Mapper类或方法中包含IgnoreTenant注解，则不需要自动添加租户过滤条件
+            boolean ignored = ignoreTenantResolver.isIgnored(statement.getId());
+            if (timed) {
+                metrics.record(PluginPhase.ignore_lookup, statement, System.nanoTime() - start);
+            }
+            if (ignored) {
+                metrics.count(PluginOutcome.skipped, statement, null);
+                return;
+            }
+            // 按 SqlCommandType 过滤，没有插件可能生效时不需要生成 BoundSql
+            PluginsGate gate = pluginsProcess.getPluginsGate();
+            long candidates = gate == null ? -1L : gate.candidates(statement.getId(), statement.getSqlCommandType());
+            if (candidates == 0L) {
+                metrics.count(PluginOutcome.skipped, statement, null);
+                return;
+            }
             BoundSql boundSql;
             if (args.length == 4 || args.length == 2) {
                 boundSql = statement.getBoundSql(args[1]);
@@ -53,65 +87,112 @@ public class MybatisInterceptorAware implements InterceptorAware, InterceptorAwa
                 boundSql = (BoundSql) args[5];
             }
 
-            //获取类
-            String namespace = statement.getId();
-            String className = namespace.substring(0,namespace.lastIndexOf("."));
-            String methedName= namespace.substring(namespace.lastIndexOf(".") + 1,namespace.length());
-            Method[] ms = new Method[0];
-            try {
-                Class cls = Class.forName(className);
-
-                Annotation annotation = cls.getAnnotation(IgnoreTenant.class);
-                if (annotation != null){
-                    //如果Mapper类中包含IgnoreTenant注解，则不需要自动添加租户过滤条件
-                    return;
-                }
-                ms = cls.getMethods();
-            } catch (ClassNotFoundException e) {
-                e.printStackTrace();
+            String sql = boundSql.getSql();
+            // 表级别、库级别插件在原始 SQL 中找不到配置的表名、库名时不需要解析
+            if (gate != null && !gate.mayApply(candidates, sql)) {
+                metrics.count(PluginOutcome.skipped, statement, null);
+                return;
             }
-            Executor executor = (Executor)invocation.getTarget();
-            if(methedName != null && methedName.endsWith(PAGE_HELP_COUNT)) {
-                //解决分页插件中count与真实查询SQL可能不匹配的问题
-                methedName = methedName.substring(0, methedName.length() - PAGE_HELP_COUNT.length());
+            // 检测和改写共用同一个语法树，每次执行最多解析一次
+            SqlStatementContext context = pluginsProcess.newContext(statement.getId(), sql);
+            // 只有 PreparedStatement 可以绑定参数
+            context.setBindable(StatementType.PREPARED.equals(statement.getStatementType()));
+            if (timed) {
+                context.enableTiming();
             }
-            for(Method m : ms){
-                if(m.getName().equals(methedName)){
-                    Annotation annotation = m.getAnnotation(IgnoreTenant.class);
-                    if (annotation != null){
-                        //如果方法中包含IgnoreTenant注解，则不需要自动添加租户过滤条件
-                        return;
-                    }
+            try {
+                rewrite(invocation, statement, boundSql, context, timed);
+            } catch (RuntimeException e) {
+                metrics.count(e instanceof RuleProcessPolicyException ? PluginOutcome.stopped : PluginOutcome.failed,
+                        statement, context.getFailedPlugin());
+                throw e;
+            } finally {
+                if (timed) {
+                    recordContext(statement, context, PluginPhase.parse);
+                    recordContext(statement, context, PluginPhase.rule);
+                    recordContext(statement, context, PluginPhase.deparse);
                 }
             }
+        }
+    }
 
-            String sql = boundSql.getSql();
-            // 解析SQL判断where条件中是否包含tenant_id 或 insert字段中包含了tenant_id
-            if(SqlParserUtil.whereHasTenantId(sql) || SqlParserUtil.insertHasTenantId(sql)) {
-                return;
-            }
+    /**
+     * 检测规则字段、改写 SQL，改写后替换 MappedStatement
+     */
+    private void rewrite(Invocation invocation, MappedStatement statement, BoundSql boundSql,
+                         SqlStatementContext context, boolean timed) {
+        Object[] args = invocation.getArgs();
+        String sql = context.getSql();
+        long start = timed ? System.nanoTime() : 0L;
+        // 解析SQL判断where条件中是否包含规则字段 或 insert字段中包含了规则字段
+        boolean hasRuleField = SqlParserUtil.hasRuleField(context, pluginsProcess.getRuleFieldDetector());
+        if (timed) {
+            metrics.record(PluginPhase.detect, statement, System.nanoTime() - start);
+        }
+        if (hasRuleField) {
+            metrics.count(PluginOutcome.skipped, statement, null);
+            return;
+        }
 
-            if (logger.isDebugEnabled()) {
-                logger.debug("mybatisBeforeExecutor old sql {}", sql);
-            }
+        if (logger.isDebugEnabled()) {
+            logger.debug("mybatisBeforeExecutor old sql {}", sql);
+        }
 
-            String newSql = pluginsProcess.pluginsProcess(sql);
+        String newSql = pluginsProcess.pluginsProcess(context);
 
-            if (logger.isDebugEnabled()) {
-                logger.debug("mybatisBeforeExecutor new sql {}", sql);
-            }
-            
-            MappedStatement newStatement = newMappedStatement(statement, new BoundSqlSqlSource(boundSql));
-            MetaObject msObject = MetaObject.forObject(newStatement, new DefaultObjectFactory(),
-                    new DefaultObjectWrapperFactory(), new DefaultReflectorFactory());
-            msObject.setValue("sqlSource.boundSql.sql", newSql);
-            args[0] = newStatement;
+        if (logger.isDebugEnabled()) {
+            logger.debug("mybatisBeforeExecutor new sql {}", newSql);
+        }
+
+        if (newSql == null || newSql.equals(sql)) {
+            metrics.count(PluginOutcome.skipped, statement, null);
+            return;
+        }
+        start = timed ? System.nanoTime() : 0L;
+        // 绑定参数模式下字段值不在 SQL 中，需要随 BoundSql 一起传递
+        List<BindValue> bindValues = context.getBindValues();
+        MappedStatement newStatement = derivedMappedStatements.get(statement, newSql, !bindValues.isEmpty());
+        args[0] = newStatement;
+        if (args.length == 6) {
+            // 执行器直接使用传入的 BoundSql 和 CacheKey，需要一起替换
+            BoundSql newBoundSql = DerivedMappedStatementCache.copyBoundSql(statement.getConfiguration(),
+                    boundSql, newSql, bindValues);
+            args[4] = ((Executor) invocation.getTarget()).createCacheKey(newStatement, args[1],
+                    (RowBounds) args[2], newBoundSql);
+            args[5] = newBoundSql;
+        } else {
+            DerivedMappedStatementCache.handoff(statement, boundSql, bindValues);
+        }
+        if (timed) {
+            metrics.record(PluginPhase.mapped_statement, statement, System.nanoTime() - start);
+        }
+        metrics.count(PluginOutcome.rewritten, statement, null);
+    }
+
+    /**
+     * 解析、执行规则、转成字符串发生在上下文中，本次执行经过的阶段才记录
+     */
+    private void recordContext(MappedStatement statement, SqlStatementContext context, PluginPhase phase) {
+        long nanos = context.getPhaseNanos(phase);
+        if (nanos >= 0) {
+            metrics.record(phase, statement, nanos);
         }
     }
 
     @Override
     public void mybatisAfterExecutor(Object result) {
+        // 执行器取出 BoundSql 时已经移除记录，没有使用的记录在 mybatisCompleteExecutor 中移除
+    }
 
+    /**
+     * 执行器没有取出的记录在执行结束后移除，不能清空整个线程的记录，selectKey 等嵌套执行结束时外层记录还没有使用
+     */
+    @Override
+    public void mybatisCompleteExecutor(Invocation invocation) {
+        Object[] args = invocation.getArgs();
+        if (args.length != 6 && args[0] instanceof MappedStatement) {
+            DerivedMappedStatementCache.discardHandoff((MappedStatement) args[0], args[1]);
+        }
     }
 
     @Override
@@ -119,44 +200,14 @@ public class MybatisInterceptorAware implements InterceptorAware, InterceptorAwa
         interceptorAwareCollect.addInterceptorAware(this);
     }
 
-    private MappedStatement newMappedStatement(MappedStatement ms, SqlSource newSqlSource) {
-        MappedStatement.Builder builder =
-                new MappedStatement.Builder(ms.getConfiguration(), ms.getId(), newSqlSource, ms.getSqlCommandType());
-        builder.resource(ms.getResource());
-        builder.fetchSize(ms.getFetchSize());
-        builder.statementType(ms.getStatementType());
-        builder.keyGenerator(ms.getKeyGenerator());
-        if (ms.getKeyProperties() != null && ms.getKeyProperties().length != 0) {
-            StringBuilder keyProperties = new StringBuilder();
-            for (String keyProperty : ms.getKeyProperties()) {
-                keyProperties.append(keyProperty).append(",");
-            }
-            keyProperties.delete(keyProperties.length() - 1, keyProperties.length());
-            builder.keyProperty(keyProperties.toString());
-        }
-        builder.timeout(ms.getTimeout());
-        builder.parameterMap(ms.getParameterMap());
-        builder.resultMaps(ms.getResultMaps());
-        builder.resultSetType(ms.getResultSetType());
-        builder.cache(ms.getCache());
-        builder.flushCacheRequired(ms.isFlushCacheRequired());
-        builder.useCache(ms.isUseCache());
-
-        return builder.build();
+    /**
+     * 设置统计，默认不统计
+     */
+    public void setMetrics(PluginMetrics metrics) {
+        this.metrics = metrics == null ? PluginMetrics.NOOP : metrics;
     }
 
-    //    定义一个内部辅助类，作用是包装sq
-    class BoundSqlSqlSource implements SqlSource {
-        private BoundSql boundSql;
-
-        public BoundSqlSqlSource(BoundSql boundSql) {
-            this.boundSql = boundSql;
-        }
-
-        @Override
-        public BoundSql getBoundSql(Object parameterObject) {
-            return boundSql;
-        }
+    public DerivedMappedStatementCache getDerivedMappedStatements() {
+        return derivedMappedStatements;
     }
-
 }
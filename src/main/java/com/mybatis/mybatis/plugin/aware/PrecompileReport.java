@@ -0,0 +1,62 @@
+package com.mybatis.mybatis.plugin.aware;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @program: mybatis plugin
+ * @description: 启动时预编译的结果，记录已经预编译、不需要处理以及回退到运行时改写的 MappedStatement
+ */
+public class PrecompileReport {
+
+    private final List<String> precompiled = new ArrayList<>();
+
+    private final List<String> skipped = new ArrayList<>();
+
+    /**
+     * 回退到运行时改写的 statement id 与原因
+     */
+    private final Map<String, String> fallbacks = new LinkedHashMap<>();
+
+    void precompiled(String statementId) {
+        precompiled.add(statementId);
+    }
+
+    void skipped(String statementId) {
+        skipped.add(statementId);
+    }
+
+    void fallback(String statementId, String reason) {
+        fallbacks.put(statementId, reason);
+    }
+
+    /**
+     * 已经替换为预编译 SqlSource 的 statement id
+     */
+    public List<String> getPrecompiled() {
+        return Collections.unmodifiableList(precompiled);
+    }
+
+    /**
+     * 忽略租户或者没有插件可能生效的 statement id，运行时同样不会改写
+     */
+    public List<String> getSkipped() {
+        return Collections.unmodifiableList(skipped);
+    }
+
+    public Map<String, String> getFallbacks() {
+        return Collections.unmodifiableMap(fallbacks);
+    }
+
+    @Override
+    public String toString() {
+        return "PrecompileReport{" +
+                "precompiled=" + precompiled.size() +
+                ", skipped=" + skipped.size() +
+                ", fallbacks=" + fallbacks.size() +
+                '}';
+    }
+}
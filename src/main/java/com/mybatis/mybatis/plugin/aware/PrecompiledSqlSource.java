@@ -0,0 +1,99 @@
+package com.mybatis.mybatis.plugin.aware;
+
+import com.mybatis.mybatis.plugin.exception.RuleProcessPolicyException;
+import com.mybatis.mybatis.plugin.metrics.PluginMetrics;
+import com.mybatis.mybatis.plugin.metrics.PluginOutcome;
+import com.mybatis.mybatis.plugin.metrics.PluginPhase;
+import com.mybatis.mybatis.plugin.process.PluginsProcess;
+import com.mybatis.mybatis.plugin.process.PrecompiledSql;
+import com.mybatis.mybatis.plugin.process.SqlStatementContext;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * @program: mybatis plugin
+ * @description: 启动时替换静态 SqlSource，执行时只填入字段值，拦截器遇到该 SqlSource 时不再处理，
+ * 耗时和处理结果在生成 BoundSql 时统计
+ */
+public final class PrecompiledSqlSource implements SqlSource {
+
+    private final Configuration configuration;
+
+    private final MappedStatement statement;
+
+    private final SqlSource original;
+
+    private final PrecompiledSql precompiled;
+
+    private final PluginsProcess pluginsProcess;
+
+    /**
+     * 是否是 PreparedStatement，只有 PreparedStatement 可以绑定参数
+     */
+    private final boolean bindable;
+
+    private final PluginMetrics metrics;
+
+    PrecompiledSqlSource(MappedStatement statement, SqlSource original, PrecompiledSql precompiled,
+                         PluginsProcess pluginsProcess, boolean bindable, PluginMetrics metrics) {
+        this.configuration = statement.getConfiguration();
+        this.statement = statement;
+        this.original = original;
+        this.precompiled = precompiled;
+        this.pluginsProcess = pluginsProcess;
+        this.bindable = bindable;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public BoundSql getBoundSql(Object parameterObject) {
+        BoundSql boundSql = original.getBoundSql(parameterObject);
+        boolean timed = metrics.isEnabled();
+        long start = timed ? System.nanoTime() : 0L;
+        SqlStatementContext context = pluginsProcess.newContext(statement.getId(), boundSql.getSql());
+        context.setBindable(bindable);
+        if (timed) {
+            context.enableTiming();
+        }
+        String sql;
+        try {
+            sql = pluginsProcess.pluginsProcess(context, precompiled);
+        } catch (RuntimeException e) {
+            metrics.count(e instanceof RuleProcessPolicyException ? PluginOutcome.stopped : PluginOutcome.failed,
+                    statement, context.getFailedPlugin());
+            throw e;
+        } finally {
+            if (timed) {
+                metrics.record(PluginPhase.precompiled, statement, System.nanoTime() - start);
+                recordContext(context, PluginPhase.parse);
+                recordContext(context, PluginPhase.rule);
+                recordContext(context, PluginPhase.deparse);
+            }
+        }
+        if (sql == null || sql.equals(boundSql.getSql())) {
+            metrics.count(PluginOutcome.skipped, statement, null);
+            return boundSql;
+        }
+        metrics.count(PluginOutcome.rewritten, statement, null);
+        return DerivedMappedStatementCache.copyBoundSql(configuration, boundSql, sql, context.getBindValues());
+    }
+
+    /**
+     * 模板失效回退到运行时改写时才有解析、执行规则、转成字符串的耗时
+     */
+    private void recordContext(SqlStatementContext context, PluginPhase phase) {
+        long nanos = context.getPhaseNanos(phase);
+        if (nanos >= 0) {
+            metrics.record(phase, statement, nanos);
+        }
+    }
+
+    /**
+     * 被替换的原始 SqlSource
+     */
+    public SqlSource getOriginal() {
+        return original;
+    }
+}
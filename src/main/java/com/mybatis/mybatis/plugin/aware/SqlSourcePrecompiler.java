@@ -0,0 +1,131 @@
+package com.mybatis.mybatis.plugin.aware;
+
+import com.mybatis.mybatis.plugin.metrics.PluginMetrics;
+import com.mybatis.mybatis.plugin.process.PluginsGate;
+import com.mybatis.mybatis.plugin.process.PluginsProcess;
+import com.mybatis.mybatis.plugin.process.PrecompiledSql;
+import com.mybatis.mybatis.plugin.process.SqlStatementContext;
+import com.mybatis.mybatis.plugin.utils.SqlParserUtil;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @program: mybatis plugin
+ * @description: 容器刷新后遍历所有 MappedStatement，把静态 SqlSource 替换为预编译的 SqlSource，执行时不再解析 SQL；
+ * 动态 SQL 每次执行生成的文本都可能不同，与无法预编译的语句一起回退到拦截器中的运行时改写，并输出启动报告
+ */
+public class SqlSourcePrecompiler implements ApplicationListener<ContextRefreshedEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlSourcePrecompiler.class);
+
+    private final PluginsProcess pluginsProcess;
+
+    private final IgnoreTenantResolver ignoreTenantResolver = new IgnoreTenantResolver();
+
+    private PluginMetrics metrics = PluginMetrics.NOOP;
+
+    public SqlSourcePrecompiler(PluginsProcess pluginsProcess) {
+        this.pluginsProcess = pluginsProcess;
+    }
+
+    /**
+     * 设置统计，默认不统计；拦截器不再处理预编译的语句，统计在生成 BoundSql 时记录
+     */
+    public void setMetrics(PluginMetrics metrics) {
+        this.metrics = metrics == null ? PluginMetrics.NOOP : metrics;
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        Map<String, SqlSessionFactory> factories =
+                event.getApplicationContext().getBeansOfType(SqlSessionFactory.class);
+        for (Map.Entry<String, SqlSessionFactory> entry : factories.entrySet()) {
+            PrecompileReport report = precompile(entry.getValue().getConfiguration());
+            logger.info("{} {}", entry.getKey(), report);
+            for (Map.Entry<String, String> fallback : report.getFallbacks().entrySet()) {
+                logger.info("{} falls back to runtime rewriting: {}", fallback.getKey(), fallback.getValue());
+            }
+        }
+    }
+
+    /**
+     * 预编译 Configuration 中的所有 MappedStatement，已经预编译过的语句不会重复处理
+     *
+     * @param configuration MyBatis 配置
+     * @return 启动报告
+     */
+    public PrecompileReport precompile(Configuration configuration) {
+        PrecompileReport report = new PrecompileReport();
+        // 同一个 MappedStatement 以完整 id 和短 id 各注册一次，短 id 冲突时值不是 MappedStatement
+        Set<MappedStatement> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Object value : configuration.getMappedStatements()) {
+            if (value instanceof MappedStatement && visited.add((MappedStatement) value)) {
+                precompile((MappedStatement) value, report);
+            }
+        }
+        return report;
+    }
+
+    private void precompile(MappedStatement ms, PrecompileReport report) {
+        String id = ms.getId();
+        SqlSource sqlSource = ms.getSqlSource();
+        if (sqlSource instanceof PrecompiledSqlSource) {
+            report.precompiled(id);
+            return;
+        }
+        if (ignoreTenantResolver.isIgnored(id)) {
+            report.skipped(id);
+            return;
+        }
+        PluginsGate gate = pluginsProcess.getPluginsGate();
+        long candidates = gate == null ? -1L : gate.candidates(id, ms.getSqlCommandType());
+        if (candidates == 0L) {
+            report.skipped(id);
+            return;
+        }
+        if (!(sqlSource instanceof RawSqlSource) && !(sqlSource instanceof StaticSqlSource)) {
+            report.fallback(id, sqlSource.getClass().getSimpleName() + " generates sql per call");
+            return;
+        }
+        if (StatementType.CALLABLE.equals(ms.getStatementType())) {
+            report.fallback(id, "callable statement");
+            return;
+        }
+        // 静态 SqlSource 生成的 SQL 与参数无关
+        String sql = sqlSource.getBoundSql(null).getSql();
+        if (gate != null && !gate.mayApply(candidates, sql)) {
+            report.skipped(id);
+            return;
+        }
+        SqlStatementContext context = new SqlStatementContext(id, sql);
+        if (SqlParserUtil.hasRuleField(context, pluginsProcess.getRuleFieldDetector())) {
+            report.skipped(id);
+            return;
+        }
+        PrecompiledSql precompiled = pluginsProcess.precompile(context);
+        if (!precompiled.isPrecompiled()) {
+            report.fallback(id, precompiled.getReason());
+            return;
+        }
+        // MappedStatement 没有提供修改 SqlSource 的方法
+        SystemMetaObject.forObject(ms).setValue("sqlSource",
+                new PrecompiledSqlSource(ms, sqlSource, precompiled, pluginsProcess,
+                        StatementType.PREPARED.equals(ms.getStatementType()), metrics));
+        report.precompiled(id);
+    }
+}
@@ -0,0 +1,202 @@
+package com.mybatis.mybatis.plugin.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.mybatis.mybatis.plugin.config.ParseFailPolicyType;
+import com.mybatis.mybatis.plugin.config.ParseFailureConfig;
+import com.mybatis.mybatis.plugin.exception.SqlParseLimitException;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @program: mybatis plugin
+ * @description: 解析失败 SQL 的有界缓存（负缓存），按 SQL 文本记录失败原因；MyBatis 生成的 SQL 参数都是 ?，
+ * 同一个 SQL 形状只解析失败一次，之后直接使用记录的结果。超过长度、词法单元数量限制的 SQL 同样记录，不再重复解析；
+ * 解析超时与当时的负载有关，只记录 timeout-expire-seconds 秒，解析线程池繁忙时不记录。同时统计解析失败次数以及各个策略的执行次数，只在第一次失败时输出日志，不需要每次执行都打印错误日志
+ */
+public class ParseFailureCache {
+
+    private final Cache<String, ParseFailure> cache;
+
+    /**
+     * 解析超时的 SQL，写入后一段时间过期
+     */
+    private final Cache<String, ParseFailure> timeouts;
+
+    /**
+     * 实际解析并且失败的次数
+     */
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * 命中缓存、跳过解析的次数
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * 超过解析限制的次数
+     */
+    private final LongAdder limits = new LongAdder();
+
+    private final LongAdder[] policies = new LongAdder[ParseFailPolicyType.values().length];
+
+    public ParseFailureCache(ParseFailureConfig config) {
+        this(config, Ticker.systemTicker());
+    }
+
+    /**
+     * @param ticker 解析超时记录过期使用的时钟，用于测试
+     */
+    ParseFailureCache(ParseFailureConfig config, Ticker ticker) {
+        long maximumSize = Objects.isNull(config) || Objects.isNull(config.getMaximumSize())
+                ? 1000L : config.getMaximumSize();
+        long expireSeconds = Objects.isNull(config) || Objects.isNull(config.getTimeoutExpireSeconds())
+                ? 60L : Math.max(config.getTimeoutExpireSeconds(), 0L);
+        this.cache = Caffeine.newBuilder().maximumSize(maximumSize).build();
+        this.timeouts = Caffeine.newBuilder().maximumSize(maximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS).ticker(ticker).build();
+        for (int i = 0; i < policies.length; i++) {
+            policies[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param sql 原始 SQL
+     * @return 之前解析失败时记录的结果，没有记录时返回 null
+     */
+    public ParseFailure failure(String sql) {
+        ParseFailure failure = cache.getIfPresent(sql);
+        if (failure == null) {
+            failure = timeouts.getIfPresent(sql);
+        }
+        if (failure != null) {
+            hits.increment();
+        }
+        return failure;
+    }
+
+    /**
+     * 记录一次解析失败
+     *
+     * @return 是否第一次记录这条 SQL
+     */
+    public boolean put(String sql, String message) {
+        return put(sql, message, false);
+    }
+
+    /**
+     * 记录一次解析失败
+     *
+     * @param limited 是否因为超过解析限制而没有完成解析
+     * @return 是否第一次记录这条 SQL
+     */
+    public boolean put(String sql, String message, boolean limited) {
+        failures.increment();
+        if (limited) {
+            limits.increment();
+        }
+        return cache.asMap().putIfAbsent(sql, new ParseFailure(message == null ? "" : message, limited)) == null;
+    }
+
+    /**
+     * 按没有完成解析的原因记录一次解析失败：长度、词法单元数量超过限制时永久记录，
+     * 解析超时时记录 timeout-expire-seconds 秒，解析线程池繁忙时只统计次数
+     *
+     * @param reason 超过解析限制的原因，语法不支持时为 null
+     * @return 是否第一次记录这条 SQL，线程池繁忙时返回 false
+     */
+    public boolean put(String sql, String message, SqlParseLimitException.Reason reason) {
+        if (Objects.isNull(reason)) {
+            return put(sql, message, false);
+        }
+        if (SqlParseLimitException.Reason.timeout.equals(reason)) {
+            failures.increment();
+            limits.increment();
+            return timeouts.asMap().putIfAbsent(sql, new ParseFailure(message == null ? "" : message, true)) == null;
+        }
+        if (SqlParseLimitException.Reason.busy.equals(reason)) {
+            failures.increment();
+            limits.increment();
+            return false;
+        }
+        return put(sql, message, true);
+    }
+
+    /**
+     * 记录解析失败时一个插件执行的策略
+     */
+    public void record(ParseFailPolicyType policy) {
+        policies[policy.ordinal()].increment();
+    }
+
+    public long failureCount() {
+        return failures.sum();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return 超过解析限制的次数，包含在 {@link #failureCount()} 中
+     */
+    public long limitCount() {
+        return limits.sum();
+    }
+
+    /**
+     * @return 解析失败时插件执行该策略的次数
+     */
+    public long policyCount(ParseFailPolicyType policy) {
+        return policies[policy.ordinal()].sum();
+    }
+
+    public long size() {
+        return cache.estimatedSize() + timeouts.estimatedSize();
+    }
+
+    /**
+     * 用于测试或者运维时手动触发淘汰
+     */
+    public void cleanUp() {
+        cache.cleanUp();
+        timeouts.cleanUp();
+    }
+
+    /**
+     * 插件配置变更或者升级解析器之后重新尝试解析
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+        timeouts.invalidateAll();
+    }
+
+    /**
+     * 一条 SQL 的解析失败结果
+     */
+    public static final class ParseFailure {
+
+        private final String message;
+
+        private final boolean limited;
+
+        ParseFailure(String message, boolean limited) {
+            this.message = message;
+            this.limited = limited;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * 是否因为超过解析限制而没有完成解析，而不是语法不支持
+         */
+        public boolean isLimited() {
+            return limited;
+        }
+    }
+}
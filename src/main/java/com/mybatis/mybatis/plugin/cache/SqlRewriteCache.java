@@ -0,0 +1,105 @@
+package com.mybatis.mybatis.plugin.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.mybatis.mybatis.plugin.config.RewriteCacheConfig;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * @program: mybatis plugin
+ * @description: 改写后 SQL 缓存，有界并发缓存，按访问频率淘汰（W-TinyLFU），命中后不再解析 SQL
+ */
+public class SqlRewriteCache {
+
+    private final Cache<SqlRewriteCacheKey, SqlTemplate> cache;
+
+    /**
+     * 是否使用与字段值无关的模板缓存
+     */
+    private final boolean template;
+
+    public SqlRewriteCache(RewriteCacheConfig config) {
+        this(config, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor 执行淘汰等维护任务的线程池，测试中传入同步执行保证淘汰结果确定
+     */
+    SqlRewriteCache(RewriteCacheConfig config, Executor executor) {
+        if (Objects.isNull(config) || !Boolean.TRUE.equals(config.getEnable())) {
+            this.cache = null;
+            this.template = false;
+            return;
+        }
+        long maximumSize = Objects.isNull(config.getMaximumSize()) ? 10000L : config.getMaximumSize();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .executor(executor)
+                .recordStats()
+                .build();
+        this.template = Boolean.TRUE.equals(config.getTemplate());
+    }
+
+    public boolean isEnabled() {
+        return Objects.nonNull(cache);
+    }
+
+    public boolean isTemplate() {
+        return template;
+    }
+
+    /**
+     * 从缓存中获取改写模板，没有就通过 rewrite 改写并放入缓存；
+     * rewrite 抛出的异常会直接抛给调用方，不会被缓存
+     *
+     * @param key     缓存 key
+     * @param rewrite 改写逻辑
+     * @return 改写模板
+     */
+    public SqlTemplate get(SqlRewriteCacheKey key, Function<SqlRewriteCacheKey, SqlTemplate> rewrite) {
+        if (!isEnabled()) {
+            return rewrite.apply(key);
+        }
+        return cache.get(key, rewrite);
+    }
+
+    public void invalidateAll() {
+        if (isEnabled()) {
+            cache.invalidateAll();
+        }
+    }
+
+    public long size() {
+        return isEnabled() ? cache.estimatedSize() : 0L;
+    }
+
+    public CacheStats stats() {
+        return isEnabled() ? cache.stats() : CacheStats.empty();
+    }
+
+    public long hitCount() {
+        return stats().hitCount();
+    }
+
+    public long missCount() {
+        return stats().missCount();
+    }
+
+    public long evictionCount() {
+        return stats().evictionCount();
+    }
+
+    /**
+     * 用于测试或者运维时手动触发淘汰
+     */
+    public void cleanUp() {
+        if (isEnabled()) {
+            cache.cleanUp();
+        }
+    }
+}
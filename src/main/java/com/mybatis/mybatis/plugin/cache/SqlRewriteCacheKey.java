@@ -0,0 +1,63 @@
+package com.mybatis.mybatis.plugin.cache;
+
+import com.mybatis.mybatis.plugin.process.ResolvedRuleField;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * @program: mybatis plugin
+ * @description: 改写缓存的 key，由 MappedStatement id、原始 SQL 以及本次解析出来的规则字段、字段值组成
+ */
+public final class SqlRewriteCacheKey {
+
+    private final String statementId;
+
+    private final String sql;
+
+    private final List<ResolvedRuleField> fields;
+
+    /**
+     * key 会在并发 map 中频繁比较，提前算好 hash
+     */
+    private final int hash;
+
+    public SqlRewriteCacheKey(String statementId, String sql, List<ResolvedRuleField> fields) {
+        this.statementId = statementId;
+        this.sql = sql;
+        this.fields = fields;
+        this.hash = 31 * (31 * Objects.hashCode(statementId) + sql.hashCode()) + fields.hashCode();
+    }
+
+    public String getStatementId() {
+        return statementId;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<ResolvedRuleField> getFields() {
+        return fields;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SqlRewriteCacheKey)) {
+            return false;
+        }
+        SqlRewriteCacheKey that = (SqlRewriteCacheKey) o;
+        return hash == that.hash
+                && Objects.equals(statementId, that.statementId)
+                && sql.equals(that.sql)
+                && fields.equals(that.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,267 @@
+package com.mybatis.mybatis.plugin.cache;
+
+import com.mybatis.mybatis.plugin.process.BindValue;
+import com.mybatis.mybatis.plugin.process.ResolvedRuleField;
+import com.mybatis.mybatis.plugin.process.RuleFieldValueExpression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @program: mybatis plugin
+ * @description: 与字段值无关的改写模板。规则执行时字段值用占位标记代替，改写完成后按标记切分成固定片段，
+ * 每次执行只需要把字段值拼接到片段之间，不再解析 SQL
+ */
+public final class SqlTemplate {
+
+    /**
+     * 字段值占位标记前缀，完整标记为 __guarder_value_{规则下标}__
+     */
+    public static final String MARKER_PREFIX = "__guarder_value_";
+
+    private static final String MARKER_SUFFIX = "__";
+
+    /**
+     * 固定片段，长度比 slots 多一
+     */
+    private final String[] segments;
+
+    /**
+     * 每个占位对应的规则下标
+     */
+    private final int[] slots;
+
+    /**
+     * 所有固定片段的长度之和，用于预分配拼接缓冲区
+     */
+    private final int fixedLength;
+
+    /**
+     * 绑定参数模式下执行的 SQL，所有占位都替换成 ?
+     */
+    private final String bindSql;
+
+    /**
+     * 每个占位对应的 ? 在 bindSql 所有 ? 中的下标
+     */
+    private final int[] bindPositions;
+
+    private SqlTemplate(String[] segments, int[] slots) {
+        this.segments = segments;
+        this.slots = slots;
+        int length = 0;
+        for (String segment : segments) {
+            length += segment.length();
+        }
+        this.fixedLength = length;
+        this.bindPositions = new int[slots.length];
+        if (slots.length == 0) {
+            this.bindSql = segments[0];
+            return;
+        }
+        // 占位是字符串字面量，切分点一定在引号和注释之外，每个片段可以单独计数
+        StringBuilder builder = new StringBuilder(length + slots.length);
+        int placeholders = 0;
+        for (int i = 0; i < slots.length; i++) {
+            placeholders += countPlaceholders(segments[i]);
+            bindPositions[i] = placeholders++;
+            builder.append(segments[i]).append('?');
+        }
+        builder.append(segments[slots.length]);
+        this.bindSql = builder.toString();
+    }
+
+    /**
+     * 不包含占位的模板，直接返回改写后的 SQL
+     */
+    public static SqlTemplate constant(String sql) {
+        return new SqlTemplate(new String[]{sql}, new int[0]);
+    }
+
+    public static String marker(int slot) {
+        return MARKER_PREFIX + slot + MARKER_SUFFIX;
+    }
+
+    /**
+     * 原始 SQL 中已经出现占位标记前缀时不能使用模板，否则无法区分
+     */
+    public static boolean conflicts(String sql) {
+        return sql.contains(MARKER_PREFIX);
+    }
+
+    /**
+     * 把已经获取到字段值的规则的字段值替换成占位标记，结果与具体字段值无关，可以作为模板缓存 key
+     */
+    public static List<ResolvedRuleField> markers(List<ResolvedRuleField> fields) {
+        List<ResolvedRuleField> markers = new ArrayList<>(fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            ResolvedRuleField field = fields.get(i);
+            if (field != null && field.isResolved()) {
+                markers.add(new ResolvedRuleField(field.getField(), marker(i), true));
+            } else {
+                markers.add(field);
+            }
+        }
+        return markers;
+    }
+
+    /**
+     * 按字符串字面量形式的占位标记 '__guarder_value_N__' 切分改写后的 SQL
+     *
+     * @param rewritten 使用占位标记改写后的 SQL
+     * @return 模板
+     */
+    public static SqlTemplate compile(String rewritten) {
+        List<String> segments = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        String quotedPrefix = "'" + MARKER_PREFIX;
+        int from = 0;
+        int start = rewritten.indexOf(quotedPrefix);
+        while (start >= 0) {
+            int digits = start + quotedPrefix.length();
+            int end = digits;
+            while (end < rewritten.length() && Character.isDigit(rewritten.charAt(end))) {
+                end++;
+            }
+            if (end == digits || !rewritten.startsWith(MARKER_SUFFIX + "'", end)) {
+                start = rewritten.indexOf(quotedPrefix, digits);
+                continue;
+            }
+            segments.add(rewritten.substring(from, start));
+            slots.add(Integer.parseInt(rewritten.substring(digits, end)));
+            from = end + MARKER_SUFFIX.length() + 1;
+            start = rewritten.indexOf(quotedPrefix, from);
+        }
+        segments.add(rewritten.substring(from));
+        int[] slotArray = new int[slots.size()];
+        for (int i = 0; i < slotArray.length; i++) {
+            slotArray[i] = slots.get(i);
+        }
+        return new SqlTemplate(segments.toArray(new String[0]), slotArray);
+    }
+
+    /**
+     * 把字段值拼接进模板
+     *
+     * @param fields 与编译模板时相同顺序的规则字段解析结果
+     * @return 最终执行的 SQL
+     */
+    public String render(List<ResolvedRuleField> fields) {
+        if (slots.length == 0) {
+            return segments[0];
+        }
+        String[] literals = new String[slots.length];
+        int length = fixedLength;
+        for (int i = 0; i < slots.length; i++) {
+            // 与规则处理器中按字段值类型生成的字面量保持一致
+            ResolvedRuleField field = fields.get(slots[i]);
+            literals[i] = RuleFieldValueExpression.of(field.getFieldValue(), field.getValueType()).toString();
+            length += literals[i].length();
+        }
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < slots.length; i++) {
+            builder.append(segments[i]).append(literals[i]);
+        }
+        builder.append(segments[slots.length]);
+        return builder.toString();
+    }
+
+    /**
+     * 绑定参数模式下执行的 SQL，与字段值无关，不同租户执行的 SQL 文本完全相同
+     */
+    public String getBindSql() {
+        return bindSql;
+    }
+
+    /**
+     * 绑定参数模式下每个 ? 对应的字段值
+     *
+     * @param fields 与编译模板时相同顺序的规则字段解析结果
+     * @return 按 ? 出现顺序排列的字段值
+     */
+    public List<BindValue> bindValues(List<ResolvedRuleField> fields) {
+        if (slots.length == 0) {
+            return Collections.emptyList();
+        }
+        List<BindValue> values = new ArrayList<>(slots.length);
+        for (int i = 0; i < slots.length; i++) {
+            ResolvedRuleField field = fields.get(slots[i]);
+            values.add(new BindValue(bindPositions[i],
+                    RuleFieldValueExpression.parameter(field.getFieldValue(), field.getValueType())));
+        }
+        return values;
+    }
+
+    /**
+     * 字符串字面量中没有反斜杠时才能使用绑定参数：反斜杠是否转义与数据库有关，
+     * 无法确定新增的 ? 在 JDBC 中的位置，改为以字面量拼接
+     */
+    public static boolean bindable(String sql) {
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                int end = sql.indexOf(c, i + 1);
+                end = end < 0 ? length : end;
+                if (sql.lastIndexOf('\\', end) > i) {
+                    return false;
+                }
+                i = end + 1;
+            } else {
+                i = skip(sql, i);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 统计 SQL 片段中 JDBC 占位 ? 的数量，跳过字符串、引用标识符和注释中的 ?
+     */
+    static int countPlaceholders(String sql) {
+        int count = 0;
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            if (sql.charAt(i) == '?') {
+                count++;
+            }
+            i = skip(sql, i);
+        }
+        return count;
+    }
+
+    /**
+     * @return 跳过 i 处的字符串、引用标识符、注释或者单个字符后的位置
+     */
+    private static int skip(String sql, int i) {
+        int length = sql.length();
+        char c = sql.charAt(i);
+        if (c == '\'' || c == '"' || c == '`') {
+            // 引号内两个连续引号表示转义，按两段字面量跳过结果相同；与 JSqlParser 一致，字符串中的反斜杠转义下一个字符
+            int j = i + 1;
+            while (j < length && sql.charAt(j) != c) {
+                j += c == '\'' && sql.charAt(j) == '\\' ? 2 : 1;
+            }
+            return Math.min(j, length - 1) + 1;
+        }
+        if (c == '-' && sql.startsWith("--", i)) {
+            int end = sql.indexOf('\n', i);
+            return end < 0 ? length : end + 1;
+        }
+        if (c == '/' && sql.startsWith("/*", i)) {
+            int end = sql.indexOf("*/", i + 2);
+            return end < 0 ? length : end + 2;
+        }
+        return i + 1;
+    }
+
+    public boolean isConstant() {
+        return slots.length == 0;
+    }
+
+    public int slotCount() {
+        return slots.length;
+    }
+}
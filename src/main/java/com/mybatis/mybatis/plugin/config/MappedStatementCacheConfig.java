@@ -0,0 +1,33 @@
+package com.mybatis.mybatis.plugin.config;
+
+/**
+ * 改写后 MappedStatement 缓存配置，对应 guarder.mapped-statement-cache.*
+ */
+public class MappedStatementCacheConfig {
+
+    /**
+     * 是否缓存改写后的 MappedStatement，默认关闭，每次改写都创建新的 MappedStatement
+     */
+    private Boolean enable = false;
+
+    /**
+     * 缓存最大条目数，超过后按访问频率淘汰
+     */
+    private Long maximumSize = 10000L;
+
+    public Boolean getEnable() {
+        return enable;
+    }
+
+    public void setEnable(Boolean enable) {
+        this.enable = enable;
+    }
+
+    public Long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(Long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+}
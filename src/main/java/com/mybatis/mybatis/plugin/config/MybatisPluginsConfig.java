@@ -13,6 +13,57 @@ public class MybatisPluginsConfig {
 
     private List<PluginConfig> plugins;
 
+    /**
+     * 改写后 SQL 缓存配置
+     */
+    private RewriteCacheConfig cache = new RewriteCacheConfig();
+
+    /**
+     * 改写后 MappedStatement 缓存配置
+     */
+    private MappedStatementCacheConfig mappedStatementCache = new MappedStatementCacheConfig();
+
+    /**
+     * 绑定参数模式：注入的字段值不再以字面量拼接，而是作为 ? 占位和参数映射加入 BoundSql，
+     * 不同租户执行的 SQL 文本相同，数据库可以复用执行计划
+     */
+    private Boolean bindValue = false;
+
+    /**
+     * 启动时预编译：容器刷新后把静态 SQL 的 SqlSource 替换为预编译的模板，执行时不再解析 SQL
+     */
+    private Boolean precompile = false;
+
+    /**
+     * 拼接改写：按词法单元位置把规则新增的内容插入原始 SQL，不再把整个语法树重新转成字符串
+     */
+    private Boolean splice = false;
+
+    /**
+     * 快速识别：拼接模式下简单的单表增删改查由手写识别器处理，不经过 JSqlParser，识别不了的语句仍然解析
+     */
+    private Boolean fastPath = false;
+
+    /**
+     * 解析失败 SQL 的缓存配置，同一条 SQL 解析失败后不再重复解析
+     */
+    private ParseFailureConfig parseFailure = new ParseFailureConfig();
+
+    /**
+     * 解析限制配置，超过长度、词法单元数量或者解析耗时上限的 SQL 按解析失败处理
+     */
+    private ParseLimitConfig parseLimit = new ParseLimitConfig();
+
+    /**
+     * IN 后面的字面量、? 列表元素数量达到该值时，解析前替换成一个占位标记，改写后再换回原始文本，0 表示不替换
+     */
+    private Integer collapseListSize = 0;
+
+    /**
+     * 多行 INSERT 的行数达到该值时，只解析、改写字段列表和一个占位行，再把改写追加到每一行，0 表示不替换
+     */
+    private Integer streamInsertRows = 0;
+
     public Boolean getEnable() {
         return enable;
     }
@@ -28,4 +79,84 @@ public class MybatisPluginsConfig {
     public void setPlugins(List<PluginConfig> plugins) {
         this.plugins = plugins;
     }
+
+    public RewriteCacheConfig getCache() {
+        return cache;
+    }
+
+    public void setCache(RewriteCacheConfig cache) {
+        this.cache = cache;
+    }
+
+    public MappedStatementCacheConfig getMappedStatementCache() {
+        return mappedStatementCache;
+    }
+
+    public void setMappedStatementCache(MappedStatementCacheConfig mappedStatementCache) {
+        this.mappedStatementCache = mappedStatementCache;
+    }
+
+    public Boolean getBindValue() {
+        return bindValue;
+    }
+
+    public void setBindValue(Boolean bindValue) {
+        this.bindValue = bindValue;
+    }
+
+    public Boolean getPrecompile() {
+        return precompile;
+    }
+
+    public void setPrecompile(Boolean precompile) {
+        this.precompile = precompile;
+    }
+
+    public Boolean getSplice() {
+        return splice;
+    }
+
+    public void setSplice(Boolean splice) {
+        this.splice = splice;
+    }
+
+    public Boolean getFastPath() {
+        return fastPath;
+    }
+
+    public void setFastPath(Boolean fastPath) {
+        this.fastPath = fastPath;
+    }
+
+    public ParseFailureConfig getParseFailure() {
+        return parseFailure;
+    }
+
+    public void setParseFailure(ParseFailureConfig parseFailure) {
+        this.parseFailure = parseFailure;
+    }
+
+    public ParseLimitConfig getParseLimit() {
+        return parseLimit;
+    }
+
+    public void setParseLimit(ParseLimitConfig parseLimit) {
+        this.parseLimit = parseLimit;
+    }
+
+    public Integer getCollapseListSize() {
+        return collapseListSize;
+    }
+
+    public void setCollapseListSize(Integer collapseListSize) {
+        this.collapseListSize = collapseListSize;
+    }
+
+    public Integer getStreamInsertRows() {
+        return streamInsertRows;
+    }
+
+    public void setStreamInsertRows(Integer streamInsertRows) {
+        this.streamInsertRows = streamInsertRows;
+    }
 }
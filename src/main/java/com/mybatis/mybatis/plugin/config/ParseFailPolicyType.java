@@ -0,0 +1,21 @@
+package com.mybatis.mybatis.plugin.config;
+
+/**
+ * SQL 无法解析时插件的执行策略
+ */
+public enum ParseFailPolicyType {
+    /**
+     * 忽略当前插件，SQL 原样执行
+     */
+    pass,
+
+    /**
+     * 停止执行，抛出 SqlParseFailException
+     */
+    block,
+
+    /**
+     * 按正则在 where 子句中注入 add_where_field 规则的条件，无法确定注入位置时与 block 相同
+     */
+    fallback;
+}
@@ -0,0 +1,33 @@
+package com.mybatis.mybatis.plugin.config;
+
+/**
+ * 解析失败 SQL 的缓存配置，对应 guarder.parse-failure.*
+ */
+public class ParseFailureConfig {
+
+    /**
+     * 最多记录的解析失败 SQL 数量，超过后按访问频率淘汰
+     */
+    private Long maximumSize = 1000L;
+
+    /**
+     * 解析超时的 SQL 记录多少秒，过期后重新尝试解析；超时与当时的负载有关，不永久记录
+     */
+    private Long timeoutExpireSeconds = 60L;
+
+    public Long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(Long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Long getTimeoutExpireSeconds() {
+        return timeoutExpireSeconds;
+    }
+
+    public void setTimeoutExpireSeconds(Long timeoutExpireSeconds) {
+        this.timeoutExpireSeconds = timeoutExpireSeconds;
+    }
+}
@@ -0,0 +1,85 @@
+package com.mybatis.mybatis.plugin.config;
+
+/**
+ * 解析限制配置，对应 guarder.parse-limit.*；超过限制的 SQL 不再解析，按插件的 parse-limit-policy 处理
+ */
+public class ParseLimitConfig {
+
+    /**
+     * SQL 最大长度，0 表示不限制
+     */
+    private Integer maxLength = 0;
+
+    /**
+     * SQL 最多的词法单元数量，0 表示不限制
+     */
+    private Integer maxTokens = 0;
+
+    /**
+     * 单次解析的耗时上限（毫秒），0 表示不限制；开启后解析在独立的线程池中执行，执行 SQL 的线程最多等待该时间
+     */
+    private Long timeoutMillis = 0L;
+
+    /**
+     * 开启解析耗时上限时解析线程池的线程数，默认为 CPU 核数
+     */
+    private Integer threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 解析线程池的队列长度，队列已满时不解析，按超过解析限制处理但不记录到解析失败缓存
+     */
+    private Integer queueSize = 1000;
+
+    /**
+     * 记录解析耗时最长的 SQL 数量，0 表示不记录
+     */
+    private Integer slowest = 20;
+
+    public Integer getMaxLength() {
+        return maxLength;
+    }
+
+    public void setMaxLength(Integer maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    public Integer getMaxTokens() {
+        return maxTokens;
+    }
+
+    public void setMaxTokens(Integer maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+
+    public Long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public void setTimeoutMillis(Long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public Integer getThreads() {
+        return threads;
+    }
+
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
+
+    public Integer getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(Integer queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public Integer getSlowest() {
+        return slowest;
+    }
+
+    public void setSlowest(Integer slowest) {
+        this.slowest = slowest;
+    }
+}
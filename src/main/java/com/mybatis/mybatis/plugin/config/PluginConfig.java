@@ -34,6 +34,16 @@ public class PluginConfig implements Comparable<PluginConfig> {
      */
     private List<PluginRule> rules;
 
+    /**
+     * SQL 无法解析时的执行策略，默认抛出异常终止执行
+     */
+    private ParseFailPolicyType parseFailPolicy = ParseFailPolicyType.block;
+
+    /**
+     * SQL 超过解析限制（包括解析线程池繁忙、解析超时）时的执行策略，默认抛出异常终止执行，不沿用 parseFailPolicy
+     */
+    private ParseFailPolicyType parseLimitPolicy = ParseFailPolicyType.block;
+
     public String getName() {
         return name;
     }
@@ -82,6 +92,22 @@ public class PluginConfig implements Comparable<PluginConfig> {
         this.rules = rules;
     }
 
+    public ParseFailPolicyType getParseFailPolicy() {
+        return parseFailPolicy;
+    }
+
+    public void setParseFailPolicy(ParseFailPolicyType parseFailPolicy) {
+        this.parseFailPolicy = parseFailPolicy;
+    }
+
+    public ParseFailPolicyType getParseLimitPolicy() {
+        return parseLimitPolicy;
+    }
+
+    public void setParseLimitPolicy(ParseFailPolicyType parseLimitPolicy) {
+        this.parseLimitPolicy = parseLimitPolicy;
+    }
+
     @Override
     public int compareTo(PluginConfig o2) {
         PluginConfig o1 = this;
@@ -0,0 +1,47 @@
+package com.mybatis.mybatis.plugin.config;
+
+/**
+ * 改写后 SQL 缓存配置，对应 guarder.cache.*
+ */
+public class RewriteCacheConfig {
+
+    /**
+     * 是否开启改写缓存，默认关闭
+     */
+    private Boolean enable = false;
+
+    /**
+     * 缓存最大条目数，超过后按访问频率淘汰
+     */
+    private Long maximumSize = 10000L;
+
+    /**
+     * 模板模式：规则改写时用占位标记代替字段值，缓存与字段值无关的模板，
+     * 多个租户共享同一条缓存，每次执行只做字符串拼接
+     */
+    private Boolean template = false;
+
+    public Boolean getEnable() {
+        return enable;
+    }
+
+    public void setEnable(Boolean enable) {
+        this.enable = enable;
+    }
+
+    public Long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(Long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Boolean getTemplate() {
+        return template;
+    }
+
+    public void setTemplate(Boolean template) {
+        this.template = template;
+    }
+}
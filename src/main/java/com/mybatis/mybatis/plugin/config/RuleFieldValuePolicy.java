@@ -19,6 +19,11 @@ public class RuleFieldValuePolicy {
      */
     private String value;
 
+    /**
+     * 字段值类型，默认字符串
+     */
+    private RuleFieldValueType type = RuleFieldValueType.string;
+
     public RuleFieldValuePolicyType getName() {
         return name;
     }
@@ -34,4 +39,12 @@ public class RuleFieldValuePolicy {
     public void setValue(String value) {
         this.value = value;
     }
+
+    public RuleFieldValueType getType() {
+        return type;
+    }
+
+    public void setType(RuleFieldValueType type) {
+        this.type = type;
+    }
 }
@@ -0,0 +1,24 @@
+package com.mybatis.mybatis.plugin.config;
+
+/**
+ * 字段值类型，决定字段值以什么字面量写入 SQL，与字段的列类型一致时数据库才能使用索引
+ */
+public enum RuleFieldValueType {
+
+    /**
+     * 字符串，写入 '42'
+     */
+    string,
+    /**
+     * 数字，写入 42 或 4.2
+     */
+    number,
+    /**
+     * 日期，格式 yyyy-MM-dd，写入 DATE '2020-08-14'
+     */
+    date,
+    /**
+     * 时间戳，格式 yyyy-MM-dd HH:mm:ss[.f...]，写入 TIMESTAMP '2020-08-14 10:00:00'
+     */
+    timestamp;
+}
@@ -13,6 +13,7 @@ public class RuleProcessPolicyException extends RuntimeException {
 
     public RuleProcessPolicyException(PluginRule rule) {
         this(rule.toString());
+        this.rule = rule;
     }
 
     public RuleProcessPolicyException(String message) {
@@ -31,4 +32,11 @@ public class RuleProcessPolicyException extends RuntimeException {
                                       boolean enableSuppression, boolean writableStackTrace) {
         super(message, cause, enableSuppression, writableStackTrace);
     }
+
+    /**
+     * 字段值获取失败的规则，通过消息创建时为 null
+     */
+    public PluginRule getRule() {
+        return rule;
+    }
 }
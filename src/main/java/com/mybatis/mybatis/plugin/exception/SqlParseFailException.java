@@ -0,0 +1,24 @@
+package com.mybatis.mybatis.plugin.exception;
+
+/**
+ * @program: mybatis plugin
+ * @description: parse-fail-policy 为 block 时，SQL 无法解析并且插件可能对它生效
+ */
+public class SqlParseFailException extends RuntimeException {
+
+    private String sql;
+
+    public SqlParseFailException(String message, String sql) {
+        super(message);
+        this.sql = sql;
+    }
+
+    public SqlParseFailException(String message, Throwable cause, String sql) {
+        super(message, cause);
+        this.sql = sql;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+}
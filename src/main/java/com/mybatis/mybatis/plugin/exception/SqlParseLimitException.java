@@ -0,0 +1,47 @@
+package com.mybatis.mybatis.plugin.exception;
+
+import net.sf.jsqlparser.JSQLParserException;
+
+/**
+ * @program: mybatis plugin
+ * @description: SQL 超过解析限制（长度、词法单元数量、解析耗时）或者解析线程池繁忙，没有完成解析；与语法不支持一样按解析失败处理。
+ * 长度和词法单元数量只与 SQL 有关，解析耗时、排队与当时的负载有关，解析失败缓存按原因决定是否记录以及记录多久
+ */
+public class SqlParseLimitException extends JSQLParserException {
+
+    /**
+     * 没有完成解析的原因
+     */
+    public enum Reason {
+        /**
+         * 超过最大长度
+         */
+        length,
+
+        /**
+         * 超过最多的词法单元数量
+         */
+        tokens,
+
+        /**
+         * 解析开始后超过耗时上限
+         */
+        timeout,
+
+        /**
+         * 解析线程池队列已满、排队超过耗时上限或者等待时被中断，没有开始解析
+         */
+        busy;
+    }
+
+    private final Reason reason;
+
+    public SqlParseLimitException(String message, Reason reason) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,133 @@
+package com.mybatis.mybatis.plugin.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.apache.ibatis.mapping.MappedStatement;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: mybatis plugin
+ * @description: 使用 Micrometer 记录拦截器的统计：
+ * guarder.phase 计时器按 phase、namespace、type 标签记录各阶段耗时，
+ * guarder.statements 计数器按 outcome、namespace、type、plugin 标签记录语句的处理结果。
+ * namespace 是 MappedStatement id 去掉方法名的部分，type 是 SqlCommandType，plugin 是配置的插件名，
+ * 标签的取值都是有限的。Meter 按 MappedStatement id 缓存，执行 SQL 时只查询一次 Map
+ */
+public class MicrometerPluginMetrics implements PluginMetrics {
+
+    public static final String PHASE = "guarder.phase";
+
+    public static final String STATEMENTS = "guarder.statements";
+
+    /**
+     * 无法确定插件时 plugin 标签的值
+     */
+    public static final String NONE = "none";
+
+    private static final PluginPhase[] PHASES = PluginPhase.values();
+
+    private static final PluginOutcome[] OUTCOMES = PluginOutcome.values();
+
+    private final MeterRegistry registry;
+
+    private final ConcurrentMap<String, StatementMeters> meters = new ConcurrentHashMap<>();
+
+    public MicrometerPluginMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void record(PluginPhase phase, MappedStatement statement, long nanos) {
+        meters(statement).timer(phase).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void count(PluginOutcome outcome, MappedStatement statement, String plugin) {
+        meters(statement).counter(outcome, plugin).increment();
+    }
+
+    private StatementMeters meters(MappedStatement statement) {
+        StatementMeters statementMeters = meters.get(statement.getId());
+        if (statementMeters == null) {
+            statementMeters = meters.computeIfAbsent(statement.getId(), id -> new StatementMeters(Tags.of(
+                    "namespace", namespace(id), "type", String.valueOf(statement.getSqlCommandType()))));
+        }
+        return statementMeters;
+    }
+
+    /**
+     * @return MappedStatement id 去掉最后一段方法名
+     */
+    static String namespace(String statementId) {
+        int dot = statementId.lastIndexOf('.');
+        return dot <= 0 ? statementId : statementId.substring(0, dot);
+    }
+
+    /**
+     * 一个 MappedStatement 使用的 Meter，第一次使用时注册；并发注册时 MeterRegistry 返回同一个 Meter
+     */
+    private final class StatementMeters {
+
+        private final Tags tags;
+
+        private final Timer[] timers = new Timer[PHASES.length];
+
+        /**
+         * 没有插件名的计数器
+         */
+        private final Counter[] counters = new Counter[OUTCOMES.length];
+
+        /**
+         * 按插件区分的计数器，只有失败、停止时使用
+         */
+        private final ConcurrentMap<String, Counter> pluginCounters = new ConcurrentHashMap<>();
+
+        private StatementMeters(Tags tags) {
+            this.tags = tags;
+        }
+
+        private Timer timer(PluginPhase phase) {
+            Timer timer = timers[phase.ordinal()];
+            if (timer == null) {
+                timer = Timer.builder(PHASE)
+                        .description("guarder interceptor phase duration")
+                        .tags(tags)
+                        .tag("phase", phase.name())
+                        .register(registry);
+                timers[phase.ordinal()] = timer;
+            }
+            return timer;
+        }
+
+        private Counter counter(PluginOutcome outcome, String plugin) {
+            if (plugin == null) {
+                Counter counter = counters[outcome.ordinal()];
+                if (counter == null) {
+                    counter = register(outcome, NONE);
+                    counters[outcome.ordinal()] = counter;
+                }
+                return counter;
+            }
+            return pluginCounters.computeIfAbsent(outcome.name() + ':' + plugin, key -> register(outcome, plugin));
+        }
+
+        private Counter register(PluginOutcome outcome, String plugin) {
+            return Counter.builder(STATEMENTS)
+                    .description("guarder interceptor statements by outcome")
+                    .tags(tags)
+                    .tag("outcome", outcome.name())
+                    .tag("plugin", plugin)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.mybatis.mybatis.plugin.metrics;
+
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * @program: mybatis plugin
+ * @description: 拦截器各阶段的耗时和语句处理结果的统计，默认不统计；
+ * 调用方先判断 isEnabled，关闭时不取时间，也不记录各阶段耗时
+ */
+public interface PluginMetrics {
+
+    /**
+     * 不统计，没有 MeterRegistry 时使用
+     */
+    PluginMetrics NOOP = new PluginMetrics() {
+    };
+
+    /**
+     * @return 是否需要记录各阶段的耗时
+     */
+    default boolean isEnabled() {
+        return false;
+    }
+
+    /**
+     * 记录一个阶段的耗时
+     *
+     * @param phase     阶段
+     * @param statement 当前执行的 MappedStatement
+     * @param nanos     耗时，纳秒
+     */
+    default void record(PluginPhase phase, MappedStatement statement, long nanos) {
+    }
+
+    /**
+     * 记录语句的处理结果
+     *
+     * @param outcome   处理结果
+     * @param statement 当前执行的 MappedStatement
+     * @param plugin    导致失败或者停止的插件名，无法确定时为 null
+     */
+    default void count(PluginOutcome outcome, MappedStatement statement, String plugin) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.mybatis.mybatis.plugin.metrics;
+
+/**
+ * 拦截器处理一条语句的结果
+ */
+public enum PluginOutcome {
+    /**
+     * 忽略注解、没有插件生效或者 SQL 已经包含规则字段，没有改写
+     */
+    skipped,
+
+    /**
+     * SQL 被改写
+     */
+    rewritten,
+
+    /**
+     * 插件执行出错，包括 parse-fail-policy 为 block 时无法解析的 SQL
+     */
+    failed,
+
+    /**
+     * field-value-fail-policy 为 stop，字段值获取失败后停止执行
+     */
+    stopped;
+}
@@ -0,0 +1,46 @@
+package com.mybatis.mybatis.plugin.metrics;
+
+/**
+ * 拦截器中计时的阶段，解析在第一次需要语法树时发生，耗时同时计入 detect 或者 rule
+ */
+public enum PluginPhase {
+    /**
+     * 拦截器执行所有 InterceptorAware 的前置处理，不包含 SQL 执行
+     */
+    intercept,
+
+    /**
+     * 查找 Mapper 类或方法上的 IgnoreTenant 注解
+     */
+    ignore_lookup,
+
+    /**
+     * 检测 SQL 中是否已经包含规则字段
+     */
+    detect,
+
+    /**
+     * JSqlParser 解析 SQL
+     */
+    parse,
+
+    /**
+     * 执行插件规则，拼接模式下包含生成改写后的 SQL
+     */
+    rule,
+
+    /**
+     * 把改写后的语法树转成字符串
+     */
+    deparse,
+
+    /**
+     * 创建或者从缓存取出改写后的 MappedStatement、BoundSql
+     */
+    mapped_statement,
+
+    /**
+     * 预编译的 SqlSource 生成 BoundSql 时填入字段值，模板失效时包含回退的检测和改写
+     */
+    precompiled;
+}
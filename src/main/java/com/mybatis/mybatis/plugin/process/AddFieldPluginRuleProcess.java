@@ -1,5 +1,6 @@
 package com.mybatis.mybatis.plugin.process;
 
+import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.insert.Insert;
 import net.sf.jsqlparser.statement.update.Update;
@@ -24,7 +25,7 @@ public class AddFieldPluginRuleProcess implements RulePolicyProcess {
     }
 
     @Override
-    public void ruleProcess(Statement statement, String field, String fieldValue) {
+    public void ruleProcess(Statement statement, String field, Expression fieldValue) {
         if (statement instanceof Insert) {
             insertFieldPluginRuleProcess.ruleProcess(statement, field, fieldValue);
         } else if (statement instanceof Update) {
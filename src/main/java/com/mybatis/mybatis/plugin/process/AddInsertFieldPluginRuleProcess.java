@@ -1,6 +1,6 @@
 package com.mybatis.mybatis.plugin.process;
 
-import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
 import net.sf.jsqlparser.expression.operators.relational.ItemsList;
 import net.sf.jsqlparser.expression.operators.relational.MultiExpressionList;
@@ -17,13 +17,13 @@ import net.sf.jsqlparser.statement.insert.Insert;
 public class AddInsertFieldPluginRuleProcess implements RulePolicyProcess {
 
     @Override
-    public void ruleProcess(Statement statement, String field, String fieldValue) {
+    public void ruleProcess(Statement statement, String field, Expression fieldValue) {
         if (statement instanceof Insert) {
             this.processInsert((Insert) statement, field, fieldValue);
         }
     }
 
-    private void processInsert(Insert insert, String field, String fieldValue) {
+    private void processInsert(Insert insert, String field, Expression fieldValue) {
         insert.getColumns().add(new Column(field));
         if (insert.getSelect() != null) {
 //            processPlainSelect((PlainSelect) insert.getSelect().getSelectBody(), true,field,fieldValue);
@@ -34,9 +34,9 @@ public class AddInsertFieldPluginRuleProcess implements RulePolicyProcess {
             ItemsList itemsList = insert.getItemsList();
             if (itemsList instanceof MultiExpressionList) {
                 ((MultiExpressionList) itemsList).getExprList().forEach(el ->
-                        el.getExpressions().add(new StringValue(fieldValue)));
+                        el.getExpressions().add(fieldValue));
             } else {
-                ((ExpressionList) insert.getItemsList()).getExpressions().add(new StringValue(fieldValue));
+                ((ExpressionList) insert.getItemsList()).getExpressions().add(fieldValue);
             }
         } else {
             throw new RuntimeException("Failed to process multiple-table update, please exclude the tableName or statementId");
@@ -1,13 +1,10 @@
 package com.mybatis.mybatis.plugin.process;
 
 import net.sf.jsqlparser.expression.Expression;
-import net.sf.jsqlparser.expression.StringValue;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.update.Update;
 
-import java.util.List;
-
 /**
  * @program: mybatis plugin
  * @description:
@@ -17,19 +14,14 @@ import java.util.List;
 public class AddUpdateFieldPluginRuleProcess implements RulePolicyProcess {
 
     @Override
-    public void ruleProcess(Statement statement, String field, String fieldValue) {
+    public void ruleProcess(Statement statement, String field, Expression fieldValue) {
         if (statement instanceof Update) {
             this.processUpdate((Update) statement, field, fieldValue);
         }
     }
 
-    private void processUpdate(Update update, String field, String fieldValue) {
-
-        List<Column> columns = update.getColumns();
-        columns.add(new Column(field));
-
-        List<Expression> expressions = update.getExpressions();
-        StringValue value = new StringValue(fieldValue);
-        expressions.add(value);
+    private void processUpdate(Update update, String field, Expression fieldValue) {
+        // jsqlparser 4.x 的 getColumns()/getExpressions() 返回的是拷贝，需要通过 UpdateSet 添加
+        update.addUpdateSet(new Column(field), fieldValue);
     }
 }
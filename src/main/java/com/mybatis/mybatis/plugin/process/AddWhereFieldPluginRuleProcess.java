@@ -1,13 +1,8 @@
 package com.mybatis.mybatis.plugin.process;
 
-import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
-import com.mybatis.mybatis.plugin.config.PluginConfig;
-import com.mybatis.mybatis.plugin.config.PluginLevelType;
-import com.mybatis.mybatis.plugin.utils.SpringContextUtil;
 import net.sf.jsqlparser.expression.BinaryExpression;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.Parenthesis;
-import net.sf.jsqlparser.expression.StringValue;
 import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
 import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
 import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
@@ -25,14 +20,12 @@ import net.sf.jsqlparser.statement.select.*;
 import net.sf.jsqlparser.statement.update.Update;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.util.CollectionUtils;
 
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * @program: mybatis plugin
@@ -45,6 +38,19 @@ public class AddWhereFieldPluginRuleProcess implements RulePolicyProcess {
 
     private static final Logger logger = LoggerFactory.getLogger(AddWhereFieldPluginRuleProcess.class);
 
+    /**
+     * 判断联接表是否需要追加条件的插件快照
+     */
+    private final PluginsSnapshot plugins;
+
+    public AddWhereFieldPluginRuleProcess() {
+        this(PluginsSnapshot.EMPTY);
+    }
+
+    public AddWhereFieldPluginRuleProcess(PluginsSnapshot plugins) {
+        this.plugins = plugins == null ? PluginsSnapshot.EMPTY : plugins;
+    }
+
 
 
 
@@ -54,7 +60,7 @@ public class AddWhereFieldPluginRuleProcess implements RulePolicyProcess {
      * @param fieldValue 字段值
      */
     @Override
-    public void ruleProcess(Statement statement, String field, String fieldValue) {
+    public void ruleProcess(Statement statement, String field, Expression fieldValue) {
         if (statement instanceof Insert) {
             this.processInsert((Insert) statement, field, fieldValue);
         } else if (statement instanceof Select) {
@@ -66,11 +72,23 @@ public class AddWhereFieldPluginRuleProcess implements RulePolicyProcess {
         }
     }
 
+    /**
+     * 处理器在所有改写之间共享，按本次改写的插件快照创建处理器执行
+     */
+    @Override
+    public void ruleProcess(Statement statement, String field, Expression fieldValue, PluginsSnapshot plugins) {
+        if (plugins == this.plugins) {
+            ruleProcess(statement, field, fieldValue);
+            return;
+        }
+        new AddWhereFieldPluginRuleProcess(plugins).ruleProcess(statement, field, fieldValue);
+    }
+
     /**
      * insert 语句处理
      */
 
-    private void processInsert(Insert insert, String field, String fieldValue) {
+    private void processInsert(Insert insert, String field, Expression fieldValue) {
         insert.getColumns().add(new Column(field));
 
         if (insert.getSelect() != null) {
@@ -82,9 +100,9 @@ public class AddWhereFieldPluginRuleProcess implements RulePolicyProcess {
             ItemsList itemsList = insert.getItemsList();
             if (itemsList instanceof MultiExpressionList) {
                 ((MultiExpressionList) itemsList).getExprList().forEach(el ->
-                        el.getExpressions().add(new StringValue(fieldValue)));
+                        el.getExpressions().add(fieldValue));
             } else {
-                ((ExpressionList) insert.getItemsList()).getExpressions().add(new StringValue(fieldValue));
+                ((ExpressionList) insert.getItemsList()).getExpressions().add(fieldValue);
             }
         } else {
             throw new RuntimeException("Failed to process multiple-table update, please exclude the tableName or statementId");
@@ -95,7 +113,7 @@ public class AddWhereFieldPluginRuleProcess implements RulePolicyProcess {
      * select 语句处理
      */
 
-    private void processSelectBody(SelectBody selectBody, String field, String fieldValue) {
+    private void processSelectBody(SelectBody selectBody, String field, Expression fieldValue) {
         if (selectBody instanceof PlainSelect) {
             processPlainSelect((PlainSelect) selectBody, false, field, fieldValue);
         }
@@ -122,7 +140,7 @@ public class AddWhereFieldPluginRuleProcess implements RulePolicyProcess {
      * update 语句处理
      */
 
-    private void processUpdate(Update update, String field, String fieldValue) {
+    private void processUpdate(Update update, String field, Expression fieldValue) {
        // Table table = update.getTables().get(0);
         Table table = update.getTable();
         update.setWhere(this.andExpression(table, update.getWhere(), field, fieldValue));
@@ -132,7 +150,7 @@ public class AddWhereFieldPluginRuleProcess implements RulePolicyProcess {
      * delete 语句处理
      */
 
-    private void processDelete(Delete delete, String field, String fieldValue) {
+    private void processDelete(Delete delete, String field, Expression fieldValue) {
         delete.setWhere(this.andExpression(delete.getTable(), delete.getWhere(), field, fieldValue));
     }
 
@@ -142,7 +160,7 @@ public class AddWhereFieldPluginRuleProcess implements RulePolicyProcess {
      * @param plainSelect ignore
      * @param addColumn   是否添加租户列,insert into select语句中需要
      */
-    private void processPlainSelect(PlainSelect plainSelect, boolean addColumn, String field, String fieldValue) {
+    private void processPlainSelect(PlainSelect plainSelect, boolean addColumn, String field, Expression fieldValue) {
         FromItem fromItem = plainSelect.getFromItem();
         if (fromItem instanceof Table) {
             Table fromTable = (Table) fromItem;
@@ -168,7 +186,7 @@ public class AddWhereFieldPluginRuleProcess implements RulePolicyProcess {
     /**
      * 处理子查询等
      */
-    private void processFromItem(FromItem fromItem, String field, String fieldValue) {
+    private void processFromItem(FromItem fromItem, String field, Expression fieldValue) {
         if (fromItem instanceof SubJoin) {
             SubJoin subJoin = (SubJoin) fromItem;
             if (subJoin.getJoinList() != null) {
@@ -199,12 +217,12 @@ public class AddWhereFieldPluginRuleProcess implements RulePolicyProcess {
     /**
      * delete update 语句 where 处理
      */
-    private BinaryExpression andExpression(Table table, Expression where, String field, String fieldValue) {
+    private BinaryExpression andExpression(Table table, Expression where, String field, Expression fieldValue) {
         //获得where条件表达式
         EqualsTo equalsTo = new EqualsTo();
 
         equalsTo.setLeftExpression(this.getAliasColumn(table, field));
-        equalsTo.setRightExpression(new StringValue(fieldValue));
+        equalsTo.setRightExpression(fieldValue);
         if (null != where) {
             if (where instanceof OrExpression) {
                 return new AndExpression(equalsTo, new Parenthesis(where));
@@ -239,8 +257,8 @@ public class AddWhereFieldPluginRuleProcess implements RulePolicyProcess {
      * 支持 getTenantHandler().getTenantId()是一个完整的表达式：tenant in (1,2)
      * 默认tenantId的表达式： LongValue(1)这种依旧支持
      */
-    private Expression builderExpression(Expression currentExpression, Table table, String field, String fieldValue) {
-        final Expression tenantExpression = new StringValue(fieldValue);
+    private Expression builderExpression(Expression currentExpression, Table table, String field, Expression fieldValue) {
+        final Expression tenantExpression = fieldValue;
         Expression appendExpression;
         if (!(tenantExpression instanceof SupportsOldOracleJoinSyntax)) {
             appendExpression = new EqualsTo();
@@ -273,11 +291,11 @@ public class AddWhereFieldPluginRuleProcess implements RulePolicyProcess {
     /**
      * 处理联接语句
      */
-    private void processJoin(Join join, String field, String fieldValue) {
+    private void processJoin(Join join, String field, Expression fieldValue) {
         if (join.getRightItem() instanceof Table) {
             Table fromTable = (Table) join.getRightItem();
             //验证表 是否要添加租户
-            Boolean validResult = tableNameValid(fromTable.getFullyQualifiedName());
+            Boolean validResult = tableNameValid(fromTable);
             if(!validResult){
                 // DO NOTHING
             }else {
@@ -290,48 +308,15 @@ public class AddWhereFieldPluginRuleProcess implements RulePolicyProcess {
         }
     }
 
-    private Boolean tableNameValid(String tableName) {
+    private Boolean tableNameValid(Table table) {
+        // 没有库名时完整表名就是表名，不需要再拼接
+        String tableName = table.getSchemaName() == null && table.getDatabase() == null
+                ? table.getName() : table.getFullyQualifiedName();
         logger.debug("连接表名{}", tableName);
-        //获取配置
-      MybatisPluginsConfig  mybatisPluginsConfig = SpringContextUtil.getBean(MybatisPluginsConfig.class);
-      if(null!= mybatisPluginsConfig){
-          List<PluginConfig> plugins = mybatisPluginsConfig.getPlugins();
-          for (PluginConfig plugin : plugins) {
-              PluginLevelType level = plugin.getLevel();
-              List<String> values = plugin.getValue();
-              if (CollectionUtils.isEmpty(values)) {
-                  values = new ArrayList<>();
-              }
-              List<String> lowerCaseValues = values.stream().map(String::toLowerCase).collect(Collectors.toList());
-              if(PluginLevelType.table.equals(level)){
-
-                  if (lowerCaseValues.contains("all")) {
-                      return true;
-                  }
-
-                  if (lowerCaseValues.contains(tableName.toLowerCase())) {
-                      return true;
-                  }
-                  for (String name :lowerCaseValues ) {
-                      if(name.contains("**")){
-                          // 模糊配置
-                          name =  name.replaceAll("\\*\\*", "");
-                          if(tableName.toLowerCase().contains(name) ){
-                              return  true;
-                          }
-                      }
-                  }
-
-              }
-
-          }
-
-      }
-      return  false;
-
+        return plugins.joinTableMatches(tableName);
     }
 
-    private void doExpression(Expression expression, String field, String fieldValue) {
+    private void doExpression(Expression expression, String field, Expression fieldValue) {
         if (expression instanceof FromItem) {
             processFromItem((FromItem) expression, field, fieldValue);
         } else if (expression instanceof InExpression) {
@@ -0,0 +1,33 @@
+package com.mybatis.mybatis.plugin.process;
+
+/**
+ * @program: mybatis plugin
+ * @description: 绑定参数模式下注入的字段值，SQL 中对应一个 ? 占位，position 是该占位在改写后 SQL 所有 ? 中的下标
+ */
+public final class BindValue {
+
+    private final int position;
+
+    private final Object value;
+
+    public BindValue(int position, Object value) {
+        this.position = position;
+        this.value = value;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "BindValue{" +
+                "position=" + position +
+                ", value=" + value +
+                '}';
+    }
+}
@@ -3,7 +3,6 @@ package com.mybatis.mybatis.plugin.process;
 import net.sf.jsqlparser.expression.BinaryExpression;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.Parenthesis;
-import net.sf.jsqlparser.expression.StringValue;
 import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
 import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
 import net.sf.jsqlparser.expression.operators.relational.*;
@@ -35,7 +34,7 @@ public class ChangeTableNamePluginRuleProcess implements RulePolicyProcess {
      * @param fieldValue 字段值
      */
     @Override
-    public void ruleProcess(Statement statement, String field, String fieldValue) {
+    public void ruleProcess(Statement statement, String field, Expression fieldValue) {
         if (statement instanceof Insert) {
             this.processInsert((Insert) statement, field, fieldValue);
         } else if (statement instanceof Select) {
@@ -51,7 +50,7 @@ public class ChangeTableNamePluginRuleProcess implements RulePolicyProcess {
      * insert 语句处理
      */
 
-    private void processInsert(Insert insert, String field, String fieldValue) {
+    private void processInsert(Insert insert, String field, Expression fieldValue) {
         insert.getColumns().add(new Column(field));
         if (insert.getSelect() != null) {
 //            processPlainSelect((PlainSelect) insert.getSelect().getSelectBody(), true,field,fieldValue);
@@ -61,9 +60,9 @@ public class ChangeTableNamePluginRuleProcess implements RulePolicyProcess {
             ItemsList itemsList = insert.getItemsList();
             if (itemsList instanceof MultiExpressionList) {
                 ((MultiExpressionList) itemsList).getExprList().forEach(el ->
-                        el.getExpressions().add(new StringValue(fieldValue)));
+                        el.getExpressions().add(fieldValue));
             } else {
-                ((ExpressionList) insert.getItemsList()).getExpressions().add(new StringValue(fieldValue));
+                ((ExpressionList) insert.getItemsList()).getExpressions().add(fieldValue);
             }
         } else {
             throw new RuntimeException("Failed to process multiple-table update, please exclude the tableName or statementId");
@@ -74,7 +73,7 @@ public class ChangeTableNamePluginRuleProcess implements RulePolicyProcess {
      * select 语句处理
      */
 
-    private void processSelectBody(SelectBody selectBody, String field, String fieldValue) {
+    private void processSelectBody(SelectBody selectBody, String field, Expression fieldValue) {
         if (selectBody instanceof PlainSelect) {
             processPlainSelect((PlainSelect) selectBody, false, field, fieldValue);
         }
@@ -99,7 +98,7 @@ public class ChangeTableNamePluginRuleProcess implements RulePolicyProcess {
      * update 语句处理
      */
 
-    private void processUpdate(Update update, String field, String fieldValue) {
+    private void processUpdate(Update update, String field, Expression fieldValue) {
       //  Table table = update.getTables().get(0);
         Table table = update.getTable();
         update.setWhere(this.andExpression(table, update.getWhere(), field, fieldValue));
@@ -109,7 +108,7 @@ public class ChangeTableNamePluginRuleProcess implements RulePolicyProcess {
      * delete 语句处理
      */
 
-    private void processDelete(Delete delete, String field, String fieldValue) {
+    private void processDelete(Delete delete, String field, Expression fieldValue) {
         delete.setWhere(this.andExpression(delete.getTable(), delete.getWhere(), field, fieldValue));
     }
 
@@ -119,7 +118,7 @@ public class ChangeTableNamePluginRuleProcess implements RulePolicyProcess {
      * @param plainSelect ignore
      * @param addColumn   是否添加租户列,insert into select语句中需要
      */
-    private void processPlainSelect(PlainSelect plainSelect, boolean addColumn, String field, String fieldValue) {
+    private void processPlainSelect(PlainSelect plainSelect, boolean addColumn, String field, Expression fieldValue) {
         FromItem fromItem = plainSelect.getFromItem();
         if (fromItem instanceof Table) {
             Table fromTable = (Table) fromItem;
@@ -144,7 +143,7 @@ public class ChangeTableNamePluginRuleProcess implements RulePolicyProcess {
     /**
      * 处理子查询等
      */
-    private void processFromItem(FromItem fromItem, String field, String fieldValue) {
+    private void processFromItem(FromItem fromItem, String field, Expression fieldValue) {
         if (fromItem instanceof SubJoin) {
             SubJoin subJoin = (SubJoin) fromItem;
             if (!subJoin.getJoinList().isEmpty()) {
@@ -175,12 +174,12 @@ public class ChangeTableNamePluginRuleProcess implements RulePolicyProcess {
     /**
      * delete update 语句 where 处理
      */
-    private BinaryExpression andExpression(Table table, Expression where, String field, String fieldValue) {
+    private BinaryExpression andExpression(Table table, Expression where, String field, Expression fieldValue) {
         //获得where条件表达式
         EqualsTo equalsTo = new EqualsTo();
 
         equalsTo.setLeftExpression(this.getAliasColumn(table, field));
-        equalsTo.setRightExpression(new StringValue(fieldValue));
+        equalsTo.setRightExpression(fieldValue);
         if (null != where) {
             if (where instanceof OrExpression) {
                 return new AndExpression(equalsTo, new Parenthesis(where));
@@ -215,8 +214,8 @@ public class ChangeTableNamePluginRuleProcess implements RulePolicyProcess {
      * 支持 getTenantHandler().getTenantId()是一个完整的表达式：tenant in (1,2)
      * 默认tenantId的表达式： LongValue(1)这种依旧支持
      */
-    private Expression builderExpression(Expression currentExpression, Table table, String field, String fieldValue) {
-        final Expression tenantExpression = new StringValue(fieldValue);
+    private Expression builderExpression(Expression currentExpression, Table table, String field, Expression fieldValue) {
+        final Expression tenantExpression = fieldValue;
         Expression appendExpression;
         if (!(tenantExpression instanceof SupportsOldOracleJoinSyntax)) {
             appendExpression = new EqualsTo();
@@ -249,14 +248,14 @@ public class ChangeTableNamePluginRuleProcess implements RulePolicyProcess {
     /**
      * 处理联接语句
      */
-    private void processJoin(Join join, String field, String fieldValue) {
+    private void processJoin(Join join, String field, Expression fieldValue) {
         if (join.getRightItem() instanceof Table) {
             Table fromTable = (Table) join.getRightItem();
             join.setOnExpression(builderExpression(join.getOnExpression(), fromTable, field, fieldValue));
         }
     }
 
-    private void doExpression(Expression expression, String field, String fieldValue) {
+    private void doExpression(Expression expression, String field, Expression fieldValue) {
         if (expression instanceof FromItem) {
             processFromItem((FromItem) expression, field, fieldValue);
         } else if (expression instanceof InExpression) {
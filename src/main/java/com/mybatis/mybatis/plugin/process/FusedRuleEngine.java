@@ -0,0 +1,406 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
+import net.sf.jsqlparser.expression.operators.relational.InExpression;
+import net.sf.jsqlparser.expression.operators.relational.ItemsList;
+import net.sf.jsqlparser.expression.operators.relational.MultiExpressionList;
+import net.sf.jsqlparser.expression.operators.relational.SupportsOldOracleJoinSyntax;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.delete.Delete;
+import net.sf.jsqlparser.statement.insert.Insert;
+import net.sf.jsqlparser.statement.select.FromItem;
+import net.sf.jsqlparser.statement.select.Join;
+import net.sf.jsqlparser.statement.select.LateralSubSelect;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.SelectBody;
+import net.sf.jsqlparser.statement.select.SetOperationList;
+import net.sf.jsqlparser.statement.select.SubJoin;
+import net.sf.jsqlparser.statement.select.SubSelect;
+import net.sf.jsqlparser.statement.select.ValuesList;
+import net.sf.jsqlparser.statement.update.Update;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @program: mybatis plugin
+ * @description: 融合规则引擎，一次遍历语法树执行所有内置规则。每个节点上按规则顺序依次追加条件，
+ * 同时记录每条规则会继续处理哪些子查询，子节点只遍历一次，带着到达它的规则列表继续处理；
+ * 结果与按规则逐条执行 AddWhereFieldPluginRuleProcess、AddInsertFieldPluginRuleProcess、
+ * AddUpdateFieldPluginRuleProcess、AddFieldPluginRuleProcess 完全一致，包括逐条执行时只处理一层子查询的行为
+ */
+public final class FusedRuleEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(FusedRuleEngine.class);
+
+    private static final Set<PluginRuleValueType> SUPPORTED = Collections.unmodifiableSet(EnumSet.of(
+            PluginRuleValueType.add_where_field, PluginRuleValueType.add_insert_field,
+            PluginRuleValueType.add_update_field, PluginRuleValueType.add_field));
+
+    private FusedRuleEngine() {
+    }
+
+    /**
+     * 所有规则都是内置的条件、字段规则时才能融合执行
+     */
+    public static boolean supports(List<RuleAction> actions) {
+        for (RuleAction action : actions) {
+            if (!SUPPORTED.contains(action.getType())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param statement 待改写的语法树
+     * @param actions   按执行顺序排列的规则，必须满足 {@link #supports(List)}
+     * @param plugins   判断联接表是否追加条件的插件快照
+     */
+    public static void apply(Statement statement, List<RuleAction> actions, PluginsSnapshot plugins) {
+        apply(statement, actions, plugins, SYNTAX_TREE);
+    }
+
+    /**
+     * 遍历语法树，把每个需要改写的位置交给 target 处理，遍历本身不修改语法树
+     */
+    static void apply(Statement statement, List<RuleAction> actions, PluginsSnapshot plugins, Target target) {
+        if (statement instanceof Select) {
+            List<RuleAction> where = ofType(actions, PluginRuleValueType.add_where_field);
+            if (!where.isEmpty()) {
+                selectBody(((Select) statement).getSelectBody(), where, plugins, target);
+            }
+        } else if (statement instanceof Insert) {
+            for (RuleAction action : actions) {
+                if (!PluginRuleValueType.add_update_field.equals(action.getType())) {
+                    target.insert((Insert) statement, action);
+                }
+            }
+        } else if (statement instanceof Update) {
+            Update update = (Update) statement;
+            for (RuleAction action : actions) {
+                if (PluginRuleValueType.add_where_field.equals(action.getType())) {
+                    target.where(update, equalsTo(update.getTable(), action));
+                } else if (!PluginRuleValueType.add_insert_field.equals(action.getType())) {
+                    target.set(update, action);
+                }
+            }
+        } else if (statement instanceof Delete) {
+            Delete delete = (Delete) statement;
+            for (RuleAction action : ofType(actions, PluginRuleValueType.add_where_field)) {
+                target.where(delete, equalsTo(delete.getTable(), action));
+            }
+        }
+    }
+
+    private static List<RuleAction> ofType(List<RuleAction> actions, PluginRuleValueType type) {
+        List<RuleAction> result = new ArrayList<>(actions.size());
+        for (RuleAction action : actions) {
+            if (type.equals(action.getType())) {
+                result.add(action);
+            }
+        }
+        return result;
+    }
+
+    private static void selectBody(SelectBody selectBody, List<RuleAction> rules, PluginsSnapshot plugins,
+                                   Target target) {
+        if (selectBody instanceof PlainSelect) {
+            plainSelect((PlainSelect) selectBody, rules, plugins, target);
+        }
+        if (selectBody instanceof SetOperationList) {
+            List<SelectBody> selects = ((SetOperationList) selectBody).getSelects();
+            if (selects != null) {
+                for (SelectBody select : selects) {
+                    selectBody(select, rules, plugins, target);
+                }
+            }
+        }
+    }
+
+    private static void plainSelect(PlainSelect plainSelect, List<RuleAction> rules, PluginsSnapshot plugins,
+                                    Target target) {
+        FromItem fromItem = plainSelect.getFromItem();
+        if (fromItem instanceof Table) {
+            target.where(plainSelect, condition(plainSelect.getWhere(), (Table) fromItem, rules, plugins, target));
+        } else {
+            fromItem(fromItem, rules, plugins, target);
+        }
+        List<Join> joins = plainSelect.getJoins();
+        if (joins != null) {
+            for (Join join : joins) {
+                join(join, rules, plugins, target);
+                fromItem(join.getRightItem(), rules, plugins, target);
+            }
+        }
+    }
+
+    private static void fromItem(FromItem fromItem, List<RuleAction> rules, PluginsSnapshot plugins, Target target) {
+        if (fromItem instanceof SubJoin) {
+            SubJoin subJoin = (SubJoin) fromItem;
+            if (subJoin.getJoinList() != null) {
+                join(subJoin.getJoinList().get(0), rules, plugins, target);
+            }
+            if (subJoin.getLeft() != null) {
+                fromItem(subJoin.getLeft(), rules, plugins, target);
+            }
+        } else if (fromItem instanceof SubSelect) {
+            SubSelect subSelect = (SubSelect) fromItem;
+            if (subSelect.getSelectBody() != null) {
+                selectBody(subSelect.getSelectBody(), rules, plugins, target);
+            }
+        } else if (fromItem instanceof ValuesList) {
+            logger.debug("Perform a subquery, if you do not give us feedback");
+        } else if (fromItem instanceof LateralSubSelect) {
+            SubSelect subSelect = ((LateralSubSelect) fromItem).getSubSelect();
+            if (subSelect != null && subSelect.getSelectBody() != null) {
+                selectBody(subSelect.getSelectBody(), rules, plugins, target);
+            }
+        }
+    }
+
+    private static void join(Join join, List<RuleAction> rules, PluginsSnapshot plugins, Target target) {
+        if (join.getRightItem() instanceof Table) {
+            Table table = (Table) join.getRightItem();
+            String tableName = table.getSchemaName() == null && table.getDatabase() == null
+                    ? table.getName() : table.getFullyQualifiedName();
+            if (plugins.joinTableMatches(tableName)) {
+                target.on(join, condition(join.getOnExpression(), table, rules, plugins, target));
+            }
+        }
+    }
+
+    /**
+     * 依次追加每条规则的条件；逐条执行时每条规则只会处理当时条件表达式第一层中的子查询，
+     * 这里按同样的规则记录子查询需要处理的规则，最后每个子查询只遍历一次
+     */
+    private static Condition condition(Expression original, Table table, List<RuleAction> rules,
+                                       PluginsSnapshot plugins, Target target) {
+        Condition condition = new Condition(original);
+        Expression current = original;
+        Pending pending = new Pending();
+        for (RuleAction rule : rules) {
+            Expression append = whereCondition(table, rule);
+            condition.appended.add(append);
+            if (current == null) {
+                current = append;
+                continue;
+            }
+            if (current instanceof BinaryExpression) {
+                BinaryExpression binaryExpression = (BinaryExpression) current;
+                pending.expression(binaryExpression.getLeftExpression(), rule);
+                pending.expression(binaryExpression.getRightExpression(), rule);
+            } else if (current instanceof InExpression) {
+                pending.in((InExpression) current, rule);
+            }
+            if (current instanceof OrExpression) {
+                condition.parenthesized |= current == original;
+                current = new AndExpression(new Parenthesis(current), append);
+            } else {
+                current = new AndExpression(current, append);
+            }
+        }
+        pending.process(plugins, target);
+        condition.result = current;
+        return condition;
+    }
+
+    /**
+     * 查询语句 where、on 条件上追加的规则条件
+     */
+    static Expression whereCondition(Table table, RuleAction rule) {
+        if (!(rule.getFieldValue() instanceof SupportsOldOracleJoinSyntax)) {
+            return equalsTo(table, rule);
+        }
+        return rule.getFieldValue();
+    }
+
+    static EqualsTo equalsTo(Table table, RuleAction rule) {
+        EqualsTo equalsTo = new EqualsTo();
+        equalsTo.setLeftExpression(aliasColumn(table, rule.getField()));
+        equalsTo.setRightExpression(rule.getFieldValue());
+        return equalsTo;
+    }
+
+    /**
+     * update、delete 条件，字段条件放在原条件前面
+     */
+    private static Expression andExpression(EqualsTo equalsTo, Expression where) {
+        if (null != where) {
+            if (where instanceof OrExpression) {
+                return new AndExpression(equalsTo, new Parenthesis(where));
+            }
+            return new AndExpression(equalsTo, where);
+        }
+        return equalsTo;
+    }
+
+    private static Column aliasColumn(Table table, String field) {
+        String name = null == table.getAlias() ? table.getName() : table.getAlias().getName();
+        return new Column(name + "." + field);
+    }
+
+    /**
+     * 条件表达式中等待处理的子查询，以及到达每个子查询的规则（保持规则顺序）
+     */
+    private static final class Pending {
+
+        private final List<Object> targets = new ArrayList<>(2);
+
+        private final List<List<RuleAction>> rules = new ArrayList<>(2);
+
+        private void expression(Expression expression, RuleAction rule) {
+            if (expression instanceof SubSelect) {
+                // 与 in 子查询统一按 SelectBody 记录
+                SelectBody selectBody = ((SubSelect) expression).getSelectBody();
+                if (selectBody != null) {
+                    add(selectBody, rule);
+                }
+            } else if (expression instanceof FromItem) {
+                add(expression, rule);
+            } else if (expression instanceof InExpression) {
+                in((InExpression) expression, rule);
+            }
+        }
+
+        private void in(InExpression inExpression, RuleAction rule) {
+            ItemsList rightItems = inExpression.getRightItemsList();
+            if (rightItems instanceof SubSelect && ((SubSelect) rightItems).getSelectBody() != null) {
+                add(((SubSelect) rightItems).getSelectBody(), rule);
+            }
+        }
+
+        private void add(Object target, RuleAction rule) {
+            for (int i = 0; i < targets.size(); i++) {
+                if (targets.get(i) == target) {
+                    rules.get(i).add(rule);
+                    return;
+                }
+            }
+            targets.add(target);
+            List<RuleAction> list = new ArrayList<>(2);
+            list.add(rule);
+            rules.add(list);
+        }
+
+        private void process(PluginsSnapshot plugins, Target target) {
+            for (int i = 0; i < targets.size(); i++) {
+                Object pending = targets.get(i);
+                if (pending instanceof FromItem) {
+                    fromItem((FromItem) pending, rules.get(i), plugins, target);
+                } else {
+                    selectBody((SelectBody) pending, rules.get(i), plugins, target);
+                }
+            }
+        }
+    }
+
+    /**
+     * 一个 where、on 条件上追加的所有规则条件
+     */
+    static final class Condition {
+
+        /**
+         * 原始条件，可以为 null
+         */
+        final Expression original;
+
+        /**
+         * 按规则顺序追加的条件
+         */
+        final List<Expression> appended = new ArrayList<>(2);
+
+        /**
+         * 原始条件是 or 表达式，追加条件前整体加了括号
+         */
+        boolean parenthesized;
+
+        /**
+         * 追加完所有规则后的条件
+         */
+        Expression result;
+
+        private Condition(Expression original) {
+            this.original = original;
+        }
+    }
+
+    /**
+     * 遍历过程中需要改写的位置，默认直接修改语法树
+     */
+    interface Target {
+
+        void where(PlainSelect plainSelect, Condition condition);
+
+        void on(Join join, Condition condition);
+
+        void insert(Insert insert, RuleAction action);
+
+        void where(Update update, EqualsTo condition);
+
+        void set(Update update, RuleAction action);
+
+        void where(Delete delete, EqualsTo condition);
+    }
+
+    private static final Target SYNTAX_TREE = new Target() {
+
+        @Override
+        public void where(PlainSelect plainSelect, Condition condition) {
+            plainSelect.setWhere(condition.result);
+        }
+
+        @Override
+        public void on(Join join, Condition condition) {
+            Collection<Expression> expressions = new ArrayList<>();
+            expressions.add(condition.result);
+            join.setOnExpressions(expressions);
+        }
+
+        @Override
+        public void insert(Insert insert, RuleAction action) {
+            insert.getColumns().add(new Column(action.getField()));
+            ItemsList itemsList = insert.getItemsList();
+            if (itemsList == null) {
+                throw new RuntimeException("Failed to process multiple-table update, please exclude the tableName or statementId");
+            }
+            if (itemsList instanceof MultiExpressionList) {
+                ((MultiExpressionList) itemsList).getExprList().forEach(el ->
+                        el.getExpressions().add(action.getFieldValue()));
+            } else {
+                ((ExpressionList) itemsList).getExpressions().add(action.getFieldValue());
+            }
+        }
+
+        @Override
+        public void where(Update update, EqualsTo condition) {
+            update.setWhere(andExpression(condition, update.getWhere()));
+        }
+
+        @Override
+        public void set(Update update, RuleAction action) {
+            update.addUpdateSet(new Column(action.getField()), action.getFieldValue());
+        }
+
+        @Override
+        public void where(Delete delete, EqualsTo condition) {
+            delete.setWhere(andExpression(condition, delete.getWhere()));
+        }
+    };
+}
@@ -0,0 +1,207 @@
+package com.mybatis.mybatis.plugin.process;
+
+/**
+ * @program: mybatis plugin
+ * @description: 多行 INSERT 的流式改写：解析前把 VALUES 后面的所有行替换成一个只有占位标记的行，
+ * 只解析、改写表名、字段列表和这一行；改写后占位行中标记之后新增的内容（字段值或者 ?）就是每一行需要追加的内容，
+ * 再逐行扫描原始的行文本，在每一行的右括号前追加，写入预先分配好大小的缓冲区。行数再多也不会为每一行创建语法树节点
+ */
+final class InsertRows implements SqlSkeleton {
+
+    static final String MARKER = "'__guarder_rows__'";
+
+    private final String sql;
+
+    private final String skeleton;
+
+    /**
+     * 第一行的左括号下标
+     */
+    private final int rowsBegin;
+
+    /**
+     * 最后一行的右括号之后的下标
+     */
+    private final int rowsEnd;
+
+    private final int rows;
+
+    private InsertRows(String sql, String skeleton, int rowsBegin, int rowsEnd, int rows) {
+        this.sql = sql;
+        this.skeleton = skeleton;
+        this.rowsBegin = rowsBegin;
+        this.rowsEnd = rowsEnd;
+        this.rows = rows;
+    }
+
+    /**
+     * 只处理 INSERT ... VALUES (...), (...) 并且行之后只有分号的语句
+     *
+     * @param minRows 行数达到该值时才替换
+     * @return 不是多行 INSERT 或者行数不足时返回 null
+     */
+    static InsertRows collapse(String sql, int minRows) {
+        if (minRows <= 0 || sql.contains(MARKER)) {
+            return null;
+        }
+        int length = sql.length();
+        int i = LiteralLists.skipBlank(sql, 0);
+        if (i < 0 || !keyword(sql, i, "INSERT")) {
+            return null;
+        }
+        // 最外层的 VALUES 关键字
+        int depth = 0;
+        int values = -1;
+        while (i < length && values < 0) {
+            char c = sql.charAt(i);
+            int skipped = LiteralLists.skip(sql, i);
+            if (skipped < 0) {
+                return null;
+            }
+            if (skipped > i) {
+                i = skipped;
+            } else if (c == '(') {
+                depth++;
+                i++;
+            } else if (c == ')') {
+                depth--;
+                i++;
+            } else if (LiteralLists.isWordPart(c)) {
+                int end = i;
+                while (end < length && LiteralLists.isWordPart(sql.charAt(end))) {
+                    end++;
+                }
+                if (depth == 0 && (end - i == 6 && keyword(sql, i, "VALUES") || end - i == 5 && keyword(sql, i, "VALUE"))) {
+                    values = end;
+                }
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        int begin = values < 0 ? -1 : LiteralLists.skipBlank(sql, values);
+        if (begin < 0 || begin >= length || sql.charAt(begin) != '(') {
+            return null;
+        }
+        int rows = 0;
+        int open = begin;
+        int end;
+        while (true) {
+            int close = rowEnd(sql, open);
+            if (close < 0) {
+                return null;
+            }
+            rows++;
+            end = close + 1;
+            int next = LiteralLists.skipBlank(sql, end);
+            if (next < 0) {
+                return null;
+            }
+            if (next < length && sql.charAt(next) == ',') {
+                open = LiteralLists.skipBlank(sql, next + 1);
+                if (open < 0 || open >= length || sql.charAt(open) != '(') {
+                    return null;
+                }
+                continue;
+            }
+            // ON DUPLICATE KEY UPDATE、RETURNING 等子句不处理
+            if (next < length && sql.charAt(next) == ';') {
+                next = LiteralLists.skipBlank(sql, next + 1);
+            }
+            if (next != length) {
+                return null;
+            }
+            break;
+        }
+        if (rows < minRows) {
+            return null;
+        }
+        String skeleton = sql.substring(0, begin) + "(" + MARKER + ")" + sql.substring(end);
+        return new InsertRows(sql, skeleton, begin, end, rows);
+    }
+
+    @Override
+    public String getSkeleton() {
+        return skeleton;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    /**
+     * 占位行中标记之后、右括号之前的内容追加到每一行的右括号之前，其余内容保持原样；
+     * 找不到包含标记的行时返回 null
+     */
+    @Override
+    public String expand(String rewritten) {
+        int marker = rewritten.indexOf(MARKER);
+        if (marker < 0) {
+            return null;
+        }
+        int open = marker - 1;
+        while (open >= 0 && Character.isWhitespace(rewritten.charAt(open))) {
+            open--;
+        }
+        int close = open < 0 || rewritten.charAt(open) != '(' ? -1 : rowEnd(rewritten, open);
+        if (close < 0) {
+            return null;
+        }
+        int suffixBegin = marker + MARKER.length();
+        int suffixLength = close - suffixBegin;
+        StringBuilder builder = new StringBuilder(rewritten.length() - (close + 1 - open)
+                + rowsEnd - rowsBegin + rows * suffixLength);
+        builder.append(rewritten, 0, open);
+        int from = rowsBegin;
+        int row = rowsBegin;
+        while (row < rowsEnd) {
+            int rowClose = rowEnd(sql, row);
+            builder.append(sql, from, rowClose).append(rewritten, suffixBegin, close);
+            from = rowClose;
+            row = LiteralLists.skipBlank(sql, rowClose + 1);
+            if (row < rowsEnd && sql.charAt(row) == ',') {
+                row = LiteralLists.skipBlank(sql, row + 1);
+            }
+        }
+        builder.append(sql, from, rowsEnd);
+        return builder.append(rewritten, close + 1, rewritten.length()).toString();
+    }
+
+    /**
+     * 从左括号开始找到匹配的右括号，跳过字符串、引号中的名称和注释
+     *
+     * @return 右括号下标，括号不匹配或者字符串中有反斜杠时返回 -1
+     */
+    private static int rowEnd(String sql, int open) {
+        int depth = 0;
+        int i = open;
+        int length = sql.length();
+        while (i < length) {
+            char c = sql.charAt(i);
+            int skipped = LiteralLists.skip(sql, i);
+            if (skipped < 0) {
+                return -1;
+            }
+            if (skipped > i) {
+                // 反斜杠是否转义与数据库有关
+                if (c == '\'' && sql.lastIndexOf('\\', skipped - 1) > i) {
+                    return -1;
+                }
+                i = skipped;
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static boolean keyword(String sql, int i, String keyword) {
+        return sql.regionMatches(true, i, keyword, 0, keyword.length())
+                && (i + keyword.length() >= sql.length() || !LiteralLists.isWordPart(sql.charAt(i + keyword.length())));
+    }
+}
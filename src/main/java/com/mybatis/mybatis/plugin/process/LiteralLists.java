@@ -0,0 +1,252 @@
+package com.mybatis.mybatis.plugin.process;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @program: mybatis plugin
+ * @description: 解析前把 IN 后面较长的字面量、? 列表替换成一个字符串占位标记，只解析缩短后的 SQL；
+ * 规则不会改写列表中的内容，改写完成后再把占位标记换回原始的列表文本。&lt;foreach&gt; 生成的上千个元素的列表
+ * 不再逐个创建语法树节点，解析耗时与列表长度无关
+ */
+final class LiteralLists implements SqlSkeleton {
+
+    static final String MARKER_PREFIX = "__guarder_list_";
+
+    private static final String MARKER_SUFFIX = "__";
+
+    private final String skeleton;
+
+    /**
+     * 按占位标记编号排列的原始列表文本，不包括两侧的括号
+     */
+    private final List<String> lists;
+
+    private LiteralLists(String skeleton, List<String> lists) {
+        this.skeleton = skeleton;
+        this.lists = lists;
+    }
+
+    /**
+     * @param sql     原始 SQL
+     * @param minSize 元素数量达到该值的列表才替换
+     * @return 没有需要替换的列表时返回 null
+     */
+    static LiteralLists collapse(String sql, int minSize) {
+        if (minSize <= 0 || sql.contains(MARKER_PREFIX)) {
+            return null;
+        }
+        StringBuilder skeleton = null;
+        List<String> lists = null;
+        int copied = 0;
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            int skipped = skip(sql, i);
+            if (skipped < 0) {
+                return null;
+            }
+            if (skipped > i) {
+                i = skipped;
+                continue;
+            }
+            if (!isWordPart(c)) {
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < length && isWordPart(sql.charAt(end))) {
+                end++;
+            }
+            boolean in = end - i == 2 && sql.regionMatches(true, i, "IN", 0, 2);
+            i = end;
+            if (!in) {
+                continue;
+            }
+            int open = skipBlank(sql, i);
+            if (open < 0 || open >= length || sql.charAt(open) != '(') {
+                continue;
+            }
+            int close = listEnd(sql, open + 1, minSize);
+            if (close < 0) {
+                continue;
+            }
+            if (skeleton == null) {
+                skeleton = new StringBuilder(sql.length());
+                lists = new ArrayList<>();
+            }
+            skeleton.append(sql, copied, open + 1).append('\'').append(MARKER_PREFIX).append(lists.size())
+                    .append(MARKER_SUFFIX).append('\'');
+            lists.add(sql.substring(open + 1, close));
+            copied = close;
+            i = close + 1;
+        }
+        if (skeleton == null) {
+            return null;
+        }
+        return new LiteralLists(skeleton.append(sql, copied, length).toString(), lists);
+    }
+
+    /**
+     * 替换列表之后的 SQL，用于解析
+     */
+    @Override
+    public String getSkeleton() {
+        return skeleton;
+    }
+
+    int size() {
+        return lists.size();
+    }
+
+    /**
+     * 把改写结果中的占位标记换回原始的列表文本，标记序号对不上时返回 null
+     */
+    @Override
+    public String expand(String rewritten) {
+        String quotedPrefix = "'" + MARKER_PREFIX;
+        StringBuilder builder = null;
+        int from = 0;
+        int start = rewritten.indexOf(quotedPrefix);
+        while (start >= 0) {
+            int digits = start + quotedPrefix.length();
+            int end = digits;
+            while (end < rewritten.length() && Character.isDigit(rewritten.charAt(end))) {
+                end++;
+            }
+            if (end == digits || !rewritten.startsWith(MARKER_SUFFIX + "'", end)) {
+                start = rewritten.indexOf(quotedPrefix, digits);
+                continue;
+            }
+            if (builder == null) {
+                builder = new StringBuilder(rewritten.length() + 64 * lists.size());
+            }
+            int index = Integer.parseInt(rewritten.substring(digits, end));
+            if (index >= lists.size()) {
+                return null;
+            }
+            builder.append(rewritten, from, start).append(lists.get(index));
+            from = end + MARKER_SUFFIX.length() + 1;
+            start = rewritten.indexOf(quotedPrefix, from);
+        }
+        return builder == null ? rewritten : builder.append(rewritten, from, rewritten.length()).toString();
+    }
+
+    /**
+     * 从 from 开始的列表只包含数字、字符串字面量、? 和 null 并且元素数量达到 minSize 时，返回右括号的下标，否则返回 -1
+     */
+    private static int listEnd(String sql, int from, int minSize) {
+        int length = sql.length();
+        int count = 0;
+        int i = from;
+        while (true) {
+            i = skipBlank(sql, i);
+            if (i < 0 || i >= length) {
+                return -1;
+            }
+            int end = item(sql, i);
+            if (end < 0) {
+                return -1;
+            }
+            count++;
+            i = skipBlank(sql, end);
+            if (i < 0 || i >= length) {
+                return -1;
+            }
+            char c = sql.charAt(i);
+            if (c == ')') {
+                return count >= minSize ? i : -1;
+            }
+            if (c != ',') {
+                return -1;
+            }
+            i++;
+        }
+    }
+
+    /**
+     * 一个列表元素的结束位置，不是字面量时返回 -1
+     */
+    private static int item(String sql, int i) {
+        int length = sql.length();
+        char c = sql.charAt(i);
+        if (c == '?') {
+            return i + 1;
+        }
+        if (c == '\'') {
+            int end = skip(sql, i);
+            // 反斜杠是否转义与数据库有关
+            return end < 0 || sql.lastIndexOf('\\', end - 1) > i ? -1 : end;
+        }
+        if (sql.regionMatches(true, i, "NULL", 0, 4)) {
+            return i + 4 < length && isWordPart(sql.charAt(i + 4)) ? -1 : i + 4;
+        }
+        if (c == '-' || c == '+') {
+            i++;
+        }
+        int digits = i;
+        while (i < length && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+            i++;
+        }
+        if (i == digits || i < length && isWordPart(sql.charAt(i))) {
+            return -1;
+        }
+        return i;
+    }
+
+    /**
+     * 跳过空白和注释
+     *
+     * @return 下一个有效字符的下标，注释未结束时返回 -1
+     */
+    static int skipBlank(String sql, int i) {
+        while (i < sql.length()) {
+            if (Character.isWhitespace(sql.charAt(i))) {
+                i++;
+                continue;
+            }
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                return i;
+            }
+            int skipped = skip(sql, i);
+            if (skipped <= i) {
+                return skipped;
+            }
+            i = skipped;
+        }
+        return i;
+    }
+
+    /**
+     * 跳过从 i 开始的字符串、引号中的名称或者注释
+     *
+     * @return 之后的下标，i 处不是它们时返回 i，未结束时返回 -1
+     */
+    static int skip(String sql, int i) {
+        char c = sql.charAt(i);
+        int end;
+        if (c == '\'' || c == '"' || c == '`') {
+            end = sql.indexOf(c, i + 1);
+            // '' 转义
+            while (end > 0 && end + 1 < sql.length() && sql.charAt(end + 1) == c) {
+                end = sql.indexOf(c, end + 2);
+            }
+            return end < 0 ? -1 : end + 1;
+        }
+        if (c == '-' && sql.startsWith("--", i)) {
+            end = sql.indexOf('\n', i);
+            return end < 0 ? sql.length() : end + 1;
+        }
+        if (c == '/' && sql.startsWith("/*", i)) {
+            end = sql.indexOf("*/", i + 2);
+            return end < 0 ? -1 : end + 2;
+        }
+        return i;
+    }
+
+    static boolean isWordPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+}
@@ -0,0 +1,246 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.PluginConfig;
+import com.mybatis.mybatis.plugin.config.PluginLevelType;
+import com.mybatis.mybatis.plugin.utils.SubstringAutomaton;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.delete.Delete;
+import net.sf.jsqlparser.statement.insert.Insert;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.update.Update;
+import org.apache.ibatis.mapping.SqlCommandType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @program: mybatis plugin
+ * @description: 插件级别匹配器，启动时把 PluginConfig 的 value、ignoreTables 编译成小写 hash 集合，
+ * ** 模糊配置编译成多模式自动机，表名的匹配结果放入有界缓存，执行 SQL 时不再转换大小写、不再创建集合
+ */
+public final class PluginLevelMatcher {
+
+    /**
+     * 每个插件最多缓存的表名判断结果数量，超过后不再缓存，直接计算
+     */
+    static final int DECISION_CACHE_SIZE = 4096;
+
+    private static final String ALL = "all";
+
+    private static final String WILDCARD = "**";
+
+    /**
+     * 表名在 value 中（包括 all 与模糊配置）
+     */
+    private static final int MATCHED = 1;
+
+    /**
+     * 表名在 ignoreTables 中
+     */
+    private static final int IGNORED = 2;
+
+    private final PluginConfig plugin;
+
+    private final PluginLevelType level;
+
+    private final Set<String> values;
+
+    private final Set<String> ignoreTables;
+
+    private final boolean all;
+
+    private final SubstringAutomaton patterns;
+
+    private final boolean insert;
+
+    private final boolean select;
+
+    private final boolean update;
+
+    private final boolean delete;
+
+    private final Map<String, Integer> tableDecisions = new ConcurrentHashMap<>();
+
+    /**
+     * 解析前在原始 SQL 上扫描的表名、库名模式，为 null 时任意 SQL 都可能匹配
+     */
+    private final SubstringAutomaton sqlPatterns;
+
+    private PluginLevelMatcher(PluginConfig plugin) {
+        this.plugin = plugin;
+        this.level = plugin.getLevel();
+        this.values = lowerCase(plugin.getValue());
+        this.ignoreTables = lowerCase(plugin.getIgnoreTables());
+        this.all = values.contains(ALL);
+        List<String> wildcards = new ArrayList<>();
+        for (String value : values) {
+            if (value.contains(WILDCARD)) {
+                // 模糊配置
+                wildcards.add(value.replace(WILDCARD, ""));
+            }
+        }
+        this.patterns = SubstringAutomaton.of(wildcards);
+        this.insert = dml(SqlCommandType.INSERT);
+        this.select = dml(SqlCommandType.SELECT);
+        this.update = dml(SqlCommandType.UPDATE);
+        this.delete = dml(SqlCommandType.DELETE);
+        this.sqlPatterns = sqlPatterns(wildcards);
+    }
+
+    public static PluginLevelMatcher compile(PluginConfig plugin) {
+        return new PluginLevelMatcher(plugin);
+    }
+
+    public PluginConfig getPlugin() {
+        return plugin;
+    }
+
+    public PluginLevelType getLevel() {
+        return level;
+    }
+
+    /**
+     * 校验 level 对应的值是否符合当前 sql，与 PluginLevelValidate#validateLevel 规则一致
+     */
+    public boolean matches(Statement statement) {
+        if (PluginLevelType.dml.equals(level)) {
+            return (insert && statement instanceof Insert)
+                    || (select && statement instanceof Select)
+                    || (update && statement instanceof Update)
+                    || (delete && statement instanceof Delete);
+        }
+        return matches(null, PluginLevelValidate.statementTable(statement));
+    }
+
+    /**
+     * 按语句类型和主表校验，用于没有语法树的快速识别语句，规则与 {@link #matches(Statement)} 一致
+     *
+     * @param type  语句类型，只有 dml 级别使用
+     * @param table 主表，表级别、库级别使用
+     */
+    public boolean matches(SqlCommandType type, Table table) {
+        if (PluginLevelType.dml.equals(level)) {
+            return (insert && SqlCommandType.INSERT.equals(type))
+                    || (select && SqlCommandType.SELECT.equals(type))
+                    || (update && SqlCommandType.UPDATE.equals(type))
+                    || (delete && SqlCommandType.DELETE.equals(type));
+        } else if (PluginLevelType.table.equals(level)) {
+            if (Objects.isNull(table)) {
+                return false;
+            }
+            //在忽略表集合中，则不再自动添加租户id
+            return decide(table.getName()) == MATCHED;
+        } else if (PluginLevelType.databases.equals(level)) {
+            if (Objects.isNull(table) || Objects.isNull(table.getSchemaName())) {
+                return false;
+            }
+            return values.contains(table.getSchemaName().toLowerCase());
+        }
+        return false;
+    }
+
+    /**
+     * 表级别插件的 value 是否包含该表（all、精确表名或模糊配置），不判断 ignoreTables，用于联接表
+     */
+    public boolean matchesTable(String tableName) {
+        return PluginLevelType.table.equals(level) && (decide(tableName) & MATCHED) != 0;
+    }
+
+    /**
+     * 解析前按 MappedStatement 的 SqlCommandType 判断是否可能匹配，返回 false 时一定不匹配。
+     * SqlCommandType 来自 mapper 的标签，update 标签中写 delete 语句的情况并不少见，写操作之间不做区分；
+     * select 标签中也可以写 UPDATE ... RETURNING、WITH ... UPDATE 等写语句，select 与 unknown 一样可能匹配任意 dml 插件
+     */
+    public boolean mayMatch(SqlCommandType type) {
+        if (!PluginLevelType.dml.equals(level)) {
+            return true;
+        }
+        if (SqlCommandType.INSERT.equals(type) || SqlCommandType.UPDATE.equals(type)
+                || SqlCommandType.DELETE.equals(type)) {
+            return insert || update || delete;
+        }
+        return insert || select || update || delete;
+    }
+
+    /**
+     * 解析前在原始 SQL 上判断是否可能匹配：表级别、库级别插件的 SQL 中至少要出现一个配置的表名或库名，
+     * 返回 false 时一定不匹配
+     */
+    public boolean mayMatch(String sql) {
+        return sqlPatterns == null || sqlPatterns.matches(sql);
+    }
+
+    /**
+     * SQL 无法解析时判断插件是否可能生效：dml 级别按语句类型判断，无法确定语句类型时与 {@link #mayMatch(SqlCommandType)} 相同；
+     * 表级别、库级别在原始 SQL 上扫描配置的表名、库名
+     */
+    public boolean mayMatch(SqlCommandType type, String sql) {
+        if (PluginLevelType.dml.equals(level)) {
+            return SqlCommandType.UNKNOWN.equals(type) ? mayMatch(type) : matches(type, null);
+        }
+        return mayMatch(sql);
+    }
+
+    private SubstringAutomaton sqlPatterns(List<String> wildcards) {
+        if (PluginLevelType.table.equals(level)) {
+            if (all) {
+                return null;
+            }
+            List<String> patterns = new ArrayList<>(wildcards);
+            for (String value : values) {
+                if (!value.contains(WILDCARD)) {
+                    patterns.add(value);
+                }
+            }
+            return SubstringAutomaton.of(patterns);
+        }
+        if (PluginLevelType.databases.equals(level)) {
+            return SubstringAutomaton.of(values);
+        }
+        return null;
+    }
+
+    private int decide(String tableName) {
+        Integer decision = tableDecisions.get(tableName);
+        if (decision == null) {
+            String lowerCaseName = tableName.toLowerCase();
+            int result = 0;
+            if (all || values.contains(lowerCaseName) || patterns.matches(lowerCaseName)) {
+                result |= MATCHED;
+            }
+            if (ignoreTables.contains(lowerCaseName)) {
+                result |= IGNORED;
+            }
+            decision = result;
+            if (tableDecisions.size() < DECISION_CACHE_SIZE) {
+                tableDecisions.put(tableName, decision);
+            }
+        }
+        return decision;
+    }
+
+    private boolean dml(SqlCommandType type) {
+        String name = type.name().toLowerCase();
+        return values.contains(name) && !ignoreTables.contains(name);
+    }
+
+    private static Set<String> lowerCase(List<String> names) {
+        if (names == null || names.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> lowerCaseNames = new HashSet<>(names.size() * 2);
+        for (String name : names) {
+            if (name != null) {
+                lowerCaseNames.add(name.toLowerCase());
+            }
+        }
+        return lowerCaseNames;
+    }
+}
@@ -1,20 +1,14 @@
 package com.mybatis.mybatis.plugin.process;
 
 import com.mybatis.mybatis.plugin.config.PluginConfig;
-import com.mybatis.mybatis.plugin.config.PluginLevelType;
 import net.sf.jsqlparser.schema.Table;
 import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.delete.Delete;
 import net.sf.jsqlparser.statement.insert.Insert;
 import net.sf.jsqlparser.statement.select.*;
 import net.sf.jsqlparser.statement.update.Update;
-import org.apache.ibatis.mapping.SqlCommandType;
-import org.springframework.util.CollectionUtils;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
 
 /**
  * @program: mybatis plugin
@@ -34,75 +28,17 @@ public class PluginLevelValidate {
 
 
     public Boolean validateLevel(PluginConfig plugin, Statement statement) {
-        PluginLevelType level = plugin.getLevel();
-        List<String> values = plugin.getValue();
-        List<String> ignoreTables = plugin.getIgnoreTables();
-        if (CollectionUtils.isEmpty(values)) {
-            values = new ArrayList<>();
-        }
-        if (CollectionUtils.isEmpty(ignoreTables)) {
-            ignoreTables = new ArrayList<>();
-        }
-        List<String> lowerCaseValues = values.stream().map(String::toLowerCase).collect(Collectors.toList());
-        List<String> lowerCaseIgnoreTables = ignoreTables.stream().map(String::toLowerCase).collect(Collectors.toList());
-        if (PluginLevelType.dml.equals(level)) {
-            if (statement instanceof Insert
-                    && !lowerCaseIgnoreTables.contains(SqlCommandType.INSERT.name().toLowerCase())
-                    && lowerCaseValues.contains(SqlCommandType.INSERT.name().toLowerCase())) {
-                return true;
-            } else if (statement instanceof Select
-                    && !lowerCaseIgnoreTables.contains(SqlCommandType.SELECT.name().toLowerCase())
-                    && lowerCaseValues.contains(SqlCommandType.SELECT.name().toLowerCase())) {
-                return true;
-            } else if (statement instanceof Update
-                    && !lowerCaseIgnoreTables.contains(SqlCommandType.UPDATE.name().toLowerCase())
-                    && lowerCaseValues.contains(SqlCommandType.UPDATE.name().toLowerCase())) {
-                return true;
-            } else if (statement instanceof Delete
-                    && !lowerCaseIgnoreTables.contains(SqlCommandType.DELETE.name().toLowerCase())
-                    && lowerCaseValues.contains(SqlCommandType.DELETE.name().toLowerCase())) {
-                return true;
-            }
-        } else if (PluginLevelType.table.equals(level)) {
-            Table table = statementInstanceof(statement);
-            if (Objects.isNull(table)) {
-                return false;
-            }
-            String tableName = table.getName();
-            if (lowerCaseIgnoreTables.contains(tableName.toLowerCase())) {
-                //在忽略表集合中，则不再自动添加租户id
-                return false;
-            }
-            if (lowerCaseValues.contains("all")) {
-                return true;
-            }
-            if (lowerCaseValues.contains(tableName.toLowerCase())) {
-                return true;
-            }
-            for (String name :lowerCaseValues ) {
-                if(name.contains("**")){
-                    // 模糊配置
-                  name =  name.replaceAll("\\*\\*", "");
-                 if(tableName.toLowerCase().contains(name) ){
-                     return  true;
-                 }
-                }
-            }
-        } else if (PluginLevelType.databases.equals(level)) {
-            Table table = statementInstanceof(statement);
-            if (Objects.isNull(table)) {
-                return false;
-            }
-            String databaseName = table.getSchemaName();
-            if (Objects.nonNull(databaseName) &&
-                    lowerCaseValues.contains(databaseName.toLowerCase())) {
-                return true;
-            }
-        }
-        return false;
+        return PluginLevelMatcher.compile(plugin).matches(statement);
+    }
+
+    /**
+     * 使用启动时编译好的匹配器校验，不再转换大小写、创建集合
+     */
+    public Boolean validateLevel(PluginLevelMatcher matcher, Statement statement) {
+        return matcher.matches(statement);
     }
 
-    private Table statementInstanceof(Statement statement) {
+    static Table statementTable(Statement statement) {
         Table table = null;
         if (statement instanceof Insert) {
             Insert insert = (Insert) statement;
@@ -122,7 +58,7 @@ public class PluginLevelValidate {
         return table;
     }
 
-    private Table processSelectBody(SelectBody selectBody) {
+    private static Table processSelectBody(SelectBody selectBody) {
         if (selectBody instanceof PlainSelect) {
             FromItem fromItem = ((PlainSelect) selectBody).getFromItem();
             if (fromItem instanceof Table) {
@@ -132,8 +68,8 @@ public class PluginLevelValidate {
             if(fromItem instanceof SubSelect) {
                 return processSelectBody(((SubSelect)fromItem).getSelectBody());
             }
-
-            return  processSelectBody(((SubSelect) fromItem).getSelectBody());
+            // 没有 from 或者 from 是 join 子句等情况，无法确定表
+            return null;
 
         }
         //解决union all无法解析问题：如果是union all 解析其中子查询
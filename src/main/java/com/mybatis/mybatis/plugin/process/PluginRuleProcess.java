@@ -2,8 +2,12 @@ package com.mybatis.mybatis.plugin.process;
 
 import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
 import com.mybatis.mybatis.plugin.exception.RulePolicyNoSupportException;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.StringValue;
 import net.sf.jsqlparser.statement.Statement;
 
+import java.util.List;
+
 /**
  * @program: mybatis plugin
  * @description: 插件规则值处理
@@ -20,5 +24,50 @@ public interface PluginRuleProcess {
      * @Date: 2020/8/15 9:56 上午
      * @throws RulePolicyNoSupportException
      */
-    void ruleProcess(Statement statement, PluginRuleValueType type, String field, String fieldValue);
+    default void ruleProcess(Statement statement, PluginRuleValueType type, String field, String fieldValue) {
+        ruleProcess(statement, type, field, new StringValue(fieldValue));
+    }
+
+    /**
+     * 字段值已经按字段值类型转换成字面量表达式
+     *
+     * @throws RulePolicyNoSupportException
+     */
+    void ruleProcess(Statement statement, PluginRuleValueType type, String field, Expression fieldValue);
+
+    /**
+     * 按顺序执行多条规则，默认逐条执行
+     *
+     * @param actions 按执行顺序排列的规则
+     * @throws RulePolicyNoSupportException
+     */
+    default void ruleProcess(Statement statement, List<RuleAction> actions) {
+        for (RuleAction action : actions) {
+            ruleProcess(statement, action.getType(), action.getField(), action.getFieldValue());
+        }
+    }
+
+    /**
+     * 在上下文的语法树上按顺序执行多条规则，联接表按上下文中的插件快照判断，默认与
+     * {@link #ruleProcess(Statement, List)} 相同
+     *
+     * @param context 已经解析的 SQL 上下文
+     * @param actions 按执行顺序排列的规则
+     * @throws RulePolicyNoSupportException
+     */
+    default void ruleProcess(SqlStatementContext context, List<RuleAction> actions) {
+        ruleProcess(context.getStatement(), actions);
+    }
+
+    /**
+     * 按顺序执行多条规则并返回改写后的 SQL，默认在语法树上执行后重新转成字符串，并放回原始 SQL 中的注释
+     *
+     * @param context 已经解析的 SQL 上下文
+     * @param actions 按执行顺序排列的规则
+     * @throws RulePolicyNoSupportException
+     */
+    default String spliceProcess(SqlStatementContext context, List<RuleAction> actions) {
+        ruleProcess(context, actions);
+        return context.deparse();
+    }
 }
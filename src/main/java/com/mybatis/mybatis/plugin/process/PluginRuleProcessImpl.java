@@ -2,9 +2,11 @@ package com.mybatis.mybatis.plugin.process;
 
 import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
 import com.mybatis.mybatis.plugin.exception.RulePolicyNoSupportException;
+import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.statement.Statement;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -35,11 +37,67 @@ public class PluginRuleProcessImpl implements PluginRuleProcess {
     }
 
     @Override
-    public void ruleProcess(Statement statement, PluginRuleValueType type, String field, String fieldValue) {
+    public void ruleProcess(Statement statement, PluginRuleValueType type, String field, Expression fieldValue) {
+        ruleProcess(statement, type, field, fieldValue, PluginsSnapshot.EMPTY);
+    }
+
+    /**
+     * 没有插件快照，联接表不追加条件
+     */
+    @Override
+    public void ruleProcess(Statement statement, List<RuleAction> actions) {
+        ruleProcess(statement, actions, PluginsSnapshot.EMPTY);
+    }
+
+    @Override
+    public void ruleProcess(SqlStatementContext context, List<RuleAction> actions) {
+        ruleProcess(context.getStatement(), actions, context.getPlugins());
+    }
+
+    /**
+     * 内置规则优先按偏移量插入原始 SQL，快速识别的单表语句直接使用识别出的位置；
+     * 无法确定插入位置时在语法树上执行
+     */
+    @Override
+    public String spliceProcess(SqlStatementContext context, List<RuleAction> actions) {
+        if (FusedRuleEngine.supports(actions)) {
+            SimpleStatement simpleStatement = context.getSimpleStatement();
+            if (simpleStatement != null) {
+                return context.expand(simpleStatement.rewrite(actions));
+            }
+            String sql = SpliceRewriter.rewrite(context, actions);
+            if (sql != null) {
+                return sql;
+            }
+        }
+        ruleProcess(context, actions);
+        return context.deparse();
+    }
+
+    /**
+     * 执行单条规则，联接表按给定的插件快照判断
+     */
+    public void ruleProcess(Statement statement, PluginRuleValueType type, String field, Expression fieldValue,
+                            PluginsSnapshot plugins) {
         RulePolicyProcess rulePolicyProcess = rulePolicyProcessMap.get(type);
         if (Objects.isNull(rulePolicyProcess)) {
             throw new RulePolicyNoSupportException(type.name());
         }
-        rulePolicyProcess.ruleProcess(statement, field, fieldValue);
+        rulePolicyProcess.ruleProcess(statement, field, fieldValue, plugins);
+    }
+
+    /**
+     * 都是内置的条件、字段规则时一次遍历语法树执行所有规则，否则逐条执行
+     *
+     * @param plugins 判断联接表使用的插件快照
+     */
+    private void ruleProcess(Statement statement, List<RuleAction> actions, PluginsSnapshot plugins) {
+        if (actions.size() > 1 && FusedRuleEngine.supports(actions)) {
+            FusedRuleEngine.apply(statement, actions, plugins);
+            return;
+        }
+        for (RuleAction action : actions) {
+            ruleProcess(statement, action.getType(), action.getField(), action.getFieldValue(), plugins);
+        }
     }
 }
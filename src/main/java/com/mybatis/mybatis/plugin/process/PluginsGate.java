@@ -0,0 +1,88 @@
+package com.mybatis.mybatis.plugin.process;
+
+import org.apache.ibatis.mapping.SqlCommandType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @program: mybatis plugin
+ * @description: 解析前的插件过滤，先按 MappedStatement 的 SqlCommandType 计算每个 statement id 可能生效的插件位图，
+ * 再对表级别、库级别插件在原始 SQL 上做一次多模式扫描；一个插件都不可能生效时不需要获取 BoundSql，也不需要解析 SQL
+ */
+public final class PluginsGate {
+
+    /**
+     * 不做任何过滤
+     */
+    public static final PluginsGate OPEN = new PluginsGate(new PluginLevelMatcher[0], true);
+
+    /**
+     * 位图最多表示的插件数量，超过后不做过滤
+     */
+    private static final int MAX_PLUGINS = Long.SIZE;
+
+    private static final long ALL = -1L;
+
+    private final PluginLevelMatcher[] matchers;
+
+    private final boolean open;
+
+    private final Map<String, Long> candidates = new ConcurrentHashMap<>();
+
+    private PluginsGate(PluginLevelMatcher[] matchers, boolean open) {
+        this.matchers = matchers;
+        this.open = open;
+    }
+
+    static PluginsGate of(PluginLevelMatcher[] matchers) {
+        return new PluginsGate(matchers, matchers.length > MAX_PLUGINS);
+    }
+
+    /**
+     * @param statementId MappedStatement id，结果按 id 缓存
+     * @param type        MappedStatement 的 SqlCommandType
+     * @return 可能生效的插件位图，下标与快照中的插件下标一致，0 表示没有插件可能生效
+     */
+    public long candidates(String statementId, SqlCommandType type) {
+        if (open) {
+            return ALL;
+        }
+        if (statementId == null) {
+            return compute(type);
+        }
+        Long mask = candidates.get(statementId);
+        if (mask == null) {
+            mask = compute(type);
+            candidates.put(statementId, mask);
+        }
+        return mask;
+    }
+
+    /**
+     * @param candidates 可能生效的插件位图
+     * @param sql        原始 SQL
+     * @return 是否至少有一个插件可能生效
+     */
+    public boolean mayApply(long candidates, String sql) {
+        if (open) {
+            return true;
+        }
+        for (int i = 0; i < matchers.length; i++) {
+            if ((candidates & (1L << i)) != 0 && matchers[i].mayMatch(sql)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long compute(SqlCommandType type) {
+        long mask = 0L;
+        for (int i = 0; i < matchers.length; i++) {
+            if (matchers[i].mayMatch(type)) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+}
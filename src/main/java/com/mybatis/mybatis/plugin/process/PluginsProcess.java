@@ -1,5 +1,8 @@
 package com.mybatis.mybatis.plugin.process;
 
+import com.mybatis.mybatis.plugin.utils.RuleFieldDetector;
+import com.mybatis.mybatis.plugin.utils.SqlParserUtil;
+
 /**
  * @program: mybatis plugin
  * @description: 插件处理器
@@ -15,4 +18,71 @@ public interface PluginsProcess {
      * @Date: 2020/8/14 11:23 下午
      */
     String pluginsProcess(String oldSql);
+
+    /**
+     * 插件处理器，改写结果按 MappedStatement id、原始 SQL 以及解析出来的字段值缓存
+     *
+     * @param statementId MappedStatement id
+     * @param oldSql      原始 SQL
+     * @return 改写后的 SQL
+     */
+    String pluginsProcess(String statementId, String oldSql);
+
+    /**
+     * 插件处理器，使用本次执行已经解析好的语法树，不再重复解析 SQL
+     *
+     * @param context 本次执行的 SQL 上下文
+     * @return 改写后的 SQL
+     */
+    String pluginsProcess(SqlStatementContext context);
+
+    /**
+     * 创建本次执行的 SQL 上下文，检测和改写共用
+     *
+     * @param statementId MappedStatement id，可以为空
+     * @param sql         原始 SQL
+     * @return SQL 上下文
+     */
+    default SqlStatementContext newContext(String statementId, String sql) {
+        return new SqlStatementContext(statementId, sql);
+    }
+
+    /**
+     * 按配置的规则字段检测 SQL 中是否已经包含规则字段
+     *
+     * @return 规则字段检测
+     */
+    RuleFieldDetector getRuleFieldDetector();
+
+    /**
+     * 解析前的插件过滤，判断是否有插件可能对当前语句生效
+     *
+     * @return 插件过滤
+     */
+    PluginsGate getPluginsGate();
+
+    /**
+     * 启动时预编译静态 SQL，生成只需要在执行时填入字段值的模板
+     *
+     * @param context 静态 SQL 的上下文
+     * @return 预编译结果，不支持时记录原因
+     */
+    default PrecompiledSql precompile(SqlStatementContext context) {
+        return PrecompiledSql.unsupported("plugins process does not support precompile");
+    }
+
+    /**
+     * 使用预编译的模板生成本次执行的 SQL，字段解析结果与编译时不一致时按运行时流程改写，
+     * 回退时先检测 SQL 中是否已经包含规则字段，包含时返回原 SQL
+     *
+     * @param context     本次执行的 SQL 上下文
+     * @param precompiled 预编译结果
+     * @return 改写后的 SQL
+     */
+    default String pluginsProcess(SqlStatementContext context, PrecompiledSql precompiled) {
+        if (SqlParserUtil.hasRuleField(context, getRuleFieldDetector())) {
+            return context.getSql();
+        }
+        return pluginsProcess(context);
+    }
 }
@@ -1,16 +1,26 @@
 package com.mybatis.mybatis.plugin.process;
 
+import com.mybatis.mybatis.plugin.cache.ParseFailureCache;
+import com.mybatis.mybatis.plugin.cache.SqlRewriteCache;
+import com.mybatis.mybatis.plugin.cache.SqlRewriteCacheKey;
+import com.mybatis.mybatis.plugin.cache.SqlTemplate;
 import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.config.ParseFailPolicyType;
 import com.mybatis.mybatis.plugin.config.PluginConfig;
 import com.mybatis.mybatis.plugin.config.PluginRule;
-import net.sf.jsqlparser.JSQLParserException;
-import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import com.mybatis.mybatis.plugin.config.RuleFieldPolicy;
+import com.mybatis.mybatis.plugin.config.RuleFieldPolicyType;
+import com.mybatis.mybatis.plugin.exception.RuleProcessPolicyException;
+import com.mybatis.mybatis.plugin.exception.SqlParseFailException;
+import com.mybatis.mybatis.plugin.metrics.PluginPhase;
+import com.mybatis.mybatis.plugin.utils.RuleFieldDetector;
+import com.mybatis.mybatis.plugin.utils.SqlParserUtil;
 import net.sf.jsqlparser.statement.Statement;
+import org.apache.ibatis.mapping.SqlCommandType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.util.CollectionUtils;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -28,9 +38,66 @@ public class PluginsProcessImpl implements PluginsProcess {
 
     private RuleProcess ruleProcess;
 
+    private SqlRewriteCache rewriteCache;
+
+    /**
+     * 解析失败的 SQL，同一条 SQL 不再重复解析，并统计各个策略的执行次数
+     */
+    private final ParseFailureCache parseFailures;
+
+    /**
+     * 解析限制以及解析耗时最长的 SQL 记录
+     */
+    private final SqlParseGuard parseGuard;
+
+    /**
+     * 字段值是否以 ? 绑定参数注入
+     */
+    private final boolean bindValue;
+
+    /**
+     * 是否把规则新增的内容拼接进原始 SQL，而不是重新转成字符串
+     */
+    private final boolean splice;
+
+    /**
+     * 拼接模式下简单的单表语句是否由手写识别器处理，不经过 JSqlParser
+     */
+    private final boolean fastPath;
+
+    /**
+     * 启动时编译好的插件快照，执行 SQL 时无锁读取
+     */
+    private volatile PluginsSnapshot snapshot;
+
     public PluginsProcessImpl(MybatisPluginsConfig mybatisPluginsConfig, RuleProcess ruleProcess) {
         this.mybatisPluginsConfig = mybatisPluginsConfig;
         this.ruleProcess = ruleProcess;
+        this.rewriteCache = new SqlRewriteCache(Objects.isNull(mybatisPluginsConfig) ? null
+                : mybatisPluginsConfig.getCache());
+        this.parseFailures = new ParseFailureCache(Objects.isNull(mybatisPluginsConfig) ? null
+                : mybatisPluginsConfig.getParseFailure());
+        this.parseGuard = Objects.isNull(mybatisPluginsConfig) ? new SqlParseGuard(null)
+                : new SqlParseGuard(mybatisPluginsConfig.getParseLimit(), mybatisPluginsConfig.getCollapseListSize(),
+                mybatisPluginsConfig.getStreamInsertRows());
+        this.bindValue = Objects.nonNull(mybatisPluginsConfig)
+                && Boolean.TRUE.equals(mybatisPluginsConfig.getBindValue());
+        this.splice = Objects.nonNull(mybatisPluginsConfig)
+                && Boolean.TRUE.equals(mybatisPluginsConfig.getSplice());
+        this.fastPath = splice && Boolean.TRUE.equals(mybatisPluginsConfig.getFastPath());
+        this.snapshot = PluginsSnapshot.of(mybatisPluginsConfig);
+    }
+
+    /**
+     * 插件配置变更后重新构建快照，并清空改写缓存
+     */
+    public void refresh() {
+        this.snapshot = PluginsSnapshot.of(mybatisPluginsConfig);
+        rewriteCache.invalidateAll();
+    }
+
+    public PluginsSnapshot getSnapshot() {
+        return snapshot;
     }
 
     /**
@@ -42,45 +109,298 @@ public class PluginsProcessImpl implements PluginsProcess {
      */
     @Override
     public String pluginsProcess(String oldSql) {
-        if (Objects.isNull(mybatisPluginsConfig) || CollectionUtils.isEmpty(mybatisPluginsConfig.getPlugins())) {
+        return pluginsProcess(null, oldSql);
+    }
+
+    @Override
+    public String pluginsProcess(String statementId, String oldSql) {
+        return pluginsProcess(newContext(statementId, oldSql));
+    }
+
+    @Override
+    public SqlStatementContext newContext(String statementId, String sql) {
+        return new SqlStatementContext(statementId, sql, fastPath, parseFailures, parseGuard);
+    }
+
+    /**
+     * 规则的字段和字段值在插件需要时才解析；使用缓存时先解析可能生效的插件的规则，
+     * 再以 statementId + SQL + 字段值作为 key 查询缓存，命中时直接返回，不再解析 SQL；
+     * 插件、规则从快照读取，整个过程不加锁。
+     * 绑定参数模式下返回带 ? 的 SQL，字段值通过 context 的 bindValues 返回
+     */
+    @Override
+    public String pluginsProcess(SqlStatementContext context) {
+        String oldSql = context.getSql();
+        PluginsSnapshot plugins = this.snapshot;
+        if (plugins.isEmpty()) {
             return oldSql;
         }
-        List<PluginConfig> plugins = mybatisPluginsConfig.getPlugins();
-        synchronized (plugins) {
-            Collections.sort(plugins);
+
+        RuleFields ruleFields = new RuleFields(plugins, ruleProcess);
+        if (bindValue && context.isBindable() && !SqlTemplate.conflicts(oldSql) && SqlTemplate.bindable(oldSql)) {
+            // 绑定参数模式总是按模板改写，SQL 文本与字段值无关；缓存关闭时每次都要改写、编译模板。
+            // 字符串中有反斜杠时无法确定 ? 的位置，不是 PreparedStatement 时无法绑定，都按字面量拼接
+            List<ResolvedRuleField> fields = ruleFields.candidates(oldSql);
+            List<ResolvedRuleField> markers = SqlTemplate.markers(fields);
+            SqlRewriteCacheKey key = new SqlRewriteCacheKey(context.getStatementId(), oldSql, markers);
+            SqlTemplate template = rewriteCache.get(key,
+                    k -> SqlTemplate.compile(rewrite(context, plugins, markers)));
+            context.setBindValues(template.bindValues(fields));
+            return template.getBindSql();
+        }
+        if (!rewriteCache.isEnabled()) {
+            return rewrite(context, plugins, ruleFields);
         }
+        List<ResolvedRuleField> fields = ruleFields.candidates(oldSql);
+        if (rewriteCache.isTemplate() && !SqlTemplate.conflicts(oldSql)) {
+            // 模板与字段值无关，system 策略产生的字段值也可以使用
+            List<ResolvedRuleField> markers = SqlTemplate.markers(fields);
+            SqlRewriteCacheKey key = new SqlRewriteCacheKey(context.getStatementId(), oldSql, markers);
+            return rewriteCache.get(key, k -> SqlTemplate.compile(rewrite(context, plugins, markers))).render(fields);
+        }
+        if (!ruleFields.isCacheable()) {
+            return rewrite(context, plugins, ruleFields);
+        }
+        SqlRewriteCacheKey key = new SqlRewriteCacheKey(context.getStatementId(), oldSql, fields);
+        return rewriteCache.get(key, k -> SqlTemplate.constant(rewrite(context, plugins, fields))).render(fields);
+    }
 
-        Statement statement = null;
-        try {
-            statement = CCJSqlParserUtil.parse(oldSql);
-        } catch (JSQLParserException e) {
-            logger.error(e.getLocalizedMessage());
+    /**
+     * 只有配置文件策略的字段名在启动时就能确定，所有规则都是配置文件策略时才能预编译；
+     * 字段值用占位标记代替，编译结果与 template 模式的模板相同
+     */
+    @Override
+    public PrecompiledSql precompile(SqlStatementContext context) {
+        PluginsSnapshot plugins = this.snapshot;
+        if (SqlTemplate.conflicts(context.getSql())) {
+            return PrecompiledSql.unsupported("sql contains template marker");
         }
-        synchronized (plugins) {
-            for (PluginConfig plugin : plugins) {
-                Boolean pluginConfPass = PluginLevelValidate.DEFAULT.validateLevel(plugin, statement);
-                if (logger.isDebugEnabled()) {
-                    logger.info("{} plugin level validate result {}", plugin.getName(), pluginConfPass);
+        String sql = context.getSql();
+        SqlCommandType type = RegexFallbackInjector.commandType(sql);
+        List<ResolvedRuleField> fields = new ArrayList<>(plugins.ruleCount());
+        for (int i = 0; i < plugins.pluginCount(); i++) {
+            // 与执行时相同，按 SQL 文本不可能生效的插件不参与模板
+            boolean candidate = plugins.matcher(i).mayMatch(type, sql);
+            for (PluginRule rule : plugins.rules(i)) {
+                RuleFieldPolicy fieldPolicy = rule.getFieldPolicy();
+                if (Objects.isNull(fieldPolicy) || !RuleFieldPolicyType.conf.equals(fieldPolicy.getName())) {
+                    return PrecompiledSql.unsupported("field of rule " + rule.getName() + " is resolved per call");
                 }
-                if (!pluginConfPass) {
-                    logger.info("{} plugin level validate not pass", plugin.getName());
-                    continue;
+                fields.add(candidate ? new ResolvedRuleField(fieldPolicy.getValue(), "", true) : null);
+            }
+        }
+        if (Objects.isNull(context.getStatement())) {
+            return PrecompiledSql.unsupported("sql can not be parsed");
+        }
+        List<ResolvedRuleField> markers = SqlTemplate.markers(fields);
+        return PrecompiledSql.of(plugins, markers, SqlTemplate.compile(rewrite(context, plugins, markers)));
+    }
+
+    /**
+     * 快照未刷新且所有字段都解析成功时直接填入字段值，不查询缓存，也不解析 SQL
+     */
+    @Override
+    public String pluginsProcess(SqlStatementContext context, PrecompiledSql precompiled) {
+        PluginsSnapshot plugins = this.snapshot;
+        if (precompiled.isPrecompiled() && precompiled.getSnapshot() == plugins) {
+            List<ResolvedRuleField> fields = new RuleFields(plugins, ruleProcess).candidates(context.getSql());
+            if (precompiled.getMarkers().equals(SqlTemplate.markers(fields))) {
+                SqlTemplate template = precompiled.getTemplate();
+                if (bindValue && context.isBindable() && SqlTemplate.bindable(context.getSql())) {
+                    context.setBindValues(template.bindValues(fields));
+                    return template.getBindSql();
                 }
-                List<PluginRule> rules = plugin.getRules();
-                synchronized (rules) {
-                    Collections.sort(rules);
+                return template.render(fields);
+            }
+        }
+        // 字段值获取失败时需要执行失败策略，配置刷新后模板失效，都按运行时流程改写；
+        // 刷新后规则字段可能变化，与拦截器一样先检测 SQL 中是否已经包含规则字段
+        if (SqlParserUtil.hasRuleField(context, getRuleFieldDetector())) {
+            return context.getSql();
+        }
+        return pluginsProcess(context);
+    }
+
+    @Override
+    public RuleFieldDetector getRuleFieldDetector() {
+        return snapshot.getRuleFieldDetector();
+    }
+
+    @Override
+    public PluginsGate getPluginsGate() {
+        return snapshot.getGate();
+    }
+
+    public SqlRewriteCache getRewriteCache() {
+        return rewriteCache;
+    }
+
+    public ParseFailureCache getParseFailures() {
+        return parseFailures;
+    }
+
+    public SqlParseGuard getParseGuard() {
+        return parseGuard;
+    }
+
+    /**
+     * 在上下文的语法树上依次执行插件规则，语法树会被修改，每次执行只能改写一次；
+     * 快速识别的单表语句不解析，直接按识别出的位置插入
+     *
+     * @param fields 与插件、规则顺序一一对应的字段解析结果
+     */
+    private String rewrite(SqlStatementContext context, PluginsSnapshot plugins, List<ResolvedRuleField> fields) {
+        // 规则处理器通过上下文读取本实例的快照，多个实例之间互不影响
+        context.setPlugins(plugins);
+        try {
+            return rewriteStatement(context, plugins, fields);
+        } catch (SqlSkeleton.MismatchException e) {
+            // 缩短后的改写结果无法换回原始内容，放弃缩短，解析原始 SQL 重新改写
+            if (!context.dropSkeleton()) {
+                throw e;
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("sql skeleton can not be expanded, rewrite original sql, statement {}",
+                        context.getStatementId());
+            }
+            return rewriteStatement(context, plugins, fields);
+        }
+    }
+
+    private String rewriteStatement(SqlStatementContext context, PluginsSnapshot plugins,
+                                    List<ResolvedRuleField> fields) {
+        // 快速识别的单表语句按语句类型和主表校验插件级别，不需要语法树
+        SimpleStatement simpleStatement = context.getSimpleStatement();
+        Statement statement = simpleStatement == null ? context.getStatement() : null;
+        if (simpleStatement == null && statement == null) {
+            return parseFailed(context, plugins, fields);
+        }
+        List<PluginRule> rules = new ArrayList<>(plugins.ruleCount());
+        List<ResolvedRuleField> resolved = new ArrayList<>(plugins.ruleCount());
+        int index = 0;
+        for (int i = 0; i < plugins.pluginCount(); i++) {
+            PluginConfig plugin = plugins.plugin(i);
+            PluginRule[] pluginRules = plugins.rules(i);
+            Boolean pluginConfPass = simpleStatement == null
+                    ? PluginLevelValidate.DEFAULT.validateLevel(plugins.matcher(i), statement)
+                    : plugins.matcher(i).matches(simpleStatement.getCommandType(), simpleStatement.getTable());
+            if (logger.isDebugEnabled()) {
+                logger.info("{} plugin level validate result {}", plugin.getName(), pluginConfPass);
+            }
+            if (!pluginConfPass) {
+                logger.info("{} plugin level validate not pass", plugin.getName());
+                index += pluginRules.length;
+                continue;
+            }
+
+            for (PluginRule rule : pluginRules) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("{} plugin {} rule one handler", plugin.getName(), rule.getName());
                 }
+                rules.add(rule);
+                resolved.add(fields.get(index++));
+            }
+        }
+        if (rules.isEmpty()) {
+            return splice ? context.getSql() : context.deparse();
+        }
+        long start = context.startTiming();
+        try {
+            // 拼接模式下插入位置之外的内容与原始 SQL 完全相同
+            if (splice) {
+                return ruleProcess.spliceProcess(context, rules, resolved);
+            }
+            // 所有通过校验的规则一起执行，内置规则只遍历一次语法树
+            ruleProcess.ruleProcess(context, rules, resolved);
+        } catch (RuleProcessPolicyException e) {
+            context.setFailedPlugin(pluginName(plugins, e.getRule()));
+            throw e;
+        } finally {
+            context.stopTiming(PluginPhase.rule, start);
+        }
 
+        return context.deparse();
+    }
 
-                for (PluginRule rule : rules) {
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("{} plugin {} rule one handler", plugin.getName(), rule.getName());
+    /**
+     * SQL 无法解析时，可能对它生效的插件按 parse-fail-policy 处理，超过解析限制时按 parse-limit-policy 处理：
+     * pass 跳过插件，block 抛出异常，fallback 按正则注入 where 条件，无法注入时与 block 相同
+     *
+     * @param fields 与插件、规则顺序一一对应的字段解析结果
+     */
+    private String parseFailed(SqlStatementContext context, PluginsSnapshot plugins, List<ResolvedRuleField> fields) {
+        String sql = context.getSql();
+        SqlCommandType type = RegexFallbackInjector.commandType(sql);
+        List<RuleAction> actions = new ArrayList<>(plugins.ruleCount());
+        int index = 0;
+        for (int i = 0; i < plugins.pluginCount(); i++) {
+            PluginConfig plugin = plugins.plugin(i);
+            PluginRule[] pluginRules = plugins.rules(i);
+            int first = index;
+            index += pluginRules.length;
+            if (!plugins.matcher(i).mayMatch(type, sql)) {
+                continue;
+            }
+            // 解析限制与负载有关，不沿用 parse-fail-policy，避免拖慢解析即可跳过规则
+            ParseFailPolicyType policy = context.isParseLimited()
+                    ? plugin.getParseLimitPolicy() : plugin.getParseFailPolicy();
+            if (Objects.isNull(policy)) {
+                // 未配置时不能跳过插件，否则 SQL 不带规则条件执行
+                policy = ParseFailPolicyType.block;
+            }
+            parseFailures.record(policy);
+            if (ParseFailPolicyType.pass.equals(policy)) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("{} plugin pass sql can not be parsed", plugin.getName());
+                }
+                continue;
+            }
+            List<RuleAction> pluginActions = new ArrayList<>(pluginRules.length);
+            if (ParseFailPolicyType.fallback.equals(policy)) {
+                for (int j = 0; j < pluginRules.length; j++) {
+                    ResolvedRuleField field = fields.get(first + j);
+                    if (!field.isResolved()) {
+                        // 只执行失败策略，不需要语法树
+                        try {
+                            ruleProcess.ruleProcess(null, pluginRules[j], field);
+                        } catch (RuleProcessPolicyException e) {
+                            context.setFailedPlugin(plugin.getName());
+                            throw e;
+                        }
+                        continue;
                     }
-                    ruleProcess.ruleProcess(statement, rule);
+                    pluginActions.add(new RuleAction(pluginRules[j].getValue(), field.getField(),
+                            RuleFieldValueExpression.of(field.getFieldValue(), field.getValueType())));
+                }
+                if (Objects.nonNull(RegexFallbackInjector.inject(sql, pluginActions))) {
+                    actions.addAll(pluginActions);
+                    continue;
                 }
             }
+            context.setFailedPlugin(plugin.getName());
+            throw new SqlParseFailException(plugin.getName() + " plugin can not rewrite sql: "
+                    + context.getParseError(), sql);
+        }
+        if (actions.isEmpty()) {
+            return sql;
         }
+        long start = context.startTiming();
+        String injected = RegexFallbackInjector.inject(sql, actions);
+        context.stopTiming(PluginPhase.rule, start);
+        return injected;
+    }
 
-        return statement.toString();
+    /**
+     * @return 规则所属的插件名，找不到时返回 null
+     */
+    private static String pluginName(PluginsSnapshot plugins, PluginRule rule) {
+        for (int i = 0; i < plugins.pluginCount(); i++) {
+            for (PluginRule pluginRule : plugins.rules(i)) {
+                if (pluginRule == rule) {
+                    return plugins.plugin(i).getName();
+                }
+            }
+        }
+        return null;
     }
 }
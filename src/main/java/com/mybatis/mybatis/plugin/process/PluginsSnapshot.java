@@ -0,0 +1,166 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.config.PluginConfig;
+import com.mybatis.mybatis.plugin.config.PluginLevelType;
+import com.mybatis.mybatis.plugin.config.PluginRule;
+import com.mybatis.mybatis.plugin.config.RuleFieldPolicy;
+import com.mybatis.mybatis.plugin.config.RuleFieldPolicyType;
+import com.mybatis.mybatis.plugin.utils.RuleFieldDetector;
+import org.springframework.util.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * @program: mybatis plugin
+ * @description: 插件、规则的不可变快照，启动时按 order 排好序，执行 SQL 时只读，不需要加锁和排序；
+ * 没有规则的插件不会执行，构建时直接去掉
+ */
+public final class PluginsSnapshot {
+
+    public static final PluginsSnapshot EMPTY = new PluginsSnapshot(new PluginConfig[0], new PluginRule[0][],
+            RuleFieldDetector.DEFAULT);
+
+    private final PluginConfig[] plugins;
+
+    /**
+     * 与 plugins 下标一一对应的插件级别匹配器
+     */
+    private final PluginLevelMatcher[] matchers;
+
+    /**
+     * 表级别插件的匹配器，用于判断联接表是否需要处理
+     */
+    private final PluginLevelMatcher[] tableMatchers;
+
+    /**
+     * 与 plugins 下标一一对应的已排序规则
+     */
+    private final PluginRule[][] rules;
+
+    /**
+     * 按插件、规则顺序展开的所有规则
+     */
+    private final PluginRule[] flatRules;
+
+    /**
+     * 按配置的规则字段检测 SQL 中是否已经包含规则字段
+     */
+    private final RuleFieldDetector ruleFieldDetector;
+
+    /**
+     * 解析前的插件过滤
+     */
+    private final PluginsGate gate;
+
+    private PluginsSnapshot(PluginConfig[] plugins, PluginRule[][] rules, RuleFieldDetector ruleFieldDetector) {
+        this.plugins = plugins;
+        this.rules = rules;
+        this.ruleFieldDetector = ruleFieldDetector;
+        this.matchers = new PluginLevelMatcher[plugins.length];
+        List<PluginLevelMatcher> tables = new ArrayList<>();
+        for (int i = 0; i < plugins.length; i++) {
+            matchers[i] = PluginLevelMatcher.compile(plugins[i]);
+            if (PluginLevelType.table.equals(plugins[i].getLevel())) {
+                tables.add(matchers[i]);
+            }
+        }
+        this.tableMatchers = tables.toArray(new PluginLevelMatcher[0]);
+        this.gate = PluginsGate.of(matchers);
+        List<PluginRule> flat = new ArrayList<>();
+        for (PluginRule[] pluginRules : rules) {
+            Collections.addAll(flat, pluginRules);
+        }
+        this.flatRules = flat.toArray(new PluginRule[0]);
+    }
+
+    /**
+     * 按配置构建快照，不会修改配置中的集合
+     */
+    public static PluginsSnapshot of(MybatisPluginsConfig config) {
+        if (Objects.isNull(config) || CollectionUtils.isEmpty(config.getPlugins())) {
+            return EMPTY;
+        }
+        List<PluginConfig> sortedPlugins = new ArrayList<>(config.getPlugins());
+        Collections.sort(sortedPlugins);
+        List<PluginConfig> plugins = new ArrayList<>(sortedPlugins.size());
+        List<PluginRule[]> rules = new ArrayList<>(sortedPlugins.size());
+        Set<String> fields = new LinkedHashSet<>();
+        for (PluginConfig plugin : sortedPlugins) {
+            if (Objects.isNull(plugin) || CollectionUtils.isEmpty(plugin.getRules())) {
+                continue;
+            }
+            List<PluginRule> sortedRules = new ArrayList<>(plugin.getRules());
+            Collections.sort(sortedRules);
+            plugins.add(plugin);
+            rules.add(sortedRules.toArray(new PluginRule[0]));
+            for (PluginRule rule : sortedRules) {
+                // 只有配置文件策略的字段名在启动时就能确定
+                RuleFieldPolicy fieldPolicy = rule.getFieldPolicy();
+                if (Objects.nonNull(fieldPolicy) && RuleFieldPolicyType.conf.equals(fieldPolicy.getName())) {
+                    fields.add(fieldPolicy.getValue());
+                }
+            }
+        }
+        return new PluginsSnapshot(plugins.toArray(new PluginConfig[0]), rules.toArray(new PluginRule[0][]),
+                RuleFieldDetector.of(fields));
+    }
+
+    public boolean isEmpty() {
+        return plugins.length == 0;
+    }
+
+    public int pluginCount() {
+        return plugins.length;
+    }
+
+    public PluginConfig plugin(int index) {
+        return plugins[index];
+    }
+
+    public PluginLevelMatcher matcher(int index) {
+        return matchers[index];
+    }
+
+    /**
+     * 联接表是否需要处理：任意一个表级别插件的 value 包含该表
+     *
+     * @param tableName 带库名的完整表名
+     */
+    public boolean joinTableMatches(String tableName) {
+        for (PluginLevelMatcher matcher : tableMatchers) {
+            if (matcher.matchesTable(tableName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public PluginRule[] rules(int index) {
+        return rules[index];
+    }
+
+    /**
+     * @param index 按插件、规则顺序展开后的下标
+     */
+    public PluginRule rule(int index) {
+        return flatRules[index];
+    }
+
+    public int ruleCount() {
+        return flatRules.length;
+    }
+
+    public RuleFieldDetector getRuleFieldDetector() {
+        return ruleFieldDetector;
+    }
+
+    public PluginsGate getGate() {
+        return gate;
+    }
+}
@@ -0,0 +1,65 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.cache.SqlTemplate;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * @program: mybatis plugin
+ * @description: 启动时对静态 SQL 预编译的结果。模板与字段值无关，只对编译时的插件快照和字段名有效，
+ * 执行时字段解析结果与编译时不一致（字段值获取失败、配置已经刷新）需要按运行时流程改写；
+ * 无法预编译时只记录原因
+ */
+public final class PrecompiledSql {
+
+    private final PluginsSnapshot snapshot;
+
+    /**
+     * 编译时使用的占位标记，执行时字段解析结果转成标记后必须与之相同
+     */
+    private final List<ResolvedRuleField> markers;
+
+    private final SqlTemplate template;
+
+    /**
+     * 无法预编译的原因
+     */
+    private final String reason;
+
+    private PrecompiledSql(PluginsSnapshot snapshot, List<ResolvedRuleField> markers, SqlTemplate template,
+                           String reason) {
+        this.snapshot = snapshot;
+        this.markers = markers;
+        this.template = template;
+        this.reason = reason;
+    }
+
+    static PrecompiledSql of(PluginsSnapshot snapshot, List<ResolvedRuleField> markers, SqlTemplate template) {
+        return new PrecompiledSql(snapshot, markers, template, null);
+    }
+
+    static PrecompiledSql unsupported(String reason) {
+        return new PrecompiledSql(null, null, null, reason);
+    }
+
+    public boolean isPrecompiled() {
+        return Objects.nonNull(template);
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    PluginsSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    List<ResolvedRuleField> getMarkers() {
+        return markers;
+    }
+
+    SqlTemplate getTemplate() {
+        return template;
+    }
+}
@@ -0,0 +1,328 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.SupportsOldOracleJoinSyntax;
+import net.sf.jsqlparser.schema.Column;
+import org.apache.ibatis.mapping.SqlCommandType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @program: mybatis plugin
+ * @description: JSqlParser 无法解析时的兜底注入，只处理单个查询、update、delete 的最外层 where 条件。
+ * 先把字符串、引号中的名称、注释以及括号中的内容替换成空格，再按正则查找最外层的 where 和之后的子句；
+ * 原条件整体放入括号，插入位置之外的内容与原始 SQL 相同。条件只能加在最外层的一张表上，
+ * 多表关联、from 列表中有多张表或者包含子查询时其他表的数据不会被过滤，与无法确定插入位置一样返回 null，由策略阻止执行
+ */
+final class RegexFallbackInjector {
+
+    private static final Pattern STATEMENT = Pattern.compile("^\\s*(select|update|delete)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern WHERE = Pattern.compile("\\bwhere\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern FROM = Pattern.compile("\\bfrom\\b", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * where 条件之后的子句，where 条件在第一个子句之前结束
+     */
+    private static final Pattern CLAUSE = Pattern.compile(
+            "\\b(group\\s+by|order\\s+by|having|limit|offset|fetch|for\\s+update|lock\\s+in|returning|window)\\b|;",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * 出现在最外层时有多个查询分支，只在一个分支注入会漏掉其他分支
+     */
+    private static final Pattern SET_OPERATION = Pattern.compile("\\b(union|intersect|except|minus)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * 最外层的表中出现时为多表语句
+     */
+    private static final Pattern MULTI_TABLE = Pattern.compile("\\b(\\w*join|using)\\b|,", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern SET = Pattern.compile("\\bset\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern SELECT = Pattern.compile("\\bselect\\b", Pattern.CASE_INSENSITIVE);
+
+    private RegexFallbackInjector() {
+    }
+
+    /**
+     * @param sql     无法解析的原始 SQL
+     * @param actions 按执行顺序排列的规则
+     * @return 注入条件后的 SQL；规则中有需要改写 where 之外位置的规则、包含多张表或者子查询、
+     * 或者无法确定插入位置时返回 null
+     */
+    static String inject(String sql, List<RuleAction> actions) {
+        String masked = mask(sql);
+        if (masked == null || SET_OPERATION.matcher(masked).find()) {
+            return null;
+        }
+        Matcher statement = STATEMENT.matcher(masked);
+        if (!statement.find()) {
+            return null;
+        }
+        boolean update = "update".equalsIgnoreCase(statement.group(1));
+        List<String> conditions = new ArrayList<>(actions.size());
+        for (RuleAction action : actions) {
+            PluginRuleValueType type = action.getType();
+            if (PluginRuleValueType.add_where_field.equals(type)) {
+                conditions.add(condition(action).toString());
+            } else if (PluginRuleValueType.add_insert_field.equals(type)) {
+                continue;
+            } else if (update || !PluginRuleValueType.add_update_field.equals(type)
+                    && !PluginRuleValueType.add_field.equals(type)) {
+                // update 的 set 子句、修改表名等无法按正则处理；查询、delete 与 FusedRuleEngine 一致只处理 where 条件
+                return null;
+            }
+        }
+        if (conditions.isEmpty()) {
+            return sql;
+        }
+        if (multiTable(masked, statement, update) || hasSubquery(sql, masked)) {
+            return null;
+        }
+        String condition = String.join(SpliceRewriter.AND, conditions);
+
+        Matcher where = WHERE.matcher(masked);
+        if (where.find()) {
+            int begin = where.end();
+            if (where.find()) {
+                return null;
+            }
+            int end = trimEnd(sql, clauseBegin(masked, begin));
+            return sql.substring(0, begin) + " " + condition + SpliceRewriter.AND + "("
+                    + sql.substring(begin, end).trim() + ")" + sql.substring(end);
+        }
+        int from = statement.end();
+        if (!update) {
+            Matcher matcher = FROM.matcher(masked);
+            if (!matcher.find(from)) {
+                return null;
+            }
+            from = matcher.end();
+        }
+        int end = trimEnd(sql, clauseBegin(masked, from));
+        return sql.substring(0, end) + " WHERE " + condition + sql.substring(end);
+    }
+
+    /**
+     * 按第一个关键字判断语句类型，跳过注释；无法判断时返回 UNKNOWN，WITH 之后可能是写语句，同样返回 UNKNOWN。
+     * 改写缓存命中前也会调用，与 {@link #mask(String)} 的规则相同，但不复制 SQL：
+     * 引号、注释以及括号中的内容按空白处理，引号、注释或者括号不完整，或者字符串中有反斜杠时返回 UNKNOWN
+     */
+    static SqlCommandType commandType(String sql) {
+        int length = sql.length();
+        int depth = 0;
+        int wordStart = -1;
+        int wordEnd = -1;
+        boolean first = true;
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            int end;
+            if (c == '\'' || c == '"' || c == '`') {
+                end = sql.indexOf(c, i + 1);
+                // '' 转义
+                while (end > 0 && c == '\'' && end + 1 < length && sql.charAt(end + 1) == '\'') {
+                    end = sql.indexOf(c, end + 2);
+                }
+                end = end < 0 ? -1 : end + 1;
+                if (end > 0 && c == '\'') {
+                    int backslash = sql.indexOf('\\', i);
+                    if (backslash >= 0 && backslash < end) {
+                        return SqlCommandType.UNKNOWN;
+                    }
+                }
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                end = sql.indexOf('\n', i);
+                end = end < 0 ? length : end;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                end = sql.indexOf("*/", i + 2);
+                end = end < 0 ? -1 : end + 2;
+            } else {
+                if (c == ')' && --depth < 0) {
+                    return SqlCommandType.UNKNOWN;
+                }
+                if (c == '(') {
+                    depth++;
+                }
+                if (first && depth == 0 && c != ')' && !whitespace(c)) {
+                    // 第一个不是空白的字符不是单词时无法判断
+                    first = false;
+                    wordStart = i;
+                    wordEnd = i;
+                    while (wordEnd < length && wordChar(sql.charAt(wordEnd))) {
+                        wordEnd++;
+                    }
+                }
+                i++;
+                continue;
+            }
+            if (end < 0) {
+                return SqlCommandType.UNKNOWN;
+            }
+            i = end;
+        }
+        if (depth != 0 || wordStart == wordEnd) {
+            return SqlCommandType.UNKNOWN;
+        }
+        if (keyword(sql, wordStart, wordEnd, "select")) {
+            return SqlCommandType.SELECT;
+        }
+        if (keyword(sql, wordStart, wordEnd, "insert") || keyword(sql, wordStart, wordEnd, "replace")) {
+            return SqlCommandType.INSERT;
+        }
+        if (keyword(sql, wordStart, wordEnd, "update")) {
+            return SqlCommandType.UPDATE;
+        }
+        if (keyword(sql, wordStart, wordEnd, "delete")) {
+            return SqlCommandType.DELETE;
+        }
+        return SqlCommandType.UNKNOWN;
+    }
+
+    private static boolean keyword(String sql, int start, int end, String keyword) {
+        return end - start == keyword.length() && sql.regionMatches(true, start, keyword, 0, keyword.length());
+    }
+
+    /**
+     * 与正则中的 \s 相同
+     */
+    private static boolean whitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * 与正则中的 \w 相同
+     */
+    private static boolean wordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private static Expression condition(RuleAction action) {
+        // 完整的表达式直接作为条件
+        if (action.getFieldValue() instanceof SupportsOldOracleJoinSyntax) {
+            return action.getFieldValue();
+        }
+        EqualsTo equalsTo = new EqualsTo();
+        equalsTo.setLeftExpression(new Column(action.getField()));
+        equalsTo.setRightExpression(action.getFieldValue());
+        return equalsTo;
+    }
+
+    /**
+     * 最外层的表之间有 join、using 或者逗号：查询从 from 开始，delete 从 delete 开始（包括多表 delete 的表名列表），
+     * 到 where 或者之后的子句为止；update 为 update 和 set 之间的部分
+     */
+    private static boolean multiTable(String masked, Matcher statement, boolean update) {
+        int begin = statement.end();
+        int end;
+        if (update) {
+            Matcher set = SET.matcher(masked);
+            end = set.find(begin) ? set.start() : masked.length();
+        } else {
+            if ("select".equalsIgnoreCase(statement.group(1))) {
+                Matcher from = FROM.matcher(masked);
+                if (!from.find(begin)) {
+                    return false;
+                }
+                begin = from.end();
+            }
+            Matcher where = WHERE.matcher(masked);
+            end = Math.min(where.find(begin) ? where.start() : masked.length(), clauseBegin(masked, begin));
+        }
+        return MULTI_TABLE.matcher(masked).region(begin, end).find();
+    }
+
+    /**
+     * 括号中出现 select，只替换字符串、引号中的名称和注释时能找到，全部替换后找不到
+     */
+    private static boolean hasSubquery(String sql, String masked) {
+        String literals = mask(sql, false);
+        Matcher select = SELECT.matcher(literals);
+        while (select.find()) {
+            if (masked.charAt(select.start()) == ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int clauseBegin(String masked, int from) {
+        Matcher clause = CLAUSE.matcher(masked);
+        return clause.find(from) ? clause.start() : masked.length();
+    }
+
+    private static int trimEnd(String sql, int end) {
+        while (end > 0 && Character.isWhitespace(sql.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * 与原始 SQL 等长，字符串、引号中的名称、注释以及括号中的内容都替换成空格
+     *
+     * @return 引号、注释或者括号不完整，或者字符串中有反斜杠时返回 null
+     */
+    static String mask(String sql) {
+        return mask(sql, true);
+    }
+
+    /**
+     * @param parentheses 是否替换括号中的内容
+     */
+    private static String mask(String sql, boolean parentheses) {
+        char[] chars = sql.toCharArray();
+        int depth = 0;
+        int i = 0;
+        while (i < chars.length) {
+            char c = chars[i];
+            int end;
+            if (c == '\'' || c == '"' || c == '`') {
+                end = sql.indexOf(c, i + 1);
+                // '' 转义
+                while (end > 0 && c == '\'' && end + 1 < chars.length && chars[end + 1] == '\'') {
+                    end = sql.indexOf(c, end + 2);
+                }
+                end = end < 0 ? -1 : end + 1;
+                if (end > 0 && c == '\'' && sql.substring(i, end).indexOf('\\') >= 0) {
+                    // 反斜杠是否转义与数据库有关
+                    return null;
+                }
+            } else if (c == '-' && i + 1 < chars.length && chars[i + 1] == '-') {
+                end = sql.indexOf('\n', i);
+                end = end < 0 ? chars.length : end;
+            } else if (c == '/' && i + 1 < chars.length && chars[i + 1] == '*') {
+                end = sql.indexOf("*/", i + 2);
+                end = end < 0 ? -1 : end + 2;
+            } else {
+                if (c == ')' && --depth < 0) {
+                    return null;
+                }
+                if (c == '(') {
+                    depth++;
+                }
+                if (parentheses && (depth > 0 || c == ')')) {
+                    chars[i] = ' ';
+                }
+                i++;
+                continue;
+            }
+            if (end < 0) {
+                return null;
+            }
+            for (; i < end; i++) {
+                chars[i] = ' ';
+            }
+        }
+        return depth == 0 ? new String(chars) : null;
+    }
+}
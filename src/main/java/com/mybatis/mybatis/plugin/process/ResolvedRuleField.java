@@ -0,0 +1,87 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.RuleFieldValueType;
+
+import java.util.Objects;
+
+/**
+ * @program: mybatis plugin
+ * @description: 规则通过字段策略、字段值策略解析出来的字段和字段值，同一次执行中只解析一次
+ */
+public final class ResolvedRuleField {
+
+    private final String field;
+
+    private final String fieldValue;
+
+    /**
+     * 字段值是否可复用，system 策略每次都会产生新值（uuid、now），不能参与缓存
+     */
+    private final boolean cacheable;
+
+    /**
+     * 字段值类型，决定写入 SQL 的字面量形式
+     */
+    private final RuleFieldValueType valueType;
+
+    public ResolvedRuleField(String field, String fieldValue, boolean cacheable) {
+        this(field, fieldValue, cacheable, RuleFieldValueType.string);
+    }
+
+    public ResolvedRuleField(String field, String fieldValue, boolean cacheable, RuleFieldValueType valueType) {
+        this.field = field;
+        this.fieldValue = fieldValue;
+        this.cacheable = cacheable;
+        this.valueType = Objects.isNull(valueType) ? RuleFieldValueType.string : valueType;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public String getFieldValue() {
+        return fieldValue;
+    }
+
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
+    public RuleFieldValueType getValueType() {
+        return valueType;
+    }
+
+    /**
+     * 字段和字段值都获取到了，规则才会真正执行
+     */
+    public boolean isResolved() {
+        return Objects.nonNull(field) && Objects.nonNull(fieldValue);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ResolvedRuleField)) {
+            return false;
+        }
+        ResolvedRuleField that = (ResolvedRuleField) o;
+        return Objects.equals(field, that.field) && Objects.equals(fieldValue, that.fieldValue)
+                && valueType == that.valueType;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, fieldValue, valueType);
+    }
+
+    @Override
+    public String toString() {
+        return "ResolvedRuleField{" +
+                "field='" + field + '\'' +
+                ", fieldValue='" + fieldValue + '\'' +
+                ", valueType=" + valueType +
+                '}';
+    }
+}
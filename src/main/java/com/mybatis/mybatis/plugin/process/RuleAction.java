@@ -0,0 +1,35 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
+import net.sf.jsqlparser.expression.Expression;
+
+/**
+ * @program: mybatis plugin
+ * @description: 一条已经解析出字段和字段值、等待写入语法树的规则
+ */
+public final class RuleAction {
+
+    private final PluginRuleValueType type;
+
+    private final String field;
+
+    private final Expression fieldValue;
+
+    public RuleAction(PluginRuleValueType type, String field, Expression fieldValue) {
+        this.type = type;
+        this.field = field;
+        this.fieldValue = fieldValue;
+    }
+
+    public PluginRuleValueType getType() {
+        return type;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public Expression getFieldValue() {
+        return fieldValue;
+    }
+}
@@ -0,0 +1,138 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.RuleFieldValueType;
+import net.sf.jsqlparser.expression.DateTimeLiteralExpression;
+import net.sf.jsqlparser.expression.DoubleValue;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.StringValue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.Objects;
+
+/**
+ * @program: mybatis plugin
+ * @description: 按字段值类型生成写入 SQL 的字面量表达式或绑定参数；
+ * 字段值不符合声明的类型时按字符串处理，保证不会把非法内容直接拼接进 SQL
+ */
+public final class RuleFieldValueExpression {
+
+    private RuleFieldValueExpression() {
+    }
+
+    /**
+     * @param value 字段值
+     * @param type  字段值类型，为空时按字符串处理
+     * @return 字面量表达式
+     */
+    public static Expression of(String value, RuleFieldValueType type) {
+        if (Objects.isNull(type) || RuleFieldValueType.string.equals(type)) {
+            return new StringValue(value);
+        }
+        switch (type) {
+            case number:
+                if (isInteger(value)) {
+                    return new LongValue(value);
+                }
+                if (isDecimal(value)) {
+                    return new DoubleValue(value);
+                }
+                break;
+            case date:
+                Date date = toDate(value);
+                if (date != null) {
+                    // 按解析结果重新格式化，2020-8-1 写成 2020-08-01
+                    return new DateTimeLiteralExpression().withType(DateTimeLiteralExpression.DateTime.DATE)
+                            .withValue("'" + date + "'");
+                }
+                break;
+            case timestamp:
+                Timestamp timestamp = toTimestamp(value);
+                if (timestamp != null) {
+                    return new DateTimeLiteralExpression().withType(DateTimeLiteralExpression.DateTime.TIMESTAMP)
+                            .withValue("'" + timestamp + "'");
+                }
+                break;
+            default:
+                break;
+        }
+        return new StringValue(value);
+    }
+
+    /**
+     * 绑定参数模式下的参数值，类型与 of 生成的字面量一致
+     *
+     * @return Long、BigDecimal、java.sql.Date、java.sql.Timestamp 或原始字符串
+     */
+    public static Object parameter(String value, RuleFieldValueType type) {
+        if (Objects.isNull(type) || RuleFieldValueType.string.equals(type)) {
+            return value;
+        }
+        switch (type) {
+            case number:
+                if (isInteger(value)) {
+                    BigInteger number = new BigInteger(value);
+                    return number.bitLength() < 64 ? (Object) number.longValue() : new BigDecimal(number);
+                }
+                return isDecimal(value) ? new BigDecimal(value) : value;
+            case date:
+                Date date = toDate(value);
+                return date == null ? value : date;
+            case timestamp:
+                Timestamp timestamp = toTimestamp(value);
+                return timestamp == null ? value : timestamp;
+            default:
+                return value;
+        }
+    }
+
+    private static boolean isInteger(String value) {
+        return isNumber(value, false);
+    }
+
+    private static boolean isDecimal(String value) {
+        return isNumber(value, true);
+    }
+
+    /**
+     * 只接受 -?数字[.数字]，不接受科学计数法和前后空白
+     */
+    private static boolean isNumber(String value, boolean decimal) {
+        if (value == null || value.isEmpty()) {
+            return false;
+        }
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        int digits = 0;
+        boolean point = false;
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c == '.' && decimal && !point && digits > 0 && i < value.length() - 1) {
+                point = true;
+            } else {
+                return false;
+            }
+        }
+        return digits > 0 && point == decimal;
+    }
+
+    private static Date toDate(String value) {
+        try {
+            return value == null ? null : Date.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Timestamp toTimestamp(String value) {
+        try {
+            return value == null ? null : Timestamp.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.PluginLevelType;
+import org.apache.ibatis.mapping.SqlCommandType;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 本次执行的规则字段解析结果，与插件、规则顺序一一对应。规则的字段和字段值在第一次读取时才解析，
+ * 没有生效的插件不会调用字段策略、字段值策略，也不会执行不支持的策略抛出的异常
+ */
+final class RuleFields extends AbstractList<ResolvedRuleField> {
+
+    /**
+     * 还没有解析的位置
+     */
+    private static final ResolvedRuleField UNRESOLVED = new ResolvedRuleField(null, null, false);
+
+    private final PluginsSnapshot plugins;
+
+    private final RuleProcess ruleProcess;
+
+    private final ResolvedRuleField[] fields;
+
+    /**
+     * 已经解析的字段值是否都可以参与缓存
+     */
+    private boolean cacheable = true;
+
+    RuleFields(PluginsSnapshot plugins, RuleProcess ruleProcess) {
+        this.plugins = plugins;
+        this.ruleProcess = ruleProcess;
+        this.fields = new ResolvedRuleField[plugins.ruleCount()];
+        Arrays.fill(fields, UNRESOLVED);
+    }
+
+    @Override
+    public ResolvedRuleField get(int index) {
+        ResolvedRuleField field = fields[index];
+        if (field == UNRESOLVED) {
+            field = ruleProcess.fieldProcess(plugins.rule(index));
+            cacheable &= Objects.nonNull(field) && field.isCacheable();
+            fields[index] = field;
+        }
+        return field;
+    }
+
+    @Override
+    public int size() {
+        return fields.length;
+    }
+
+    /**
+     * 缓存 key 需要字段值，只解析按 SQL 文本可能生效的插件的规则，其他插件的位置为 null；
+     * 同一条 SQL 排除的插件总是相同，不影响缓存结果，排除的插件改写时也一定不会生效
+     */
+    List<ResolvedRuleField> candidates(String sql) {
+        SqlCommandType type = null;
+        boolean[] candidates = null;
+        for (int i = 0; i < plugins.pluginCount(); i++) {
+            if (type == null && PluginLevelType.dml.equals(plugins.plugin(i).getLevel())) {
+                type = RegexFallbackInjector.commandType(sql);
+            }
+            if (!plugins.matcher(i).mayMatch(type == null ? SqlCommandType.UNKNOWN : type, sql)) {
+                if (candidates == null) {
+                    candidates = new boolean[plugins.pluginCount()];
+                    Arrays.fill(candidates, 0, i, true);
+                }
+            } else if (candidates != null) {
+                candidates[i] = true;
+            }
+        }
+        if (candidates == null) {
+            // 所有插件都可能生效，全部解析
+            for (int i = 0; i < fields.length; i++) {
+                get(i);
+            }
+            return this;
+        }
+        List<ResolvedRuleField> resolved = new ArrayList<>(fields.length);
+        for (int i = 0; i < plugins.pluginCount(); i++) {
+            for (int j = 0; j < plugins.rules(i).length; j++) {
+                resolved.add(candidates[i] ? get(resolved.size()) : null);
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * @return 已经解析的字段值是否都可以参与缓存
+     */
+    boolean isCacheable() {
+        return cacheable;
+    }
+}
@@ -1,5 +1,7 @@
 package com.mybatis.mybatis.plugin.process;
 
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.StringValue;
 import net.sf.jsqlparser.statement.Statement;
 
 /**
@@ -15,5 +17,26 @@ public interface RulePolicyProcess {
      * @param field
      * @param fieldValue
      */
-    void ruleProcess(Statement statement, String field, String fieldValue);
+    default void ruleProcess(Statement statement, String field, String fieldValue) {
+        ruleProcess(statement, field, new StringValue(fieldValue));
+    }
+
+    /**
+     * 规则处理，字段值已经按字段值类型转换成字面量表达式
+     * @param statement
+     * @param field
+     * @param fieldValue
+     */
+    void ruleProcess(Statement statement, String field, Expression fieldValue);
+
+    /**
+     * 规则处理，联接表按执行改写的 PluginsProcessImpl 的插件快照判断，默认忽略快照
+     * @param statement
+     * @param field
+     * @param fieldValue
+     * @param plugins
+     */
+    default void ruleProcess(Statement statement, String field, Expression fieldValue, PluginsSnapshot plugins) {
+        ruleProcess(statement, field, fieldValue);
+    }
 }
@@ -4,6 +4,8 @@ import com.mybatis.mybatis.plugin.config.PluginRule;
 import com.mybatis.mybatis.plugin.exception.RuleProcessPolicyException;
 import net.sf.jsqlparser.statement.Statement;
 
+import java.util.List;
+
 /**
  * @program:
  * @description: 规则处理器
@@ -20,4 +22,62 @@ public interface RuleProcess {
      * @Date: 2020/8/15 8:25 上午
      */
     void ruleProcess(Statement statement, PluginRule rule);
+
+    /**
+     * 只通过策略解析规则的字段和字段值，不执行获取失败策略，也不改写 SQL
+     *
+     * @param rule 规则
+     * @return 解析结果，字段或字段值可能为空
+     */
+    ResolvedRuleField fieldProcess(PluginRule rule);
+
+    /**
+     * 使用已经解析好的字段和字段值执行规则
+     *
+     * @param statement 待改写的 SQL
+     * @param rule      规则
+     * @param resolved  {@link #fieldProcess(PluginRule)} 的解析结果
+     * @throws RuleProcessPolicyException
+     */
+    void ruleProcess(Statement statement, PluginRule rule, ResolvedRuleField resolved);
+
+    /**
+     * 按顺序执行多条已经解析好字段和字段值的规则，默认逐条执行
+     *
+     * @param statement 待改写的 SQL
+     * @param rules     按执行顺序排列的规则
+     * @param resolved  与 rules 一一对应的解析结果
+     * @throws RuleProcessPolicyException
+     */
+    default void ruleProcess(Statement statement, List<PluginRule> rules, List<ResolvedRuleField> resolved) {
+        for (int i = 0; i < rules.size(); i++) {
+            ruleProcess(statement, rules.get(i), resolved.get(i));
+        }
+    }
+
+    /**
+     * 在上下文的语法树上按顺序执行多条规则，规则处理器通过上下文读取插件快照，默认与
+     * {@link #ruleProcess(Statement, List, List)} 相同
+     *
+     * @param context  已经解析的 SQL 上下文
+     * @param rules    按执行顺序排列的规则
+     * @param resolved 与 rules 一一对应的解析结果
+     * @throws RuleProcessPolicyException
+     */
+    default void ruleProcess(SqlStatementContext context, List<PluginRule> rules, List<ResolvedRuleField> resolved) {
+        ruleProcess(context.getStatement(), rules, resolved);
+    }
+
+    /**
+     * 按顺序执行多条规则并返回改写后的 SQL，默认在语法树上执行后重新转成字符串，并放回原始 SQL 中的注释
+     *
+     * @param context  已经解析的 SQL 上下文
+     * @param rules    按执行顺序排列的规则
+     * @param resolved 与 rules 一一对应的解析结果
+     * @throws RuleProcessPolicyException
+     */
+    default String spliceProcess(SqlStatementContext context, List<PluginRule> rules, List<ResolvedRuleField> resolved) {
+        ruleProcess(context, rules, resolved);
+        return context.deparse();
+    }
 }
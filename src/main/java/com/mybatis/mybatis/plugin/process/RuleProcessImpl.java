@@ -6,13 +6,15 @@ import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
 import com.mybatis.mybatis.plugin.config.RuleFieldPolicy;
 import com.mybatis.mybatis.plugin.config.RuleFieldValueFailPolicyType;
 import com.mybatis.mybatis.plugin.config.RuleFieldValuePolicy;
+import com.mybatis.mybatis.plugin.config.RuleFieldValuePolicyType;
 import com.mybatis.mybatis.plugin.process.field.RuleFieldPolicyProcess;
 import com.mybatis.mybatis.plugin.process.field.RuleFieldValueFailPolicyProcess;
 import com.mybatis.mybatis.plugin.process.field.RuleFieldValuePolicyProcess;
 import net.sf.jsqlparser.statement.Statement;
 import org.slf4j.LoggerFactory;
 
-import java.util.Objects;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @program: mybatis plugin
@@ -50,6 +52,17 @@ public class RuleProcessImpl implements RuleProcess {
      */
     @Override
     public void ruleProcess(Statement statement, PluginRule rule) {
+        ruleProcess(statement, rule, fieldProcess(rule));
+    }
+
+    /**
+     * @Description: 通过策略获取字段和字段值
+     * @return:
+     * @Creator: lengrongfu
+     * @Date: 2026/10/18 10:20 上午
+     */
+    @Override
+    public ResolvedRuleField fieldProcess(PluginRule rule) {
         /**
          * 通过策略获取字段
          */
@@ -66,18 +79,51 @@ public class RuleProcessImpl implements RuleProcess {
         if (logger.isDebugEnabled()) {
             logger.debug("fieldValuePolicy fieldValue {}", fieldValue);
         }
+        boolean cacheable = !RuleFieldValuePolicyType.system.equals(fieldValuePolicy.getName());
+        return new ResolvedRuleField(field, fieldValue, cacheable, fieldValuePolicy.getType());
+    }
+
+    /**
+     * 先执行字段值获取失败的策略，再把所有需要执行的规则一次交给插件规则处理器
+     */
+    @Override
+    public void ruleProcess(Statement statement, List<PluginRule> rules, List<ResolvedRuleField> resolved) {
+        List<RuleAction> actions = actions(rules, resolved);
+        if (!actions.isEmpty()) {
+            pluginRuleProcess.ruleProcess(statement, actions);
+        }
+    }
+
+    /**
+     * 与批量执行相同，插件规则处理器从上下文读取插件快照
+     */
+    @Override
+    public void ruleProcess(SqlStatementContext context, List<PluginRule> rules, List<ResolvedRuleField> resolved) {
+        List<RuleAction> actions = actions(rules, resolved);
+        if (!actions.isEmpty()) {
+            pluginRuleProcess.ruleProcess(context, actions);
+        }
+    }
+
+    /**
+     * 与批量执行相同，先执行字段值获取失败的策略；没有需要执行的规则时返回原始 SQL
+     */
+    @Override
+    public String spliceProcess(SqlStatementContext context, List<PluginRule> rules, List<ResolvedRuleField> resolved) {
+        List<RuleAction> actions = actions(rules, resolved);
+        if (actions.isEmpty()) {
+            return context.getSql();
+        }
+        return pluginRuleProcess.spliceProcess(context, actions);
+    }
+
+    @Override
+    public void ruleProcess(Statement statement, PluginRule rule, ResolvedRuleField resolved) {
         /**
          * 获取字段值或者字段为空之后的策略
          */
-        RuleFieldValueFailPolicyType fieldValueFailPolicy = rule.getFieldValueFailPolicy();
-        if (Objects.isNull(fieldValue) || Objects.isNull(field)) {
-            fieldValueFailPolicyProcess.fieldValueFailPolicyProcess(fieldValueFailPolicy, rule);
-            /**
-             * 如果是继续运行就直接返回，当前规则不用执行了
-             */
-            if (logger.isDebugEnabled()) {
-                logger.debug("fieldValueFailPolicy {}", fieldValueFailPolicy.name());
-            }
+        if (!resolved.isResolved()) {
+            fieldValueFailPolicy(rule);
             return;
         }
 
@@ -85,9 +131,39 @@ public class RuleProcessImpl implements RuleProcess {
          * 执行 SQL 加入逻辑
          */
         PluginRuleValueType ruleValue = rule.getValue();
-        pluginRuleProcess.ruleProcess(statement, ruleValue, field, fieldValue);
+        pluginRuleProcess.ruleProcess(statement, ruleValue, resolved.getField(),
+                RuleFieldValueExpression.of(resolved.getFieldValue(), resolved.getValueType()));
         if (logger.isDebugEnabled()) {
             logger.debug("ruleValue {}", ruleValue.toString());
         }
     }
+
+    /**
+     * 字段值获取失败的规则只执行失败策略，不需要语法树；其余规则转换成规则动作
+     */
+    private List<RuleAction> actions(List<PluginRule> rules, List<ResolvedRuleField> resolved) {
+        List<RuleAction> actions = new ArrayList<>(rules.size());
+        for (int i = 0; i < rules.size(); i++) {
+            PluginRule rule = rules.get(i);
+            ResolvedRuleField field = resolved.get(i);
+            if (!field.isResolved()) {
+                fieldValueFailPolicy(rule);
+                continue;
+            }
+            actions.add(new RuleAction(rule.getValue(), field.getField(),
+                    RuleFieldValueExpression.of(field.getFieldValue(), field.getValueType())));
+        }
+        return actions;
+    }
+
+    private void fieldValueFailPolicy(PluginRule rule) {
+        RuleFieldValueFailPolicyType fieldValueFailPolicy = rule.getFieldValueFailPolicy();
+        fieldValueFailPolicyProcess.fieldValueFailPolicyProcess(fieldValueFailPolicy, rule);
+        /**
+         * 如果是继续运行就直接返回，当前规则不用执行了
+         */
+        if (logger.isDebugEnabled()) {
+            logger.debug("fieldValueFailPolicy {}", fieldValueFailPolicy.name());
+        }
+    }
 }
@@ -0,0 +1,690 @@
+package com.mybatis.mybatis.plugin.process;
+
+import net.sf.jsqlparser.expression.Alias;
+import net.sf.jsqlparser.schema.Table;
+import org.apache.ibatis.mapping.SqlCommandType;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @program: mybatis plugin
+ * @description: 手写的单表增删改查识别器，不经过 JSqlParser。只接受下面的子集，其余任何写法都返回 null，由调用方按原流程解析：
+ * <pre>
+ * SELECT [DISTINCT] 字段列表 FROM 表 [[AS] 别名] [WHERE 条件] [GROUP BY ...] [ORDER BY ...] [LIMIT ...]
+ * INSERT INTO 表 (字段, ...) VALUES (值, ...)[, (值, ...)]
+ * UPDATE 表 [别名] SET 字段 = 值[, ...] [WHERE 条件]
+ * DELETE FROM 表 [WHERE 条件]
+ * </pre>
+ * 条件只能由比较、[NOT] IN 值列表、[NOT] BETWEEN、[NOT] LIKE、IS [NOT] NULL 以及 AND、OR、括号、NOT (...) 组成，
+ * 值只能是字段、字面量、?、函数调用和四则运算；子查询、联接、关键字作为标识符、带反斜杠的字符串等都不识别
+ */
+final class SimpleSqlRecognizer {
+
+    private static final int IDENTIFIER = 1;
+
+    private static final int QUOTED = 2;
+
+    private static final int NUMBER = 3;
+
+    private static final int STRING = 4;
+
+    private static final int PARAMETER = 5;
+
+    private static final int SYMBOL = 6;
+
+    /**
+     * 不能作为标识符的关键字，按长度分组；出现在不认识的位置时整条语句不识别
+     */
+    private static final String[][] KEYWORDS = keywords("SELECT", "FROM", "WHERE", "AND", "OR", "NOT", "IN", "IS",
+            "NULL", "LIKE", "ILIKE", "RLIKE", "REGEXP", "SIMILAR", "BETWEEN", "EXISTS", "ORDER", "GROUP", "BY",
+            "HAVING", "LIMIT", "OFFSET", "FETCH", "TOP", "UNION", "INTERSECT", "EXCEPT", "MINUS", "JOIN", "INNER",
+            "LEFT", "RIGHT", "FULL", "OUTER", "CROSS", "NATURAL", "STRAIGHT_JOIN", "LATERAL", "APPLY", "ON", "USING",
+            "AS", "SET", "VALUES", "VALUE", "INTO", "INSERT", "UPDATE", "DELETE", "REPLACE", "MERGE", "DISTINCT",
+            "UNIQUE", "ALL", "ANY", "SOME", "CASE", "WHEN", "THEN", "ELSE", "END", "CAST", "CONVERT", "EXTRACT",
+            "INTERVAL", "TRUE", "FALSE", "FOR", "WITH", "OVER", "PARTITION", "WITHIN", "FILTER", "WINDOW", "ASC",
+            "DESC", "NULLS", "ESCAPE", "COLLATE", "BINARY", "RETURNING", "DUPLICATE", "IGNORE", "CONNECT", "START",
+            "PRIOR", "MATCH", "AGAINST", "DIV", "MOD", "XOR", "IF", "DEFAULT", "USE", "FORCE", "INDEX", "TABLE",
+            "ROW", "ROWS", "QUALIFY", "SKIP", "FIRST", "KEEP", "PIVOT", "UNPIVOT", "SAMPLE", "TABLESAMPLE",
+            "LOW_PRIORITY", "HIGH_PRIORITY", "DELAYED", "SQL_CALC_FOUND_ROWS", "SQL_NO_CACHE", "SQL_CACHE");
+
+    private final String sql;
+
+    private int[] kinds = new int[32];
+
+    private int[] begins = new int[32];
+
+    private int[] ends = new int[32];
+
+    private int size;
+
+    private int pos;
+
+    private SimpleStatement result;
+
+    /**
+     * 记录规则字段检测会遍历到的字段名，为 null 时不记录（不需要检测或者在括号、not 中）
+     */
+    private List<String> columns;
+
+    private SimpleSqlRecognizer(String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * @param sql 原始 SQL
+     * @return 识别结果，不属于支持的子集时返回 null
+     */
+    static SimpleStatement recognize(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        SimpleSqlRecognizer recognizer = new SimpleSqlRecognizer(sql);
+        if (!recognizer.lex() || recognizer.size == 0) {
+            return null;
+        }
+        boolean recognized;
+        if (recognizer.keyword(0, "SELECT")) {
+            recognized = recognizer.select();
+        } else if (recognizer.keyword(0, "INSERT")) {
+            recognized = recognizer.insert();
+        } else if (recognizer.keyword(0, "UPDATE")) {
+            recognized = recognizer.update();
+        } else if (recognizer.keyword(0, "DELETE")) {
+            recognized = recognizer.delete();
+        } else {
+            return null;
+        }
+        return recognized && recognizer.end() ? recognizer.result : null;
+    }
+
+    private boolean select() {
+        pos = 1;
+        if (keyword(pos, "DISTINCT")) {
+            pos++;
+        }
+        columns = null;
+        do {
+            if (symbol(pos, '*')) {
+                pos++;
+            } else if (name(pos) && symbol(pos + 1, '.') && symbol(pos + 2, '*')) {
+                pos += 3;
+            } else {
+                if (!value()) {
+                    return false;
+                }
+                if (keyword(pos, "AS")) {
+                    pos++;
+                    if (!name(pos)) {
+                        return false;
+                    }
+                    pos++;
+                } else if (name(pos)) {
+                    pos++;
+                }
+            }
+        } while (symbol(pos, ',') && ++pos > 0);
+        if (!keyword(pos++, "FROM") || !table(SqlCommandType.SELECT)) {
+            return false;
+        }
+        boolean as = keyword(pos, "AS");
+        if (as) {
+            pos++;
+        }
+        if (name(pos)) {
+            result.getTable().setAlias(new Alias(image(pos++), as));
+        } else if (as) {
+            return false;
+        }
+        if (keyword(pos, "WHERE")) {
+            pos++;
+            if (!where(result.whereColumns)) {
+                return false;
+            }
+        } else {
+            result.whereInsertion = ends[pos - 1];
+        }
+        columns = null;
+        if (keyword(pos, "GROUP")) {
+            if (!keyword(pos + 1, "BY")) {
+                return false;
+            }
+            pos += 2;
+            if (!values()) {
+                return false;
+            }
+        }
+        if (keyword(pos, "ORDER")) {
+            if (!keyword(pos + 1, "BY")) {
+                return false;
+            }
+            pos += 2;
+            do {
+                if (!value()) {
+                    return false;
+                }
+                if (keyword(pos, "ASC") || keyword(pos, "DESC")) {
+                    pos++;
+                }
+            } while (symbol(pos, ',') && ++pos > 0);
+        }
+        if (keyword(pos, "LIMIT")) {
+            pos++;
+            if (!rowCount(pos++)) {
+                return false;
+            }
+            if (symbol(pos, ',') || keyword(pos, "OFFSET")) {
+                pos++;
+                return rowCount(pos++);
+            }
+        }
+        return true;
+    }
+
+    private boolean insert() {
+        pos = 1;
+        if (!keyword(pos++, "INTO") || !table(SqlCommandType.INSERT) || !symbol(pos++, '(')) {
+            return false;
+        }
+        do {
+            if (!name(pos) && kind(pos) != QUOTED) {
+                return false;
+            }
+            result.insertColumns.add(image(pos++));
+        } while (symbol(pos, ',') && ++pos > 0);
+        if (!symbol(pos, ')')) {
+            return false;
+        }
+        result.columnsEnd = ends[pos - 1];
+        pos++;
+        if (!keyword(pos++, "VALUES")) {
+            return false;
+        }
+        columns = null;
+        int[] rowEnds = new int[1];
+        int rows = 0;
+        do {
+            if (!symbol(pos++, '(') || !values() || !symbol(pos, ')')) {
+                return false;
+            }
+            if (rows == rowEnds.length) {
+                rowEnds = Arrays.copyOf(rowEnds, rows * 2);
+            }
+            rowEnds[rows++] = ends[pos - 1];
+            pos++;
+        } while (symbol(pos, ',') && ++pos > 0);
+        result.rowEnds = Arrays.copyOf(rowEnds, rows);
+        return true;
+    }
+
+    private boolean update() {
+        pos = 1;
+        if (!table(SqlCommandType.UPDATE)) {
+            return false;
+        }
+        if (name(pos)) {
+            result.getTable().setAlias(new Alias(image(pos++), false));
+        }
+        if (!keyword(pos++, "SET")) {
+            return false;
+        }
+        columns = null;
+        do {
+            if (!column() || !symbol(pos++, '=') || !value()) {
+                return false;
+            }
+        } while (symbol(pos, ',') && ++pos > 0);
+        result.setEnd = ends[pos - 1];
+        if (keyword(pos, "WHERE")) {
+            pos++;
+            return where(null);
+        }
+        result.whereInsertion = result.setEnd;
+        return true;
+    }
+
+    private boolean delete() {
+        pos = 1;
+        if (!keyword(pos++, "FROM") || !table(SqlCommandType.DELETE)) {
+            return false;
+        }
+        if (keyword(pos, "WHERE")) {
+            pos++;
+            return where(null);
+        }
+        result.whereInsertion = ends[pos - 1];
+        return true;
+    }
+
+    /**
+     * 表名或者库名.表名，创建识别结果
+     */
+    private boolean table(SqlCommandType commandType) {
+        if (!name(pos) && kind(pos) != QUOTED) {
+            return false;
+        }
+        Table table;
+        if (symbol(pos + 1, '.')) {
+            if (!name(pos + 2) && kind(pos + 2) != QUOTED) {
+                return false;
+            }
+            table = new Table(image(pos), image(pos + 2));
+            pos += 3;
+        } else {
+            table = new Table(image(pos++));
+        }
+        if (symbol(pos, '.')) {
+            return false;
+        }
+        result = new SimpleStatement(sql, commandType, table);
+        return true;
+    }
+
+    /**
+     * where 条件，记录起止位置和最外层是否为 or 表达式
+     *
+     * @param whereColumns 需要记录字段名时不为 null
+     */
+    private boolean where(List<String> whereColumns) {
+        columns = whereColumns;
+        int begin = pos;
+        if (!condition(true)) {
+            return false;
+        }
+        result.whereBegin = begins[begin];
+        result.whereEnd = ends[pos - 1];
+        columns = null;
+        return true;
+    }
+
+    /**
+     * or 连接的条件；语法树中 or、and 都是二元表达式，规则字段检测会继续遍历
+     *
+     * @param top 是否为 where 条件最外层
+     */
+    private boolean condition(boolean top) {
+        if (!andCondition()) {
+            return false;
+        }
+        while (keyword(pos, "OR")) {
+            if (top) {
+                result.whereOr = true;
+            }
+            pos++;
+            if (!andCondition()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean andCondition() {
+        if (!primaryCondition()) {
+            return false;
+        }
+        while (keyword(pos, "AND")) {
+            pos++;
+            if (!primaryCondition()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 括号、not 在语法树中是 Parenthesis、NotExpression，规则字段检测不会遍历其中的字段
+     */
+    private boolean primaryCondition() {
+        boolean not = keyword(pos, "NOT");
+        if (not) {
+            pos++;
+            if (!symbol(pos, '(')) {
+                return false;
+            }
+        }
+        if (symbol(pos, '(')) {
+            pos++;
+            List<String> outer = columns;
+            columns = null;
+            boolean recognized = condition(false) && symbol(pos++, ')');
+            columns = outer;
+            // (a + 1) = 2 这类括号中是值表达式的写法不识别
+            return recognized && !operator(pos) && !keyword(pos, "IS") && !keyword(pos, "IN")
+                    && !keyword(pos, "NOT") && !keyword(pos, "LIKE") && !keyword(pos, "BETWEEN");
+        }
+        return predicate();
+    }
+
+    private boolean predicate() {
+        int recorded = columns == null ? 0 : columns.size();
+        if (!value()) {
+            return false;
+        }
+        if (comparison(pos)) {
+            pos++;
+            return value();
+        }
+        if (keyword(pos, "IS")) {
+            pos++;
+            if (keyword(pos, "NOT")) {
+                pos++;
+            }
+            // is null 在语法树中是 IsNullExpression，规则字段检测不会遍历
+            if (columns != null) {
+                columns.subList(recorded, columns.size()).clear();
+            }
+            return keyword(pos++, "NULL");
+        }
+        if (keyword(pos, "NOT")) {
+            pos++;
+        }
+        if (keyword(pos, "IN")) {
+            pos++;
+            if (!symbol(pos++, '(') || !values()) {
+                return false;
+            }
+            return symbol(pos++, ')');
+        }
+        if (keyword(pos, "BETWEEN")) {
+            pos++;
+            if (!value() || !keyword(pos++, "AND")) {
+                return false;
+            }
+            return value();
+        }
+        if (keyword(pos, "LIKE")) {
+            pos++;
+            return value() && !keyword(pos, "ESCAPE");
+        }
+        return false;
+    }
+
+    private boolean values() {
+        do {
+            if (!value()) {
+                return false;
+            }
+        } while (symbol(pos, ',') && ++pos > 0);
+        return true;
+    }
+
+    /**
+     * 四则运算、字符串连接在语法树中都是二元表达式
+     */
+    private boolean value() {
+        if (!term()) {
+            return false;
+        }
+        while (arithmetic(pos)) {
+            pos++;
+            if (!term()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean term() {
+        int kind = kind(pos);
+        if (kind == PARAMETER || kind == NUMBER || kind == STRING || keyword(pos, "NULL")) {
+            pos++;
+            return true;
+        }
+        if (symbol(pos, '-') && kind(pos + 1) == NUMBER) {
+            pos += 2;
+            return true;
+        }
+        if (symbol(pos, '(')) {
+            // 括号中的值在语法树中是 Parenthesis，不会被遍历
+            pos++;
+            List<String> outer = columns;
+            columns = null;
+            boolean recognized = value() && symbol(pos++, ')');
+            columns = outer;
+            return recognized;
+        }
+        if (name(pos) && symbol(pos + 1, '(')) {
+            // 函数参数会被遍历
+            pos += 2;
+            if (symbol(pos, ')')) {
+                pos++;
+                return true;
+            }
+            if (symbol(pos, '*') && symbol(pos + 1, ')')) {
+                pos += 2;
+                return true;
+            }
+            return values() && symbol(pos++, ')');
+        }
+        if (!column()) {
+            return false;
+        }
+        if (columns != null) {
+            columns.add(image(pos - 1));
+        }
+        return true;
+    }
+
+    /**
+     * 字段或者别名.字段
+     */
+    private boolean column() {
+        if (!name(pos) && kind(pos) != QUOTED) {
+            return false;
+        }
+        if (symbol(pos + 1, '.')) {
+            if (!name(pos + 2) && kind(pos + 2) != QUOTED) {
+                return false;
+            }
+            pos += 2;
+        }
+        pos++;
+        return !symbol(pos, '.') && !symbol(pos, '(');
+    }
+
+    private boolean rowCount(int index) {
+        return kind(index) == NUMBER || kind(index) == PARAMETER;
+    }
+
+    /**
+     * 语句结束，末尾可以有一个分号
+     */
+    private boolean end() {
+        if (symbol(pos, ';')) {
+            pos++;
+        }
+        return pos == size;
+    }
+
+    private boolean comparison(int index) {
+        if (kind(index) != SYMBOL) {
+            return false;
+        }
+        int length = ends[index] - begins[index];
+        char c = sql.charAt(begins[index]);
+        return length == 1 ? c == '=' || c == '<' || c == '>'
+                : c == '<' || c == '>' || c == '!';
+    }
+
+    private boolean arithmetic(int index) {
+        if (kind(index) != SYMBOL) {
+            return false;
+        }
+        char c = sql.charAt(begins[index]);
+        return ends[index] - begins[index] == 1 ? c == '+' || c == '-' || c == '*' || c == '/' || c == '%'
+                : c == '|';
+    }
+
+    private boolean operator(int index) {
+        return comparison(index) || arithmetic(index);
+    }
+
+    private int kind(int index) {
+        return index < size ? kinds[index] : 0;
+    }
+
+    /**
+     * 不是关键字的标识符
+     */
+    private boolean name(int index) {
+        if (kind(index) != IDENTIFIER) {
+            return false;
+        }
+        int length = ends[index] - begins[index];
+        if (length < KEYWORDS.length) {
+            for (String keyword : KEYWORDS[length]) {
+                if (sql.regionMatches(true, begins[index], keyword, 0, length)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean keyword(int index, String keyword) {
+        return kind(index) == IDENTIFIER && ends[index] - begins[index] == keyword.length()
+                && sql.regionMatches(true, begins[index], keyword, 0, keyword.length());
+    }
+
+    private boolean symbol(int index, char symbol) {
+        return kind(index) == SYMBOL && ends[index] - begins[index] == 1 && sql.charAt(begins[index]) == symbol;
+    }
+
+    private String image(int index) {
+        return sql.substring(begins[index], ends[index]);
+    }
+
+    /**
+     * 词法分析，跳过空白和注释；遇到不认识的字符、未结束的字符串或注释时返回 false
+     */
+    private boolean lex() {
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            int start = i;
+            int kind;
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f') {
+                i++;
+                continue;
+            }
+            if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int close = sql.indexOf("*/", i + 2);
+                if (close < 0) {
+                    return false;
+                }
+                i = close + 2;
+                continue;
+            }
+            if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int newLine = sql.indexOf('\n', i + 2);
+                i = newLine < 0 ? length : newLine + 1;
+                continue;
+            }
+            if (c < 128 ? (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' : Character.isLetter(c)) {
+                i++;
+                while (i < length && identifierPart(sql.charAt(i))) {
+                    i++;
+                }
+                kind = IDENTIFIER;
+            } else if (c >= '0' && c <= '9') {
+                i = digits(i);
+                if (i + 1 < length && sql.charAt(i) == '.' && sql.charAt(i + 1) >= '0' && sql.charAt(i + 1) <= '9') {
+                    i = digits(i + 1);
+                }
+                // 科学计数法、十六进制等写法不识别
+                if (i < length && (identifierPart(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    return false;
+                }
+                kind = NUMBER;
+            } else if (c == '\'') {
+                i++;
+                while (true) {
+                    if (i >= length || sql.charAt(i) == '\\') {
+                        return false;
+                    }
+                    if (sql.charAt(i++) == '\'') {
+                        if (i < length && sql.charAt(i) == '\'') {
+                            i++;
+                            continue;
+                        }
+                        break;
+                    }
+                }
+                kind = STRING;
+            } else if (c == '`' || c == '"') {
+                int close = sql.indexOf(c, i + 1);
+                if (close <= i + 1) {
+                    return false;
+                }
+                i = close + 1;
+                kind = QUOTED;
+            } else if (c == '?') {
+                i++;
+                kind = PARAMETER;
+            } else {
+                char next = i + 1 < length ? sql.charAt(i + 1) : 0;
+                if ((c == '<' && (next == '>' || next == '=')) || (c == '>' && next == '=')
+                        || (c == '!' && next == '=') || (c == '|' && next == '|')) {
+                    i += 2;
+                } else if ("(),.;*+-/%=<>".indexOf(c) >= 0) {
+                    i++;
+                } else {
+                    return false;
+                }
+                kind = SYMBOL;
+            }
+            add(kind, start, i);
+        }
+        return true;
+    }
+
+    private int digits(int i) {
+        int length = sql.length();
+        while (i < length && sql.charAt(i) >= '0' && sql.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    private void add(int kind, int begin, int end) {
+        if (size == kinds.length) {
+            kinds = Arrays.copyOf(kinds, size * 2);
+            begins = Arrays.copyOf(begins, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+        kinds[size] = kind;
+        begins[size] = begin;
+        ends[size] = end;
+        size++;
+    }
+
+    private static boolean identifierPart(char c) {
+        return c < 128 ? (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_'
+                || c == '$' : Character.isLetterOrDigit(c);
+    }
+
+    private static String[][] keywords(String... keywords) {
+        int max = 0;
+        for (String keyword : keywords) {
+            max = Math.max(max, keyword.length());
+        }
+        String[][] byLength = new String[max + 1][];
+        for (int length = 0; length <= max; length++) {
+            int count = 0;
+            for (String keyword : keywords) {
+                if (keyword.length() == length) {
+                    count++;
+                }
+            }
+            byLength[length] = new String[count];
+            count = 0;
+            for (String keyword : keywords) {
+                if (keyword.length() == length) {
+                    byLength[length][count++] = keyword;
+                }
+            }
+        }
+        return byLength;
+    }
+}
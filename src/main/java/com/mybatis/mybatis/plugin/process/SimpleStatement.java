@@ -0,0 +1,184 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import org.apache.ibatis.mapping.SqlCommandType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @program: mybatis plugin
+ * @description: 快速识别的单表增删改查语句，记录表名、别名以及 where 条件、字段列表、值列表、set 子句在原始 SQL 中的位置，
+ * 规则直接按这些位置插入原始 SQL，不需要语法树。改写结果与拼接模式（SpliceRewriter）逐字节相同
+ */
+public final class SimpleStatement {
+
+    private final String sql;
+
+    private final SqlCommandType commandType;
+
+    /**
+     * 表名、库名保留原始写法（包括引号），与语法树中的 Table 一致
+     */
+    private final Table table;
+
+    /**
+     * where 条件第一个词法单元的起始偏移量，没有 where 条件时为 -1
+     */
+    int whereBegin = -1;
+
+    /**
+     * where 条件最后一个词法单元的结束偏移量，没有 where 条件时为 -1
+     */
+    int whereEnd = -1;
+
+    /**
+     * where 条件最外层是 or 表达式
+     */
+    boolean whereOr;
+
+    /**
+     * 没有 where 条件时插入 where 子句的位置：查询的表名或别名之后、update 最后一个赋值之后、delete 的表名之后
+     */
+    int whereInsertion = -1;
+
+    /**
+     * update 最后一个赋值表达式的结束偏移量
+     */
+    int setEnd = -1;
+
+    /**
+     * insert 最后一个字段的结束偏移量
+     */
+    int columnsEnd = -1;
+
+    /**
+     * insert 每一行最后一个值的结束偏移量
+     */
+    int[] rowEnds;
+
+    /**
+     * 查询语句 where 条件中规则字段检测会遍历到的字段名
+     */
+    final List<String> whereColumns = new ArrayList<>(4);
+
+    /**
+     * insert 字段名，保留引号
+     */
+    final List<String> insertColumns = new ArrayList<>(8);
+
+    SimpleStatement(String sql, SqlCommandType commandType, Table table) {
+        this.sql = sql;
+        this.commandType = commandType;
+        this.table = table;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public SqlCommandType getCommandType() {
+        return commandType;
+    }
+
+    public Table getTable() {
+        return table;
+    }
+
+    /**
+     * 查询语句 where 条件中的字段名，与 RuleFieldDetector#whereHasField 遍历到的字段相同；
+     * 括号、not、is null 中的字段不会被遍历到
+     */
+    public List<String> getWhereColumns() {
+        return Collections.unmodifiableList(whereColumns);
+    }
+
+    public List<String> getInsertColumns() {
+        return Collections.unmodifiableList(insertColumns);
+    }
+
+    /**
+     * 与 FusedRuleEngine 遍历语法树时的处理顺序一致，按位置插入规则新增的条件、字段和值
+     *
+     * @param actions 按执行顺序排列的规则，必须满足 {@link FusedRuleEngine#supports(List)}
+     * @return 改写后的 SQL
+     */
+    public String rewrite(List<RuleAction> actions) {
+        List<SpliceRewriter.Edit> edits = new ArrayList<>(actions.size() * 2);
+        List<Expression> conditions = new ArrayList<>(actions.size());
+        switch (commandType) {
+            case SELECT:
+                for (RuleAction action : actions) {
+                    if (PluginRuleValueType.add_where_field.equals(action.getType())) {
+                        conditions.add(FusedRuleEngine.whereCondition(table, action));
+                    }
+                }
+                if (conditions.isEmpty()) {
+                    break;
+                }
+                if (whereBegin < 0) {
+                    add(edits, whereInsertion, " WHERE " + SpliceRewriter.join(conditions));
+                    break;
+                }
+                if (whereOr) {
+                    add(edits, whereBegin, "(");
+                    add(edits, whereEnd, ")");
+                }
+                add(edits, whereEnd, SpliceRewriter.AND + SpliceRewriter.join(conditions));
+                break;
+            case INSERT:
+                for (RuleAction action : actions) {
+                    if (PluginRuleValueType.add_update_field.equals(action.getType())) {
+                        continue;
+                    }
+                    add(edits, columnsEnd, ", " + new Column(action.getField()));
+                    String value = ", " + action.getFieldValue();
+                    for (int rowEnd : rowEnds) {
+                        add(edits, rowEnd, value);
+                    }
+                }
+                break;
+            case UPDATE:
+            case DELETE:
+                for (RuleAction action : actions) {
+                    if (PluginRuleValueType.add_where_field.equals(action.getType())) {
+                        conditions.add(FusedRuleEngine.equalsTo(table, action));
+                    } else if (SqlCommandType.UPDATE.equals(commandType)
+                            && !PluginRuleValueType.add_insert_field.equals(action.getType())) {
+                        add(edits, setEnd, ", " + new Column(action.getField()) + " = " + action.getFieldValue());
+                    }
+                }
+                prefix(edits, conditions);
+                break;
+            default:
+                break;
+        }
+        return SpliceRewriter.Edit.splice(sql, edits);
+    }
+
+    /**
+     * update、delete 的条件放在原条件前面，后执行的规则在最前面：c2 AND c1 AND (原条件)
+     */
+    private void prefix(List<SpliceRewriter.Edit> edits, List<Expression> conditions) {
+        if (conditions.isEmpty()) {
+            return;
+        }
+        Collections.reverse(conditions);
+        if (whereBegin < 0) {
+            add(edits, whereInsertion, " WHERE " + SpliceRewriter.join(conditions));
+            return;
+        }
+        add(edits, whereBegin, SpliceRewriter.join(conditions) + SpliceRewriter.AND + (whereOr ? "(" : ""));
+        if (whereOr) {
+            add(edits, whereEnd, ")");
+        }
+    }
+
+    private static void add(List<SpliceRewriter.Edit> edits, int offset, String text) {
+        edits.add(new SpliceRewriter.Edit(offset, edits.size(), text));
+    }
+}
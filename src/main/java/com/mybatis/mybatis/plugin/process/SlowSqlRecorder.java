@@ -0,0 +1,133 @@
+package com.mybatis.mybatis.plugin.process;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * @program: mybatis plugin
+ * @description: 记录解析耗时最长的 N 条 SQL，同一条 SQL 只保留耗时最长的一次；
+ * 耗时不超过当前第 N 名时不加锁直接返回，正常的 SQL 只多一次 volatile 读
+ */
+public final class SlowSqlRecorder {
+
+    private final int size;
+
+    /**
+     * 按耗时从小到大排列，堆顶是当前第 N 名
+     */
+    private final PriorityQueue<SlowSql> slowest;
+
+    /**
+     * 记录满 N 条之后的最小耗时，不超过该值的记录直接丢弃
+     */
+    private volatile long floor;
+
+    public SlowSqlRecorder(int size) {
+        this.size = Math.max(size, 0);
+        this.slowest = new PriorityQueue<>(Math.max(this.size, 1), Comparator.comparingLong(SlowSql::getNanos));
+    }
+
+    /**
+     * @param statementId MappedStatement id，可以为空
+     * @param sql         原始 SQL
+     * @param nanos       解析耗时，超时的解析为等待的时间
+     * @param timedOut    是否超过解析耗时上限
+     */
+    public void record(String statementId, String sql, long nanos, boolean timedOut) {
+        if (size == 0 || nanos <= floor) {
+            return;
+        }
+        synchronized (slowest) {
+            for (SlowSql slowSql : slowest) {
+                if (slowSql.sql.equals(sql)) {
+                    if (slowSql.nanos >= nanos) {
+                        return;
+                    }
+                    slowest.remove(slowSql);
+                    break;
+                }
+            }
+            slowest.add(new SlowSql(statementId, sql, nanos, timedOut, System.currentTimeMillis()));
+            if (slowest.size() > size) {
+                slowest.poll();
+            }
+            if (slowest.size() == size) {
+                floor = slowest.peek().nanos;
+            }
+        }
+    }
+
+    /**
+     * @return 按耗时从大到小排列的记录
+     */
+    public List<SlowSql> slowest() {
+        List<SlowSql> result;
+        synchronized (slowest) {
+            result = new ArrayList<>(slowest);
+        }
+        result.sort(Comparator.comparingLong(SlowSql::getNanos).reversed());
+        return result;
+    }
+
+    public void reset() {
+        synchronized (slowest) {
+            slowest.clear();
+            floor = 0;
+        }
+    }
+
+    /**
+     * 一次耗时较长的解析
+     */
+    public static final class SlowSql {
+
+        private final String statementId;
+
+        private final String sql;
+
+        private final long nanos;
+
+        private final boolean timedOut;
+
+        private final long timestamp;
+
+        SlowSql(String statementId, String sql, long nanos, boolean timedOut, long timestamp) {
+            this.statementId = statementId;
+            this.sql = sql;
+            this.nanos = nanos;
+            this.timedOut = timedOut;
+            this.timestamp = timestamp;
+        }
+
+        public String getStatementId() {
+            return statementId;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        /**
+         * 记录时的时间戳（毫秒）
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.3f ms%s %s: %s", nanos / 1_000_000.0, timedOut ? " (timeout)" : "",
+                    statementId, sql);
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.mybatis.mybatis.plugin.process;
+
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
+import net.sf.jsqlparser.expression.operators.relational.ItemsList;
+import net.sf.jsqlparser.expression.operators.relational.MultiExpressionList;
+import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.delete.Delete;
+import net.sf.jsqlparser.statement.insert.Insert;
+import net.sf.jsqlparser.statement.select.Join;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.update.Update;
+import net.sf.jsqlparser.statement.update.UpdateSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @program: mybatis plugin
+ * @description: 按偏移量拼接的改写引擎。与 FusedRuleEngine 使用同一套遍历逻辑，但是不修改语法树，
+ * 只记录 where、on 条件末尾以及字段、值列表末尾等插入位置，最后复制原始 SQL 中未修改的片段并插入新增内容，
+ * 不再把整个语法树重新转成字符串；插入位置之外的内容与原始 SQL 完全相同（包括大小写、空白和注释）。
+ * 任意一个插入位置无法确定时返回 null，由调用方改用语法树改写
+ */
+public final class SpliceRewriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpliceRewriter.class);
+
+    static final String AND = " AND ";
+
+    private SpliceRewriter() {
+    }
+
+    /**
+     * @param context 已经解析的 SQL 上下文，语法树不能被修改过
+     * @param actions 按执行顺序排列的规则，必须满足 {@link FusedRuleEngine#supports(List)}
+     * @return 改写后的 SQL，无法按偏移量改写时返回 null
+     */
+    public static String rewrite(SqlStatementContext context, List<RuleAction> actions) {
+        Statement statement = context.getStatement();
+        SqlTokens tokens = SqlTokens.of(context.getParsedSql(), context.getFirstToken());
+        if (statement == null || tokens == null) {
+            return null;
+        }
+        Edits edits = new Edits(tokens);
+        try {
+            FusedRuleEngine.apply(statement, actions, context.getPlugins(), edits);
+        } catch (RuntimeException e) {
+            // 语法树改写时同样会失败，交给调用方按原有流程处理
+            logger.debug("splice rewrite failed, {}", e.getMessage());
+            return null;
+        }
+        edits.finish();
+        return edits.supported ? context.expand(Edit.splice(context.getParsedSql(), edits.edits)) : null;
+    }
+
+    /**
+     * 记录插入位置和插入内容，同一位置按记录顺序插入
+     */
+    private static final class Edits implements FusedRuleEngine.Target {
+
+        private final SqlTokens tokens;
+
+        private final List<Edit> edits = new ArrayList<>();
+
+        private boolean supported = true;
+
+        /**
+         * update、delete 的条件放在原条件前面，后执行的规则在最前面，全部记录完之后再生成
+         */
+        private Statement prefixed;
+
+        private final List<EqualsTo> prefixes = new ArrayList<>(2);
+
+        private Edits(SqlTokens tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        public void where(PlainSelect plainSelect, FusedRuleEngine.Condition condition) {
+            if (condition.original == null) {
+                int at = whereInsertion(plainSelect);
+                if (at < 0) {
+                    supported = false;
+                    return;
+                }
+                add(at, " WHERE " + join(condition.appended));
+                return;
+            }
+            // 字面量、? 等表达式没有记录位置，按 where 关键字和后面子句的位置推算
+            int first = tokens.firstOf(condition.original);
+            int last = tokens.lastOf(condition.original);
+            int begin = first >= 0 ? tokens.begin(first) : -1;
+            int end = last >= 0 ? tokens.end(last) : whereInsertion(plainSelect);
+            if (begin < 0 && condition.parenthesized) {
+                int where = tokens.lastKeyword(tokens.first(plainSelect), tokens.last(plainSelect), "WHERE", null);
+                begin = where < 0 ? -1 : tokens.begin(where + 1);
+            }
+            append(condition, begin, end);
+        }
+
+        @Override
+        public void on(Join join, FusedRuleEngine.Condition condition) {
+            if (condition.original == null) {
+                supported = false;
+                return;
+            }
+            int first = tokens.firstOf(condition.original);
+            int last = tokens.lastOf(condition.original);
+            append(condition, first < 0 ? -1 : tokens.begin(first), last < 0 ? -1 : tokens.end(last));
+        }
+
+        @Override
+        public void insert(Insert insert, RuleAction action) {
+            List<Column> columns = insert.getColumns();
+            ItemsList itemsList = insert.getItemsList();
+            if (columns == null || columns.isEmpty() || itemsList == null) {
+                supported = false;
+                return;
+            }
+            int lastColumn = tokens.last(columns.get(columns.size() - 1));
+            if (lastColumn < 0) {
+                supported = false;
+                return;
+            }
+            add(tokens.end(lastColumn), ", " + new Column(action.getField()));
+            List<ExpressionList> rows = itemsList instanceof MultiExpressionList
+                    ? ((MultiExpressionList) itemsList).getExprList()
+                    : itemsList instanceof ExpressionList
+                    ? Collections.singletonList((ExpressionList) itemsList) : null;
+            int values = tokens.nextKeyword(lastColumn + 1, "VALUES", "VALUE");
+            if (rows == null || values >= tokens.size() || !tokens.is(values, "VALUES") && !tokens.is(values, "VALUE")) {
+                supported = false;
+                return;
+            }
+            // 按括号找到每一行的右括号，值列表中的字面量、? 没有记录位置
+            String value = ", " + action.getFieldValue();
+            int open = values + 1;
+            for (ExpressionList row : rows) {
+                if (open > values + 1 && !tokens.is(open++, ",")) {
+                    supported = false;
+                    return;
+                }
+                if (row.getExpressions() == null || row.getExpressions().isEmpty() || !tokens.is(open, "(")) {
+                    supported = false;
+                    return;
+                }
+                int close = tokens.nextKeyword(open + 1);
+                if (!tokens.is(close, ")")) {
+                    supported = false;
+                    return;
+                }
+                add(tokens.end(close - 1), value);
+                open = close + 1;
+            }
+        }
+
+        @Override
+        public void where(Update update, EqualsTo condition) {
+            prefix(update, condition);
+        }
+
+        @Override
+        public void set(Update update, RuleAction action) {
+            int at = updateSetEnd(update);
+            if (at < 0) {
+                supported = false;
+                return;
+            }
+            // 与 UpdateSet 转成字符串的格式一致
+            add(at, ", " + new Column(action.getField()) + " = " + action.getFieldValue());
+        }
+
+        @Override
+        public void where(Delete delete, EqualsTo condition) {
+            prefix(delete, condition);
+        }
+
+        /**
+         * 在原条件末尾追加规则条件，原条件是 or 表达式时整体加括号
+         *
+         * @param begin 原条件在 SQL 中的起始偏移量，只有需要加括号时使用
+         * @param end   原条件在 SQL 中的结束偏移量
+         */
+        private void append(FusedRuleEngine.Condition condition, int begin, int end) {
+            if (end < 0 || condition.parenthesized && begin < 0) {
+                supported = false;
+                return;
+            }
+            if (condition.parenthesized) {
+                add(begin, "(");
+                add(end, ")");
+            }
+            add(end, AND + join(condition.appended));
+        }
+
+        private void prefix(Statement statement, EqualsTo condition) {
+            prefixed = statement;
+            prefixes.add(condition);
+        }
+
+        /**
+         * 生成 update、delete 的条件：c2 AND c1 AND (原条件)
+         */
+        private void finish() {
+            if (prefixed == null || !supported) {
+                return;
+            }
+            List<Expression> conditions = new ArrayList<>(prefixes);
+            Collections.reverse(conditions);
+            Expression where = prefixed instanceof Update
+                    ? ((Update) prefixed).getWhere() : ((Delete) prefixed).getWhere();
+            if (where != null) {
+                int keyword = tokens.nextKeyword(0, "WHERE");
+                if (keyword >= tokens.size() || !tokens.is(keyword, "WHERE")) {
+                    supported = false;
+                    return;
+                }
+                boolean parenthesized = where instanceof OrExpression;
+                add(tokens.begin(keyword + 1), join(conditions) + AND + (parenthesized ? "(" : ""));
+                if (parenthesized) {
+                    int last = tokens.lastOf(where);
+                    add(last >= 0 ? tokens.end(last) : clauseEnd(keyword + 1), ")");
+                }
+                return;
+            }
+            int at = prefixed instanceof Update ? updateSetEnd((Update) prefixed) : deleteEnd((Delete) prefixed);
+            if (at < 0) {
+                supported = false;
+                return;
+            }
+            add(at, " WHERE " + join(conditions));
+        }
+
+        /**
+         * 没有 where 条件时的插入位置：第一个 group by、having、order by、limit 等子句之前，没有这些子句时在查询末尾
+         */
+        private int whereInsertion(PlainSelect plainSelect) {
+            int first = tokens.first(plainSelect);
+            int last = tokens.last(plainSelect);
+            if (first < 0 || last < 0 || plainSelect.getOracleHierarchical() != null
+                    || plainSelect.getKsqlWindow() != null) {
+                return -1;
+            }
+            int clause = last + 1;
+            if (plainSelect.getGroupBy() != null) {
+                clause = earlier(clause, tokens.lastKeyword(first, last, "GROUP", "BY"));
+            }
+            if (plainSelect.getHaving() != null) {
+                clause = earlier(clause, tokens.lastKeyword(first, last, "HAVING", null));
+            }
+            if (plainSelect.getOrderByElements() != null) {
+                clause = earlier(clause, tokens.lastKeyword(first, last, "ORDER", null));
+            }
+            if (plainSelect.getLimit() != null) {
+                clause = earlier(clause, tokens.lastKeyword(first, last, "LIMIT", null));
+            }
+            if (plainSelect.getOffset() != null) {
+                clause = earlier(clause, tokens.lastKeyword(first, last, "OFFSET", null));
+            }
+            if (plainSelect.getFetch() != null) {
+                clause = earlier(clause, tokens.lastKeyword(first, last, "FETCH", null));
+            }
+            if (plainSelect.isForUpdate() || plainSelect.getForXmlPath() != null) {
+                clause = earlier(clause, tokens.lastKeyword(first, last, "FOR", null));
+            }
+            if (plainSelect.getOptimizeFor() != null) {
+                clause = earlier(clause, tokens.lastKeyword(first, last, "OPTIMIZE", null));
+            }
+            return clause < 0 || clause <= first ? -1 : tokens.end(clause - 1);
+        }
+
+        /**
+         * update 最后一个赋值表达式的末尾，多表 update、括号形式的多列赋值不处理
+         */
+        private int updateSetEnd(Update update) {
+            List<UpdateSet> updateSets = update.getUpdateSets();
+            if (update.getFromItem() != null || notEmpty(update.getJoins()) || notEmpty(update.getStartJoins())
+                    || updateSets == null || updateSets.isEmpty()) {
+                return -1;
+            }
+            UpdateSet updateSet = updateSets.get(updateSets.size() - 1);
+            List<Expression> expressions = updateSet.getExpressions();
+            if (updateSet.isUsingBracketsForColumns() || expressions == null || expressions.isEmpty()) {
+                return -1;
+            }
+            // 括号属于赋值语句时按子句位置推算
+            int last = updateSet.isUsingBracketsForValues() ? -1 : tokens.lastOf(expressions.get(expressions.size() - 1));
+            if (last >= 0) {
+                return tokens.end(last);
+            }
+            List<Column> columns = updateSet.getColumns();
+            int column = columns == null || columns.isEmpty() ? -1 : tokens.last(columns.get(columns.size() - 1));
+            return column < 0 || !tokens.is(column + 1, "=") ? -1 : clauseEnd(column + 1);
+        }
+
+        /**
+         * update、delete 语句中从 from 开始的子句的结束位置：where、order by、limit、returning 之前或者语句末尾
+         */
+        private int clauseEnd(int from) {
+            int next = Math.min(tokens.nextKeyword(from, "WHERE", "ORDER", "LIMIT", "RETURNING", ";"),
+                    lastStatementToken() + 1);
+            return next <= from ? -1 : tokens.end(next - 1);
+        }
+
+        /**
+         * 没有 where 条件的 delete 在语句末尾插入条件，带别名、排序、limit 或多表 delete 不处理
+         */
+        private int deleteEnd(Delete delete) {
+            if (delete.getTable() == null || delete.getTable().getAlias() != null
+                    || delete.getOrderByElements() != null || delete.getLimit() != null
+                    || notEmpty(delete.getTables()) || notEmpty(delete.getUsingList()) || notEmpty(delete.getJoins())) {
+                return -1;
+            }
+            int last = tokens.last(delete.getTable());
+            return last < 0 || last != lastStatementToken() ? -1 : tokens.end(last);
+        }
+
+        private int lastStatementToken() {
+            int last = tokens.size() - 1;
+            return tokens.is(last, ";") ? last - 1 : last;
+        }
+
+        private void add(int offset, String text) {
+            edits.add(new Edit(offset, edits.size(), text));
+        }
+
+        private static int earlier(int clause, int index) {
+            return index < 0 || clause < 0 ? -1 : Math.min(clause, index);
+        }
+
+        private static boolean notEmpty(List<?> list) {
+            return list != null && !list.isEmpty();
+        }
+    }
+
+    /**
+     * 多个条件以 AND 连接，与语法树中 AndExpression 转成字符串的格式一致
+     */
+    static String join(List<Expression> expressions) {
+        StringBuilder builder = new StringBuilder();
+        for (Expression expression : expressions) {
+            if (builder.length() > 0) {
+                builder.append(AND);
+            }
+            builder.append(expression);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 一处插入，同一位置按记录顺序插入
+     */
+    static final class Edit implements Comparable<Edit> {
+
+        private final int offset;
+
+        private final int sequence;
+
+        private final String text;
+
+        Edit(int offset, int sequence, String text) {
+            this.offset = offset;
+            this.sequence = sequence;
+            this.text = text;
+        }
+
+        /**
+         * 复制原始 SQL 中未修改的片段并插入新增内容，edits 会被排序
+         */
+        static String splice(String sql, List<Edit> edits) {
+            if (edits.isEmpty()) {
+                return sql;
+            }
+            edits.sort(null);
+            int length = sql.length();
+            for (Edit edit : edits) {
+                length += edit.text.length();
+            }
+            StringBuilder builder = new StringBuilder(length);
+            int from = 0;
+            for (Edit edit : edits) {
+                builder.append(sql, from, edit.offset).append(edit.text);
+                from = edit.offset;
+            }
+            return builder.append(sql, from, sql.length()).toString();
+        }
+
+        @Override
+        public int compareTo(Edit o) {
+            return offset != o.offset ? Integer.compare(offset, o.offset) : Integer.compare(sequence, o.sequence);
+        }
+    }
+}
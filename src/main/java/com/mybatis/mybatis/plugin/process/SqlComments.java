@@ -0,0 +1,186 @@
+package com.mybatis.mybatis.plugin.process;
+
+import net.sf.jsqlparser.parser.CCJSqlParserTokenManager;
+import net.sf.jsqlparser.parser.SimpleCharStream;
+import net.sf.jsqlparser.parser.StringProvider;
+import net.sf.jsqlparser.parser.Token;
+import net.sf.jsqlparser.parser.TokenMgrException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @program: mybatis plugin
+ * @description: 语法树转成字符串时会丢掉注释（除了 select 后面的 Oracle 提示），优化器提示、路由注释也一起丢失。
+ * 解析器把注释挂在它后面的词法单元上，这里把原始 SQL 与改写后 SQL 的词法单元按顺序对齐，
+ * 把每个注释放回它原来所在词法单元的前面；改写后 SQL 中已经存在的注释不会重复添加
+ */
+final class SqlComments {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlComments.class);
+
+    /**
+     * 对齐时最多向后查找的词法单元个数，规则新增的条件、字段不会超过这个长度
+     */
+    private static final int LOOKAHEAD = 64;
+
+    private SqlComments() {
+    }
+
+    /**
+     * @param firstToken 原始 SQL 解析得到的第一个词法单元
+     * @param sql        语法树转成的字符串
+     * @return 放回注释后的 SQL，原始 SQL 没有注释时返回 sql 本身
+     */
+    static String restore(Token firstToken, String sql) {
+        if (firstToken == null) {
+            return sql;
+        }
+        List<String> images = new ArrayList<>();
+        List<List<String>> comments = new ArrayList<>();
+        boolean commented = false;
+        for (Token token = firstToken; token != null; token = token.next) {
+            List<String> before = comments(token);
+            commented |= !before.isEmpty();
+            comments.add(before);
+            if (token.kind == 0) {
+                break;
+            }
+            images.add(token.image);
+        }
+        if (!commented) {
+            return sql;
+        }
+
+        Token outputFirst;
+        Map<String, Integer> existing = new HashMap<>();
+        try {
+            outputFirst = lex(sql, existing);
+        } catch (TokenMgrException e) {
+            logger.debug("can not restore comments, {}", e.getMessage());
+            return sql;
+        }
+        SqlTokens output = SqlTokens.of(sql, outputFirst);
+        int[] matched = align(images, output);
+
+        StringBuilder builder = new StringBuilder(sql.length() + 64);
+        int from = 0;
+        for (int i = 0; i < comments.size(); i++) {
+            List<String> before = comments.get(i);
+            if (before.isEmpty()) {
+                continue;
+            }
+            // 词法单元被改写掉时放在下一个对齐的词法单元前面，都没有时放在末尾
+            int offset = sql.length();
+            for (int j = i; j < images.size(); j++) {
+                if (matched[j] >= 0) {
+                    offset = output.begin(matched[j]);
+                    break;
+                }
+            }
+            builder.append(sql, from, offset);
+            from = offset;
+            for (String comment : before) {
+                Integer count = existing.get(comment);
+                if (count != null && count > 0) {
+                    existing.put(comment, count - 1);
+                    continue;
+                }
+                if (offset == sql.length()) {
+                    builder.append(' ').append(comment);
+                } else {
+                    // 单行注释后面必须换行，否则会注释掉后面的 SQL
+                    builder.append(comment).append(lineComment(comment) ? '\n' : ' ');
+                }
+            }
+        }
+        return builder.append(sql, from, sql.length()).toString();
+    }
+
+    /**
+     * 贪心对齐两个词法单元序列，大小写不敏感；返回原始词法单元对应的改写后下标，没有对应时为 -1
+     */
+    private static int[] align(List<String> images, SqlTokens output) {
+        int[] matched = new int[images.size()];
+        int i = 0;
+        int j = 0;
+        while (i < images.size()) {
+            if (j >= output.size()) {
+                matched[i++] = -1;
+                continue;
+            }
+            if (output.is(j, images.get(i))) {
+                matched[i++] = j++;
+                continue;
+            }
+            // 改写后新增的词法单元与原始 SQL 中被改写掉的词法单元，跳过较短的一边
+            int inserted = -1;
+            for (int k = 1; k <= LOOKAHEAD && j + k < output.size(); k++) {
+                if (output.is(j + k, images.get(i))) {
+                    inserted = k;
+                    break;
+                }
+            }
+            int removed = -1;
+            for (int k = 1; k <= LOOKAHEAD && i + k < images.size(); k++) {
+                if (output.is(j, images.get(i + k))) {
+                    removed = k;
+                    break;
+                }
+            }
+            if (inserted > 0 && (removed < 0 || inserted <= removed)) {
+                j += inserted;
+            } else if (removed > 0) {
+                for (int k = 0; k < removed; k++) {
+                    matched[i++] = -1;
+                }
+            } else {
+                matched[i++] = -1;
+                j++;
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * 只做词法分析，顺便记录改写后 SQL 中已经存在的注释
+     */
+    private static Token lex(String sql, Map<String, Integer> existing) {
+        CCJSqlParserTokenManager tokenManager = new CCJSqlParserTokenManager(
+                new SimpleCharStream(new StringProvider(sql)));
+        Token first = tokenManager.getNextToken();
+        for (Token token = first; ; token = token.next) {
+            for (String comment : comments(token)) {
+                existing.merge(comment, 1, Integer::sum);
+            }
+            if (token.kind == 0) {
+                return first;
+            }
+            token.next = tokenManager.getNextToken();
+        }
+    }
+
+    /**
+     * 挂在词法单元前面的注释，按出现顺序排列
+     */
+    private static List<String> comments(Token token) {
+        if (token.specialToken == null) {
+            return Collections.emptyList();
+        }
+        List<String> comments = new ArrayList<>(1);
+        for (Token special = token.specialToken; special != null; special = special.specialToken) {
+            comments.add(special.image);
+        }
+        Collections.reverse(comments);
+        return comments;
+    }
+
+    private static boolean lineComment(String comment) {
+        return comment.startsWith("--") || comment.startsWith("//");
+    }
+}
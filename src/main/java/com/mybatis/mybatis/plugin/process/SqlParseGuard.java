@@ -0,0 +1,257 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.ParseLimitConfig;
+import com.mybatis.mybatis.plugin.exception.SqlParseLimitException;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParser;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * @program: mybatis plugin
+ * @description: 解析前把多行 INSERT 的行、较长的字面量列表替换成占位标记，再检查 SQL 长度和词法单元数量，超过限制时不解析；
+ * 开启解析耗时上限后在独立的线程池中解析，
+ * 耗时从解析开始时计算，排队的时间不计入，执行 SQL 的线程最多等待配置的时间。JSqlParser 4.2 的解析器不支持中断，
+ * 超时的解析会在线程池中继续执行完，结果丢弃，配合解析失败缓存同一条 SQL 在记录过期前不再解析；
+ * 队列已满或者排队超过耗时上限时按线程池繁忙处理。每次解析的耗时交给 SlowSqlRecorder 记录
+ */
+public final class SqlParseGuard {
+
+    private final int maxLength;
+
+    private final int maxTokens;
+
+    private final long timeoutNanos;
+
+    private final ThreadPoolExecutor executor;
+
+    private final SlowSqlRecorder slowest;
+
+    /**
+     * IN 列表元素数量达到该值时解析前替换成占位标记，0 表示不替换
+     */
+    private final int collapseListSize;
+
+    /**
+     * 多行 INSERT 的行数达到该值时解析前替换成一个占位行，0 表示不替换
+     */
+    private final int streamInsertRows;
+
+    public SqlParseGuard(ParseLimitConfig config) {
+        this(config, 0);
+    }
+
+    /**
+     * @param collapseListSize IN 列表元素数量达到该值时解析前替换成占位标记，0 表示不替换
+     */
+    public SqlParseGuard(ParseLimitConfig config, Integer collapseListSize) {
+        this(config, collapseListSize, 0);
+    }
+
+    /**
+     * @param streamInsertRows 多行 INSERT 的行数达到该值时解析前替换成一个占位行，0 表示不替换
+     */
+    public SqlParseGuard(ParseLimitConfig config, Integer collapseListSize, Integer streamInsertRows) {
+        this.collapseListSize = positive(collapseListSize);
+        this.streamInsertRows = positive(streamInsertRows);
+        if (Objects.isNull(config)) {
+            config = new ParseLimitConfig();
+        }
+        this.maxLength = positive(config.getMaxLength());
+        this.maxTokens = positive(config.getMaxTokens());
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(Objects.isNull(config.getTimeoutMillis())
+                ? 0 : Math.max(config.getTimeoutMillis(), 0));
+        this.executor = timeoutNanos > 0 ? executor(Math.max(positive(config.getThreads()), 1),
+                Math.max(positive(config.getQueueSize()), 1)) : null;
+        this.slowest = new SlowSqlRecorder(positive(config.getSlowest()));
+    }
+
+    /**
+     * @param statementId MappedStatement id，可以为空，用于记录慢解析
+     * @param sql         原始 SQL
+     * @param consumer    解析前对解析器的设置
+     * @return 语法树
+     * @throws SqlParseLimitException 超过长度、词法单元数量或者解析耗时上限，或者解析线程池繁忙
+     * @throws JSQLParserException    语法不支持
+     */
+    public Statement parse(String statementId, String sql, Consumer<CCJSqlParser> consumer) throws JSQLParserException {
+        if (maxLength > 0 && sql.length() > maxLength) {
+            throw new SqlParseLimitException("sql length " + sql.length() + " exceeds " + maxLength,
+                    SqlParseLimitException.Reason.length);
+        }
+        if (maxTokens > 0 && countTokens(sql, maxTokens) > maxTokens) {
+            throw new SqlParseLimitException("sql tokens exceed " + maxTokens, SqlParseLimitException.Reason.tokens);
+        }
+        if (executor == null) {
+            long start = System.nanoTime();
+            try {
+                return CCJSqlParserUtil.parse(sql, consumer);
+            } finally {
+                slowest.record(statementId, sql, System.nanoTime() - start, false);
+            }
+        }
+        ParseTask task = new ParseTask(sql, consumer);
+        Future<Statement> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new SqlParseLimitException("sql parse queue is full", SqlParseLimitException.Reason.busy);
+        }
+        long submitted = System.nanoTime();
+        try {
+            while (true) {
+                // 还没有开始时最多排队 timeout，开始后从开始时间计算 timeout
+                boolean started = task.started;
+                long deadline = (started ? task.startNanos : submitted) + timeoutNanos;
+                try {
+                    Statement statement = future.get(Math.max(deadline - System.nanoTime(), 0L),
+                            TimeUnit.NANOSECONDS);
+                    slowest.record(statementId, sql, System.nanoTime() - task.startNanos, false);
+                    return statement;
+                } catch (TimeoutException e) {
+                    if (!task.started) {
+                        // 还在排队的解析直接取消
+                        future.cancel(false);
+                        throw new SqlParseLimitException("sql parse waits in queue more than "
+                                + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms",
+                                SqlParseLimitException.Reason.busy);
+                    }
+                    if (started) {
+                        // 已经开始的解析无法中断
+                        slowest.record(statementId, sql, System.nanoTime() - task.startNanos, true);
+                        throw new SqlParseLimitException("sql parse exceeds "
+                                + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms",
+                                SqlParseLimitException.Reason.timeout);
+                    }
+                    // 等待期间开始解析，按开始时间重新计算
+                }
+            }
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new SqlParseLimitException("sql parse interrupted", SqlParseLimitException.Reason.busy);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof JSQLParserException) {
+                throw (JSQLParserException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new JSQLParserException(cause);
+        }
+    }
+
+    /**
+     * 多行 INSERT 优先替换行，其他语句替换字面量列表
+     *
+     * @return 替换后的结果，没有开启或者没有需要替换的内容时返回 null
+     */
+    SqlSkeleton collapse(String sql) {
+        SqlSkeleton skeleton = streamInsertRows > 0 ? InsertRows.collapse(sql, streamInsertRows) : null;
+        if (skeleton == null && collapseListSize > 0) {
+            skeleton = LiteralLists.collapse(sql, collapseListSize);
+        }
+        return skeleton;
+    }
+
+    public SlowSqlRecorder getSlowest() {
+        return slowest;
+    }
+
+    /**
+     * 大致的词法单元数量：名称、数字、字符串、引号中的名称各算一个，其他符号每个字符算一个，注释和空白不计；
+     * 超过 limit 后不再继续统计
+     */
+    static int countTokens(String sql, int limit) {
+        int count = 0;
+        int length = sql.length();
+        int i = 0;
+        while (i < length && count <= limit) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+                continue;
+            }
+            if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                continue;
+            }
+            count++;
+            if (c == '\'' || c == '"' || c == '`') {
+                int end = sql.indexOf(c, i + 1);
+                i = end < 0 ? length : end + 1;
+            } else if (Character.isLetterOrDigit(c) || c == '_' || c == '$') {
+                i++;
+                while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_'
+                        || sql.charAt(i) == '$')) {
+                    i++;
+                }
+            } else {
+                i++;
+            }
+        }
+        return count;
+    }
+
+    private static ThreadPoolExecutor executor(int threads, int queueSize) {
+        AtomicInteger index = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "guarder-sql-parser-" + index.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // 空闲时不保留线程
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 在线程池中执行的解析，记录实际开始解析的时间
+     */
+    private static final class ParseTask implements Callable<Statement> {
+
+        private final String sql;
+
+        private final Consumer<CCJSqlParser> consumer;
+
+        private volatile long startNanos;
+
+        private volatile boolean started;
+
+        private ParseTask(String sql, Consumer<CCJSqlParser> consumer) {
+            this.sql = sql;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public Statement call() throws JSQLParserException {
+            startNanos = System.nanoTime();
+            started = true;
+            return CCJSqlParserUtil.parse(sql, consumer);
+        }
+    }
+
+    private static int positive(Number value) {
+        return Objects.isNull(value) ? 0 : Math.max(value.intValue(), 0);
+    }
+}
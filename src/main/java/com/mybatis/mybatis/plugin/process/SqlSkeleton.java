@@ -0,0 +1,31 @@
+package com.mybatis.mybatis.plugin.process;
+
+/**
+ * @program: mybatis plugin
+ * @description: 解析前缩短的 SQL：规则不会改写的大段内容替换成占位标记，只解析、改写缩短后的 SQL，
+ * 改写完成后再把占位标记换回原始内容
+ */
+interface SqlSkeleton {
+
+    /**
+     * 缩短后的 SQL，用于解析和改写
+     */
+    String getSkeleton();
+
+    /**
+     * 把改写结果中的占位标记换回原始内容
+     *
+     * @return 占位标记无法换回时（例如规则新增的值中有引号、反斜杠）返回 null，由调用方放弃缩短，按原始 SQL 改写
+     */
+    String expand(String rewritten);
+
+    /**
+     * 占位标记无法换回原始内容，改写流程放弃缩短后重新改写；只在包内传递，不记录调用栈
+     */
+    final class MismatchException extends RuntimeException {
+
+        MismatchException() {
+            super("sql skeleton can not be expanded", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.cache.ParseFailureCache;
+import com.mybatis.mybatis.plugin.exception.SqlParseLimitException;
+import com.mybatis.mybatis.plugin.metrics.PluginPhase;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParser;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.parser.Token;
+import net.sf.jsqlparser.statement.Statement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * @program: mybatis plugin
+ * @description: 单次 SQL 执行的上下文，第一次需要语法树时才解析，之后租户字段检测和所有规则处理器共用同一个 Statement；
+ * 只在执行 SQL 的线程内使用，不需要考虑并发
+ */
+public final class SqlStatementContext {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlStatementContext.class);
+
+    /**
+     * MappedStatement id，可以为空
+     */
+    private final String statementId;
+
+    private final String sql;
+
+    private Statement statement;
+
+    private boolean parsed;
+
+    /**
+     * 是否先尝试快速识别单表语句
+     */
+    private final boolean fastPath;
+
+    private SimpleStatement simpleStatement;
+
+    private boolean recognized;
+
+    /**
+     * 解析失败 SQL 的缓存，为空时每次都解析
+     */
+    private final ParseFailureCache parseFailures;
+
+    /**
+     * 解析限制，为空时直接解析
+     */
+    private final SqlParseGuard parseGuard;
+
+    /**
+     * 解析失败的原因，解析成功或者没有解析时为 null
+     */
+    private String parseError;
+
+    /**
+     * 是否因为超过解析限制而没有解析
+     */
+    private boolean parseLimited;
+
+    /**
+     * 解析前替换掉多行 INSERT 的行或者字面量列表之后的 SQL，没有替换时为 null
+     */
+    private SqlSkeleton skeleton;
+
+    private boolean collapsed;
+
+    /**
+     * 解析时的第一个词法单元，之后的词法单元通过 next 连接，记录了每个词法单元在 SQL 中的位置
+     */
+    private Token firstToken;
+
+    /**
+     * 绑定参数模式下改写结果中需要绑定的字段值
+     */
+    private List<BindValue> bindValues = Collections.emptyList();
+
+    /**
+     * 是否可以把字段值作为 ? 绑定，只有 PreparedStatement 可以，其他语句类型以字面量拼接
+     */
+    private boolean bindable = true;
+
+    /**
+     * 开启计时后各阶段累计的耗时，没有经过的阶段为 -1；没有开启时为 null
+     */
+    private long[] phaseNanos;
+
+    /**
+     * 执行失败策略、无法解析时停止执行的插件名
+     */
+    private String failedPlugin;
+
+    /**
+     * 改写时使用的插件快照，由 PluginsProcessImpl 设置，规则处理器按它判断联接表
+     */
+    private PluginsSnapshot plugins = PluginsSnapshot.EMPTY;
+
+    public SqlStatementContext(String statementId, String sql) {
+        this(statementId, sql, false);
+    }
+
+    /**
+     * @param fastPath 为 true 时简单的单表语句由 SimpleSqlRecognizer 识别，不再解析
+     */
+    public SqlStatementContext(String statementId, String sql, boolean fastPath) {
+        this(statementId, sql, fastPath, null);
+    }
+
+    /**
+     * @param parseFailures 解析失败 SQL 的缓存，之前解析失败的 SQL 不再解析，解析失败的日志每条 SQL 只输出一次
+     */
+    public SqlStatementContext(String statementId, String sql, boolean fastPath, ParseFailureCache parseFailures) {
+        this(statementId, sql, fastPath, parseFailures, null);
+    }
+
+    /**
+     * @param parseGuard 解析限制，超过限制时不解析，按解析失败处理
+     */
+    public SqlStatementContext(String statementId, String sql, boolean fastPath, ParseFailureCache parseFailures,
+                               SqlParseGuard parseGuard) {
+        this.statementId = statementId;
+        this.sql = sql;
+        this.fastPath = fastPath;
+        this.parseFailures = parseFailures;
+        this.parseGuard = parseGuard;
+    }
+
+    public String getStatementId() {
+        return statementId;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * 获取解析后的语法树，只解析一次
+     *
+     * @return 语法树，解析失败时返回 null，失败原因通过 {@link #getParseError()} 获取
+     */
+    public Statement getStatement() {
+        if (!parsed) {
+            parsed = true;
+            ParseFailureCache.ParseFailure failure = parseFailures == null ? null : parseFailures.failure(sql);
+            if (failure != null) {
+                parseError = failure.getMessage();
+                parseLimited = failure.isLimited();
+                return null;
+            }
+            Consumer<CCJSqlParser> consumer = parser -> firstToken = parser.getToken(1);
+            long start = startTiming();
+            try {
+                if (parseGuard == null) {
+                    statement = CCJSqlParserUtil.parse(sql, consumer);
+                } else {
+                    statement = parseGuard.parse(statementId, getParsedSql(), consumer);
+                }
+            } catch (JSQLParserException e) {
+                parseError = String.valueOf(e.getLocalizedMessage());
+                parseLimited = e instanceof SqlParseLimitException;
+                // 长度、词法单元数量超过限制时永久记录，解析超时只记录一段时间，线程池繁忙时不记录
+                SqlParseLimitException.Reason reason = parseLimited ? ((SqlParseLimitException) e).getReason() : null;
+                if (parseFailures == null) {
+                    logger.error(parseError);
+                } else if (parseFailures.put(sql, parseError, reason)) {
+                    logger.warn("sql can not be parsed, statement {}: {}", statementId, parseError);
+                }
+            } finally {
+                stopTiming(PluginPhase.parse, start);
+            }
+        }
+        return statement;
+    }
+
+    /**
+     * 解析失败的原因，解析成功或者还没有解析时返回 null
+     */
+    public String getParseError() {
+        return parseError;
+    }
+
+    /**
+     * 是否因为超过解析限制（长度、词法单元数量、解析耗时）而没有解析，语法不支持时返回 false
+     */
+    public boolean isParseLimited() {
+        return parseLimited;
+    }
+
+    /**
+     * 快速识别的单表语句，只识别一次
+     *
+     * @return 没有开启快速识别或者不属于支持的子集时返回 null，此时通过 {@link #getStatement()} 解析
+     */
+    public SimpleStatement getSimpleStatement() {
+        if (fastPath && !recognized) {
+            recognized = true;
+            simpleStatement = SimpleSqlRecognizer.recognize(getParsedSql());
+        }
+        return simpleStatement;
+    }
+
+    /**
+     * 解析 SQL 得到的第一个词法单元，没有解析或者解析失败时返回 null
+     */
+    public Token getFirstToken() {
+        return statement == null ? null : firstToken;
+    }
+
+    /**
+     * 实际解析的 SQL，多行 INSERT 的行、较长的字面量列表替换成了占位标记，词法单元的位置以它为准；
+     * 没有替换时与原始 SQL 相同
+     */
+    public String getParsedSql() {
+        SqlSkeleton skeleton = skeleton();
+        return skeleton == null ? sql : skeleton.getSkeleton();
+    }
+
+    /**
+     * 把改写结果中的占位标记换回原始的行或者列表文本
+     *
+     * @throws SqlSkeleton.MismatchException 占位标记无法换回，需要调用 {@link #dropSkeleton()} 后按原始 SQL 重新改写
+     */
+    String expand(String rewritten) {
+        SqlSkeleton skeleton = skeleton();
+        if (skeleton == null || rewritten == null) {
+            return rewritten;
+        }
+        String expanded = skeleton.expand(rewritten);
+        if (expanded == null) {
+            throw new SqlSkeleton.MismatchException();
+        }
+        return expanded;
+    }
+
+    /**
+     * 放弃缩短，清除按缩短后的 SQL 解析、识别的结果，之后按原始 SQL 解析
+     *
+     * @return 之前是否缩短过
+     */
+    boolean dropSkeleton() {
+        if (skeleton() == null) {
+            return false;
+        }
+        skeleton = null;
+        statement = null;
+        parsed = false;
+        simpleStatement = null;
+        recognized = false;
+        firstToken = null;
+        parseError = null;
+        parseLimited = false;
+        return true;
+    }
+
+    private SqlSkeleton skeleton() {
+        if (!collapsed) {
+            collapsed = true;
+            skeleton = parseGuard == null ? null : parseGuard.collapse(sql);
+        }
+        return skeleton;
+    }
+
+    /**
+     * 把（可能已经改写过的）语法树转成字符串，原始 SQL 中的注释、优化器提示放回原来的位置
+     */
+    public String deparse() {
+        Statement parsedStatement = getStatement();
+        long start = startTiming();
+        String deparsed = expand(SqlComments.restore(getFirstToken(), parsedStatement.toString()));
+        stopTiming(PluginPhase.deparse, start);
+        return deparsed;
+    }
+
+    /**
+     * 是否已经解析过，用于判断本次执行是否走了解析
+     */
+    public boolean isParsed() {
+        return parsed;
+    }
+
+    /**
+     * 绑定参数模式下，改写后 SQL 中新增的 ? 对应的字段值；字段值以字面量拼接时为空集合
+     */
+    public List<BindValue> getBindValues() {
+        return bindValues;
+    }
+
+    public void setBindValues(List<BindValue> bindValues) {
+        this.bindValues = bindValues == null ? Collections.<BindValue>emptyList() : bindValues;
+    }
+
+    public boolean isBindable() {
+        return bindable;
+    }
+
+    public void setBindable(boolean bindable) {
+        this.bindable = bindable;
+    }
+
+    /**
+     * 开启计时，之后解析、执行规则、转成字符串的耗时按阶段累计，由拦截器交给 PluginMetrics
+     */
+    public void enableTiming() {
+        phaseNanos = new long[PluginPhase.values().length];
+        Arrays.fill(phaseNanos, -1L);
+    }
+
+    /**
+     * @return 阶段累计的耗时，没有开启计时或者没有经过该阶段时返回 -1
+     */
+    public long getPhaseNanos(PluginPhase phase) {
+        return phaseNanos == null ? -1L : phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * @return 开始时间，没有开启计时时返回 0，不取时间
+     */
+    long startTiming() {
+        return phaseNanos == null ? 0L : System.nanoTime();
+    }
+
+    void stopTiming(PluginPhase phase, long start) {
+        if (phaseNanos != null) {
+            long nanos = System.nanoTime() - start;
+            int index = phase.ordinal();
+            phaseNanos[index] = phaseNanos[index] < 0 ? nanos : phaseNanos[index] + nanos;
+        }
+    }
+
+    public String getFailedPlugin() {
+        return failedPlugin;
+    }
+
+    void setFailedPlugin(String failedPlugin) {
+        this.failedPlugin = failedPlugin;
+    }
+
+    public PluginsSnapshot getPlugins() {
+        return plugins;
+    }
+
+    void setPlugins(PluginsSnapshot plugins) {
+        this.plugins = plugins == null ? PluginsSnapshot.EMPTY : plugins;
+    }
+}
@@ -0,0 +1,275 @@
+package com.mybatis.mybatis.plugin.process;
+
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.NotExpression;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.operators.relational.Between;
+import net.sf.jsqlparser.expression.operators.relational.ExistsExpression;
+import net.sf.jsqlparser.expression.operators.relational.IsNullExpression;
+import net.sf.jsqlparser.parser.ASTNodeAccess;
+import net.sf.jsqlparser.parser.SimpleNode;
+import net.sf.jsqlparser.parser.Token;
+import net.sf.jsqlparser.statement.select.SubSelect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @program: mybatis plugin
+ * @description: 解析时产生的词法单元序列，按行列号换算成原始 SQL 中的字符偏移量，并记录每个词法单元所在的括号层级；
+ * 语法树节点记录了首尾词法单元，通过它们定位 where、on 条件以及字段、值列表在原始 SQL 中的位置。
+ * 注释不在词法单元序列中，位置换算与解析器一致：制表符占一列，\r\n 算一次换行
+ */
+final class SqlTokens {
+
+    private final int[] begin;
+
+    private final int[] end;
+
+    private final int[] depth;
+
+    private final String[] images;
+
+    /**
+     * 每一行在 SQL 中的起始偏移量
+     */
+    private final int[] lineStarts;
+
+    private SqlTokens(int[] lineStarts, int[] begin, int[] end, int[] depth, String[] images) {
+        this.lineStarts = lineStarts;
+        this.begin = begin;
+        this.end = end;
+        this.depth = depth;
+        this.images = images;
+    }
+
+    /**
+     * @param sql        解析的 SQL
+     * @param firstToken 解析得到的第一个词法单元
+     * @return 词法单元序列，firstToken 为 null 时返回 null
+     */
+    static SqlTokens of(String sql, Token firstToken) {
+        if (firstToken == null) {
+            return null;
+        }
+        int[] lineStarts = lineStarts(sql);
+        List<Token> tokens = new ArrayList<>();
+        for (Token token = firstToken; token != null && token.kind != 0; token = token.next) {
+            tokens.add(token);
+        }
+        int size = tokens.size();
+        int[] begin = new int[size];
+        int[] end = new int[size];
+        int[] depth = new int[size];
+        String[] images = new String[size];
+        int level = 0;
+        for (int i = 0; i < size; i++) {
+            Token token = tokens.get(i);
+            begin[i] = offset(lineStarts, token.beginLine, token.beginColumn);
+            end[i] = offset(lineStarts, token.endLine, token.endColumn) + 1;
+            images[i] = token.image;
+            if (")".equals(token.image)) {
+                level--;
+            }
+            depth[i] = level;
+            if ("(".equals(token.image)) {
+                level++;
+            }
+        }
+        return new SqlTokens(lineStarts, begin, end, depth, images);
+    }
+
+    int size() {
+        return begin.length;
+    }
+
+    int begin(int index) {
+        return begin[index];
+    }
+
+    int end(int index) {
+        return end[index];
+    }
+
+    int depth(int index) {
+        return depth[index];
+    }
+
+    boolean is(int index, String image) {
+        return index >= 0 && index < images.length && images[index].equalsIgnoreCase(image);
+    }
+
+    /**
+     * 语法树节点中的词法单元在序列中的下标，不存在时返回 -1
+     */
+    int indexOf(Token token) {
+        if (token == null) {
+            return -1;
+        }
+        // 同一条 SQL 的词法单元起始位置严格递增
+        int index = Arrays.binarySearch(begin, offset(lineStarts, token.beginLine, token.beginColumn));
+        return index < 0 ? -1 : index;
+    }
+
+    /**
+     * 节点的第一个词法单元下标，节点没有记录位置时返回 -1
+     */
+    int first(Object node) {
+        SimpleNode simpleNode = node instanceof ASTNodeAccess ? ((ASTNodeAccess) node).getASTNode() : null;
+        return simpleNode == null ? -1 : indexOf(simpleNode.jjtGetFirstToken());
+    }
+
+    /**
+     * 节点的最后一个词法单元下标，节点没有记录位置时返回 -1
+     */
+    int last(Object node) {
+        SimpleNode simpleNode = node instanceof ASTNodeAccess ? ((ASTNodeAccess) node).getASTNode() : null;
+        return simpleNode == null ? -1 : indexOf(simpleNode.jjtGetLastToken());
+    }
+
+    /**
+     * 条件表达式的第一个词法单元下标；and、or、括号等表达式没有记录位置，按子表达式推算，无法确定时返回 -1
+     */
+    int firstOf(Expression expression) {
+        if (expression instanceof BinaryExpression) {
+            // like 等表达式的节点从运算符开始，以左侧表达式为准
+            int left = firstOf(((BinaryExpression) expression).getLeftExpression());
+            int index = first(expression);
+            return left < 0 || index < 0 ? left : Math.min(left, index);
+        }
+        int index = first(expression);
+        if (index >= 0) {
+            // 子查询节点不包含外层括号
+            return expression instanceof SubSelect && ((SubSelect) expression).isUseBrackets()
+                    ? (is(index - 1, "(") ? index - 1 : -1) : index;
+        }
+        if (expression instanceof Parenthesis) {
+            index = firstOf(((Parenthesis) expression).getExpression()) - 1;
+            return is(index, "(") ? index : -1;
+        }
+        if (expression instanceof NotExpression) {
+            index = firstOf(((NotExpression) expression).getExpression()) - 1;
+            return is(index, "NOT") || is(index, "!") ? index : -1;
+        }
+        if (expression instanceof ExistsExpression) {
+            index = firstOf(((ExistsExpression) expression).getRightExpression()) - 1;
+            return is(index, "EXISTS") ? index : -1;
+        }
+        if (expression instanceof Between) {
+            return firstOf(((Between) expression).getLeftExpression());
+        }
+        if (expression instanceof IsNullExpression) {
+            return firstOf(((IsNullExpression) expression).getLeftExpression());
+        }
+        return -1;
+    }
+
+    /**
+     * 条件表达式的最后一个词法单元下标，无法确定时返回 -1
+     */
+    int lastOf(Expression expression) {
+        if (expression instanceof BinaryExpression) {
+            int right = lastOf(((BinaryExpression) expression).getRightExpression());
+            int index = last(expression);
+            return right < 0 ? index : Math.max(right, index);
+        }
+        int index = last(expression);
+        if (index >= 0) {
+            return expression instanceof SubSelect && ((SubSelect) expression).isUseBrackets()
+                    ? (is(index + 1, ")") ? index + 1 : -1) : index;
+        }
+        if (expression instanceof Parenthesis) {
+            index = lastOf(((Parenthesis) expression).getExpression());
+            return index >= 0 && is(index + 1, ")") ? index + 1 : -1;
+        }
+        if (expression instanceof NotExpression) {
+            return lastOf(((NotExpression) expression).getExpression());
+        }
+        if (expression instanceof ExistsExpression) {
+            return lastOf(((ExistsExpression) expression).getRightExpression());
+        }
+        if (expression instanceof Between) {
+            return lastOf(((Between) expression).getBetweenExpressionEnd());
+        }
+        if (expression instanceof IsNullExpression) {
+            // a IS [NOT] NULL、a ISNULL、a NOTNULL
+            index = lastOf(((IsNullExpression) expression).getLeftExpression());
+            if (index < 0) {
+                return -1;
+            }
+            index++;
+            if (is(index, "ISNULL") || is(index, "NOTNULL")) {
+                return index;
+            }
+            if (!is(index++, "IS")) {
+                return -1;
+            }
+            if (is(index, "NOT")) {
+                index++;
+            }
+            return is(index, "NULL") ? index : -1;
+        }
+        return -1;
+    }
+
+    /**
+     * 在 [from, to] 范围内与 from 同一括号层级中，最后一次出现的关键字下标
+     *
+     * @param next 关键字之后必须紧跟的词法单元，可以为 null
+     */
+    int lastKeyword(int from, int to, String keyword, String next) {
+        int level = depth[from];
+        for (int i = to; i >= from; i--) {
+            if (depth[i] == level && is(i, keyword) && (next == null || is(i + 1, next))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 从 from 开始向后，在与 from 同一括号层级中第一次出现任意一个关键字的下标；
+     * 先遇到外层的右括号时返回右括号的下标，都没有时返回 {@link #size()}
+     */
+    int nextKeyword(int from, String... keywords) {
+        int level = depth[from];
+        for (int i = from; i < images.length; i++) {
+            if (depth[i] < level) {
+                return i;
+            }
+            if (depth[i] == level) {
+                for (String keyword : keywords) {
+                    if (is(i, keyword)) {
+                        return i;
+                    }
+                }
+            }
+        }
+        return images.length;
+    }
+
+    private static int offset(int[] lineStarts, int line, int column) {
+        return lineStarts[line - 1] + column - 1;
+    }
+
+    /**
+     * 每一行在 SQL 中的起始偏移量，与解析器一致：\n、\r、\r\n 都算一次换行
+     */
+    private static int[] lineStarts(String sql) {
+        int[] starts = new int[8];
+        int count = 1;
+        int length = sql.length();
+        for (int i = 0; i < length; i++) {
+            char c = sql.charAt(i);
+            if (c == '\n' || (c == '\r' && (i + 1 >= length || sql.charAt(i + 1) != '\n'))) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i + 1;
+            }
+        }
+        return Arrays.copyOf(starts, count);
+    }
+}
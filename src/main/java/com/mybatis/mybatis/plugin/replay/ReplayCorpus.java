@@ -0,0 +1,57 @@
+package com.mybatis.mybatis.plugin.replay;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @program: mybatis plugin
+ * @description: 读取回放语料，支持两种格式：MyBatis debug 日志中的 "==>  Preparing: " 行，
+ * 日志名（Mapper 类名 + 方法名）作为 statement id；以及 "statement id + 制表符 + SQL" 的文本。
+ * 其他行忽略，相同的 statement id 与 SQL 只保留第一次出现的一条
+ */
+public final class ReplayCorpus {
+
+    /**
+     * 日志名之后是 " - " 或者 " : " 分隔符，Spring Boot 默认格式中的日志名可能是缩写
+     */
+    private static final Pattern PREPARING = Pattern.compile("([\\w$.]+)\\s+[-:]\\s+==>\\s+Preparing:\\s*(.*)$");
+
+    private ReplayCorpus() {
+    }
+
+    public static List<ReplayStatement> read(BufferedReader reader) throws IOException {
+        Set<ReplayStatement> statements = new LinkedHashSet<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            ReplayStatement statement = parse(line);
+            if (statement != null) {
+                statements.add(statement);
+            }
+        }
+        return new ArrayList<>(statements);
+    }
+
+    /**
+     * @return 不是 SQL 的行返回 null
+     */
+    static ReplayStatement parse(String line) {
+        if (line.contains("Preparing:")) {
+            Matcher matcher = PREPARING.matcher(line);
+            if (!matcher.find() || matcher.group(2).trim().isEmpty()) {
+                return null;
+            }
+            return new ReplayStatement(matcher.group(1), matcher.group(2).trim());
+        }
+        int tab = line.indexOf('\t');
+        if (tab <= 0 || line.substring(tab + 1).trim().isEmpty()) {
+            return null;
+        }
+        return new ReplayStatement(line.substring(0, tab).trim(), line.substring(tab + 1).trim());
+    }
+}
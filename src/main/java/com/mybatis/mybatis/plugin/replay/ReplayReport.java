@@ -0,0 +1,118 @@
+package com.mybatis.mybatis.plugin.replay;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * @program: mybatis plugin
+ * @description: 回放结果的输出和对比。改写结果按 statement id、SQL 排序后逐行输出，每行为
+ * "statement id、状态、原始 SQL、改写后的 SQL" 四列，以制表符分隔，不包含耗时，同样的输入总是得到同样的文本；
+ * 两个版本或者两份配置的输出逐条对比，只列出改写结果不同的 SQL
+ */
+public final class ReplayReport {
+
+    private static final Comparator<ReplayStatement> ORDER = Comparator
+            .comparing(ReplayStatement::getStatementId, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(ReplayStatement::getSql);
+
+    private ReplayReport() {
+    }
+
+    /**
+     * 输出改写结果，用于之后与其他版本对比
+     */
+    public static void writeOutput(List<ReplayResult> results, PrintWriter writer) {
+        List<ReplayResult> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparing(ReplayResult::getStatement, ORDER));
+        for (ReplayResult result : sorted) {
+            String rewritten = result.getError() != null ? result.getError() : result.getRewrittenSql();
+            writer.println(escape(result.getStatement().getStatementId()) + '\t' + result.getStatus() + '\t'
+                    + escape(result.getStatement().getSql()) + '\t' + escape(rewritten));
+        }
+        writer.flush();
+    }
+
+    /**
+     * 输出汇总和每条 SQL 的耗时、分配量，按耗时从高到低排列
+     */
+    public static void writeSummary(List<ReplayResult> results, PrintWriter writer) {
+        Map<ReplayResult.Status, Integer> counts = new EnumMap<>(ReplayResult.Status.class);
+        for (ReplayResult.Status status : ReplayResult.Status.values()) {
+            counts.put(status, 0);
+        }
+        double totalNanos = 0;
+        for (ReplayResult result : results) {
+            counts.merge(result.getStatus(), 1, Integer::sum);
+            totalNanos += result.getNanosPerCall();
+        }
+        writer.println(String.format("statements=%d %s avg=%.1fus", results.size(), counts,
+                results.isEmpty() ? 0 : totalNanos / results.size() / 1000));
+        List<ReplayResult> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingDouble(ReplayResult::getNanosPerCall).reversed()
+                .thenComparing(ReplayResult::getStatement, ORDER));
+        writer.println(String.format("%12s %12s %-12s %s", "us/call", "bytes/call", "status", "statement"));
+        for (ReplayResult result : sorted) {
+            String detail = result.getError() != null ? result.getError() : result.getParseError();
+            writer.println(String.format("%12.1f %12d %-12s %s%s", result.getNanosPerCall() / 1000,
+                    result.getBytesPerCall(), result.getStatus(), result.getStatement().getStatementId(),
+                    detail == null ? "" : " (" + detail + ")"));
+        }
+        writer.flush();
+    }
+
+    /**
+     * 对比两份改写结果输出
+     *
+     * @return 每条不同的 SQL 输出三行："@ statement id 原始 SQL"、"- 旧的状态和改写结果"、"+ 新的状态和改写结果"，
+     * 只在一份输出中出现的 SQL 另一行为空
+     */
+    public static List<String> diff(BufferedReader oldOutput, BufferedReader newOutput) throws IOException {
+        Map<String, String> before = read(oldOutput);
+        Map<String, String> after = read(newOutput);
+        TreeSet<String> keys = new TreeSet<>(before.keySet());
+        keys.addAll(after.keySet());
+        List<String> lines = new ArrayList<>();
+        for (String key : keys) {
+            String oldValue = before.get(key);
+            String newValue = after.get(key);
+            if (Objects.equals(oldValue, newValue)) {
+                continue;
+            }
+            lines.add("@ " + key);
+            lines.add("- " + (oldValue == null ? "" : oldValue));
+            lines.add("+ " + (newValue == null ? "" : newValue));
+        }
+        return lines;
+    }
+
+    /**
+     * @return "statement id + 制表符 + 原始 SQL" -> "状态 + 制表符 + 改写结果"
+     */
+    private static Map<String, String> read(BufferedReader reader) throws IOException {
+        Map<String, String> output = new TreeMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] columns = line.split("\t", 4);
+            if (columns.length == 4) {
+                output.put(columns[0] + '\t' + columns[2], columns[1] + '\t' + columns[3]);
+            }
+        }
+        return output;
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\r", "\\r").replace("\n", "\\n");
+    }
+}
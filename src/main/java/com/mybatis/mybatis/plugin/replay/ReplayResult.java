@@ -0,0 +1,89 @@
+package com.mybatis.mybatis.plugin.replay;
+
+/**
+ * @program: mybatis plugin
+ * @description: 一条 SQL 的回放结果：改写后的 SQL、每次改写的平均耗时和分配量、解析失败原因以及改写时抛出的异常
+ */
+public final class ReplayResult {
+
+    public enum Status {
+        /**
+         * 改写后的 SQL 与原始 SQL 不同
+         */
+        rewritten,
+        /**
+         * 不需要改写，包括已经带有规则字段、忽略租户以及没有插件生效的 SQL
+         */
+        unchanged,
+        /**
+         * SQL 无法解析，按解析失败策略处理，包括 block 策略抛出的异常
+         */
+        parse_failed,
+        /**
+         * 改写时抛出异常，例如字段值获取失败后的 stop 策略
+         */
+        error
+    }
+
+    private final ReplayStatement statement;
+
+    private final String rewrittenSql;
+
+    private final double nanosPerCall;
+
+    /**
+     * 每次改写分配的字节数，JVM 不支持按线程统计分配量时为 -1
+     */
+    private final long bytesPerCall;
+
+    private final String parseError;
+
+    private final String error;
+
+    ReplayResult(ReplayStatement statement, String rewrittenSql, double nanosPerCall, long bytesPerCall,
+                 String parseError, String error) {
+        this.statement = statement;
+        this.rewrittenSql = rewrittenSql;
+        this.nanosPerCall = nanosPerCall;
+        this.bytesPerCall = bytesPerCall;
+        this.parseError = parseError;
+        this.error = error;
+    }
+
+    public Status getStatus() {
+        if (parseError != null) {
+            return Status.parse_failed;
+        }
+        if (error != null) {
+            return Status.error;
+        }
+        return rewrittenSql.equals(statement.getSql()) ? Status.unchanged : Status.rewritten;
+    }
+
+    public ReplayStatement getStatement() {
+        return statement;
+    }
+
+    /**
+     * 改写后的 SQL，改写时抛出异常时为 null
+     */
+    public String getRewrittenSql() {
+        return rewrittenSql;
+    }
+
+    public double getNanosPerCall() {
+        return nanosPerCall;
+    }
+
+    public long getBytesPerCall() {
+        return bytesPerCall;
+    }
+
+    public String getParseError() {
+        return parseError;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
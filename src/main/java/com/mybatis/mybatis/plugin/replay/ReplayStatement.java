@@ -0,0 +1,49 @@
+package com.mybatis.mybatis.plugin.replay;
+
+import java.util.Objects;
+
+/**
+ * @program: mybatis plugin
+ * @description: 回放语料中的一条 SQL，statement id 与 SQL 相同的记录只回放一次
+ */
+public final class ReplayStatement {
+
+    private final String statementId;
+
+    private final String sql;
+
+    public ReplayStatement(String statementId, String sql) {
+        this.statementId = statementId;
+        this.sql = sql;
+    }
+
+    public String getStatementId() {
+        return statementId;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ReplayStatement)) {
+            return false;
+        }
+        ReplayStatement that = (ReplayStatement) o;
+        return Objects.equals(statementId, that.statementId) && sql.equals(that.sql);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(statementId, sql);
+    }
+
+    @Override
+    public String toString() {
+        return statementId + " " + sql;
+    }
+}
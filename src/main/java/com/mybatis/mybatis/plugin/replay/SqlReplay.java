@@ -0,0 +1,149 @@
+package com.mybatis.mybatis.plugin.replay;
+
+import com.mybatis.mybatis.plugin.RuleFieldThreadLocal;
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @program: mybatis plugin
+ * @description: SQL 回放命令行工具，在升级插件版本或者修改配置前，用线上导出的 SQL 验证改写结果和改写开销：
+ * <pre>
+ * replay  &lt;语料&gt; &lt;配置&gt; [--var key=value]... [--iterations n] [--output 文件]
+ * compare &lt;语料&gt; &lt;配置A&gt; &lt;配置B&gt; [--var key=value]...
+ * diff    &lt;输出A&gt; &lt;输出B&gt;
+ * </pre>
+ * 配置是应用的 yaml 文件，读取其中 guarder 前缀的配置；--var 设置 threadLocal 策略使用的字段值。
+ * 对比两个插件版本时分别用两个版本的 classpath 执行 replay --output，再 diff 两份输出
+ */
+public final class SqlReplay {
+
+    private static final int DEFAULT_ITERATIONS = 100;
+
+    private SqlReplay() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), true);
+        System.exit(run(args, out));
+    }
+
+    /**
+     * @return 进程退出码：0 成功，1 diff 或 compare 存在不同，2 参数错误
+     */
+    static int run(String[] args, PrintWriter out) throws IOException {
+        List<String> positional = new ArrayList<>();
+        int iterations = DEFAULT_ITERATIONS;
+        File output = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (("--var".equals(arg) || "--iterations".equals(arg) || "--output".equals(arg)) && i + 1 >= args.length) {
+                return usage(out);
+            }
+            if ("--var".equals(arg)) {
+                String variable = args[++i];
+                int equals = variable.indexOf('=');
+                if (equals <= 0) {
+                    return usage(out);
+                }
+                RuleFieldThreadLocal.setVariable(variable.substring(0, equals), variable.substring(equals + 1));
+            } else if ("--iterations".equals(arg)) {
+                try {
+                    iterations = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    return usage(out);
+                }
+                if (iterations <= 0) {
+                    return usage(out);
+                }
+            } else if ("--output".equals(arg)) {
+                output = new File(args[++i]);
+            } else {
+                positional.add(arg);
+            }
+        }
+        String command = positional.isEmpty() ? "" : positional.get(0);
+        if ("replay".equals(command) && positional.size() == 3) {
+            List<ReplayResult> results = new SqlReplayer(loadConfig(new File(positional.get(2))))
+                    .replay(readCorpus(new File(positional.get(1))), iterations);
+            ReplayReport.writeSummary(results, out);
+            if (output != null) {
+                try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output.toPath(),
+                        StandardCharsets.UTF_8))) {
+                    ReplayReport.writeOutput(results, writer);
+                }
+            }
+            return 0;
+        }
+        if ("compare".equals(command) && positional.size() == 4) {
+            List<ReplayStatement> corpus = readCorpus(new File(positional.get(1)));
+            String before = output(new SqlReplayer(loadConfig(new File(positional.get(2)))).replay(corpus, 0));
+            String after = output(new SqlReplayer(loadConfig(new File(positional.get(3)))).replay(corpus, 0));
+            return printDiff(ReplayReport.diff(new BufferedReader(new StringReader(before)),
+                    new BufferedReader(new StringReader(after))), out);
+        }
+        if ("diff".equals(command) && positional.size() == 3) {
+            try (BufferedReader before = Files.newBufferedReader(new File(positional.get(1)).toPath(),
+                    StandardCharsets.UTF_8);
+                 BufferedReader after = Files.newBufferedReader(new File(positional.get(2)).toPath(),
+                         StandardCharsets.UTF_8)) {
+                return printDiff(ReplayReport.diff(before, after), out);
+            }
+        }
+        return usage(out);
+    }
+
+    /**
+     * 读取 yaml 文件中 guarder 前缀的配置，与应用启动时的绑定规则相同
+     */
+    public static MybatisPluginsConfig loadConfig(File file) throws IOException {
+        List<PropertySource<?>> sources = new YamlPropertySourceLoader().load(file.getName(),
+                new FileSystemResource(file));
+        return new Binder(ConfigurationPropertySources.from(sources))
+                .bind("guarder", MybatisPluginsConfig.class)
+                .orElseGet(MybatisPluginsConfig::new);
+    }
+
+    private static List<ReplayStatement> readCorpus(File file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return ReplayCorpus.read(reader);
+        }
+    }
+
+    private static String output(List<ReplayResult> results) {
+        StringWriter writer = new StringWriter();
+        ReplayReport.writeOutput(results, new PrintWriter(writer));
+        return writer.toString();
+    }
+
+    private static int printDiff(List<String> lines, PrintWriter out) {
+        lines.forEach(out::println);
+        out.println((lines.size() / 3) + " statements differ");
+        out.flush();
+        return lines.isEmpty() ? 0 : 1;
+    }
+
+    private static int usage(PrintWriter out) {
+        out.println("usage:");
+        out.println("  replay  <corpus> <config.yaml> [--var key=value]... [--iterations n] [--output file]");
+        out.println("  compare <corpus> <a.yaml> <b.yaml> [--var key=value]...");
+        out.println("  diff    <output a> <output b>");
+        out.flush();
+        return 2;
+    }
+}
@@ -0,0 +1,141 @@
+package com.mybatis.mybatis.plugin.replay;
+
+import com.mybatis.mybatis.plugin.aware.MybatisInterceptorAware;
+import com.mybatis.mybatis.plugin.cache.ParseFailureCache;
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.process.PluginRuleProcessImpl;
+import com.mybatis.mybatis.plugin.process.PluginsProcessImpl;
+import com.mybatis.mybatis.plugin.process.RuleProcessImpl;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldPolicyProcessImpl;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldValueFailPolicyProcess;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldValuePolicyProcessImpl;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.SimpleExecutor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * @program: mybatis plugin
+ * @description: 离线回放 SQL：按配置创建 PluginsProcessImpl 和 MybatisInterceptorAware，每条 SQL 包装成
+ * MappedStatement 后经过与运行时相同的拦截流程，不连接数据库。第一次执行得到改写结果，之后重复执行
+ * iterations 次统计平均耗时和分配量（改写缓存按配置生效，与线上重复执行同一条 SQL 的情况相同）
+ */
+public class SqlReplayer {
+
+    private final PluginsProcessImpl pluginsProcess;
+
+    private final MybatisInterceptorAware interceptorAware;
+
+    private final Configuration configuration = new Configuration();
+
+    private final Executor executor = new SimpleExecutor(configuration, null);
+
+    private final Method update;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    public SqlReplayer(MybatisPluginsConfig config) {
+        this.pluginsProcess = new PluginsProcessImpl(config, new RuleProcessImpl(new RuleFieldPolicyProcessImpl(),
+                new RuleFieldValuePolicyProcessImpl(), new RuleFieldValueFailPolicyProcess(),
+                new PluginRuleProcessImpl()));
+        this.interceptorAware = new MybatisInterceptorAware(pluginsProcess, config.getMappedStatementCache());
+        try {
+            this.update = Executor.class.getMethod("update", MappedStatement.class, Object.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param iterations 统计耗时和分配量的执行次数，0 表示只执行一次得到改写结果
+     */
+    public List<ReplayResult> replay(List<ReplayStatement> statements, int iterations) {
+        List<ReplayResult> results = new ArrayList<>(statements.size());
+        for (ReplayStatement statement : statements) {
+            results.add(replay(statement, iterations));
+        }
+        return results;
+    }
+
+    public ReplayResult replay(ReplayStatement statement, int iterations) {
+        MappedStatement mappedStatement = new MappedStatement.Builder(configuration, statement.getStatementId(),
+                new StaticSqlSource(configuration, statement.getSql()), commandType(statement.getSql())).build();
+        String rewrittenSql;
+        try {
+            rewrittenSql = execute(mappedStatement);
+        } catch (RuntimeException e) {
+            return new ReplayResult(statement, null, 0, 0, parseError(statement), String.valueOf(e));
+        }
+        double nanos = 0;
+        long bytes = 0;
+        if (iterations > 0) {
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                execute(mappedStatement);
+            }
+            nanos = (System.nanoTime() - start) / (double) iterations;
+            bytes = allocated < 0 ? -1 : (allocatedBytes() - allocated) / iterations;
+        }
+        return new ReplayResult(statement, rewrittenSql, nanos, bytes, parseError(statement), null);
+    }
+
+    public PluginsProcessImpl getPluginsProcess() {
+        return pluginsProcess;
+    }
+
+    /**
+     * 与执行器调用拦截器时相同，改写后替换 MappedStatement，从中取出执行的 SQL
+     */
+    private String execute(MappedStatement mappedStatement) {
+        Object[] args = new Object[]{mappedStatement, null};
+        interceptorAware.mybatisBeforeExecutor(new Invocation(executor, update, args));
+        return ((MappedStatement) args[0]).getBoundSql(null).getSql();
+    }
+
+    private String parseError(ReplayStatement statement) {
+        ParseFailureCache.ParseFailure failure = pluginsProcess.getParseFailures().failure(statement.getSql());
+        return failure == null ? null : failure.getMessage();
+    }
+
+    private long allocatedBytes() {
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    static SqlCommandType commandType(String sql) {
+        String trimmed = sql.trim();
+        int end = 0;
+        while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) {
+            end++;
+        }
+        String keyword = trimmed.substring(0, end).toUpperCase(Locale.ROOT);
+        switch (keyword) {
+            case "SELECT":
+            case "WITH":
+                return SqlCommandType.SELECT;
+            case "INSERT":
+            case "REPLACE":
+                return SqlCommandType.INSERT;
+            case "UPDATE":
+                return SqlCommandType.UPDATE;
+            case "DELETE":
+                return SqlCommandType.DELETE;
+            default:
+                return SqlCommandType.UNKNOWN;
+        }
+    }
+}
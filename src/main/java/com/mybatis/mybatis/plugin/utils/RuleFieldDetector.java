@@ -0,0 +1,290 @@
+package com.mybatis.mybatis.plugin.utils;
+
+import com.mybatis.mybatis.plugin.process.SimpleStatement;
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.Function;
+import net.sf.jsqlparser.expression.operators.relational.Between;
+import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
+import net.sf.jsqlparser.expression.operators.relational.InExpression;
+import net.sf.jsqlparser.expression.operators.relational.ItemsList;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.insert.Insert;
+import net.sf.jsqlparser.statement.select.FromItem;
+import net.sf.jsqlparser.statement.select.Join;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.SelectBody;
+import net.sf.jsqlparser.statement.select.SetOperationList;
+import net.sf.jsqlparser.statement.select.SubSelect;
+import org.apache.ibatis.mapping.SqlCommandType;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * @program: mybatis plugin
+ * @description: 规则字段检测，一次遍历语法树判断 where、on 条件或 insert 字段中是否已经包含规则字段。
+ * 遍历的节点与 SqlParserUtil 保持一致，但是不再在每一层把子树转成字符串，也不分配新的字符串
+ */
+public final class RuleFieldDetector {
+
+    private static final String TENANT_ID = "tenant_id";
+
+    /**
+     * 没有配置规则字段时使用 tenant_id，与 SqlParserUtil 行为一致
+     */
+    public static final RuleFieldDetector DEFAULT = new RuleFieldDetector(Collections.singleton(TENANT_ID));
+
+    private final String[] fields;
+
+    private RuleFieldDetector(Collection<String> fields) {
+        this.fields = fields.toArray(new String[0]);
+    }
+
+    /**
+     * @param fields 规则字段名，忽略大小写
+     * @return 字段为空时返回 DEFAULT
+     */
+    public static RuleFieldDetector of(Collection<String> fields) {
+        Set<String> names = new LinkedHashSet<>();
+        if (fields != null) {
+            for (String field : fields) {
+                if (field != null && !field.trim().isEmpty()) {
+                    names.add(field.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return names.isEmpty() ? DEFAULT : new RuleFieldDetector(names);
+    }
+
+    public String[] getFields() {
+        return fields.clone();
+    }
+
+    /**
+     * SQL 文本中是否可能包含规则字段，不包含时不需要解析 SQL
+     */
+    public boolean mayContain(String sql) {
+        if (sql == null) {
+            return false;
+        }
+        for (String field : fields) {
+            if (containsIgnoreCase(sql, field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 查询语句的 where、on 条件以及子查询中是否包含规则字段
+     */
+    public boolean whereHasField(Statement statement) {
+        if (statement instanceof Select) {
+            return selectBody(((Select) statement).getSelectBody());
+        }
+        return false;
+    }
+
+    /**
+     * insert 语句的字段中是否包含规则字段
+     */
+    public boolean insertHasField(Statement statement) {
+        if (!(statement instanceof Insert)) {
+            return false;
+        }
+        List<Column> columns = ((Insert) statement).getColumns();
+        if (columns != null && !columns.isEmpty()) {
+            return insertColumns(columns);
+        }
+        columns = ((Insert) statement).getSetColumns();
+        if (columns != null && !columns.isEmpty()) {
+            return insertColumns(columns);
+        }
+        return false;
+    }
+
+    /**
+     * 快速识别的单表语句中是否包含规则字段，结果与 whereHasField、insertHasField 一致
+     */
+    public boolean hasField(SimpleStatement statement) {
+        if (SqlCommandType.SELECT.equals(statement.getCommandType())) {
+            for (String column : statement.getWhereColumns()) {
+                if (isField(column)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (SqlCommandType.INSERT.equals(statement.getCommandType())) {
+            for (String column : statement.getInsertColumns()) {
+                if (insertColumn(column)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean selectBody(SelectBody selectBody) {
+        if (selectBody instanceof PlainSelect) {
+            PlainSelect plainSelect = (PlainSelect) selectBody;
+            if (expression(plainSelect.getWhere())) {
+                return true;
+            }
+            List<Join> joins = plainSelect.getJoins();
+            if (joins != null) {
+                for (Join join : joins) {
+                    if (join(join)) {
+                        return true;
+                    }
+                }
+            }
+            // 子查询情况
+            return fromItem(plainSelect.getFromItem());
+        }
+        // union all 情况
+        if (selectBody instanceof SetOperationList) {
+            List<SelectBody> selects = ((SetOperationList) selectBody).getSelects();
+            if (selects != null) {
+                for (SelectBody select : selects) {
+                    if (selectBody(select)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean fromItem(FromItem fromItem) {
+        if (fromItem instanceof SubSelect) {
+            return selectBody(((SubSelect) fromItem).getSelectBody());
+        }
+        return false;
+    }
+
+    private boolean join(Join join) {
+        Collection<Expression> onExpressions = join.getOnExpressions();
+        if (onExpressions == null) {
+            return false;
+        }
+        for (Expression onExpression : onExpressions) {
+            if (expression(onExpression)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean expression(Expression expression) {
+        if (expression == null) {
+            return false;
+        }
+        // and or = 等二元条件表达式
+        if (expression instanceof BinaryExpression) {
+            BinaryExpression binaryExpression = (BinaryExpression) expression;
+            return expression(binaryExpression.getLeftExpression())
+                    || expression(binaryExpression.getRightExpression());
+        }
+        // in 条件表达式
+        if (expression instanceof InExpression) {
+            InExpression inExpression = (InExpression) expression;
+            return expression(inExpression.getLeftExpression()) || itemsList(inExpression.getRightItemsList());
+        }
+        if (expression instanceof Function) {
+            return itemsList(((Function) expression).getParameters());
+        }
+        if (expression instanceof Between) {
+            Between between = (Between) expression;
+            return expression(between.getLeftExpression())
+                    || expression(between.getBetweenExpressionStart())
+                    || expression(between.getBetweenExpressionEnd());
+        }
+        // 表达式是子查询的情况
+        if (expression instanceof SubSelect) {
+            return selectBody(((SubSelect) expression).getSelectBody());
+        }
+        // 字段表达式
+        if (expression instanceof Column) {
+            return isField(((Column) expression).getColumnName());
+        }
+        return false;
+    }
+
+    private boolean itemsList(ItemsList itemsList) {
+        if (itemsList instanceof SubSelect) {
+            return selectBody(((SubSelect) itemsList).getSelectBody());
+        }
+        if (itemsList instanceof ExpressionList) {
+            List<Expression> expressions = ((ExpressionList) itemsList).getExpressions();
+            if (expressions != null) {
+                for (Expression expression : expressions) {
+                    if (expression(expression)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean insertColumns(List<Column> columns) {
+        for (Column column : columns) {
+            if (insertColumn(column.getColumnName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean insertColumn(String name) {
+        // 防止字段名中加入"或`符号
+        int start = 0;
+        int end = name.length();
+        while (start < end && isQuote(name.charAt(start))) {
+            start++;
+        }
+        while (end > start && isQuote(name.charAt(end - 1))) {
+            end--;
+        }
+        return isField(name, start, end);
+    }
+
+    private boolean isField(String name) {
+        return name != null && isField(name, 0, name.length());
+    }
+
+    private boolean isField(String name, int start, int end) {
+        int length = end - start;
+        for (String field : fields) {
+            if (field.length() == length && name.regionMatches(true, start, field, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isQuote(char c) {
+        return c == '"' || c == '`';
+    }
+
+    private static boolean containsIgnoreCase(String text, String lowerCaseWord) {
+        int length = lowerCaseWord.length();
+        char first = lowerCaseWord.charAt(0);
+        char firstUpper = Character.toUpperCase(first);
+        for (int i = 0, max = text.length() - length; i <= max; i++) {
+            char c = text.charAt(i);
+            if ((c == first || c == firstUpper) && text.regionMatches(true, i, lowerCaseWord, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
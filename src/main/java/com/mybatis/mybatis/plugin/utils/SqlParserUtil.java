@@ -1,5 +1,7 @@
 package com.mybatis.mybatis.plugin.utils;
 
+import com.mybatis.mybatis.plugin.process.SimpleStatement;
+import com.mybatis.mybatis.plugin.process.SqlStatementContext;
 import net.sf.jsqlparser.JSQLParserException;
 import net.sf.jsqlparser.expression.BinaryExpression;
 import net.sf.jsqlparser.expression.Expression;
@@ -12,6 +14,8 @@ import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.insert.Insert;
 import net.sf.jsqlparser.statement.select.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
 import java.util.List;
@@ -23,6 +27,8 @@ import java.util.List;
  */
 public class SqlParserUtil {
 
+    private final static Logger logger = LoggerFactory.getLogger(SqlParserUtil.class);
+
     private final static String TENANT_ID = "tenant_id";
 
     /**
@@ -40,11 +46,47 @@ public class SqlParserUtil {
         try {
             statement = CCJSqlParserUtil.parse(sql);
         } catch (JSQLParserException e) {
+            // 无法解析时按不包含处理
+            logger.debug("sql can not be parsed, treat as no tenant_id in where: {}", e.getLocalizedMessage());
             return false;
         }
         return whereHasTenantId(statement);
     }
 
+    /**
+     * @description: 使用本次执行共享的语法树判断 where 条件中是否包含 tenant_id，SQL 中没有 tenant_id 时不解析
+     * @param context 本次执行的 SQL 上下文
+     * @return boolean
+     */
+    public static boolean whereHasTenantId(SqlStatementContext context) {
+        if(!RuleFieldDetector.DEFAULT.mayContain(context.getSql())) {
+            return false;
+        }
+        return RuleFieldDetector.DEFAULT.whereHasField(context.getStatement());
+    }
+
+    /**
+     * @description: 使用本次执行共享的语法树判断 where 条件或 insert 字段中是否已经包含规则字段，SQL 中没有规则字段时不解析
+     * @param context  本次执行的 SQL 上下文
+     * @param detector 规则字段检测，为空时检测 tenant_id
+     * @return boolean
+     */
+    public static boolean hasRuleField(SqlStatementContext context, RuleFieldDetector detector) {
+        if(detector == null) {
+            detector = RuleFieldDetector.DEFAULT;
+        }
+        if(!detector.mayContain(context.getSql())) {
+            return false;
+        }
+        // 快速识别的单表语句不需要解析
+        SimpleStatement simpleStatement = context.getSimpleStatement();
+        if (simpleStatement != null) {
+            return detector.hasField(simpleStatement);
+        }
+        Statement statement = context.getStatement();
+        return detector.whereHasField(statement) || detector.insertHasField(statement);
+    }
+
     /**
      * @description: 解析 Statement 对象
      * @author shizhiqiang
@@ -247,11 +289,24 @@ public class SqlParserUtil {
         try {
             statement = CCJSqlParserUtil.parse(sql);
         } catch (JSQLParserException e) {
+            logger.debug("sql can not be parsed, treat as no tenant_id in insert: {}", e.getLocalizedMessage());
             return false;
         }
         return insertHasTenantId(statement);
     }
 
+    /**
+     * @description: 使用本次执行共享的语法树判断insert语句中是否包含了tenant_id字段，SQL 中没有 tenant_id 时不解析
+     * @param context 本次执行的 SQL 上下文
+     * @return boolean
+     */
+    public static boolean insertHasTenantId(SqlStatementContext context) {
+        if(!RuleFieldDetector.DEFAULT.mayContain(context.getSql())) {
+            return false;
+        }
+        return RuleFieldDetector.DEFAULT.insertHasField(context.getStatement());
+    }
+
     /**
      * @description: 判断insert语句中是否包含了tenant_id字段
      * @author shizhiqiang
@@ -0,0 +1,164 @@
+package com.mybatis.mybatis.plugin.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @program: mybatis plugin
+ * @description: 多模式子串匹配（Aho-Corasick），忽略大小写，一次扫描判断文本是否包含任意一个模式；
+ * 构建完成后只读，可以多线程共享，匹配时不分配对象
+ */
+public final class SubstringAutomaton {
+
+    /**
+     * 每个状态的转移字符，升序
+     */
+    private final char[][] keys;
+
+    /**
+     * 与 keys 一一对应的目标状态
+     */
+    private final int[][] targets;
+
+    private final int[] fail;
+
+    /**
+     * 到达该状态时是否已经匹配到某个模式（包括经过失败指针可达的模式）
+     */
+    private final boolean[] output;
+
+    /**
+     * 包含空模式时任意文本都匹配
+     */
+    private final boolean matchAll;
+
+    private final int patternCount;
+
+    private SubstringAutomaton(List<TreeMap<Character, Integer>> trie, boolean[] terminal, boolean matchAll,
+                               int patternCount) {
+        int size = trie.size();
+        this.keys = new char[size][];
+        this.targets = new int[size][];
+        this.fail = new int[size];
+        this.output = Arrays.copyOf(terminal, size);
+        this.matchAll = matchAll;
+        this.patternCount = patternCount;
+        for (int state = 0; state < size; state++) {
+            TreeMap<Character, Integer> edges = trie.get(state);
+            keys[state] = new char[edges.size()];
+            targets[state] = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                keys[state][i] = edge.getKey();
+                targets[state][i] = edge.getValue();
+                i++;
+            }
+        }
+        // 按层构建失败指针
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            fail[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < keys[state].length; i++) {
+                char c = keys[state][i];
+                int child = targets[state][i];
+                int f = fail[state];
+                int next = transition(f, c);
+                while (next < 0 && f != 0) {
+                    f = fail[f];
+                    next = transition(f, c);
+                }
+                fail[child] = next < 0 || next == child ? 0 : next;
+                output[child] |= output[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * @param patterns 子串模式，null 会被忽略
+     * @return 自动机
+     */
+    public static SubstringAutomaton of(Collection<String> patterns) {
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        List<Boolean> terminal = new ArrayList<>();
+        terminal.add(false);
+        boolean matchAll = false;
+        int count = 0;
+        for (String pattern : patterns) {
+            if (pattern == null) {
+                continue;
+            }
+            count++;
+            String lower = pattern.toLowerCase(Locale.ROOT);
+            if (lower.isEmpty()) {
+                matchAll = true;
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < lower.length(); i++) {
+                char c = lower.charAt(i);
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    terminal.add(false);
+                    trie.get(state).put(c, next);
+                }
+                state = next;
+            }
+            terminal.set(state, true);
+        }
+        boolean[] terminals = new boolean[terminal.size()];
+        for (int i = 0; i < terminals.length; i++) {
+            terminals[i] = terminal.get(i);
+        }
+        return new SubstringAutomaton(trie, terminals, matchAll, count);
+    }
+
+    /**
+     * 文本中是否包含任意一个模式
+     */
+    public boolean matches(CharSequence text) {
+        if (matchAll) {
+            return true;
+        }
+        if (text == null || patternCount == 0) {
+            return false;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next = transition(state, c);
+            while (next < 0 && state != 0) {
+                state = fail[state];
+                next = transition(state, c);
+            }
+            state = next < 0 ? 0 : next;
+            if (output[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return patternCount == 0;
+    }
+
+    private int transition(int state, char c) {
+        int index = Arrays.binarySearch(keys[state], c);
+        return index < 0 ? -1 : targets[state][index];
+    }
+}
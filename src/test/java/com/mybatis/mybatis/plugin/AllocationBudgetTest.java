@@ -0,0 +1,227 @@
+package com.mybatis.mybatis.plugin;
+
+import com.mybatis.mybatis.plugin.aware.MybatisInterceptorAware;
+import com.mybatis.mybatis.plugin.config.MappedStatementCacheConfig;
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.config.PluginConfig;
+import com.mybatis.mybatis.plugin.config.PluginLevelType;
+import com.mybatis.mybatis.plugin.config.PluginRule;
+import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
+import com.mybatis.mybatis.plugin.config.RuleFieldPolicy;
+import com.mybatis.mybatis.plugin.config.RuleFieldPolicyType;
+import com.mybatis.mybatis.plugin.config.RuleFieldValueFailPolicyType;
+import com.mybatis.mybatis.plugin.config.RuleFieldValuePolicy;
+import com.mybatis.mybatis.plugin.config.RuleFieldValuePolicyType;
+import com.mybatis.mybatis.plugin.exception.RulePolicyNoSupportException;
+import com.mybatis.mybatis.plugin.process.PluginRuleProcessImpl;
+import com.mybatis.mybatis.plugin.process.PluginsProcessImpl;
+import com.mybatis.mybatis.plugin.process.RuleProcessImpl;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldPolicyProcessImpl;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldValueFailPolicyProcess;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldValuePolicyProcessImpl;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.SimpleExecutor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+/**
+ * 每条改写路径每次调用分配的字节数不能超过 allocation-budget.properties 中记录的预算；
+ * 允许的超出比例通过 -Dallocation.budget.margin 配置，默认 0.2。
+ * 修改后分配量确实需要变化时，使用 -Dallocation.budget.record=true 运行，把 target/allocation-budget.properties
+ * 中的结果复制到 src/test/resources
+ */
+@RunWith(SpringRunner.class)
+public class AllocationBudgetTest {
+
+    private static final String BUDGET = "allocation-budget.properties";
+
+    /**
+     * 平均值仍会有少量抖动，预算很小时按比例计算的余量不够
+     */
+    private static final long SLACK_BYTES = 64;
+
+    private static final Map<SqlCommandType, String> SQL = new LinkedHashMap<>();
+
+    static {
+        SQL.put(SqlCommandType.SELECT, "select id, name from user where id = ? and status = 1");
+        SQL.put(SqlCommandType.INSERT, "insert into user (id, name) values (?, ?)");
+        SQL.put(SqlCommandType.UPDATE, "update user set name = ? where id = ?");
+        SQL.put(SqlCommandType.DELETE, "delete from user where id = ?");
+    }
+
+    private final Logger root = (Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+
+    private Level rootLevel;
+
+    /**
+     * 测试类路径下没有 logback 配置，默认 DEBUG 级别的日志会计入分配量
+     */
+    @Before
+    public void setUp() {
+        rootLevel = root.getLevel();
+        root.setLevel(Level.INFO);
+    }
+
+    @After
+    public void tearDown() {
+        root.setLevel(rootLevel);
+        RuleFieldThreadLocal.remove();
+    }
+
+    @Test
+    public void allocationBudget() throws Exception {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+        Map<String, Long> measured = new LinkedHashMap<>();
+        for (PluginRuleValueType type : PluginRuleValueType.values()) {
+            for (Map.Entry<SqlCommandType, String> entry : SQL.entrySet()) {
+                String kind = entry.getKey().name().toLowerCase(Locale.ROOT);
+                String sql = entry.getValue();
+                // 缓存命中
+                PluginsProcessImpl cached = process(type, config -> config.getCache().setEnable(true));
+                try {
+                    cached.pluginsProcess("budget", sql);
+                } catch (RulePolicyNoSupportException e) {
+                    // delete_field 没有对应的规则处理器
+                    break;
+                }
+                measured.put("cached." + type + "." + kind, measure(() -> cached.pluginsProcess("budget", sql),
+                        10000, 5000));
+                // 每次解析、改写语法树
+                PluginsProcessImpl parsed = process(type, config -> config.getCache().setEnable(false));
+                measured.put("parsed." + type + "." + kind, measure(() -> parsed.pluginsProcess("budget", sql),
+                        300, 200));
+                // 拼接改写，简单语句由快速识别处理
+                PluginsProcessImpl fast = process(type, config -> {
+                    config.getCache().setEnable(false);
+                    config.setSplice(true);
+                    config.setFastPath(true);
+                });
+                measured.put("fast." + type + "." + kind, measure(() -> fast.pluginsProcess("budget", sql),
+                        1000, 500));
+            }
+        }
+        // 拦截器的完整流程，改写结果命中缓存、复用派生的 MappedStatement
+        MappedStatementCacheConfig mappedStatementCache = new MappedStatementCacheConfig();
+        mappedStatementCache.setEnable(true);
+        MybatisInterceptorAware aware = new MybatisInterceptorAware(process(PluginRuleValueType.add_where_field,
+                config -> config.getCache().setEnable(true)), mappedStatementCache);
+        Configuration configuration = new Configuration();
+        Executor executor = new SimpleExecutor(configuration, null);
+        Method update = Executor.class.getMethod("update", MappedStatement.class, Object.class);
+        for (Map.Entry<SqlCommandType, String> entry : SQL.entrySet()) {
+            MappedStatement statement = new MappedStatement.Builder(configuration, "budget." + entry.getKey(),
+                    new StaticSqlSource(configuration, entry.getValue()), entry.getKey()).build();
+            measured.put("interceptor." + entry.getKey().name().toLowerCase(Locale.ROOT), measure(() ->
+                    aware.mybatisBeforeExecutor(new Invocation(executor, update, new Object[]{statement, null})),
+                    10000, 5000));
+        }
+
+        if (Boolean.getBoolean("allocation.budget.record")) {
+            record(measured);
+            return;
+        }
+        Properties budget = new Properties();
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(BUDGET)) {
+            assert in != null : BUDGET + " not found";
+            budget.load(in);
+        }
+        double margin = Double.parseDouble(System.getProperty("allocation.budget.margin", "0.2"));
+        List<String> exceeded = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : measured.entrySet()) {
+            String value = budget.getProperty(entry.getKey());
+            assert value != null : "no allocation budget for " + entry.getKey() + ", record budgets first";
+            long limit = (long) (Long.parseLong(value) * (1 + margin)) + SLACK_BYTES;
+            if (entry.getValue() > limit) {
+                exceeded.add(entry.getKey() + " allocates " + entry.getValue() + " bytes per call, budget " + value);
+            }
+        }
+        assert exceeded.isEmpty() : String.join("\n", exceeded);
+    }
+
+    /**
+     * @return 预热后平均每次调用分配的字节数
+     */
+    private static long measure(Runnable call, int warmup, int iterations) {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < warmup; i++) {
+            call.run();
+        }
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            call.run();
+        }
+        return (threadMXBean.getThreadAllocatedBytes(threadId) - before) / iterations;
+    }
+
+    private static PluginsProcessImpl process(PluginRuleValueType type,
+                                              Consumer<MybatisPluginsConfig> customizer) {
+        MybatisPluginsConfig config = new MybatisPluginsConfig();
+        PluginConfig pluginConfig = new PluginConfig();
+        pluginConfig.setName("budget");
+        pluginConfig.setLevel(PluginLevelType.dml);
+        pluginConfig.setValue(Arrays.asList("select", "insert", "update", "delete"));
+        PluginRule rule = new PluginRule();
+        rule.setName(type.name());
+        rule.setValue(type);
+        RuleFieldPolicy fieldPolicy = new RuleFieldPolicy();
+        fieldPolicy.setName(RuleFieldPolicyType.conf);
+        fieldPolicy.setValue("tenant_id");
+        rule.setFieldPolicy(fieldPolicy);
+        RuleFieldValuePolicy valuePolicy = new RuleFieldValuePolicy();
+        valuePolicy.setName(RuleFieldValuePolicyType.threadLocal);
+        valuePolicy.setValue("tenant_id_value");
+        rule.setFieldValuePolicy(valuePolicy);
+        rule.setFieldValueFailPolicy(RuleFieldValueFailPolicyType.run);
+        pluginConfig.setRules(new ArrayList<>(Arrays.asList(rule)));
+        config.setPlugins(new ArrayList<>(Arrays.asList(pluginConfig)));
+        customizer.accept(config);
+        return new PluginsProcessImpl(config, new RuleProcessImpl(new RuleFieldPolicyProcessImpl(),
+                new RuleFieldValuePolicyProcessImpl(), new RuleFieldValueFailPolicyProcess(),
+                new PluginRuleProcessImpl()));
+    }
+
+    /**
+     * 预算取测量值向上取整到 16 字节
+     */
+    private static void record(Map<String, Long> measured) throws IOException {
+        File file = new File("target", BUDGET);
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+            writer.println("# 每次调用分配的字节数预算：路径.规则.语句类型，由 AllocationBudgetTest 记录");
+            for (Map.Entry<String, Long> entry : measured.entrySet()) {
+                writer.println(entry.getKey() + "=" + ((entry.getValue() + 15) / 16 * 16));
+            }
+        }
+    }
+}
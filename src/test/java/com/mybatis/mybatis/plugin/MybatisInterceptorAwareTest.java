@@ -2,23 +2,39 @@ package com.mybatis.mybatis.plugin;
 
 import com.mybatis.mybatis.plugin.aware.InterceptorAwareCollections;
 import com.mybatis.mybatis.plugin.aware.MybatisInterceptorAware;
+import com.mybatis.mybatis.plugin.config.MappedStatementCacheConfig;
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.config.PluginConfig;
+import com.mybatis.mybatis.plugin.config.PluginLevelType;
+import com.mybatis.mybatis.plugin.config.PluginRule;
 import com.mybatis.mybatis.plugin.process.PluginsProcess;
+import com.mybatis.mybatis.plugin.process.PluginsSnapshot;
+import com.mybatis.mybatis.plugin.process.SqlStatementContext;
+import net.sf.jsqlparser.statement.update.Update;
 import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.SimpleExecutor;
+import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.plugin.Invocation;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 @RunWith(SpringRunner.class)
 public class MybatisInterceptorAwareTest {
@@ -32,6 +48,8 @@ public class MybatisInterceptorAwareTest {
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
+        Mockito.when(pluginsProcess.newContext(Mockito.any(), Mockito.any())).thenAnswer(invocation ->
+                new SqlStatementContext(invocation.getArgument(0), invocation.getArgument(1)));
         mybatisInterceptorAware = new MybatisInterceptorAware(pluginsProcess);
     }
 
@@ -51,6 +69,105 @@ public class MybatisInterceptorAwareTest {
         mybatisInterceptorAware.mybatisBeforeExecutor(invocation);
     }
 
+    @Test
+    public void mybatisBeforeExecutorSharesStatement() throws NoSuchMethodException {
+        Object target = new SimpleExecutor(null, null);
+        Method update = Executor.class.getMethod("update", MappedStatement.class, Object.class);
+        Configuration configuration = new Configuration();
+        String sql = "update user set tenant_id = 1 where id = 1";
+        StaticSqlSource sqlSource = new StaticSqlSource(configuration, sql);
+        MappedStatement mappedStatement = new MappedStatement.Builder(configuration,
+                "com.demo.UserMapper.update", sqlSource, SqlCommandType.UPDATE).build();
+        Mockito.doReturn(sql).when(pluginsProcess).pluginsProcess(Mockito.any(SqlStatementContext.class));
+
+        Object[] args = new Object[]{mappedStatement, null};
+        mybatisInterceptorAware.mybatisBeforeExecutor(new Invocation(target, update, args));
+
+        // 检测时已经解析过，改写直接使用同一个语法树
+        ArgumentCaptor<SqlStatementContext> captor = ArgumentCaptor.forClass(SqlStatementContext.class);
+        Mockito.verify(pluginsProcess).pluginsProcess(captor.capture());
+        assert captor.getValue().isParsed();
+        assert captor.getValue().getStatement() instanceof Update;
+        assert captor.getValue().getStatementId().equals("com.demo.UserMapper.update");
+        assert captor.getValue().isBindable();
+
+        // 不是 PreparedStatement 时不能绑定参数
+        MappedStatement statementType = new MappedStatement.Builder(configuration,
+                "com.demo.UserMapper.updateStatement", sqlSource, SqlCommandType.UPDATE)
+                .statementType(StatementType.STATEMENT).build();
+        mybatisInterceptorAware.mybatisBeforeExecutor(new Invocation(target, update,
+                new Object[]{statementType, null}));
+        Mockito.verify(pluginsProcess, Mockito.times(2)).pluginsProcess(captor.capture());
+        assert !captor.getValue().isBindable();
+    }
+
+    @Test
+    public void mybatisBeforeExecutorQueryWithBoundSql() throws NoSuchMethodException {
+        Configuration configuration = new Configuration();
+        Executor target = new SimpleExecutor(configuration, null);
+        Method query = Executor.class.getMethod("query", MappedStatement.class, Object.class, RowBounds.class,
+                ResultHandler.class, CacheKey.class, BoundSql.class);
+        String sql = "select * from user where id = 1";
+        String newSql = "SELECT * FROM user WHERE id = 1 AND user.tenant_id = 't1'";
+        MappedStatement mappedStatement = new MappedStatement.Builder(configuration,
+                "com.demo.UserMapper.select", new StaticSqlSource(configuration, sql), SqlCommandType.SELECT).build();
+        Mockito.doReturn(newSql).when(pluginsProcess).pluginsProcess(Mockito.any(SqlStatementContext.class));
+        BoundSql boundSql = mappedStatement.getBoundSql(null);
+        CacheKey cacheKey = target.createCacheKey(mappedStatement, null, RowBounds.DEFAULT, boundSql);
+
+        Object[] args = new Object[]{mappedStatement, null, RowBounds.DEFAULT, null, cacheKey, boundSql};
+        mybatisInterceptorAware.mybatisBeforeExecutor(new Invocation(target, query, args));
+        MappedStatement newStatement = (MappedStatement) args[0];
+        assert newStatement != mappedStatement;
+        assert ((BoundSql) args[5]).getSql().equals(newSql);
+        // 一级缓存 key 使用改写后的 SQL
+        assert !args[4].equals(cacheKey);
+
+        // 默认不缓存，每次创建新的 MappedStatement
+        args = new Object[]{mappedStatement, null, RowBounds.DEFAULT, null, cacheKey, boundSql};
+        mybatisInterceptorAware.mybatisBeforeExecutor(new Invocation(target, query, args));
+        assert args[0] != newStatement;
+        assert mybatisInterceptorAware.getDerivedMappedStatements().size() == 0;
+
+        // 开启缓存后同一条改写结果复用同一个 MappedStatement
+        MappedStatementCacheConfig cacheConfig = new MappedStatementCacheConfig();
+        cacheConfig.setEnable(true);
+        MybatisInterceptorAware cached = new MybatisInterceptorAware(pluginsProcess, cacheConfig);
+        args = new Object[]{mappedStatement, null, RowBounds.DEFAULT, null, cacheKey, boundSql};
+        cached.mybatisBeforeExecutor(new Invocation(target, query, args));
+        newStatement = (MappedStatement) args[0];
+        args = new Object[]{mappedStatement, null, RowBounds.DEFAULT, null, cacheKey, boundSql};
+        cached.mybatisBeforeExecutor(new Invocation(target, query, args));
+        assert args[0] == newStatement;
+        assert cached.getDerivedMappedStatements().size() == 1;
+    }
+
+    @Test
+    public void mybatisBeforeExecutorGated() throws NoSuchMethodException {
+        Object target = new SimpleExecutor(null, null);
+        Method update = Executor.class.getMethod("update", MappedStatement.class, Object.class);
+        Configuration configuration = new Configuration();
+        MybatisPluginsConfig config = new MybatisPluginsConfig();
+        PluginConfig plugin = new PluginConfig();
+        plugin.setName("tenant");
+        plugin.setLevel(PluginLevelType.table);
+        plugin.setValue(Arrays.asList("user"));
+        plugin.setRules(new ArrayList<>(Arrays.asList(new PluginRule())));
+        config.setPlugins(new ArrayList<>(Arrays.asList(plugin)));
+        Mockito.doReturn(PluginsSnapshot.of(config).getGate()).when(pluginsProcess).getPluginsGate();
+        MappedStatement mappedStatement = new MappedStatement.Builder(configuration, "com.demo.DictMapper.update",
+                new StaticSqlSource(configuration, "update dict set name = 'a' where id = 1"),
+                SqlCommandType.UPDATE).build();
+
+        Object[] args = new Object[]{mappedStatement, null};
+        mybatisInterceptorAware.mybatisBeforeExecutor(new Invocation(target, update, args));
+
+        // SQL 中没有配置的表名，不检测、不解析、不改写
+        assert args[0] == mappedStatement;
+        Mockito.verify(pluginsProcess, Mockito.never()).getRuleFieldDetector();
+        Mockito.verify(pluginsProcess, Mockito.never()).pluginsProcess(Mockito.any(SqlStatementContext.class));
+    }
+
     @Test
     public void mybatisAfterExecutor() {
         mybatisInterceptorAware.mybatisAfterExecutor(null);
@@ -2,6 +2,7 @@ package com.mybatis.mybatis.plugin;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
+import com.mybatis.mybatis.plugin.aware.InterceptorAware;
 import org.apache.ibatis.builder.StaticSqlSource;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.SimpleExecutor;
@@ -17,7 +18,10 @@ import org.mockito.MockitoAnnotations;
 import org.slf4j.LoggerFactory;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RunWith(SpringRunner.class)
 public class MybatisPluginInterceptorTest {
@@ -50,6 +54,40 @@ public class MybatisPluginInterceptorTest {
         assert true;
     }
 
+    @Test
+    public void interceptComplete() throws Throwable {
+        AtomicInteger completed = new AtomicInteger();
+        MybatisPluginInterceptor interceptor = new MybatisPluginInterceptor(Collections.singletonList(
+                new InterceptorAware() {
+                    @Override
+                    public void mybatisBeforeExecutor(Invocation invocation) {
+                    }
+
+                    @Override
+                    public void mybatisAfterExecutor(Object result) {
+                    }
+
+                    @Override
+                    public void mybatisCompleteExecutor(Invocation invocation) {
+                        completed.incrementAndGet();
+                    }
+                }));
+        Method update = Executor.class.getMethod("update", MappedStatement.class, Object.class);
+        Configuration configuration = new Configuration();
+        MappedStatement mappedStatement = new MappedStatement.Builder(configuration, "1",
+                new StaticSqlSource(configuration, "update user set name = 'zs' where id = 1"),
+                SqlCommandType.UPDATE).build();
+
+        // 执行抛出异常时同样调用，前置处理留下的线程状态可以被清理
+        try {
+            interceptor.intercept(new Invocation(new SimpleExecutor(configuration, null), update,
+                    new Object[]{mappedStatement, null}));
+            assert false;
+        } catch (InvocationTargetException e) {
+            assert completed.get() == 1;
+        }
+    }
+
     @Test
     public void plugin() {
         mybatisPluginInterceptor.plugin(new SimpleExecutor(null, null));
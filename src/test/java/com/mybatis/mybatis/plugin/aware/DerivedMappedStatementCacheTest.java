@@ -0,0 +1,218 @@
+package com.mybatis.mybatis.plugin.aware;
+
+import com.mybatis.mybatis.plugin.RuleFieldThreadLocal;
+import com.mybatis.mybatis.plugin.config.MappedStatementCacheConfig;
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.config.PluginConfig;
+import com.mybatis.mybatis.plugin.config.PluginLevelType;
+import com.mybatis.mybatis.plugin.config.PluginRule;
+import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
+import com.mybatis.mybatis.plugin.config.RuleFieldPolicy;
+import com.mybatis.mybatis.plugin.config.RuleFieldPolicyType;
+import com.mybatis.mybatis.plugin.config.RuleFieldValueFailPolicyType;
+import com.mybatis.mybatis.plugin.config.RuleFieldValuePolicy;
+import com.mybatis.mybatis.plugin.config.RuleFieldValuePolicyType;
+import com.mybatis.mybatis.plugin.process.BindValue;
+import com.mybatis.mybatis.plugin.process.PluginRuleProcessImpl;
+import com.mybatis.mybatis.plugin.process.PluginsProcessImpl;
+import com.mybatis.mybatis.plugin.process.RuleProcessImpl;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldPolicyProcessImpl;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldValueFailPolicyProcess;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldValuePolicyProcessImpl;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+@RunWith(SpringRunner.class)
+public class DerivedMappedStatementCacheTest {
+
+    private final Configuration configuration = new Configuration();
+
+    @After
+    public void tearDown() {
+        DerivedMappedStatementCache.clearHandoff();
+        RuleFieldThreadLocal.remove();
+    }
+
+    private MappedStatement mappedStatement(String id, String sql) {
+        StaticSqlSource sqlSource = new StaticSqlSource(configuration, sql, Collections.singletonList(
+                new ParameterMapping.Builder(configuration, "id", Object.class).build()));
+        return new MappedStatement.Builder(configuration, id, sqlSource, SqlCommandType.INSERT)
+                .keyProperty("id,code")
+                .keyColumn("ID,CODE")
+                .databaseId("h2")
+                .build();
+    }
+
+    @Test
+    public void sameInstance() {
+        DerivedMappedStatementCache cache = new DerivedMappedStatementCache(enabled(), null);
+        MappedStatement ms = mappedStatement("com.demo.UserMapper.insert", "insert into user (id) values (?)");
+        String newSql = "INSERT INTO user (id, tenant_id) VALUES (?, 't1')";
+
+        MappedStatement first = cache.get(ms, newSql);
+        MappedStatement second = cache.get(ms, new String(newSql));
+        MappedStatement other = cache.get(ms, "INSERT INTO user (id, tenant_id) VALUES (?, 't2')");
+
+        // BatchExecutor 按对象判断是否是同一个批次
+        assert first == second;
+        assert first != other;
+        assert cache.get(mappedStatement("com.demo.UserMapper.insert", "insert into user (id) values (?)"),
+                newSql) != first;
+        assert first.getId().equals(ms.getId());
+        assert Arrays.equals(first.getKeyProperties(), new String[]{"id", "code"});
+        assert Arrays.equals(first.getKeyColumns(), new String[]{"ID", "CODE"});
+        assert first.getDatabaseId().equals("h2");
+        assert first.getLang() == ms.getLang();
+
+        BoundSql boundSql = first.getBoundSql(1);
+        assert boundSql.getSql().equals(newSql);
+        assert boundSql.getParameterMappings().size() == 1;
+    }
+
+    @Test
+    public void disabled() {
+        DerivedMappedStatementCache cache = new DerivedMappedStatementCache(null);
+        MappedStatement ms = mappedStatement("com.demo.UserMapper.insert", "insert into user (id) values (?)");
+        String newSql = "INSERT INTO user (id, tenant_id) VALUES (?, 't1')";
+
+        // 默认不缓存，每次都创建新的 MappedStatement
+        MappedStatement first = cache.get(ms, newSql);
+        assert !cache.isEnabled();
+        assert cache.get(ms, newSql) != first;
+        assert cache.size() == 0L;
+        assert first.getBoundSql(1).getSql().equals(newSql);
+    }
+
+    @Test
+    public void handoff() {
+        MappedStatement ms = mappedStatement("com.demo.UserMapper.insert", "insert into user (id) values (?)");
+        MappedStatement derived = new DerivedMappedStatementCache(null)
+                .get(ms, "INSERT INTO user (id) VALUES (?)");
+        Object parameter = new Object();
+        BoundSql original = new BoundSql(configuration, ms.getBoundSql(parameter).getSql(),
+                Collections.singletonList(new ParameterMapping.Builder(configuration, "__frch_item_0.id",
+                        Object.class).build()), parameter);
+        original.setAdditionalParameter("__frch_item_0", Collections.singletonMap("id", 7));
+
+        DerivedMappedStatementCache.handoff(ms, original);
+        BoundSql boundSql = derived.getBoundSql(parameter);
+        // 使用拦截器中已经生成的 BoundSql，附加参数一起复制
+        assert boundSql.getParameterMappings().get(0).getProperty().equals("__frch_item_0.id");
+        assert boundSql.getAdditionalParameter("__frch_item_0.id").equals(7);
+        // 已经使用过，不会再次使用
+        assert derived.getBoundSql(parameter).getParameterMappings().get(0).getProperty().equals("id");
+    }
+
+    @Test
+    public void discardHandoff() throws Exception {
+        MappedStatement ms = mappedStatement("com.demo.UserMapper.insert", "insert into user (id) values (?)");
+        MappedStatement other = mappedStatement("com.demo.UserMapper.selectKey", "select 1");
+        DerivedMappedStatementCache cache = new DerivedMappedStatementCache(null);
+        MappedStatement derived = cache.get(ms, "INSERT INTO user (id) VALUES (?)");
+        Object parameter = new Object();
+        BoundSql original = new BoundSql(configuration, "insert into user (id) values (?)",
+                Collections.singletonList(new ParameterMapping.Builder(configuration, "__frch_item_0.id",
+                        Object.class).build()), parameter);
+
+        DerivedMappedStatementCache.handoff(ms, original);
+        DerivedMappedStatementCache.handoff(other, other.getBoundSql(parameter));
+        // 执行器没有使用记录就结束，拦截器移除本次执行的记录，嵌套执行的记录不受影响
+        MybatisInterceptorAware aware = new MybatisInterceptorAware(null);
+        aware.mybatisCompleteExecutor(new Invocation(null,
+                Executor.class.getMethod("update", MappedStatement.class, Object.class),
+                new Object[]{derived, parameter}));
+        assert derived.getBoundSql(parameter).getParameterMappings().get(0).getProperty().equals("id");
+        assert cache.get(other, "SELECT 1").getBoundSql(parameter) != null;
+
+        DerivedMappedStatementCache.handoff(ms, original);
+        DerivedMappedStatementCache.discardHandoff(ms, parameter);
+        // 原始 MappedStatement 不是改写后的对象，不处理
+        assert derived.getBoundSql(parameter).getParameterMappings().get(0).getProperty().equals("__frch_item_0.id");
+        DerivedMappedStatementCache.discardHandoff(derived, parameter);
+    }
+
+    @Test
+    public void bindValues() {
+        MappedStatement ms = mappedStatement("com.demo.UserMapper.select", "select * from user where id = ?");
+        String newSql = "SELECT * FROM user WHERE user.tenant_id = ? AND id = ? AND org_id = ?";
+        RuleFieldThreadLocal.setVariable("tenant_id_value", "t3");
+        DerivedMappedStatementCache cache = new DerivedMappedStatementCache(enabled(), bindProcess());
+        MappedStatement derived = cache.get(ms, newSql, true);
+        Object parameter = new Object();
+
+        DerivedMappedStatementCache.handoff(ms, ms.getBoundSql(parameter),
+                Arrays.asList(new BindValue(0, "t1"), new BindValue(2, "o1")));
+        BoundSql boundSql = derived.getBoundSql(parameter);
+        assert boundSql.getSql().equals(newSql);
+        assert boundSql.getParameterMappings().size() == 3;
+        assert boundSql.getParameterMappings().get(0).getProperty()
+                .equals(DerivedMappedStatementCache.BIND_PARAMETER_PREFIX + 0);
+        assert boundSql.getParameterMappings().get(1).getProperty().equals("id");
+        assert boundSql.getParameterMappings().get(2).getProperty()
+                .equals(DerivedMappedStatementCache.BIND_PARAMETER_PREFIX + 1);
+        assert boundSql.getAdditionalParameter(DerivedMappedStatementCache.BIND_PARAMETER_PREFIX + 0).equals("t1");
+        assert boundSql.getAdditionalParameter(DerivedMappedStatementCache.BIND_PARAMETER_PREFIX + 1).equals("o1");
+
+        // 嵌套执行其他语句不会覆盖外层记录
+        MappedStatement other = mappedStatement("com.demo.UserMapper.selectKey", "select 1");
+        DerivedMappedStatementCache.handoff(ms, ms.getBoundSql(parameter),
+                Collections.singletonList(new BindValue(0, "t2")));
+        DerivedMappedStatementCache.handoff(other, other.getBoundSql(parameter));
+        assert cache.get(other, "SELECT 1").getBoundSql(parameter).getSql().equals("SELECT 1");
+        assert derived.getBoundSql(parameter)
+                .getAdditionalParameter(DerivedMappedStatementCache.BIND_PARAMETER_PREFIX + 0).equals("t2");
+
+        // 没有拦截器记录时按当前线程的字段值重新改写
+        BoundSql rewritten = derived.getBoundSql(parameter);
+        assert rewritten.getSql().contains("tenant_id = ?");
+        assert rewritten.getParameterMappings().size() == 2;
+        assert rewritten.getAdditionalParameter(DerivedMappedStatementCache.BIND_PARAMETER_PREFIX + 0).equals("t3");
+    }
+
+    private MappedStatementCacheConfig enabled() {
+        MappedStatementCacheConfig config = new MappedStatementCacheConfig();
+        config.setEnable(true);
+        return config;
+    }
+
+    private PluginsProcessImpl bindProcess() {
+        MybatisPluginsConfig config = new MybatisPluginsConfig();
+        config.setBindValue(true);
+        PluginConfig pluginConfig = new PluginConfig();
+        pluginConfig.setName("tenant");
+        pluginConfig.setLevel(PluginLevelType.dml);
+        pluginConfig.setValue(Arrays.asList("select"));
+
+        PluginRule rule = new PluginRule();
+        rule.setName("add_tenant");
+        rule.setValue(PluginRuleValueType.add_where_field);
+        RuleFieldPolicy ruleFieldPolicy = new RuleFieldPolicy();
+        ruleFieldPolicy.setName(RuleFieldPolicyType.conf);
+        ruleFieldPolicy.setValue("tenant_id");
+        rule.setFieldPolicy(ruleFieldPolicy);
+        RuleFieldValuePolicy ruleFieldValuePolicy = new RuleFieldValuePolicy();
+        ruleFieldValuePolicy.setName(RuleFieldValuePolicyType.threadLocal);
+        ruleFieldValuePolicy.setValue("tenant_id_value");
+        rule.setFieldValuePolicy(ruleFieldValuePolicy);
+        rule.setFieldValueFailPolicy(RuleFieldValueFailPolicyType.run);
+        pluginConfig.setRules(new ArrayList<>(Arrays.asList(rule)));
+        config.setPlugins(new ArrayList<>(Arrays.asList(pluginConfig)));
+        return new PluginsProcessImpl(config, new RuleProcessImpl(new RuleFieldPolicyProcessImpl(),
+                new RuleFieldValuePolicyProcessImpl(), new RuleFieldValueFailPolicyProcess(),
+                new PluginRuleProcessImpl()));
+    }
+}
@@ -0,0 +1,46 @@
+package com.mybatis.mybatis.plugin.aware;
+
+import com.mybatis.mybatis.plugin.IgnoreTenant;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+public class IgnoreTenantResolverTest {
+
+    @IgnoreTenant
+    public interface IgnoredMapper {
+        void select();
+    }
+
+    public interface UserMapper {
+        @IgnoreTenant
+        void selectAll();
+
+        void selectById();
+    }
+
+    private static final String IGNORED_MAPPER = IgnoredMapper.class.getName();
+
+    private static final String USER_MAPPER = UserMapper.class.getName();
+
+    @Test
+    public void isIgnored() {
+        IgnoreTenantResolver resolver = new IgnoreTenantResolver();
+        assert resolver.isIgnored(IGNORED_MAPPER + ".select");
+        assert resolver.isIgnored(USER_MAPPER + ".selectAll");
+        assert resolver.isIgnored(USER_MAPPER + ".selectAll_COUNT");
+        assert !resolver.isIgnored(USER_MAPPER + ".selectById");
+        assert !resolver.isIgnored(USER_MAPPER + ".selectById_COUNT");
+        assert !resolver.isIgnored("1");
+        assert !resolver.isIgnored(null);
+    }
+
+    @Test
+    public void negativeCached() {
+        IgnoreTenantResolver resolver = new IgnoreTenantResolver();
+        assert !resolver.isIgnored("com.demo.NotExistMapper.select");
+        assert !resolver.isIgnored("com.demo.NotExistMapper.select");
+        assert resolver.size() == 1;
+    }
+}
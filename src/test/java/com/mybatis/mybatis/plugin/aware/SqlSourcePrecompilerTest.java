@@ -0,0 +1,215 @@
+package com.mybatis.mybatis.plugin.aware;
+
+import com.mybatis.mybatis.plugin.RuleFieldThreadLocal;
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.config.PluginConfig;
+import com.mybatis.mybatis.plugin.config.PluginLevelType;
+import com.mybatis.mybatis.plugin.config.PluginRule;
+import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
+import com.mybatis.mybatis.plugin.config.RuleFieldPolicy;
+import com.mybatis.mybatis.plugin.config.RuleFieldPolicyType;
+import com.mybatis.mybatis.plugin.config.RuleFieldValueFailPolicyType;
+import com.mybatis.mybatis.plugin.config.RuleFieldValuePolicy;
+import com.mybatis.mybatis.plugin.config.RuleFieldValuePolicyType;
+import com.mybatis.mybatis.plugin.metrics.MicrometerPluginMetrics;
+import com.mybatis.mybatis.plugin.metrics.PluginOutcome;
+import com.mybatis.mybatis.plugin.metrics.PluginPhase;
+import com.mybatis.mybatis.plugin.process.PluginRuleProcessImpl;
+import com.mybatis.mybatis.plugin.process.PluginsProcessImpl;
+import com.mybatis.mybatis.plugin.process.RuleProcessImpl;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldPolicyProcessImpl;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldValueFailPolicyProcess;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldValuePolicyProcessImpl;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.scripting.xmltags.TextSqlNode;
+import org.apache.ibatis.session.Configuration;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+@RunWith(SpringRunner.class)
+public class SqlSourcePrecompilerTest {
+
+    private static final String SELECT_BY_ID = "com.demo.UserMapper.selectById";
+
+    private static final String SELECT_BY_NAME = "com.demo.UserMapper.selectByName";
+
+    private static final String SELECT_BY_TENANT = "com.demo.UserMapper.selectByTenant";
+
+    private static final String DELETE_BY_ID = "com.demo.UserMapper.deleteById";
+
+    @After
+    public void tearDown() {
+        RuleFieldThreadLocal.remove();
+    }
+
+    @Test
+    public void precompile() {
+        Configuration configuration = configuration();
+        PluginsProcessImpl pluginsProcess = new PluginsProcessImpl(tenantPluginsConfig(RuleFieldPolicyType.conf),
+                realRuleProcess());
+        SqlSourcePrecompiler precompiler = new SqlSourcePrecompiler(pluginsProcess);
+
+        PrecompileReport report = precompiler.precompile(configuration);
+        assert report.getPrecompiled().equals(Collections.singletonList(SELECT_BY_ID));
+        // 已经包含租户字段、插件不处理 delete
+        assert report.getSkipped().containsAll(Arrays.asList(SELECT_BY_TENANT, DELETE_BY_ID));
+        assert report.getFallbacks().keySet().equals(Collections.singleton(SELECT_BY_NAME));
+
+        MappedStatement ms = configuration.getMappedStatement(SELECT_BY_ID);
+        assert ms.getSqlSource() instanceof PrecompiledSqlSource;
+        assert configuration.getMappedStatement(SELECT_BY_NAME).getSqlSource() instanceof DynamicSqlSource;
+
+        RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+        BoundSql boundSql = ms.getBoundSql(Collections.singletonMap("id", 1));
+        assert boundSql.getSql().equals("SELECT * FROM user WHERE id = ? AND user.tenant_id = 't1'");
+        assert boundSql.getParameterMappings().size() == 1;
+        RuleFieldThreadLocal.setVariable("tenant_id_value", "t2");
+        assert ms.getBoundSql(Collections.singletonMap("id", 1)).getSql()
+                .equals("SELECT * FROM user WHERE id = ? AND user.tenant_id = 't2'");
+
+        // 字段值获取失败时按运行时流程执行失败策略，run 策略不改写
+        RuleFieldThreadLocal.remove();
+        assert ms.getBoundSql(Collections.singletonMap("id", 1)).getSql().equals("SELECT * FROM user WHERE id = ?");
+
+        // 重复执行不会再次包装
+        assert precompiler.precompile(configuration).getPrecompiled().equals(Collections.singletonList(SELECT_BY_ID));
+        assert ((PrecompiledSqlSource) ms.getSqlSource()).getOriginal() instanceof RawSqlSource;
+    }
+
+    @Test
+    public void precompileBindValue() {
+        Configuration configuration = configuration();
+        MybatisPluginsConfig config = tenantPluginsConfig(RuleFieldPolicyType.conf);
+        config.setBindValue(true);
+        new SqlSourcePrecompiler(new PluginsProcessImpl(config, realRuleProcess())).precompile(configuration);
+
+        RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+        BoundSql boundSql = configuration.getMappedStatement(SELECT_BY_ID).getBoundSql(Collections.singletonMap("id", 1));
+        assert boundSql.getSql().equals("SELECT * FROM user WHERE id = ? AND user.tenant_id = ?");
+        assert boundSql.getParameterMappings().size() == 2;
+        assert boundSql.getParameterMappings().get(1).getProperty()
+                .equals(DerivedMappedStatementCache.BIND_PARAMETER_PREFIX + 0);
+        assert boundSql.getAdditionalParameter(DerivedMappedStatementCache.BIND_PARAMETER_PREFIX + 0).equals("t1");
+    }
+
+    @Test
+    public void precompileMetrics() {
+        Configuration configuration = configuration();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SqlSourcePrecompiler precompiler = new SqlSourcePrecompiler(new PluginsProcessImpl(
+                tenantPluginsConfig(RuleFieldPolicyType.conf), realRuleProcess()));
+        precompiler.setMetrics(new MicrometerPluginMetrics(registry));
+        precompiler.precompile(configuration);
+        MappedStatement ms = configuration.getMappedStatement(SELECT_BY_ID);
+
+        RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+        ms.getBoundSql(Collections.singletonMap("id", 1));
+        // 字段值获取失败，回退到运行时改写，只有回退时解析 SQL
+        RuleFieldThreadLocal.remove();
+        ms.getBoundSql(Collections.singletonMap("id", 1));
+
+        assert timer(registry, PluginPhase.precompiled).count() == 2;
+        assert timer(registry, PluginPhase.parse).count() == 1;
+        assert counter(registry, PluginOutcome.rewritten).count() == 2;
+    }
+
+    @Test
+    public void fallbackDetectsRuleField() {
+        Configuration configuration = configuration();
+        MybatisPluginsConfig config = tenantPluginsConfig(RuleFieldPolicyType.conf);
+        PluginsProcessImpl pluginsProcess = new PluginsProcessImpl(config, realRuleProcess());
+        new SqlSourcePrecompiler(pluginsProcess).precompile(configuration);
+        MappedStatement ms = configuration.getMappedStatement(SELECT_BY_ID);
+
+        // 刷新后规则字段变为 SQL 中已经包含的 id，模板失效，回退时不能再追加条件
+        config.getPlugins().get(0).getRules().get(0).getFieldPolicy().setValue("id");
+        pluginsProcess.refresh();
+        RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+        assert ms.getBoundSql(Collections.singletonMap("id", 1)).getSql().equals("select * from user where id = ?");
+    }
+
+    @Test
+    public void fieldResolvedPerCall() {
+        Configuration configuration = configuration();
+        PrecompileReport report = new SqlSourcePrecompiler(new PluginsProcessImpl(
+                tenantPluginsConfig(RuleFieldPolicyType.threadLocal), realRuleProcess())).precompile(configuration);
+
+        // 字段名每次执行才能确定，全部回退到运行时改写
+        assert report.getPrecompiled().isEmpty();
+        assert report.getFallbacks().get(SELECT_BY_ID).contains("add_tenant");
+        assert configuration.getMappedStatement(SELECT_BY_ID).getSqlSource() instanceof RawSqlSource;
+    }
+
+    private Timer timer(SimpleMeterRegistry registry, PluginPhase phase) {
+        return registry.find(MicrometerPluginMetrics.PHASE)
+                .tags("phase", phase.name(), "namespace", "com.demo.UserMapper", "type", "SELECT").timer();
+    }
+
+    private Counter counter(SimpleMeterRegistry registry, PluginOutcome outcome) {
+        return registry.find(MicrometerPluginMetrics.STATEMENTS)
+                .tags("outcome", outcome.name(), "namespace", "com.demo.UserMapper", "type", "SELECT",
+                        "plugin", MicrometerPluginMetrics.NONE)
+                .counter();
+    }
+
+    private Configuration configuration() {
+        Configuration configuration = new Configuration();
+        addMappedStatement(configuration, SELECT_BY_ID, SqlCommandType.SELECT,
+                new RawSqlSource(configuration, "select * from user where id = #{id}", Object.class));
+        addMappedStatement(configuration, SELECT_BY_NAME, SqlCommandType.SELECT,
+                new DynamicSqlSource(configuration, new TextSqlNode("select * from user where name = '${name}'")));
+        addMappedStatement(configuration, SELECT_BY_TENANT, SqlCommandType.SELECT,
+                new RawSqlSource(configuration, "select * from user where tenant_id = #{tenantId}", Object.class));
+        addMappedStatement(configuration, DELETE_BY_ID, SqlCommandType.DELETE,
+                new RawSqlSource(configuration, "delete from user where id = #{id}", Object.class));
+        return configuration;
+    }
+
+    private void addMappedStatement(Configuration configuration, String id, SqlCommandType type,
+                                    SqlSource sqlSource) {
+        configuration.addMappedStatement(new MappedStatement.Builder(configuration, id, sqlSource, type).build());
+    }
+
+    private MybatisPluginsConfig tenantPluginsConfig(RuleFieldPolicyType fieldPolicyType) {
+        MybatisPluginsConfig config = new MybatisPluginsConfig();
+        PluginConfig pluginConfig = new PluginConfig();
+        pluginConfig.setName("tenant");
+        pluginConfig.setLevel(PluginLevelType.dml);
+        pluginConfig.setValue(Arrays.asList("select"));
+
+        PluginRule rule = new PluginRule();
+        rule.setName("add_tenant");
+        rule.setValue(PluginRuleValueType.add_where_field);
+        RuleFieldPolicy ruleFieldPolicy = new RuleFieldPolicy();
+        ruleFieldPolicy.setName(fieldPolicyType);
+        ruleFieldPolicy.setValue("tenant_id");
+        rule.setFieldPolicy(ruleFieldPolicy);
+        RuleFieldValuePolicy ruleFieldValuePolicy = new RuleFieldValuePolicy();
+        ruleFieldValuePolicy.setName(RuleFieldValuePolicyType.threadLocal);
+        ruleFieldValuePolicy.setValue("tenant_id_value");
+        rule.setFieldValuePolicy(ruleFieldValuePolicy);
+        rule.setFieldValueFailPolicy(RuleFieldValueFailPolicyType.run);
+        pluginConfig.setRules(new ArrayList<>(Arrays.asList(rule)));
+        config.setPlugins(new ArrayList<>(Arrays.asList(pluginConfig)));
+        return config;
+    }
+
+    private RuleProcessImpl realRuleProcess() {
+        return new RuleProcessImpl(new RuleFieldPolicyProcessImpl(),
+                new RuleFieldValuePolicyProcessImpl(), new RuleFieldValueFailPolicyProcess(), new PluginRuleProcessImpl());
+    }
+}
@@ -0,0 +1,75 @@
+package com.mybatis.mybatis.plugin.benchmark;
+
+import com.jayway.jsonpath.JsonPath;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @program: mybatis plugin
+ * @description: 对比两次 JMH 运行导出的 JSON 结果（-rf json），按基准测试、模式和参数逐条输出得分和每次操作的分配量的变化。
+ * 运行方式：以 test classpath 执行本类 main 方法，参数为基准版本和当前版本的结果文件
+ */
+public final class BenchmarkCompare {
+
+    private static final String ALLOC_NORM = "gc.alloc.rate.norm";
+
+    private BenchmarkCompare() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: BenchmarkCompare <base.json> <current.json>");
+            return;
+        }
+        BenchmarkSupport.quietLogging();
+        Map<String, double[]> base = read(new File(args[0]));
+        Map<String, double[]> current = read(new File(args[1]));
+        System.out.println(String.format("%-100s %14s %14s %9s %14s %14s", "benchmark", "base", "current",
+                "change", "base B/op", "current B/op"));
+        for (Map.Entry<String, double[]> entry : current.entrySet()) {
+            double[] before = base.get(entry.getKey());
+            double[] after = entry.getValue();
+            if (before == null) {
+                System.out.println(String.format("%-100s %14s %14.3f %9s %14s %14.0f", entry.getKey(), "-",
+                        after[0], "new", "-", after[1]));
+                continue;
+            }
+            System.out.println(String.format("%-100s %14.3f %14.3f %+8.1f%% %14.0f %14.0f", entry.getKey(),
+                    before[0], after[0], (after[0] - before[0]) * 100 / before[0], before[1], after[1]));
+        }
+    }
+
+    /**
+     * @return 基准测试 + 模式 + 参数 -> [得分, 每次操作分配的字节数（没有 GC profiler 时为 NaN）]
+     */
+    static Map<String, double[]> read(File file) throws IOException {
+        List<Map<String, Object>> results = JsonPath.parse(file).read("$[*]");
+        Map<String, double[]> scores = new TreeMap<>();
+        for (Map<String, Object> result : results) {
+            StringBuilder key = new StringBuilder(String.valueOf(result.get("benchmark")))
+                    .append(' ').append(result.get("mode"));
+            Object params = result.get("params");
+            if (params instanceof Map) {
+                new TreeMap<>((Map<?, ?>) params).forEach((name, value) -> key.append(' ').append(name)
+                        .append('=').append(value));
+            }
+            double score = ((Number) ((Map<?, ?>) result.get("primaryMetric")).get("score")).doubleValue();
+            double alloc = Double.NaN;
+            Object secondary = result.get("secondaryMetrics");
+            if (secondary instanceof Map) {
+                // 指标名前带有 JMH 的前缀字符
+                for (Map.Entry<?, ?> metric : ((Map<?, ?>) secondary).entrySet()) {
+                    if (String.valueOf(metric.getKey()).endsWith(ALLOC_NORM)) {
+                        alloc = ((Number) ((Map<?, ?>) metric.getValue()).get("score")).doubleValue();
+                    }
+                }
+            }
+            scores.put(key.toString(), new double[]{score, alloc});
+        }
+        return scores;
+    }
+}
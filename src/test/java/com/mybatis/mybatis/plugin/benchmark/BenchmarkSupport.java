@@ -0,0 +1,124 @@
+package com.mybatis.mybatis.plugin.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.config.PluginConfig;
+import com.mybatis.mybatis.plugin.config.PluginLevelType;
+import com.mybatis.mybatis.plugin.config.PluginRule;
+import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
+import com.mybatis.mybatis.plugin.config.RuleFieldPolicy;
+import com.mybatis.mybatis.plugin.config.RuleFieldPolicyType;
+import com.mybatis.mybatis.plugin.config.RuleFieldValueFailPolicyType;
+import com.mybatis.mybatis.plugin.config.RuleFieldValuePolicy;
+import com.mybatis.mybatis.plugin.config.RuleFieldValuePolicyType;
+import com.mybatis.mybatis.plugin.process.PluginRuleProcessImpl;
+import com.mybatis.mybatis.plugin.process.RuleProcess;
+import com.mybatis.mybatis.plugin.process.RuleProcessImpl;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldPolicyProcessImpl;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldValueFailPolicyProcess;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldValuePolicyProcessImpl;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @program: mybatis plugin
+ * @description: 基准测试公共配置，租户插件使用 threadLocal 获取 tenant_id 字段值
+ */
+public final class BenchmarkSupport {
+
+    public static final String TENANT_VALUE_KEY = "tenant_id_value";
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * 测试类路径下没有 logback 配置，默认 DEBUG 级别会把日志输出计入耗时
+     */
+    public static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+    }
+
+    public static MybatisPluginsConfig tenantPluginsConfig() {
+        MybatisPluginsConfig config = new MybatisPluginsConfig();
+        config.setEnable(true);
+        PluginConfig pluginConfig = new PluginConfig();
+        pluginConfig.setName("tenant");
+        pluginConfig.setLevel(PluginLevelType.dml);
+        pluginConfig.setValue(Arrays.asList("select", "insert", "update", "delete"));
+
+        PluginRule rule = new PluginRule();
+        rule.setName("add_tenant");
+        rule.setValue(PluginRuleValueType.add_where_field);
+        RuleFieldPolicy ruleFieldPolicy = new RuleFieldPolicy();
+        ruleFieldPolicy.setName(RuleFieldPolicyType.conf);
+        ruleFieldPolicy.setValue("tenant_id");
+        rule.setFieldPolicy(ruleFieldPolicy);
+        RuleFieldValuePolicy ruleFieldValuePolicy = new RuleFieldValuePolicy();
+        ruleFieldValuePolicy.setName(RuleFieldValuePolicyType.threadLocal);
+        ruleFieldValuePolicy.setValue(TENANT_VALUE_KEY);
+        rule.setFieldValuePolicy(ruleFieldValuePolicy);
+        rule.setFieldValueFailPolicy(RuleFieldValueFailPolicyType.run);
+        pluginConfig.setRules(new ArrayList<>(Arrays.asList(rule)));
+        config.setPlugins(new ArrayList<>(Arrays.asList(pluginConfig)));
+        return config;
+    }
+
+    public static RuleProcess ruleProcess() {
+        return new RuleProcessImpl(new RuleFieldPolicyProcessImpl(), new RuleFieldValuePolicyProcessImpl(),
+                new RuleFieldValueFailPolicyProcess(), new PluginRuleProcessImpl());
+    }
+
+    /**
+     * 依次用 1、2、4 ... 个线程运行基准测试，打印每个线程数下的吞吐量以及相对单线程的扩展倍数
+     *
+     * @param benchmark  基准测试类
+     * @param maxThreads 最大线程数
+     */
+    public static void runScaling(Class<?> benchmark, int maxThreads) throws RunnerException {
+        List<Integer> threads = new ArrayList<>();
+        for (int t = 1; t < maxThreads; t <<= 1) {
+            threads.add(t);
+        }
+        threads.add(maxThreads);
+        List<String> report = new ArrayList<>();
+        Map<String, Double> single = new HashMap<>();
+        for (int t : threads) {
+            Options options = new OptionsBuilder()
+                    .include(benchmark.getName())
+                    .threads(t)
+                    .forks(1)
+                    .warmupIterations(3)
+                    .warmupTime(TimeValue.seconds(1))
+                    .measurementIterations(5)
+                    .measurementTime(TimeValue.seconds(1))
+                    .build();
+            Collection<RunResult> results = new Runner(options).run();
+            for (RunResult result : results) {
+                BenchmarkParams params = result.getParams();
+                StringBuilder name = new StringBuilder(params.getBenchmark());
+                for (String key : params.getParamsKeys()) {
+                    name.append(' ').append(key).append('=').append(params.getParam(key));
+                }
+                double score = result.getPrimaryResult().getScore();
+                double base = single.computeIfAbsent(name.toString(), k -> score);
+                report.add(String.format("%-90s threads=%-3d %14.1f %s scaling=%.2fx", name, t, score,
+                        result.getPrimaryResult().getScoreUnit(), score / base));
+            }
+        }
+        report.forEach(System.out::println);
+    }
+}
@@ -0,0 +1,84 @@
+package com.mybatis.mybatis.plugin.benchmark;
+
+import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
+import com.mybatis.mybatis.plugin.process.RuleAction;
+import com.mybatis.mybatis.plugin.process.SimpleStatement;
+import com.mybatis.mybatis.plugin.process.SpliceRewriter;
+import com.mybatis.mybatis.plugin.process.SqlStatementContext;
+import net.sf.jsqlparser.expression.StringValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: mybatis plugin
+ * @description: 单表语句快速识别基准测试，对比 JSqlParser 解析后按偏移量拼接与手写识别器直接拼接的耗时，
+ * 两者的改写结果相同；每次调用都创建新的上下文，识别、解析都计入耗时
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FastPathBenchmark {
+
+    @Param({"select", "insert", "update", "delete"})
+    public String dml;
+
+    private String sql;
+
+    private List<RuleAction> actions;
+
+    @Setup
+    public void setUp() {
+        BenchmarkSupport.quietLogging();
+        switch (dml) {
+            case "insert":
+                sql = "insert into orders (id, user_id, amount, status, created) values (?, ?, ?, ?, now())";
+                break;
+            case "update":
+                sql = "update orders set status = ?, amount = amount + ? where id = ? and status in (1, 2)";
+                break;
+            case "delete":
+                sql = "delete from orders where id = ? or code = ?";
+                break;
+            default:
+                sql = "select o.id, o.amount, o.status from orders o where o.user_id = ? and o.status in (1, 2)"
+                        + " and o.created between ? and ? order by o.created desc limit 20";
+                break;
+        }
+        actions = Collections.singletonList(
+                new RuleAction(PluginRuleValueType.add_where_field, "tenant_id", new StringValue("t1")));
+    }
+
+    @Benchmark
+    public String parser() {
+        return SpliceRewriter.rewrite(new SqlStatementContext(null, sql), actions);
+    }
+
+    @Benchmark
+    public String fastPath() {
+        SimpleStatement statement = new SqlStatementContext(null, sql, true).getSimpleStatement();
+        return statement.rewrite(actions);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FastPathBenchmark.class.getName()).build()).run();
+    }
+}
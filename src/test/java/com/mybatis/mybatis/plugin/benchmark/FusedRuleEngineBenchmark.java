@@ -0,0 +1,111 @@
+package com.mybatis.mybatis.plugin.benchmark;
+
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.config.PluginConfig;
+import com.mybatis.mybatis.plugin.config.PluginLevelType;
+import com.mybatis.mybatis.plugin.config.PluginRule;
+import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
+import com.mybatis.mybatis.plugin.process.FusedRuleEngine;
+import com.mybatis.mybatis.plugin.process.PluginRuleProcessImpl;
+import com.mybatis.mybatis.plugin.process.PluginsSnapshot;
+import com.mybatis.mybatis.plugin.process.RuleAction;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: mybatis plugin
+ * @description: 融合规则引擎基准测试，对比逐条执行 add_where_field 规则与一次遍历执行所有规则，观察耗时随规则数量的变化。
+ * 规则会修改语法树，每次调用前重新解析 SQL，解析不计入耗时
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FusedRuleEngineBenchmark {
+
+    @Param({"1", "3", "6"})
+    public int rules;
+
+    /**
+     * 与 RuleFieldDetectorBenchmark 相同的报表查询，small 约 100 字节，medium 约 3 KB
+     */
+    @Param({"small", "medium"})
+    public String size;
+
+    private final PluginRuleProcessImpl pluginRuleProcess = new PluginRuleProcessImpl();
+
+    private String sql;
+
+    private List<RuleAction> actions;
+
+    private Statement statement;
+
+    private PluginsSnapshot plugins;
+
+    @Setup
+    public void setUp() {
+        BenchmarkSupport.quietLogging();
+        sql = RuleFieldDetectorBenchmark.reportSql("small".equals(size) ? 1 : 12);
+        actions = new ArrayList<>(rules);
+        for (int i = 0; i < rules; i++) {
+            actions.add(new RuleAction(PluginRuleValueType.add_where_field, "field_" + i, new StringValue("v" + i)));
+        }
+        PluginConfig plugin = new PluginConfig();
+        plugin.setName("tenant");
+        plugin.setLevel(PluginLevelType.table);
+        plugin.setValue(Arrays.asList("user", "orders"));
+        plugin.setRules(new ArrayList<>(Collections.singletonList(new PluginRule())));
+        MybatisPluginsConfig config = new MybatisPluginsConfig();
+        config.setPlugins(new ArrayList<>(Collections.singletonList(plugin)));
+        plugins = PluginsSnapshot.of(config);
+    }
+
+    @Setup(Level.Invocation)
+    public void parse() throws JSQLParserException {
+        statement = CCJSqlParserUtil.parse(sql);
+    }
+
+    @Benchmark
+    public Statement sequential() {
+        for (RuleAction action : actions) {
+            pluginRuleProcess.ruleProcess(statement, action.getType(), action.getField(), action.getFieldValue(),
+                    plugins);
+        }
+        return statement;
+    }
+
+    @Benchmark
+    public Statement fused() {
+        FusedRuleEngine.apply(statement, actions, plugins);
+        return statement;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FusedRuleEngineBenchmark.class.getName()).build()).run();
+    }
+}
@@ -0,0 +1,222 @@
+package com.mybatis.mybatis.plugin.benchmark;
+
+import com.mybatis.mybatis.plugin.MybatisPluginInterceptor;
+import com.mybatis.mybatis.plugin.RuleFieldThreadLocal;
+import com.mybatis.mybatis.plugin.aware.MybatisInterceptorAware;
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.process.PluginsProcessImpl;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.profile.StackProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @program: mybatis plugin
+ * @description: 端到端开销基准测试：MyBatis 连接内存 H2 数据库执行真实的 Mapper，对比注册租户插件拦截器前后
+ * 每次查询的吞吐量和耗时分布（SampleTime 模式输出 p50、p99、p999），覆盖 SIMPLE、REUSE、BATCH 三种执行器。
+ * main 方法依次用 1、8、32、128 个线程运行，带 GC profiler 输出分配速率，带 stack profiler 输出线程状态，
+ * BLOCKED、WAITING 占比和对应的调用栈可以看出改写路径中的锁竞争
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class H2OverheadBenchmark {
+
+    private static final int USERS = 1000;
+
+    private static final int ORGS = 10;
+
+    public interface UserMapper {
+
+        @Select("select id, name, status from t_user where id = #{id}")
+        Map<String, Object> selectById(@Param("id") long id);
+
+        @Select("select u.id, u.name, g.name as org_name from t_user u join t_org g on g.id = u.org_id"
+                + " where g.code = #{code} and u.status = 1 order by u.id limit 20")
+        List<Map<String, Object>> selectByOrg(@Param("code") String code);
+
+        @Update("update t_user set name = #{name} where id = #{id}")
+        int updateName(@Param("id") long id, @Param("name") String name);
+
+        @Insert("insert into t_user (id, name, status, org_id) values (#{id}, #{name}, 1, 1)")
+        int insert(@Param("id") long id, @Param("name") String name);
+
+        @Delete("delete from t_user where id = #{id}")
+        int delete(@Param("id") long id);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Database {
+
+        private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+        @org.openjdk.jmh.annotations.Param({"false", "true"})
+        public boolean plugin;
+
+        @org.openjdk.jmh.annotations.Param({"SIMPLE", "REUSE", "BATCH"})
+        public ExecutorType executorType;
+
+        HikariDataSource dataSource;
+
+        SqlSessionFactory sqlSessionFactory;
+
+        /**
+         * 写入的主键从已有数据之后开始
+         */
+        final AtomicLong nextId = new AtomicLong(USERS * 10L);
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            BenchmarkSupport.quietLogging();
+            dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl("jdbc:h2:mem:guarder" + SEQUENCE.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+            dataSource.setMaximumPoolSize(128);
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("create table t_org (id bigint primary key, code varchar(32), name varchar(64),"
+                        + " tenant_id varchar(32))");
+                statement.execute("create table t_user (id bigint primary key, name varchar(64), status int,"
+                        + " org_id bigint, tenant_id varchar(32))");
+                statement.execute("create index idx_user_org on t_user (org_id, tenant_id)");
+                for (int i = 0; i < ORGS; i++) {
+                    statement.execute("insert into t_org values (" + i + ", 'org_" + i + "', 'org " + i + "', 't"
+                            + i % 2 + "')");
+                }
+                for (int i = 0; i < USERS; i++) {
+                    statement.execute("insert into t_user values (" + i + ", 'user " + i + "', 1, " + i % ORGS
+                            + ", 't" + i % 2 + "')");
+                }
+            }
+            Configuration configuration = new Configuration(
+                    new Environment("benchmark", new JdbcTransactionFactory(), dataSource));
+            configuration.addMapper(UserMapper.class);
+            if (plugin) {
+                MybatisPluginsConfig config = BenchmarkSupport.tenantPluginsConfig();
+                config.getCache().setEnable(true);
+                PluginsProcessImpl process = new PluginsProcessImpl(config, BenchmarkSupport.ruleProcess());
+                configuration.addInterceptor(new MybatisPluginInterceptor(
+                        Collections.singletonList(new MybatisInterceptorAware(process))));
+            }
+            sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            dataSource.close();
+        }
+
+        SqlSession openSession() {
+            return sqlSessionFactory.openSession(executorType, false);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Tenant {
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            RuleFieldThreadLocal.setVariable(BenchmarkSupport.TENANT_VALUE_KEY,
+                    "t" + ThreadLocalRandom.current().nextInt(2));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            RuleFieldThreadLocal.remove();
+        }
+    }
+
+    @Benchmark
+    public Object selectById(Database database, Tenant tenant) {
+        try (SqlSession session = database.openSession()) {
+            return session.getMapper(UserMapper.class).selectById(ThreadLocalRandom.current().nextInt(USERS));
+        }
+    }
+
+    @Benchmark
+    public Object selectByOrg(Database database, Tenant tenant) {
+        try (SqlSession session = database.openSession()) {
+            return session.getMapper(UserMapper.class).selectByOrg("org_" + ThreadLocalRandom.current().nextInt(ORGS));
+        }
+    }
+
+    @Benchmark
+    public Object updateName(Database database, Tenant tenant) {
+        try (SqlSession session = database.openSession()) {
+            session.getMapper(UserMapper.class).updateName(ThreadLocalRandom.current().nextInt(USERS), "renamed");
+            // BATCH 执行器提交时才真正执行
+            session.commit();
+            return session;
+        }
+    }
+
+    /**
+     * 插入后删除同一行，数据量保持不变
+     */
+    @Benchmark
+    public Object insertDelete(Database database, Tenant tenant) {
+        long id = database.nextId.incrementAndGet();
+        try (SqlSession session = database.openSession()) {
+            UserMapper mapper = session.getMapper(UserMapper.class);
+            mapper.insert(id, "user " + id);
+            mapper.delete(id);
+            session.commit();
+            return session;
+        }
+    }
+
+    /**
+     * @param args 逗号分隔的线程数，默认 1,8,32,128
+     */
+    public static void main(String[] args) throws RunnerException {
+        String threads = args.length > 0 ? args[0] : "1,8,32,128";
+        for (String t : threads.split(",")) {
+            new Runner(new OptionsBuilder()
+                    .include(H2OverheadBenchmark.class.getName())
+                    .threads(Integer.parseInt(t.trim()))
+                    .addProfiler(GCProfiler.class)
+                    .addProfiler(StackProfiler.class, "lines=3;top=5")
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("target/jmh-h2-threads-" + t.trim() + ".json")
+                    .build()).run();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.mybatis.mybatis.plugin.benchmark;
+
+import com.mybatis.mybatis.plugin.RuleFieldThreadLocal;
+import com.mybatis.mybatis.plugin.aware.MybatisInterceptorAware;
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.process.PluginLevelMatcher;
+import com.mybatis.mybatis.plugin.process.PluginLevelValidate;
+import com.mybatis.mybatis.plugin.process.PluginsProcessImpl;
+import com.mybatis.mybatis.plugin.utils.SqlParserUtil;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.SimpleExecutor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: mybatis plugin
+ * @description: SQL 改写热点路径基准测试，按 SqlCorpus 中的每种语料分别测量 PluginsProcessImpl#pluginsProcess、
+ * SqlParserUtil#whereHasTenantId、PluginLevelValidate#validateLevel 和 MybatisInterceptorAware#mybatisBeforeExecutor
+ * 的吞吐量和平均耗时。关闭改写缓存，每次都解析、改写。通过 mvn -P benchmark -DskipTests test 运行，
+ * 默认带 GC profiler 并把结果写到 target/jmh-result.json，用 BenchmarkCompare 对比两个版本的结果
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HotPathBenchmark {
+
+    @Param({"crud", "join", "union", "subquery", "insert", "1kb", "10kb", "100kb"})
+    public String corpus;
+
+    private String sql;
+
+    private PluginsProcessImpl process;
+
+    private PluginLevelMatcher matcher;
+
+    private Statement statement;
+
+    private MybatisInterceptorAware aware;
+
+    private MappedStatement mappedStatement;
+
+    private Executor executor;
+
+    private Method update;
+
+    @Setup
+    public void setUp() throws JSQLParserException, NoSuchMethodException {
+        BenchmarkSupport.quietLogging();
+        sql = SqlCorpus.sql(corpus);
+        MybatisPluginsConfig config = BenchmarkSupport.tenantPluginsConfig();
+        config.getCache().setEnable(false);
+        process = new PluginsProcessImpl(config, BenchmarkSupport.ruleProcess());
+        matcher = PluginLevelMatcher.compile(config.getPlugins().get(0));
+        statement = CCJSqlParserUtil.parse(sql);
+
+        aware = new MybatisInterceptorAware(process);
+        Configuration configuration = new Configuration();
+        mappedStatement = new MappedStatement.Builder(configuration, "com.demo.UserMapper." + corpus,
+                new StaticSqlSource(configuration, sql), SqlCorpus.commandType(corpus)).build();
+        executor = new SimpleExecutor(configuration, null);
+        // 不真正执行，只经过拦截器的改写流程
+        update = Executor.class.getMethod("update", MappedStatement.class, Object.class);
+        RuleFieldThreadLocal.setVariable(BenchmarkSupport.TENANT_VALUE_KEY, "t1");
+    }
+
+    @TearDown
+    public void tearDown() {
+        RuleFieldThreadLocal.remove();
+    }
+
+    @Benchmark
+    public String pluginsProcess() {
+        return process.pluginsProcess(process.newContext(null, sql));
+    }
+
+    @Benchmark
+    public boolean whereHasTenantId() {
+        return SqlParserUtil.whereHasTenantId(sql);
+    }
+
+    @Benchmark
+    public Boolean validateLevel() {
+        return PluginLevelValidate.DEFAULT.validateLevel(matcher, statement);
+    }
+
+    @Benchmark
+    public Object mybatisBeforeExecutor() {
+        Object[] args = new Object[]{mappedStatement, null};
+        aware.mybatisBeforeExecutor(new Invocation(executor, update, args));
+        return args[0];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(HotPathBenchmark.class.getName()).build()).run();
+    }
+}
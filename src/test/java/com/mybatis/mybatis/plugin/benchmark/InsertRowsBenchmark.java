@@ -0,0 +1,79 @@
+package com.mybatis.mybatis.plugin.benchmark;
+
+import com.mybatis.mybatis.plugin.RuleFieldThreadLocal;
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.process.PluginsProcessImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: mybatis plugin
+ * @description: 多行 INSERT 改写基准测试，关闭改写缓存，对比流式改写与直接解析的耗时；
+ * 流式改写只解析占位行，耗时和分配量只随 SQL 长度线性增长。加上 -prof gc 可以对比每次改写的分配量
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InsertRowsBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int rows;
+
+    /**
+     * 0 表示不替换
+     */
+    @Param({"0", "100"})
+    public int streamInsertRows;
+
+    private PluginsProcessImpl process;
+
+    private String sql;
+
+    @Setup
+    public void setUp() {
+        BenchmarkSupport.quietLogging();
+        MybatisPluginsConfig config = BenchmarkSupport.tenantPluginsConfig();
+        config.getCache().setEnable(false);
+        config.setSplice(true);
+        config.setStreamInsertRows(streamInsertRows);
+        process = new PluginsProcessImpl(config, BenchmarkSupport.ruleProcess());
+        StringBuilder builder = new StringBuilder("insert into user (id, name, status) values ");
+        for (int i = 0; i < rows; i++) {
+            builder.append(i == 0 ? "" : ", ").append("(?, ?, 1)");
+        }
+        sql = builder.toString();
+        RuleFieldThreadLocal.setVariable(BenchmarkSupport.TENANT_VALUE_KEY, "t1");
+    }
+
+    @TearDown
+    public void tearDown() {
+        RuleFieldThreadLocal.remove();
+    }
+
+    @Benchmark
+    public String rewrite() {
+        return process.pluginsProcess(process.newContext(null, sql));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(InsertRowsBenchmark.class.getName()).build()).run();
+    }
+}
@@ -0,0 +1,79 @@
+package com.mybatis.mybatis.plugin.benchmark;
+
+import com.mybatis.mybatis.plugin.RuleFieldThreadLocal;
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.process.PluginsProcessImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: mybatis plugin
+ * @description: 大 IN 列表改写基准测试，关闭改写缓存，对比解析前替换字面量列表与直接解析的耗时；
+ * 替换后耗时只随 SQL 长度线性增长，不再随列表元素数量创建语法树节点。加上 -prof gc 可以对比每次改写的分配量
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LiteralListBenchmark {
+
+    @Param({"10", "1000", "5000"})
+    public int size;
+
+    /**
+     * 0 表示不替换
+     */
+    @Param({"0", "16"})
+    public int collapseListSize;
+
+    private PluginsProcessImpl process;
+
+    private String sql;
+
+    @Setup
+    public void setUp() {
+        BenchmarkSupport.quietLogging();
+        MybatisPluginsConfig config = BenchmarkSupport.tenantPluginsConfig();
+        config.getCache().setEnable(false);
+        config.setSplice(true);
+        config.setCollapseListSize(collapseListSize);
+        process = new PluginsProcessImpl(config, BenchmarkSupport.ruleProcess());
+        StringBuilder builder = new StringBuilder("select u.id, u.name from user u where u.status = 1 and u.id in (");
+        for (int i = 0; i < size; i++) {
+            builder.append(i == 0 ? "" : ", ").append('?');
+        }
+        sql = builder.append(") order by u.id").toString();
+        RuleFieldThreadLocal.setVariable(BenchmarkSupport.TENANT_VALUE_KEY, "t1");
+    }
+
+    @TearDown
+    public void tearDown() {
+        RuleFieldThreadLocal.remove();
+    }
+
+    @Benchmark
+    public String rewrite() {
+        return process.pluginsProcess(process.newContext(null, sql));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LiteralListBenchmark.class.getName()).build()).run();
+    }
+}
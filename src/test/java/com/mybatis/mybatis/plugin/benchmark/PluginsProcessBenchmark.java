@@ -0,0 +1,76 @@
+package com.mybatis.mybatis.plugin.benchmark;
+
+import com.mybatis.mybatis.plugin.RuleFieldThreadLocal;
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.process.PluginsProcessImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @program: mybatis plugin
+ * @description: SQL 改写多线程吞吐量基准测试，插件快照无锁读取后吞吐量应随线程数线性增长。
+ * 运行方式：先 mvn test-compile，再以 test classpath 执行本类 main 方法，参数为最大线程数
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PluginsProcessBenchmark {
+
+    private static final String SQL = "select u.id, u.name from user u where u.id = 1 and u.status in (1, 2)";
+
+    @State(Scope.Benchmark)
+    public static class Process {
+
+        /**
+         * 关闭缓存时每次都解析、改写 SQL
+         */
+        @Param({"false", "true"})
+        public boolean cache;
+
+        PluginsProcessImpl pluginsProcess;
+
+        @Setup
+        public void setUp() {
+            MybatisPluginsConfig config = BenchmarkSupport.tenantPluginsConfig();
+            config.getCache().setEnable(cache);
+            pluginsProcess = new PluginsProcessImpl(config, BenchmarkSupport.ruleProcess());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Tenant {
+
+        private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            RuleFieldThreadLocal.setVariable(BenchmarkSupport.TENANT_VALUE_KEY, "t" + SEQUENCE.incrementAndGet() % 8);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            RuleFieldThreadLocal.remove();
+        }
+    }
+
+    @Benchmark
+    public String rewrite(Process process, Tenant tenant) {
+        return process.pluginsProcess.pluginsProcess("com.demo.UserMapper.selectById", SQL);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        BenchmarkSupport.runScaling(PluginsProcessBenchmark.class, maxThreads);
+    }
+}
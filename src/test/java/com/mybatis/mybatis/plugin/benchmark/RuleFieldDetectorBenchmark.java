@@ -0,0 +1,85 @@
+package com.mybatis.mybatis.plugin.benchmark;
+
+import com.mybatis.mybatis.plugin.utils.RuleFieldDetector;
+import com.mybatis.mybatis.plugin.utils.SqlParserUtil;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: mybatis plugin
+ * @description: 规则字段检测基准测试，对比 SqlParserUtil 每层 toString 的实现与一次遍历的 RuleFieldDetector。
+ * 查询中不包含租户条件，两种实现都需要遍历整棵语法树
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RuleFieldDetectorBenchmark {
+
+    /**
+     * small 约 100 字节，medium 约 3 KB，huge 约 30 KB
+     */
+    @Param({"small", "medium", "huge"})
+    public String size;
+
+    private Statement statement;
+
+    @Setup
+    public void setUp() throws JSQLParserException {
+        int conditions = "small".equals(size) ? 1 : "medium".equals(size) ? 12 : 120;
+        statement = CCJSqlParserUtil.parse(reportSql(conditions));
+    }
+
+    /**
+     * 生成带 join、子查询、union 的报表查询，select 列中包含 tenant_id 保证 toString 预检查无法提前返回
+     */
+    static String reportSql(int conditions) {
+        StringBuilder sql = new StringBuilder();
+        for (int u = 0; u < 2; u++) {
+            if (u > 0) {
+                sql.append(" union all ");
+            }
+            sql.append("select u.id, u.tenant_id, o.amount from user u left join orders o on u.id = o.user_id")
+                    .append(" where u.status = 1");
+            for (int i = 0; i < conditions; i++) {
+                sql.append(" and (u.c").append(i).append(" = ").append(i)
+                        .append(" or u.id in (select user_id from orders where amount > ").append(i)
+                        .append(" and name like 'n").append(i).append("%'))");
+            }
+        }
+        return sql.toString();
+    }
+
+    @Benchmark
+    public boolean sqlParserUtil() {
+        return SqlParserUtil.whereHasTenantId(statement);
+    }
+
+    @Benchmark
+    public boolean ruleFieldDetector() {
+        return RuleFieldDetector.DEFAULT.whereHasField(statement);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RuleFieldDetectorBenchmark.class.getName()).build()).run();
+    }
+}
@@ -0,0 +1,76 @@
+package com.mybatis.mybatis.plugin.benchmark;
+
+import org.apache.ibatis.mapping.SqlCommandType;
+
+/**
+ * @program: mybatis plugin
+ * @description: 基准测试使用的 SQL 语料，按名称生成：单表增删改查、多表关联、UNION、多层子查询、多行 INSERT，
+ * 以及 1 KB、10 KB、100 KB 大小的查询。都不包含 tenant_id，租户插件每次都需要改写
+ */
+public final class SqlCorpus {
+
+    /**
+     * 所有语料名称，与基准测试的 @Param 保持一致
+     */
+    public static final String[] NAMES = {"crud", "join", "union", "subquery", "insert", "1kb", "10kb", "100kb"};
+
+    private SqlCorpus() {
+    }
+
+    public static String sql(String name) {
+        switch (name) {
+            case "crud":
+                return "select id, name, status from user where id = ? and status = 1";
+            case "join":
+                return "select u.id, u.name, o.id, o.amount, p.name from user u"
+                        + " inner join orders o on o.user_id = u.id"
+                        + " left join product p on p.id = o.product_id"
+                        + " left join org g on g.id = u.org_id"
+                        + " where u.status = 1 and o.created_at > ? order by o.created_at desc limit 20";
+            case "union":
+                return "select id, name from user where status = 1"
+                        + " union all select id, name from user_archive where status = 1"
+                        + " union select id, name from user_history where deleted = 0";
+            case "subquery":
+                return "select * from user u where u.org_id in (select g.id from org g where g.parent_id in"
+                        + " (select p.id from org p where p.code = ? and exists"
+                        + " (select 1 from org_admin a where a.org_id = p.id and a.user_id = ?)))"
+                        + " and u.id not in (select b.user_id from blacklist b)";
+            case "insert":
+                return insert(100);
+            case "1kb":
+                return sized(1024);
+            case "10kb":
+                return sized(10 * 1024);
+            case "100kb":
+                return sized(100 * 1024);
+            default:
+                throw new IllegalArgumentException("unknown sql corpus " + name);
+        }
+    }
+
+    public static SqlCommandType commandType(String name) {
+        return "insert".equals(name) ? SqlCommandType.INSERT : SqlCommandType.SELECT;
+    }
+
+    private static String insert(int rows) {
+        StringBuilder builder = new StringBuilder("insert into user (id, name, status, org_id) values ");
+        for (int i = 0; i < rows; i++) {
+            builder.append(i == 0 ? "" : ", ").append("(?, ?, 1, ?)");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 由 OR 连接的多组条件拼成的查询，长度不小于 length
+     */
+    private static String sized(int length) {
+        StringBuilder builder = new StringBuilder("select u.id, u.name, u.status, u.org_id from user u"
+                + " left join org g on g.id = u.org_id where u.status = 1 and (");
+        for (int i = 0; builder.length() < length; i++) {
+            builder.append(i == 0 ? "" : " or ").append("(u.name like 'user_").append(i)
+                    .append("%' and g.code = 'org_").append(i).append("')");
+        }
+        return builder.append(") order by u.id").toString();
+    }
+}
@@ -0,0 +1,98 @@
+package com.mybatis.mybatis.plugin.cache;
+
+import com.mybatis.mybatis.plugin.config.ParseFailPolicyType;
+import com.mybatis.mybatis.plugin.config.ParseFailureConfig;
+import com.mybatis.mybatis.plugin.exception.SqlParseLimitException;
+import com.mybatis.mybatis.plugin.process.SqlStatementContext;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@RunWith(SpringRunner.class)
+public class ParseFailureCacheTest {
+
+    private static final String UNPARSEABLE = "select * from user where id = 1 lock in share mode";
+
+    @Test
+    public void failure() {
+        ParseFailureCache cache = new ParseFailureCache(new ParseFailureConfig());
+        assert cache.failure(UNPARSEABLE) == null;
+        assert cache.put(UNPARSEABLE, "error");
+        assert !cache.put(UNPARSEABLE, "error");
+        assert cache.failure(UNPARSEABLE).getMessage().equals("error");
+        assert !cache.failure(UNPARSEABLE).isLimited();
+        assert cache.failureCount() == 2;
+        assert cache.hitCount() == 2;
+        assert cache.size() == 1;
+        assert cache.put(UNPARSEABLE + " limit", "too long", true);
+        assert cache.failure(UNPARSEABLE + " limit").isLimited();
+        assert cache.limitCount() == 1;
+
+        cache.record(ParseFailPolicyType.pass);
+        cache.record(ParseFailPolicyType.pass);
+        cache.record(ParseFailPolicyType.block);
+        assert cache.policyCount(ParseFailPolicyType.pass) == 2;
+        assert cache.policyCount(ParseFailPolicyType.block) == 1;
+        assert cache.policyCount(ParseFailPolicyType.fallback) == 0;
+
+        cache.invalidateAll();
+        assert cache.failure(UNPARSEABLE) == null;
+    }
+
+    @Test
+    public void context() {
+        ParseFailureCache cache = new ParseFailureCache(null);
+        SqlStatementContext first = new SqlStatementContext(null, UNPARSEABLE, false, cache);
+        assert first.getStatement() == null;
+        assert first.getParseError() != null;
+        assert cache.failureCount() == 1;
+
+        // 同一条 SQL 不再解析
+        SqlStatementContext second = new SqlStatementContext(null, UNPARSEABLE, false, cache);
+        assert second.getStatement() == null;
+        assert second.getParseError().equals(first.getParseError());
+        assert cache.failureCount() == 1;
+        assert cache.hitCount() == 1;
+
+        SqlStatementContext parsed = new SqlStatementContext(null, "select * from user", false, cache);
+        assert parsed.getStatement() != null;
+        assert parsed.getParseError() == null;
+        assert cache.size() == 1;
+    }
+
+    @Test
+    public void limitReasons() {
+        AtomicLong nanos = new AtomicLong();
+        ParseFailureConfig config = new ParseFailureConfig();
+        config.setTimeoutExpireSeconds(60L);
+        ParseFailureCache cache = new ParseFailureCache(config, nanos::get);
+        assert cache.put("select length", "too long", SqlParseLimitException.Reason.length);
+        assert cache.put("select timeout", "timeout", SqlParseLimitException.Reason.timeout);
+        assert !cache.put("select timeout", "timeout", SqlParseLimitException.Reason.timeout);
+        // 线程池繁忙与 SQL 无关，不记录
+        assert !cache.put("select busy", "busy", SqlParseLimitException.Reason.busy);
+        assert cache.failure("select busy") == null;
+        assert cache.failure("select timeout").isLimited();
+        assert cache.limitCount() == 4;
+
+        // 解析超时的记录过期后重新解析，长度限制一直记录
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        assert cache.failure("select timeout") == null;
+        assert cache.failure("select length").isLimited();
+    }
+
+    @Test
+    public void eviction() {
+        ParseFailureConfig config = new ParseFailureConfig();
+        config.setMaximumSize(10L);
+        ParseFailureCache cache = new ParseFailureCache(config);
+        for (int i = 0; i < 100; i++) {
+            cache.put(UNPARSEABLE + i, "error");
+        }
+        cache.cleanUp();
+        assert cache.size() <= 10;
+    }
+}
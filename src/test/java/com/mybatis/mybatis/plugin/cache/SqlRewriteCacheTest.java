@@ -0,0 +1,84 @@
+package com.mybatis.mybatis.plugin.cache;
+
+import com.mybatis.mybatis.plugin.config.RewriteCacheConfig;
+import com.mybatis.mybatis.plugin.process.ResolvedRuleField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(SpringRunner.class)
+public class SqlRewriteCacheTest {
+
+    private SqlRewriteCacheKey key(String sql, String fieldValue) {
+        return new SqlRewriteCacheKey("com.demo.UserMapper.select", sql,
+                Collections.singletonList(new ResolvedRuleField("tenant_id", fieldValue, true)));
+    }
+
+    @Test
+    public void hitAndMiss() {
+        SqlRewriteCache cache = new SqlRewriteCache(enabled());
+        AtomicInteger rewrites = new AtomicInteger();
+
+        SqlTemplate first = cache.get(key("select * from user", "1"), k -> SqlTemplate.constant("rewrite-" + rewrites.incrementAndGet()));
+        SqlTemplate second = cache.get(key("select * from user", "1"), k -> SqlTemplate.constant("rewrite-" + rewrites.incrementAndGet()));
+        SqlTemplate other = cache.get(key("select * from user", "2"), k -> SqlTemplate.constant("rewrite-" + rewrites.incrementAndGet()));
+
+        assert first == second;
+        assert first != other;
+        assert rewrites.get() == 2;
+        assert cache.hitCount() == 1;
+        assert cache.missCount() == 2;
+    }
+
+    @Test
+    public void eviction() {
+        RewriteCacheConfig config = enabled();
+        config.setMaximumSize(10L);
+        // 同步执行淘汰，避免异步维护任务未完成时断言失败
+        SqlRewriteCache cache = new SqlRewriteCache(config, Runnable::run);
+        for (int i = 0; i < 100; i++) {
+            cache.get(key("select * from user where id = " + i, "1"), k -> SqlTemplate.constant(k.getSql()));
+        }
+        cache.cleanUp();
+        assert cache.size() <= 10;
+        assert cache.evictionCount() >= 90;
+    }
+
+    @Test
+    public void disabled() {
+        RewriteCacheConfig config = new RewriteCacheConfig();
+        config.setEnable(false);
+        SqlRewriteCache cache = new SqlRewriteCache(config);
+        AtomicInteger rewrites = new AtomicInteger();
+        cache.get(key("select * from user", "1"), k -> SqlTemplate.constant("rewrite-" + rewrites.incrementAndGet()));
+        cache.get(key("select * from user", "1"), k -> SqlTemplate.constant("rewrite-" + rewrites.incrementAndGet()));
+
+        assert !cache.isEnabled();
+        assert rewrites.get() == 2;
+        assert cache.hitCount() == 0;
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void exceptionNotCached() {
+        SqlRewriteCache cache = new SqlRewriteCache(enabled());
+        try {
+            cache.get(key("select * from user", "1"), k -> {
+                throw new IllegalStateException("stop");
+            });
+        } catch (IllegalStateException e) {
+            assert cache.size() == 0;
+        }
+        cache.get(key("select * from user", "1"), k -> {
+            throw new IllegalStateException("stop again");
+        });
+    }
+
+    private static RewriteCacheConfig enabled() {
+        RewriteCacheConfig config = new RewriteCacheConfig();
+        config.setEnable(true);
+        return config;
+    }
+}
@@ -0,0 +1,99 @@
+package com.mybatis.mybatis.plugin.cache;
+
+import com.mybatis.mybatis.plugin.config.RuleFieldValueType;
+import com.mybatis.mybatis.plugin.process.BindValue;
+import com.mybatis.mybatis.plugin.process.ResolvedRuleField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+public class SqlTemplateTest {
+
+    @Test
+    public void compileAndRender() {
+        String rewritten = "SELECT * FROM user u JOIN orders o ON u.id = o.user_id AND o.tenant_id = '"
+                + SqlTemplate.marker(0) + "' WHERE u.tenant_id = '" + SqlTemplate.marker(0)
+                + "' AND u.org_id = '" + SqlTemplate.marker(1) + "'";
+        SqlTemplate template = SqlTemplate.compile(rewritten);
+        List<ResolvedRuleField> fields = Arrays.asList(
+                new ResolvedRuleField("tenant_id", "t1", true),
+                new ResolvedRuleField("org_id", "o1", true));
+
+        assert template.slotCount() == 3;
+        assert template.render(fields).equals("SELECT * FROM user u JOIN orders o ON u.id = o.user_id"
+                + " AND o.tenant_id = 't1' WHERE u.tenant_id = 't1' AND u.org_id = 'o1'");
+    }
+
+    @Test
+    public void renderValueType() {
+        SqlTemplate template = SqlTemplate.compile("SELECT * FROM user WHERE user.tenant_id = '"
+                + SqlTemplate.marker(0) + "' AND id = ?");
+        List<ResolvedRuleField> fields = Arrays.asList(
+                new ResolvedRuleField("tenant_id", "42", true, RuleFieldValueType.number));
+
+        assert template.render(fields).equals("SELECT * FROM user WHERE user.tenant_id = 42 AND id = ?");
+        assert template.bindValues(fields).get(0).getValue().equals(42L);
+    }
+
+    @Test
+    public void constant() {
+        SqlTemplate template = SqlTemplate.compile("SELECT * FROM user WHERE name = '__guarder_value_x__'");
+        assert template.isConstant();
+        assert template.render(null).equals("SELECT * FROM user WHERE name = '__guarder_value_x__'");
+        assert SqlTemplate.conflicts("SELECT * FROM user WHERE name = '__guarder_value_x__'");
+    }
+
+    @Test
+    public void markers() {
+        List<ResolvedRuleField> fields = Arrays.asList(
+                new ResolvedRuleField("tenant_id", "t1", false),
+                new ResolvedRuleField("org_id", null, true));
+        List<ResolvedRuleField> markers = SqlTemplate.markers(fields);
+
+        assert markers.get(0).getFieldValue().equals(SqlTemplate.marker(0));
+        assert markers.get(0).isCacheable();
+        assert markers.get(1) == fields.get(1);
+        assert markers.equals(SqlTemplate.markers(Arrays.asList(
+                new ResolvedRuleField("tenant_id", "t2", true),
+                new ResolvedRuleField("org_id", null, true))));
+    }
+
+    @Test
+    public void bindSql() {
+        String rewritten = "SELECT * FROM user WHERE user.tenant_id = '" + SqlTemplate.marker(0)
+                + "' AND id = ? AND name = '?' AND code = ? -- ?\n AND org_id = '" + SqlTemplate.marker(1) + "'";
+        SqlTemplate template = SqlTemplate.compile(rewritten);
+        List<BindValue> values = template.bindValues(Arrays.asList(
+                new ResolvedRuleField("tenant_id", "t1", true),
+                new ResolvedRuleField("org_id", "o'1", true)));
+
+        assert template.getBindSql().equals("SELECT * FROM user WHERE user.tenant_id = ? AND id = ?"
+                + " AND name = '?' AND code = ? -- ?\n AND org_id = ?");
+        assert values.size() == 2;
+        assert values.get(0).getPosition() == 0;
+        assert values.get(0).getValue().equals("t1");
+        // 字符串和注释中的 ? 不计数
+        assert values.get(1).getPosition() == 3;
+        assert values.get(1).getValue().equals("o'1");
+        assert SqlTemplate.constant("SELECT 1").bindValues(null).isEmpty();
+    }
+
+    @Test
+    public void countPlaceholders() {
+        assert SqlTemplate.countPlaceholders("a = ? and b = ?") == 2;
+        assert SqlTemplate.countPlaceholders("a = 'it''s ?' and `?` = ? /* ? */ and \"?\" = ?") == 2;
+        assert SqlTemplate.countPlaceholders("a = ? -- ?") == 1;
+        assert SqlTemplate.countPlaceholders("a = '?") == 0;
+        // 与 JSqlParser 一致，字符串中的反斜杠转义下一个字符
+        assert SqlTemplate.countPlaceholders("name = 'a\\'?' and id = ? and x = ?") == 2;
+        assert SqlTemplate.countPlaceholders("name = 'a\\\\' and id = ?") == 1;
+        assert SqlTemplate.countPlaceholders("name = 'a\\") == 0;
+        assert SqlTemplate.bindable("name = 'it''s' and \"a\\b\" = ?");
+        assert !SqlTemplate.bindable("name = 'a\\'?' and id = ?");
+        assert !SqlTemplate.bindable("name = 'a\\\\' and id = ?");
+    }
+}
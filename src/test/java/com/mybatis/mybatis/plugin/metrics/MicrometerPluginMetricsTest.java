@@ -0,0 +1,181 @@
+package com.mybatis.mybatis.plugin.metrics;
+
+import com.mybatis.mybatis.plugin.MybatisPluginInterceptor;
+import com.mybatis.mybatis.plugin.RuleFieldThreadLocal;
+import com.mybatis.mybatis.plugin.aware.MybatisInterceptorAware;
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.config.ParseFailPolicyType;
+import com.mybatis.mybatis.plugin.config.PluginConfig;
+import com.mybatis.mybatis.plugin.config.PluginLevelType;
+import com.mybatis.mybatis.plugin.config.PluginRule;
+import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
+import com.mybatis.mybatis.plugin.config.RuleFieldPolicy;
+import com.mybatis.mybatis.plugin.config.RuleFieldPolicyType;
+import com.mybatis.mybatis.plugin.config.RuleFieldValueFailPolicyType;
+import com.mybatis.mybatis.plugin.config.RuleFieldValuePolicy;
+import com.mybatis.mybatis.plugin.config.RuleFieldValuePolicyType;
+import com.mybatis.mybatis.plugin.exception.RuleProcessPolicyException;
+import com.mybatis.mybatis.plugin.exception.SqlParseFailException;
+import com.mybatis.mybatis.plugin.process.PluginRuleProcessImpl;
+import com.mybatis.mybatis.plugin.process.PluginsProcessImpl;
+import com.mybatis.mybatis.plugin.process.RuleProcessImpl;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldPolicyProcessImpl;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldValueFailPolicyProcess;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldValuePolicyProcessImpl;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+
+@RunWith(SpringRunner.class)
+public class MicrometerPluginMetricsTest {
+
+    private static final String NAMESPACE = "com.demo.UserMapper";
+
+    private final Configuration configuration = new Configuration();
+
+    private final Executor executor = Mockito.mock(Executor.class);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @After
+    public void tearDown() {
+        RuleFieldThreadLocal.remove();
+    }
+
+    @Test
+    public void phases() throws Throwable {
+        MybatisPluginInterceptor interceptor = interceptor(RuleFieldValueFailPolicyType.run);
+        RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+        MappedStatement select = statement("selectById", "select * from user where id = ?");
+        intercept(interceptor, select);
+        intercept(interceptor, select);
+
+        // precompiled 只在预编译的 SqlSource 中记录
+        for (PluginPhase phase : PluginPhase.values()) {
+            assert timer(phase) != null || phase == PluginPhase.precompiled : phase;
+        }
+        assert timer(PluginPhase.intercept).count() == 2;
+        assert timer(PluginPhase.detect).count() == 2;
+        // SQL 中没有规则字段时检测不解析，第二次执行命中改写缓存，不再解析和执行规则
+        assert timer(PluginPhase.parse).count() == 1;
+        assert timer(PluginPhase.rule).count() == 1;
+        assert timer(PluginPhase.deparse).count() == 1;
+        assert timer(PluginPhase.mapped_statement).count() == 2;
+        assert counter(PluginOutcome.rewritten, MicrometerPluginMetrics.NONE).count() == 2;
+
+        intercept(interceptor, statement("selectByTenant", "select * from user where tenant_id = ?"));
+        assert counter(PluginOutcome.skipped, MicrometerPluginMetrics.NONE).count() == 1;
+        assert timer(PluginPhase.parse).count() == 2;
+        // 同一个 namespace 下的语句共用 Meter
+        assert timer(PluginPhase.intercept).count() == 3;
+    }
+
+    @Test
+    public void failures() throws Throwable {
+        MybatisPluginInterceptor interceptor = interceptor(RuleFieldValueFailPolicyType.stop);
+        MappedStatement select = statement("selectById", "select * from user where id = ?");
+        try {
+            intercept(interceptor, select);
+            assert false;
+        } catch (RuleProcessPolicyException e) {
+            assert e.getRule().getName().equals("add_tenant");
+        }
+        assert counter(PluginOutcome.stopped, "tenant").count() == 1;
+
+        RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+        try {
+            intercept(interceptor, statement("lock", "select * from user where id = 1 lock in share mode"));
+            assert false;
+        } catch (SqlParseFailException e) {
+            assert e.getSql() != null;
+        }
+        assert counter(PluginOutcome.failed, "tenant").count() == 1;
+        assert timer(PluginPhase.parse).count() == 2;
+    }
+
+    @Test
+    public void noop() throws Throwable {
+        MybatisInterceptorAware aware = new MybatisInterceptorAware(process(RuleFieldValueFailPolicyType.run));
+        MybatisPluginInterceptor interceptor = new MybatisPluginInterceptor(Collections.singletonList(aware));
+        RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+        MappedStatement select = statement("selectById", "select * from user where id = ?");
+        Object[] args = intercept(interceptor, select);
+        assert args[0] != select;
+        assert registry.getMeters().isEmpty();
+        assert !PluginMetrics.NOOP.isEnabled();
+        assert MicrometerPluginMetrics.namespace(NAMESPACE + ".selectById").equals(NAMESPACE);
+        assert MicrometerPluginMetrics.namespace("selectById").equals("selectById");
+    }
+
+    private MybatisPluginInterceptor interceptor(RuleFieldValueFailPolicyType failPolicy) {
+        PluginMetrics metrics = new MicrometerPluginMetrics(registry);
+        MybatisInterceptorAware aware = new MybatisInterceptorAware(process(failPolicy));
+        aware.setMetrics(metrics);
+        return new MybatisPluginInterceptor(Collections.singletonList(aware), metrics);
+    }
+
+    private Object[] intercept(MybatisPluginInterceptor interceptor, MappedStatement statement) throws Throwable {
+        Method update = Executor.class.getMethod("update", MappedStatement.class, Object.class);
+        Object[] args = {statement, null};
+        interceptor.intercept(new Invocation(executor, update, args));
+        return args;
+    }
+
+    private MappedStatement statement(String method, String sql) {
+        return new MappedStatement.Builder(configuration, NAMESPACE + "." + method,
+                new StaticSqlSource(configuration, sql), SqlCommandType.SELECT).build();
+    }
+
+    private Timer timer(PluginPhase phase) {
+        return registry.find(MicrometerPluginMetrics.PHASE)
+                .tags("phase", phase.name(), "namespace", NAMESPACE, "type", "SELECT").timer();
+    }
+
+    private Counter counter(PluginOutcome outcome, String plugin) {
+        return registry.find(MicrometerPluginMetrics.STATEMENTS)
+                .tags("outcome", outcome.name(), "namespace", NAMESPACE, "type", "SELECT", "plugin", plugin)
+                .counter();
+    }
+
+    private static PluginsProcessImpl process(RuleFieldValueFailPolicyType failPolicy) {
+        PluginConfig pluginConfig = new PluginConfig();
+        pluginConfig.setName("tenant");
+        pluginConfig.setLevel(PluginLevelType.dml);
+        pluginConfig.setValue(Arrays.asList("select", "insert", "update", "delete"));
+        pluginConfig.setParseFailPolicy(ParseFailPolicyType.block);
+        PluginRule rule = new PluginRule();
+        rule.setName("add_tenant");
+        rule.setValue(PluginRuleValueType.add_where_field);
+        RuleFieldPolicy fieldPolicy = new RuleFieldPolicy();
+        fieldPolicy.setName(RuleFieldPolicyType.conf);
+        fieldPolicy.setValue("tenant_id");
+        rule.setFieldPolicy(fieldPolicy);
+        RuleFieldValuePolicy valuePolicy = new RuleFieldValuePolicy();
+        valuePolicy.setName(RuleFieldValuePolicyType.threadLocal);
+        valuePolicy.setValue("tenant_id_value");
+        rule.setFieldValuePolicy(valuePolicy);
+        rule.setFieldValueFailPolicy(failPolicy);
+        pluginConfig.setRules(Arrays.asList(rule));
+        MybatisPluginsConfig config = new MybatisPluginsConfig();
+        config.getCache().setEnable(true);
+        config.setPlugins(Arrays.asList(pluginConfig));
+        return new PluginsProcessImpl(config, new RuleProcessImpl(new RuleFieldPolicyProcessImpl(),
+                new RuleFieldValuePolicyProcessImpl(), new RuleFieldValueFailPolicyProcess(),
+                new PluginRuleProcessImpl()));
+    }
+}
@@ -0,0 +1,123 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.config.PluginConfig;
+import com.mybatis.mybatis.plugin.config.PluginLevelType;
+import com.mybatis.mybatis.plugin.config.PluginRule;
+import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
+import com.mybatis.mybatis.plugin.config.RuleFieldValueType;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+public class FusedRuleEngineTest {
+
+    private static final List<String> SQLS = Arrays.asList(
+            "select * from user",
+            "select * from user where id = 1",
+            "select * from user where id = 1 or name = 'a'",
+            "select * from user u where u.id in (select user_id from orders where status = 1)",
+            "select * from user where id = 1 and org_id in (select id from org)",
+            "select * from user where org_id in (select id from org) and id = 1 and name = 'a'",
+            "select * from user where (select count(*) from orders) > 0",
+            "select * from user u left join orders o on o.user_id = u.id where u.id = 1",
+            "select * from user u join orders o on o.user_id = u.id or o.code = u.code join dict d on d.id = o.type",
+            "select * from (select * from user where id = 1) t join orders o on o.user_id = t.id",
+            "select id from user where name = 'a' union all select id from orders where id in (select id from dict)",
+            "select * from (user u join orders o on o.user_id = u.id)",
+            "select * from user, orders",
+            "insert into user (id, name) values (1, 'a')",
+            "insert into user (id, name) values (1, 'a'), (2, 'b')",
+            "insert into user (id) select id from orders",
+            "update user set name = 'b' where id = 1",
+            "update user u set name = 'b' where id = 1 or id = 2",
+            "update user set name = 'b'",
+            "delete from user where id = 1 or id = 2",
+            "delete from user");
+
+    /**
+     * 联接表按快照判断
+     */
+    private PluginsSnapshot plugins;
+
+    @Before
+    public void setUp() {
+        PluginConfig plugin = new PluginConfig();
+        plugin.setName("tenant");
+        plugin.setLevel(PluginLevelType.table);
+        plugin.setValue(Arrays.asList("user", "orders"));
+        plugin.setRules(new ArrayList<>(Collections.singletonList(new PluginRule())));
+        MybatisPluginsConfig config = new MybatisPluginsConfig();
+        config.setPlugins(new ArrayList<>(Collections.singletonList(plugin)));
+        plugins = PluginsSnapshot.of(config);
+    }
+
+    private RuleAction action(PluginRuleValueType type, String field, String value) {
+        return new RuleAction(type, field, new StringValue(value));
+    }
+
+    @Test
+    public void sameAsSequential() throws JSQLParserException {
+        List<List<RuleAction>> ruleSets = Arrays.asList(
+                Arrays.asList(action(PluginRuleValueType.add_where_field, "tenant_id", "t1"),
+                        action(PluginRuleValueType.add_where_field, "org_id", "o1")),
+                Arrays.asList(action(PluginRuleValueType.add_where_field, "tenant_id", "t1"),
+                        action(PluginRuleValueType.add_where_field, "org_id", "o1"),
+                        new RuleAction(PluginRuleValueType.add_where_field, "scope",
+                                RuleFieldValueExpression.of("3", RuleFieldValueType.number)),
+                        action(PluginRuleValueType.add_where_field, "region", "r1")),
+                Arrays.asList(action(PluginRuleValueType.add_field, "updater", "u1"),
+                        action(PluginRuleValueType.add_where_field, "tenant_id", "t1"),
+                        action(PluginRuleValueType.add_insert_field, "creator", "c1"),
+                        action(PluginRuleValueType.add_update_field, "version", "2")));
+        PluginRuleProcessImpl pluginRuleProcess = new PluginRuleProcessImpl();
+        for (List<RuleAction> actions : ruleSets) {
+            assert FusedRuleEngine.supports(actions);
+            for (String sql : SQLS) {
+                Statement sequential = CCJSqlParserUtil.parse(sql);
+                String expected;
+                try {
+                    for (RuleAction action : actions) {
+                        pluginRuleProcess.ruleProcess(sequential, action.getType(), action.getField(),
+                                action.getFieldValue(), plugins);
+                    }
+                    expected = sequential.toString();
+                } catch (RuntimeException e) {
+                    expected = e.getClass().getName();
+                }
+                Statement fused = CCJSqlParserUtil.parse(sql);
+                String actual;
+                try {
+                    FusedRuleEngine.apply(fused, actions, plugins);
+                    actual = fused.toString();
+                } catch (RuntimeException e) {
+                    actual = e.getClass().getName();
+                }
+                assert expected.equals(actual) : sql + "\n" + expected + "\n" + actual;
+            }
+        }
+    }
+
+    @Test
+    public void fallback() throws JSQLParserException {
+        List<RuleAction> actions = Arrays.asList(action(PluginRuleValueType.add_where_field, "tenant_id", "t1"),
+                action(PluginRuleValueType.change_tableName, "tenant_id", "t1"));
+        assert !FusedRuleEngine.supports(actions);
+
+        Statement statement = CCJSqlParserUtil.parse("select * from user where id = 1");
+        new PluginRuleProcessImpl().ruleProcess(statement, actions);
+        assert statement.toString().equals(
+                "SELECT * FROM user WHERE id = 1 AND user.tenant_id = 't1' AND user.tenant_id = 't1'");
+    }
+}
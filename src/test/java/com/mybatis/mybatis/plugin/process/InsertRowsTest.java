@@ -0,0 +1,90 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+public class InsertRowsTest {
+
+    @Test
+    public void collapse() {
+        String sql = "insert into user (id, name, note) values (1, 'a', now()), (2, 'it''s (x)', null) ,\n"
+                + "(3, /* ) */ ?, (select max(id) from org));";
+        InsertRows rows = InsertRows.collapse(sql, 3);
+        assert rows.rows() == 3;
+        assert rows.getSkeleton().equals("insert into user (id, name, note) values ('__guarder_rows__');");
+        assert rows.expand(rows.getSkeleton()).equals(sql);
+        // 改写后占位行中新增的值追加到每一行
+        assert rows.expand("INSERT INTO user (id, name, note, tenant_id) VALUES ('__guarder_rows__', 't1');").equals(
+                "INSERT INTO user (id, name, note, tenant_id) VALUES (1, 'a', now(), 't1'), (2, 'it''s (x)', null, 't1') ,\n"
+                        + "(3, /* ) */ ?, (select max(id) from org), 't1');");
+        assert InsertRows.collapse("INSERT INTO `user` VALUE (1), (2)", 2).getSkeleton()
+                .equals("INSERT INTO `user` VALUE ('__guarder_rows__')");
+    }
+
+    @Test
+    public void mismatch() {
+        InsertRows rows = InsertRows.collapse("insert into user (id, name) values (1, 'a'), (2, 'b')", 2);
+        // 改写后占位行无法定位时返回 null，由调用方回退到原始 SQL
+        assert rows.expand("INSERT INTO user (id, name, tenant_id) VALUES ('a\\b', 't1')") == null;
+        assert rows.expand("INSERT INTO user (id, name, tenant_id) VALUES ('__guarder_rows__', 'a\\', 't1'") == null;
+    }
+
+    @Test
+    public void notCollapsed() {
+        for (String sql : Arrays.asList(
+                "insert into user (id) values (1), (2)",
+                "insert into user (id) values (1), (2), (3) on duplicate key update id = values(id)",
+                "insert into user (id) select id from org",
+                "insert into user (name) values ('a'), ('b'), ('c\\'')",
+                "insert into user (name) values ('a'), ('b'), ('c'",
+                "insert into user (name) values ('a'), ('b'), ('__guarder_rows__')",
+                "update user set name = 'values (1), (2), (3)'",
+                "select * from user where id in (1, 2, 3)")) {
+            assert InsertRows.collapse(sql, 3) == null : sql;
+        }
+        assert InsertRows.collapse("insert into user (id) values (1), (2), (3)", 0) == null;
+    }
+
+    /**
+     * 流式改写的结果与直接解析原始 SQL 的改写结果相同
+     */
+    @Test
+    public void sameAsParser() throws JSQLParserException {
+        List<RuleAction> actions = Collections.singletonList(
+                new RuleAction(PluginRuleValueType.add_where_field, "tenant_id", new StringValue("t1")));
+        for (String sql : Arrays.asList(
+                "insert into user (id, name) values (1, 'a'), (2, 'b'), (3, 'c')",
+                "insert into user u (id, name) values (?, ?), (?, ?), (?, ?)",
+                "insert into user (id, name) values (1, concat('a', 'b')), (2, 'b'), (3, 'c')")) {
+            SqlStatementContext streamed = new SqlStatementContext(null, sql, false, null,
+                    new SqlParseGuard(null, 0, 3));
+            SqlStatementContext original = new SqlStatementContext(null, sql);
+            String spliced = SpliceRewriter.rewrite(streamed, actions);
+            assert spliced.equals(SpliceRewriter.rewrite(original, actions)) : spliced;
+            assert streamed.getParsedSql().contains(InsertRows.MARKER);
+
+            FusedRuleEngine.apply(streamed.getStatement(), actions, PluginsSnapshot.EMPTY);
+            FusedRuleEngine.apply(original.getStatement(), actions, PluginsSnapshot.EMPTY);
+            String deparsed = streamed.deparse();
+            assert CCJSqlParserUtil.parse(deparsed).toString().equals(original.deparse()) : deparsed;
+
+            // 快速识别同样只识别占位行
+            SimpleStatement recognized = new SqlStatementContext(null, sql, true).getSimpleStatement();
+            SqlStatementContext fast = new SqlStatementContext(null, sql, true, null, new SqlParseGuard(null, 0, 3));
+            if (recognized != null) {
+                String simple = fast.expand(fast.getSimpleStatement().rewrite(actions));
+                assert simple.equals(recognized.rewrite(actions)) : simple;
+            }
+        }
+    }
+}
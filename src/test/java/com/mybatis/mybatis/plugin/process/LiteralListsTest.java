@@ -0,0 +1,75 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+public class LiteralListsTest {
+
+    @Test
+    public void collapse() {
+        String sql = "select * from user where id in (1, 2, -3.5) and name not in ('a', 'it''s', ?) -- in (1, 2, 3)\n"
+                + "and code IN(/* x */ null,?,?) and org_id in (select id from org) and type in (1, 2)";
+        LiteralLists lists = LiteralLists.collapse(sql, 3);
+        assert lists.size() == 3;
+        assert lists.getSkeleton().equals("select * from user where id in ('__guarder_list_0__') and name not in"
+                + " ('__guarder_list_1__') -- in (1, 2, 3)\nand code IN('__guarder_list_2__') and org_id in"
+                + " (select id from org) and type in (1, 2)");
+        assert lists.expand(lists.getSkeleton()).equals(sql);
+        // 转成大写之后同样可以换回
+        assert lists.expand("SELECT * FROM user WHERE id IN ('__guarder_list_0__')").equals(
+                "SELECT * FROM user WHERE id IN (1, 2, -3.5)");
+    }
+
+    @Test
+    public void notCollapsed() {
+        for (String sql : Arrays.asList(
+                "select * from user where id in (1, 2)",
+                "select * from user where id in (1, 2, id)",
+                "select * from user where id in (1, 2, now())",
+                "select * from user where id in (1, 2, 1e3)",
+                "select * from user where name in ('a', 'b', 'c\\'')",
+                "select * from user where name in ('a', 'b', 'c'",
+                "select * from user where name = 'in (1, 2, 3)'",
+                "select * from user where id in (1, 2, 3) and name = '__guarder_list_0__'",
+                "select * from user where id between 1 and 3")) {
+            assert LiteralLists.collapse(sql, 3) == null : sql;
+        }
+        assert LiteralLists.collapse("select * from user where id in (1, 2, 3)", 0) == null;
+    }
+
+    /**
+     * 按缩短后的 SQL 拼接改写，换回列表之后与直接解析原始 SQL 的改写结果相同
+     */
+    @Test
+    public void sameAsParser() throws JSQLParserException {
+        List<RuleAction> actions = Collections.singletonList(
+                new RuleAction(PluginRuleValueType.add_where_field, "tenant_id", new StringValue("t1")));
+        for (String sql : Arrays.asList(
+                "select * from user u where u.id in (1, 2, 3) or u.id in (?, ?, ?)",
+                "select * from user u join orders o on o.user_id = u.id and o.id in (4, 5, 6) where u.id = 1",
+                "update user set name = ? where id in (1, 2, 3)",
+                "delete from user where id not in ('a', 'b', 'c')")) {
+            SqlStatementContext collapsed = new SqlStatementContext(null, sql, false, null,
+                    new SqlParseGuard(null, 3));
+            SqlStatementContext original = new SqlStatementContext(null, sql);
+            String spliced = SpliceRewriter.rewrite(collapsed, actions);
+            assert spliced.equals(SpliceRewriter.rewrite(original, actions)) : spliced;
+            assert !collapsed.getParsedSql().equals(sql);
+
+            FusedRuleEngine.apply(collapsed.getStatement(), actions, PluginsSnapshot.EMPTY);
+            FusedRuleEngine.apply(original.getStatement(), actions, PluginsSnapshot.EMPTY);
+            String deparsed = collapsed.deparse();
+            assert CCJSqlParserUtil.parse(deparsed).toString().equals(original.deparse()) : deparsed;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.config.PluginConfig;
+import com.mybatis.mybatis.plugin.config.PluginLevelType;
+import com.mybatis.mybatis.plugin.config.PluginRule;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.select.Select;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+@RunWith(SpringRunner.class)
+public class PluginLevelMatcherTest {
+
+    private PluginConfig tablePlugin(String... values) {
+        PluginConfig plugin = new PluginConfig();
+        plugin.setName("table");
+        plugin.setLevel(PluginLevelType.table);
+        plugin.setValue(Arrays.asList(values));
+        plugin.setRules(new ArrayList<>(Collections.singletonList(new PluginRule())));
+        return plugin;
+    }
+
+    @Test
+    public void tableLevel() throws JSQLParserException {
+        PluginConfig plugin = tablePlugin("USER", "t_**order**");
+        plugin.setIgnoreTables(Arrays.asList("T_ORDER_LOG"));
+        PluginLevelMatcher matcher = PluginLevelMatcher.compile(plugin);
+
+        assert matcher.matches(CCJSqlParserUtil.parse("select * from User"));
+        assert matcher.matches(CCJSqlParserUtil.parse("select * from t_order_item"));
+        assert !matcher.matches(CCJSqlParserUtil.parse("select * from t_order_log"));
+        assert !matcher.matches(CCJSqlParserUtil.parse("select * from role"));
+        assert !matcher.matches(CCJSqlParserUtil.parse("select 1"));
+        // 联接表不判断忽略表
+        assert matcher.matchesTable("t_order_log");
+        assert !matcher.matchesTable("role");
+        // 重复判断命中缓存，结果不变
+        assert matcher.matches(CCJSqlParserUtil.parse("select * from t_order_item"));
+    }
+
+    @Test
+    public void sameAsPluginLevelValidate() throws JSQLParserException {
+        PluginConfig dml = new PluginConfig();
+        dml.setLevel(PluginLevelType.dml);
+        dml.setValue(Arrays.asList("Select", "update"));
+        dml.setIgnoreTables(Arrays.asList("update"));
+        PluginConfig databases = new PluginConfig();
+        databases.setLevel(PluginLevelType.databases);
+        databases.setValue(Arrays.asList("Demo"));
+        for (PluginConfig plugin : Arrays.asList(dml, databases, tablePlugin("all"), tablePlugin("**"))) {
+            PluginLevelMatcher matcher = PluginLevelMatcher.compile(plugin);
+            for (String sql : Arrays.asList("select * from demo.user", "update user set a = 1",
+                    "insert into demo.user (id) values (1)", "delete from user")) {
+                assert matcher.matches(CCJSqlParserUtil.parse(sql))
+                        == PluginLevelValidate.DEFAULT.validateLevel(plugin, CCJSqlParserUtil.parse(sql)) : sql;
+            }
+        }
+        assert PluginLevelMatcher.compile(dml).matches(CCJSqlParserUtil.parse("select * from user"));
+        assert !PluginLevelMatcher.compile(dml).matches(CCJSqlParserUtil.parse("update user set a = 1"));
+        assert PluginLevelMatcher.compile(databases).matches(CCJSqlParserUtil.parse("select * from demo.user"));
+    }
+
+    @Test
+    public void joinTable() throws JSQLParserException {
+        MybatisPluginsConfig config = new MybatisPluginsConfig();
+        config.setPlugins(new ArrayList<>(Collections.singletonList(tablePlugin("user", "orders"))));
+        PluginsSnapshot plugins = PluginsSnapshot.of(config);
+
+        String sql = "select * from user u join orders o on u.id = o.user_id join role r on r.id = u.role_id";
+        Select select = (Select) CCJSqlParserUtil.parse(sql);
+        new AddWhereFieldPluginRuleProcess(plugins).ruleProcess(select, "tenant_id", "t1");
+        String newSql = select.toString();
+        assert newSql.contains("o.tenant_id = 't1'");
+        assert !newSql.contains("r.tenant_id");
+
+        // 联接表只按传入的快照判断，其他实例的配置不会影响
+        select = (Select) CCJSqlParserUtil.parse(sql);
+        new AddWhereFieldPluginRuleProcess().ruleProcess(select, "tenant_id", "t1");
+        assert !select.toString().contains("o.tenant_id");
+    }
+}
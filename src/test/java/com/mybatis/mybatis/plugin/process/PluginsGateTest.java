@@ -0,0 +1,98 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.config.PluginConfig;
+import com.mybatis.mybatis.plugin.config.PluginLevelType;
+import com.mybatis.mybatis.plugin.config.PluginRule;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+public class PluginsGateTest {
+
+    private PluginConfig plugin(PluginLevelType level, String... values) {
+        PluginConfig plugin = new PluginConfig();
+        plugin.setName(level.name());
+        plugin.setLevel(level);
+        plugin.setValue(Arrays.asList(values));
+        plugin.setRules(new ArrayList<>(Collections.singletonList(new PluginRule())));
+        return plugin;
+    }
+
+    private PluginsSnapshot snapshot(PluginConfig... plugins) {
+        MybatisPluginsConfig config = new MybatisPluginsConfig();
+        config.setPlugins(new ArrayList<>(Arrays.asList(plugins)));
+        return PluginsSnapshot.of(config);
+    }
+
+    @Test
+    public void commandType() {
+        PluginsGate gate = snapshot(plugin(PluginLevelType.dml, "update")).getGate();
+
+        // select 标签中可能是 UPDATE ... RETURNING 等写语句，同样交给解析后判断
+        assert gate.candidates("com.demo.UserMapper.updateReturning", SqlCommandType.SELECT) == 1L;
+        assert snapshot(plugin(PluginLevelType.dml, "select")).getGate()
+                .candidates("com.demo.UserMapper.update", SqlCommandType.UPDATE) == 0L;
+        assert gate.candidates("com.demo.UserMapper.update", SqlCommandType.UPDATE) == 1L;
+        // update 标签中写 delete 语句时仍然交给解析后判断
+        assert gate.candidates("com.demo.UserMapper.remove", SqlCommandType.DELETE) == 1L;
+        assert gate.candidates(null, SqlCommandType.UNKNOWN) == 1L;
+        assert PluginsSnapshot.EMPTY.getGate().candidates("com.demo.UserMapper.update", SqlCommandType.UPDATE) == 0L;
+    }
+
+    @Test
+    public void tableNames() {
+        PluginsGate gate = snapshot(plugin(PluginLevelType.table, "user", "t_**order**")).getGate();
+        long candidates = gate.candidates("com.demo.UserMapper.select", SqlCommandType.SELECT);
+
+        assert candidates == 1L;
+        assert gate.mayApply(candidates, "select * from `User` where id = ?");
+        assert gate.mayApply(candidates, "select * from T_ORDER_ITEM");
+        assert !gate.mayApply(candidates, "select * from dict where code = ?");
+        assert snapshot(plugin(PluginLevelType.table, "all")).getGate().mayApply(1L, "select 1");
+        assert !snapshot(plugin(PluginLevelType.databases, "demo")).getGate().mayApply(1L, "select * from user");
+    }
+
+    @Test
+    public void neverRejectsMatchingStatement() throws JSQLParserException {
+        List<PluginConfig> plugins = Arrays.asList(
+                plugin(PluginLevelType.dml, "select", "delete"),
+                plugin(PluginLevelType.dml, "insert", "update"),
+                plugin(PluginLevelType.table, "user", "**order**"),
+                plugin(PluginLevelType.databases, "demo"));
+        List<String> sqls = Arrays.asList(
+                "select * from user", "select * from demo.dict", "select * from t_order u join dict d on 1 = 1",
+                "insert into role (id) values (1)", "update demo.user set a = 1", "delete from dict",
+                "select * from (select * from user) t", "select * from dict where code in (select code from user)",
+                "update user set a = 1 returning id", "insert into dict (id) values (1) returning id");
+        for (PluginConfig plugin : plugins) {
+            PluginsSnapshot snapshot = snapshot(plugin);
+            PluginLevelMatcher matcher = snapshot.matcher(0);
+            for (String sql : sqls) {
+                Statement statement = CCJSqlParserUtil.parse(sql);
+                for (SqlCommandType type : Arrays.asList(SqlCommandType.SELECT, SqlCommandType.INSERT,
+                        SqlCommandType.UPDATE, SqlCommandType.DELETE)) {
+                    // select 标签中可以写带 RETURNING 的写语句
+                    if (!sql.startsWith(type.name().toLowerCase())
+                            && !(SqlCommandType.SELECT.equals(type) && sql.contains("returning"))) {
+                        continue;
+                    }
+                    long candidates = snapshot.getGate().candidates(null, type);
+                    boolean mayApply = candidates != 0L && snapshot.getGate().mayApply(candidates, sql);
+                    // 过滤只能去掉一定不匹配的语句
+                    assert mayApply || !matcher.matches(statement) : plugin.getLevel() + " " + sql;
+                }
+            }
+        }
+    }
+}
@@ -2,7 +2,10 @@ package com.mybatis.mybatis.plugin.process;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
+import com.mybatis.mybatis.plugin.RuleFieldThreadLocal;
+import com.mybatis.mybatis.plugin.cache.SqlTemplate;
 import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.config.ParseFailPolicyType;
 import com.mybatis.mybatis.plugin.config.PluginConfig;
 import com.mybatis.mybatis.plugin.config.PluginLevelType;
 import com.mybatis.mybatis.plugin.config.PluginRule;
@@ -12,6 +15,11 @@ import com.mybatis.mybatis.plugin.config.RuleFieldPolicyType;
 import com.mybatis.mybatis.plugin.config.RuleFieldValueFailPolicyType;
 import com.mybatis.mybatis.plugin.config.RuleFieldValuePolicy;
 import com.mybatis.mybatis.plugin.config.RuleFieldValuePolicyType;
+import com.mybatis.mybatis.plugin.exception.SqlParseFailException;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldPolicyProcessImpl;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldValueFailPolicyProcess;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldValuePolicyProcessImpl;
+import net.sf.jsqlparser.statement.Statement;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -51,6 +59,7 @@ public class PluginsProcessImplTest {
         String oldSql = "select * from user";
         List<PluginConfig> pluginConfigs = new ArrayList<>();
         Mockito.doReturn(pluginConfigs).when(mybatisPluginsConfig).getPlugins();
+        pluginsProcess.refresh();
         String newSql = pluginsProcess.pluginsProcess(oldSql);
 
         assert newSql.equals(oldSql);
@@ -78,9 +87,568 @@ public class PluginsProcessImplTest {
         rules.add(rule);
         pluginConfig.setRules(rules);
         pluginConfigs.add(pluginConfig);
+        pluginsProcess.refresh();
         newSql = pluginsProcess.pluginsProcess(oldSql);
         logger.info("newSql {}", newSql);
         assert newSql != null;
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void pluginsProcessCache() {
+        MybatisPluginsConfig config = tenantPluginsConfig("select", "update");
+        config.getCache().setEnable(true);
+        PluginsProcessImpl process = new PluginsProcessImpl(config, realRuleProcess());
+        String statementId = "com.demo.UserMapper.selectAll";
+        String oldSql = "select * from user where id = 1";
+        try {
+            RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+            String first = process.pluginsProcess(statementId, oldSql);
+            String second = process.pluginsProcess(statementId, oldSql);
+            assert first.equals("SELECT * FROM user WHERE id = 1 AND user.tenant_id = 't1'");
+            assert first.equals(second);
+            assert process.getRewriteCache().hitCount() == 1;
+            assert process.getRewriteCache().missCount() == 1;
+
+            RuleFieldThreadLocal.setVariable("tenant_id_value", "t2");
+            String other = process.pluginsProcess(statementId, oldSql);
+            assert other.equals("SELECT * FROM user WHERE id = 1 AND user.tenant_id = 't2'");
+            assert process.getRewriteCache().missCount() == 2;
+
+            // 字段值获取失败时 run 策略不改写，同样可以缓存
+            RuleFieldThreadLocal.remove();
+            assert process.pluginsProcess(statementId, oldSql).equals("SELECT * FROM user WHERE id = 1");
+            assert process.pluginsProcess(statementId, oldSql).equals("SELECT * FROM user WHERE id = 1");
+            assert process.getRewriteCache().hitCount() == 2;
+        } finally {
+            RuleFieldThreadLocal.remove();
+        }
+    }
+
+    @Test
+    public void pluginsProcessTemplate() {
+        MybatisPluginsConfig templateConfig = tenantPluginsConfig("select", "insert", "update", "delete");
+        templateConfig.getCache().setEnable(true);
+        templateConfig.getCache().setTemplate(true);
+        PluginsProcessImpl templateProcess = new PluginsProcessImpl(templateConfig, realRuleProcess());
+        MybatisPluginsConfig literalConfig = tenantPluginsConfig("select", "insert", "update", "delete");
+        literalConfig.getCache().setEnable(false);
+        PluginsProcessImpl literalProcess = new PluginsProcessImpl(literalConfig, realRuleProcess());
+
+        List<String> sqls = Arrays.asList(
+                "select * from user where id = 1",
+                "select id from user where name = 'a' union select id from user where name = 'b'",
+                "select * from user where id in (select user_id from orders)",
+                "insert into user (id, name) values (1, 'a')",
+                "update user set name = 'b' where id = 1",
+                "delete from user where id = 1");
+        try {
+            for (String tenant : Arrays.asList("t1", "t2", "t3")) {
+                RuleFieldThreadLocal.setVariable("tenant_id_value", tenant);
+                for (String sql : sqls) {
+                    String expected = literalProcess.pluginsProcess("id", sql);
+                    String actual = templateProcess.pluginsProcess("id", sql);
+                    assert expected.contains("'" + tenant + "'");
+                    assert expected.equals(actual);
+                }
+            }
+            // 三个租户共享同一份模板
+            assert templateProcess.getRewriteCache().size() == sqls.size();
+            assert templateProcess.getRewriteCache().missCount() == sqls.size();
+            assert templateProcess.getRewriteCache().hitCount() == sqls.size() * 2;
+
+            // 原始 SQL 中出现占位标记时不走模板
+            String conflict = "select * from user where name = '" + SqlTemplate.marker(0) + "'";
+            assert templateProcess.pluginsProcess("id", conflict).equals(literalProcess.pluginsProcess("id", conflict));
+        } finally {
+            RuleFieldThreadLocal.remove();
+        }
+    }
+
+    @Test
+    public void pluginsProcessBindValue() {
+        MybatisPluginsConfig bindConfig = tenantPluginsConfig("select", "insert");
+        bindConfig.getCache().setEnable(true);
+        bindConfig.setBindValue(true);
+        PluginsProcessImpl bindProcess = new PluginsProcessImpl(bindConfig, realRuleProcess());
+        String sql = "select * from user where id = ? and name = '?'";
+        try {
+            String first = null;
+            for (String tenant : Arrays.asList("t1", "t2")) {
+                RuleFieldThreadLocal.setVariable("tenant_id_value", tenant);
+                SqlStatementContext context = new SqlStatementContext("id", sql);
+                String newSql = bindProcess.pluginsProcess(context);
+                // 不同租户 SQL 文本相同
+                assert first == null || first.equals(newSql);
+                first = newSql;
+                assert newSql.equals("SELECT * FROM user WHERE id = ? AND name = '?' AND user.tenant_id = ?");
+                assert context.getBindValues().size() == 1;
+                assert context.getBindValues().get(0).getPosition() == 1;
+                assert context.getBindValues().get(0).getValue().equals(tenant);
+            }
+            assert bindProcess.getRewriteCache().size() == 1;
+
+            SqlStatementContext insert = new SqlStatementContext("insert",
+                    "insert into user (id, name) values (?, ?), (?, ?)");
+            assert bindProcess.pluginsProcess(insert)
+                    .equals("INSERT INTO user (id, name, tenant_id) VALUES (?, ?, ?), (?, ?, ?)");
+            assert insert.getBindValues().get(0).getPosition() == 2;
+            assert insert.getBindValues().get(1).getPosition() == 5;
+
+            // 字符串中有反斜杠时无法确定 ? 的位置，按字面量拼接
+            SqlStatementContext escaped = new SqlStatementContext("escaped",
+                    "select * from user where name = 'a\\'?' and id = ? and x = ?");
+            assert bindProcess.pluginsProcess(escaped).endsWith("AND user.tenant_id = 't2'");
+            assert escaped.getBindValues().isEmpty();
+
+            // 不是 PreparedStatement 时按字面量拼接
+            SqlStatementContext statement = new SqlStatementContext("id", sql);
+            statement.setBindable(false);
+            assert bindProcess.pluginsProcess(statement)
+                    .equals("SELECT * FROM user WHERE id = ? AND name = '?' AND user.tenant_id = 't2'");
+            assert statement.getBindValues().isEmpty();
+        } finally {
+            RuleFieldThreadLocal.remove();
+        }
+    }
+
+    @Test
+    public void pluginsProcessContext() {
+        MybatisPluginsConfig config = tenantPluginsConfig("select");
+        config.getCache().setEnable(false);
+        PluginsProcessImpl process = new PluginsProcessImpl(config, realRuleProcess());
+        SqlStatementContext context = new SqlStatementContext("com.demo.UserMapper.selectAll",
+                "select * from user where id = 1");
+        Statement statement = context.getStatement();
+        try {
+            RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+            String newSql = process.pluginsProcess(context);
+            assert newSql.equals("SELECT * FROM user WHERE id = 1 AND user.tenant_id = 't1'");
+            // 改写直接在上下文已经解析好的语法树上进行
+            assert context.getStatement() == statement;
+            assert statement.toString().equals(newSql);
+        } finally {
+            RuleFieldThreadLocal.remove();
+        }
+    }
+
+    @Test
+    public void pluginsProcessSplice() {
+        MybatisPluginsConfig config = tenantPluginsConfig("select", "insert");
+        config.setSplice(true);
+        PluginsProcessImpl process = new PluginsProcessImpl(config, realRuleProcess());
+        MybatisPluginsConfig bindConfig = tenantPluginsConfig("select", "insert");
+        bindConfig.setSplice(true);
+        bindConfig.setBindValue(true);
+        PluginsProcessImpl bindProcess = new PluginsProcessImpl(bindConfig, realRuleProcess());
+        try {
+            RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+            // 插入位置之外与原始 SQL 完全相同
+            String sql = "select *\n  from user -- all users\n where id = ?\n order by id";
+            assert process.pluginsProcess(new SqlStatementContext("select", sql))
+                    .equals("select *\n  from user -- all users\n where id = ? AND user.tenant_id = 't1'\n order by id");
+            assert process.pluginsProcess(new SqlStatementContext("select", sql))
+                    .equals("select *\n  from user -- all users\n where id = ? AND user.tenant_id = 't1'\n order by id");
+
+            // 没有通过校验的规则时原样返回
+            String delete = "delete  from user where id = ?";
+            assert process.pluginsProcess(new SqlStatementContext("delete", delete)).equals(delete);
+
+            SqlStatementContext insert = new SqlStatementContext("insert",
+                    "insert into user (id, name) values (?, ?), (?, ?)");
+            assert bindProcess.pluginsProcess(insert)
+                    .equals("insert into user (id, name, tenant_id) values (?, ?, ?), (?, ?, ?)");
+            assert insert.getBindValues().get(0).getPosition() == 2;
+            assert insert.getBindValues().get(1).getPosition() == 5;
+        } finally {
+            RuleFieldThreadLocal.remove();
+        }
+    }
+
+    @Test
+    public void pluginsProcessFastPath() {
+        MybatisPluginsConfig config = tenantPluginsConfig("select", "insert");
+        config.setSplice(true);
+        config.setFastPath(true);
+        config.getCache().setEnable(false);
+        PluginsProcessImpl process = new PluginsProcessImpl(config, realRuleProcess());
+        try {
+            RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+            // 简单的单表语句不解析，结果与拼接模式相同
+            SqlStatementContext select = process.newContext("select", "select * from user u where u.id = ? or u.id = ?");
+            assert process.pluginsProcess(select)
+                    .equals("select * from user u where (u.id = ? or u.id = ?) AND u.tenant_id = 't1'");
+            assert !select.isParsed();
+            SqlStatementContext insert = process.newContext("insert", "insert into user (id) values (?), (?)");
+            assert process.pluginsProcess(insert)
+                    .equals("insert into user (id, tenant_id) values (?, 't1'), (?, 't1')");
+            assert !insert.isParsed();
+            SqlStatementContext delete = process.newContext("delete", "delete from user where id = ?");
+            assert process.pluginsProcess(delete).equals("delete from user where id = ?");
+            assert !delete.isParsed();
+
+            // 识别不了的语句仍然解析
+            SqlStatementContext join = process.newContext("select",
+                    "select * from user u join orders o on o.user_id = u.id");
+            assert process.pluginsProcess(join)
+                    .equals("select * from user u join orders o on o.user_id = u.id WHERE u.tenant_id = 't1'");
+            assert join.isParsed();
+
+            // 没有开启拼接模式时不生效
+            config.setSplice(false);
+            PluginsProcessImpl syntaxTree = new PluginsProcessImpl(config, realRuleProcess());
+            SqlStatementContext context = syntaxTree.newContext("select", "select * from user where id = 1");
+            assert syntaxTree.pluginsProcess(context).equals("SELECT * FROM user WHERE id = 1 AND user.tenant_id = 't1'");
+            assert context.isParsed();
+        } finally {
+            RuleFieldThreadLocal.remove();
+        }
+    }
+
+    @Test
+    public void pluginsProcessParseFail() {
+        String lock = "select * from user where id = ? lock in share mode";
+        MybatisPluginsConfig config = tenantPluginsConfig("select");
+        config.getCache().setEnable(false);
+        PluginsProcessImpl process = new PluginsProcessImpl(config, realRuleProcess());
+        try {
+            RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+            // 默认抛出异常终止执行，同一条 SQL 只解析一次
+            for (int i = 0; i < 2; i++) {
+                try {
+                    process.pluginsProcess("select", lock);
+                    assert false;
+                } catch (SqlParseFailException e) {
+                    assert e.getSql().equals(lock);
+                }
+            }
+            assert process.getParseFailures().failureCount() == 1;
+            assert process.getParseFailures().hitCount() == 1;
+            assert process.getParseFailures().policyCount(ParseFailPolicyType.block) == 2;
+            // 插件不可能生效的语句不执行策略
+            assert process.pluginsProcess("delete", "delete from user where id = ? returning id")
+                    .equals("delete from user where id = ? returning id");
+            assert process.getParseFailures().policyCount(ParseFailPolicyType.block) == 2;
+
+            config.getPlugins().get(0).setParseFailPolicy(ParseFailPolicyType.pass);
+            assert process.pluginsProcess("select", lock).equals(lock);
+            assert process.getParseFailures().policyCount(ParseFailPolicyType.pass) == 1;
+
+            // 配置为空时与 block 相同
+            config.getPlugins().get(0).setParseFailPolicy(null);
+            try {
+                process.pluginsProcess("select", lock);
+                assert false;
+            } catch (SqlParseFailException e) {
+                assert e.getSql().equals(lock);
+            }
+            assert process.getParseFailures().policyCount(ParseFailPolicyType.block) == 3;
+
+            config.getPlugins().get(0).setParseFailPolicy(ParseFailPolicyType.fallback);
+            assert process.pluginsProcess("select", lock)
+                    .equals("select * from user where tenant_id = 't1' AND (id = ?) lock in share mode");
+            // 字段值获取失败时执行失败策略
+            RuleFieldThreadLocal.remove();
+            assert process.pluginsProcess("select", lock).equals(lock);
+            // 无法注入时与 block 相同
+            try {
+                process.pluginsProcess("select", "select id from user where id = 1 union select id from user lock in share mode");
+                assert false;
+            } catch (SqlParseFailException e) {
+                assert e.getMessage().startsWith("tenant plugin");
+            }
+            assert process.getParseFailures().policyCount(ParseFailPolicyType.fallback) == 3;
+
+            // 语法树改写不再因为语法树为空而抛出空指针
+            config.getPlugins().get(0).setParseFailPolicy(ParseFailPolicyType.pass);
+            config.setSplice(false);
+            assert new PluginsProcessImpl(config, realRuleProcess()).pluginsProcess("select", lock).equals(lock);
+        } finally {
+            RuleFieldThreadLocal.remove();
+        }
+    }
+
+    @Test
+    public void pluginsProcessParseLimit() {
+        StringBuilder in = new StringBuilder("select * from user where id in (0");
+        for (int i = 1; i < 5000; i++) {
+            in.append(", ").append(i);
+        }
+        String sql = in.append(") order by id").toString();
+        MybatisPluginsConfig config = tenantPluginsConfig("select");
+        config.getCache().setEnable(false);
+        config.getParseLimit().setMaxTokens(1000);
+        config.getPlugins().get(0).setParseFailPolicy(ParseFailPolicyType.block);
+        config.getPlugins().get(0).setParseLimitPolicy(ParseFailPolicyType.fallback);
+        PluginsProcessImpl process = new PluginsProcessImpl(config, realRuleProcess());
+        try {
+            RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+            // 超过限制时不解析，按 parse-limit-policy 处理
+            SqlStatementContext context = process.newContext("select", sql);
+            String rewritten = process.pluginsProcess(context);
+            assert context.isParseLimited();
+            assert rewritten.startsWith("select * from user where tenant_id = 't1' AND (id in (0, 1, ");
+            assert rewritten.endsWith(", 4999)) order by id");
+            assert process.getParseFailures().limitCount() == 1;
+            assert process.getParseFailures().policyCount(ParseFailPolicyType.fallback) == 1;
+            // 同一条 SQL 直接使用记录的结果
+            assert process.pluginsProcess(process.newContext("select", sql)).equals(rewritten);
+            assert process.getParseFailures().hitCount() == 1;
+
+            // 语法不支持时仍然按 parse-fail-policy 处理
+            try {
+                process.pluginsProcess("select", "select * from user where id = ? lock in share mode");
+                assert false;
+            } catch (SqlParseFailException e) {
+                assert process.getParseFailures().limitCount() == 1;
+            }
+            assert process.pluginsProcess("select", "select * from user where id = 1")
+                    .equals("SELECT * FROM user WHERE id = 1 AND user.tenant_id = 't1'");
+            assert !process.getParseGuard().getSlowest().slowest().isEmpty();
+        } finally {
+            RuleFieldThreadLocal.remove();
+        }
+    }
+
+    @Test
+    public void pluginsProcessParseBusy() {
+        MybatisPluginsConfig config = tenantPluginsConfig("select");
+        config.getCache().setEnable(false);
+        config.getParseLimit().setTimeoutMillis(50L);
+        config.getParseLimit().setThreads(1);
+        config.getParseLimit().setQueueSize(1);
+        // 解析失败时跳过插件，超过解析限制时仍然默认终止执行
+        config.getPlugins().get(0).setParseFailPolicy(ParseFailPolicyType.pass);
+        PluginsProcessImpl process = new PluginsProcessImpl(config, realRuleProcess());
+        try {
+            RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+            // 10 层括号解析超时，唯一的解析线程被占用
+            for (String sql : Arrays.asList("select * from user where id = ((((((((((1))))))))))",
+                    "select * from user where id = 1", "select * from user where id = 2")) {
+                try {
+                    process.pluginsProcess("select", sql);
+                    assert false : sql;
+                } catch (SqlParseFailException e) {
+                    assert e.getSql().equals(sql);
+                }
+            }
+            assert process.getParseFailures().policyCount(ParseFailPolicyType.block) == 3;
+            assert process.getParseFailures().policyCount(ParseFailPolicyType.pass) == 0;
+        } finally {
+            RuleFieldThreadLocal.remove();
+        }
+    }
+
+    @Test
+    public void pluginsProcessCollapseList() {
+        StringBuilder in = new StringBuilder("select * from user where id in (0");
+        for (int i = 1; i < 5000; i++) {
+            in.append(",").append(i);
+        }
+        String list = in.substring("select * from user where id in (".length());
+        String sql = in.append(") order by id").toString();
+        MybatisPluginsConfig config = tenantPluginsConfig("select");
+        config.getCache().setEnable(false);
+        config.setCollapseListSize(16);
+        config.getParseLimit().setMaxTokens(1000);
+        PluginsProcessImpl process = new PluginsProcessImpl(config, realRuleProcess());
+        try {
+            RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+            // 只解析缩短后的 SQL，不会超过词法单元数量限制
+            SqlStatementContext context = process.newContext("select", sql);
+            assert process.pluginsProcess(context)
+                    .equals("SELECT * FROM user WHERE id IN (" + list + ") AND user.tenant_id = 't1' ORDER BY id");
+            assert !context.isParseLimited();
+            assert context.getParsedSql().equals("select * from user where id in ('__guarder_list_0__') order by id");
+
+            config.setSplice(true);
+            PluginsProcessImpl splice = new PluginsProcessImpl(config, realRuleProcess());
+            assert splice.pluginsProcess("select", sql)
+                    .equals("select * from user where id in (" + list + ") AND user.tenant_id = 't1' order by id");
+        } finally {
+            RuleFieldThreadLocal.remove();
+        }
+    }
+
+    @Test
+    public void pluginsProcessStreamInsert() {
+        StringBuilder insert = new StringBuilder("insert into user (id, name) values ");
+        StringBuilder expected = new StringBuilder("INSERT INTO user (id, name, tenant_id) VALUES ");
+        for (int i = 0; i < 10000; i++) {
+            insert.append(i == 0 ? "" : ", ").append("(").append(i).append(", ?)");
+            expected.append(i == 0 ? "" : ", ").append("(").append(i).append(", ?, 't1')");
+        }
+        String sql = insert.toString();
+        MybatisPluginsConfig config = tenantPluginsConfig("insert");
+        config.getCache().setEnable(false);
+        config.setStreamInsertRows(100);
+        config.getParseLimit().setMaxTokens(1000);
+        PluginsProcessImpl process = new PluginsProcessImpl(config, realRuleProcess());
+        try {
+            RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+            // 只解析占位行，不会超过词法单元数量限制
+            SqlStatementContext context = process.newContext("insert", sql);
+            assert process.pluginsProcess(context).equals(expected.toString());
+            assert !context.isParseLimited();
+            assert context.getParsedSql().equals("insert into user (id, name) values ('__guarder_rows__')");
+
+            config.setSplice(true);
+            PluginsProcessImpl splice = new PluginsProcessImpl(config, realRuleProcess());
+            assert splice.pluginsProcess("insert", sql).equals(sql.replace("insert into user (id, name)",
+                    "insert into user (id, name, tenant_id)").replace("?)", "?, 't1')"));
+
+            // 绑定参数模式下每一行新增的 ? 都有对应的字段值
+            config.setBindValue(true);
+            PluginsProcessImpl bind = new PluginsProcessImpl(config, realRuleProcess());
+            SqlStatementContext bindContext = bind.newContext("insert", sql);
+            bind.pluginsProcess(bindContext);
+            assert bindContext.getBindValues().size() == 10000;
+            assert bindContext.getBindValues().get(1).getPosition() == 3;
+        } finally {
+            RuleFieldThreadLocal.remove();
+        }
+    }
+
+    @Test
+    public void pluginsProcessStreamInsertQuoted() {
+        String sql = "insert into user (id, name) values (1, 'it''s'), (2, 'a\\b'), (3, 'c') ";
+        MybatisPluginsConfig config = tenantPluginsConfig("insert");
+        config.getCache().setEnable(false);
+        PluginsProcessImpl plain = new PluginsProcessImpl(config, realRuleProcess());
+        config.setSplice(true);
+        PluginsProcessImpl plainSplice = new PluginsProcessImpl(config, realRuleProcess());
+        MybatisPluginsConfig collapsed = tenantPluginsConfig("insert");
+        collapsed.getCache().setEnable(false);
+        collapsed.setStreamInsertRows(2);
+        collapsed.setCollapseListSize(2);
+        PluginsProcessImpl stream = new PluginsProcessImpl(collapsed, realRuleProcess());
+        collapsed.setSplice(true);
+        PluginsProcessImpl splice = new PluginsProcessImpl(collapsed, realRuleProcess());
+        try {
+            // 字段值中带有引号和反斜杠时占位行无法映射回原始行，回退为解析原始 SQL
+            for (String value : Arrays.asList("t1", "o'b", "a\\b", "a\\")) {
+                RuleFieldThreadLocal.setVariable("tenant_id_value", value);
+                String expected = plain.pluginsProcess("insert", sql);
+                assert stream.pluginsProcess("insert", sql).equals(expected) : value;
+                assert splice.pluginsProcess("insert", sql).equals(plainSplice.pluginsProcess("insert", sql)) : value;
+            }
+        } finally {
+            RuleFieldThreadLocal.remove();
+        }
+    }
+
+    @Test
+    public void pluginsProcessJoinTables() {
+        String sql = "select * from user u join orders o on o.user_id = u.id";
+        try {
+            RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+            for (boolean splice : new boolean[]{false, true}) {
+                MybatisPluginsConfig both = tenantPluginsConfig("user", "orders");
+                both.getPlugins().get(0).setLevel(PluginLevelType.table);
+                both.setSplice(splice);
+                MybatisPluginsConfig user = tenantPluginsConfig("user");
+                user.getPlugins().get(0).setLevel(PluginLevelType.table);
+                user.setSplice(splice);
+                PluginsProcessImpl first = new PluginsProcessImpl(both, realRuleProcess());
+                PluginsProcessImpl second = new PluginsProcessImpl(user, realRuleProcess());
+                // 联接表按各自实例的插件配置判断，后创建的实例不会影响先创建的实例
+                assert first.pluginsProcess("join", sql).contains("o.tenant_id = 't1'") : splice;
+                assert !second.pluginsProcess("join", sql).contains("o.tenant_id") : splice;
+                assert first.pluginsProcess("join", sql).contains("o.tenant_id = 't1'") : splice;
+            }
+        } finally {
+            RuleFieldThreadLocal.remove();
+        }
+    }
+
+    @Test
+    public void pluginsProcessLazyFields() {
+        try {
+            RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+            for (int mode = 0; mode < 4; mode++) {
+                MybatisPluginsConfig config = tenantPluginsConfig("select");
+                PluginConfig audit = tenantPluginsConfig("insert").getPlugins().get(0);
+                audit.setName("audit");
+                PluginRule auditRule = audit.getRules().get(0);
+                config.getPlugins().add(audit);
+                config.getCache().setEnable(mode > 0);
+                config.getCache().setTemplate(mode == 2);
+                config.setBindValue(mode == 3);
+                RuleProcess spy = Mockito.spy(realRuleProcess());
+                PluginsProcessImpl process = new PluginsProcessImpl(config, spy);
+
+                String sql = process.pluginsProcess("lazy", "select * from user where id = 1");
+                assert sql.contains("tenant_id") : mode;
+                // 只处理 insert 的插件不会生效，不需要获取它的字段值
+                Mockito.verify(spy, Mockito.never()).fieldProcess(auditRule);
+                Mockito.verify(spy, Mockito.times(1)).fieldProcess(config.getPlugins().get(0).getRules().get(0));
+            }
+        } finally {
+            RuleFieldThreadLocal.remove();
+        }
+    }
+
+    private MybatisPluginsConfig tenantPluginsConfig(String... dml) {
+        MybatisPluginsConfig config = new MybatisPluginsConfig();
+        PluginConfig pluginConfig = new PluginConfig();
+        pluginConfig.setName("tenant");
+        pluginConfig.setLevel(PluginLevelType.dml);
+        pluginConfig.setValue(Arrays.asList(dml));
+
+        PluginRule rule = new PluginRule();
+        rule.setName("add_tenant");
+        rule.setValue(PluginRuleValueType.add_where_field);
+        RuleFieldPolicy ruleFieldPolicy = new RuleFieldPolicy();
+        ruleFieldPolicy.setName(RuleFieldPolicyType.conf);
+        ruleFieldPolicy.setValue("tenant_id");
+        rule.setFieldPolicy(ruleFieldPolicy);
+        RuleFieldValuePolicy ruleFieldValuePolicy = new RuleFieldValuePolicy();
+        ruleFieldValuePolicy.setName(RuleFieldValuePolicyType.threadLocal);
+        ruleFieldValuePolicy.setValue("tenant_id_value");
+        rule.setFieldValuePolicy(ruleFieldValuePolicy);
+        rule.setFieldValueFailPolicy(RuleFieldValueFailPolicyType.run);
+        pluginConfig.setRules(new ArrayList<>(Arrays.asList(rule)));
+        config.setPlugins(new ArrayList<>(Arrays.asList(pluginConfig)));
+        return config;
+    }
+
+    private RuleProcess realRuleProcess() {
+        return new RuleProcessImpl(new RuleFieldPolicyProcessImpl(),
+                new RuleFieldValuePolicyProcessImpl(), new RuleFieldValueFailPolicyProcess(), new PluginRuleProcessImpl());
+    }
+
+    @Test
+    public void snapshot() {
+        PluginConfig first = new PluginConfig();
+        first.setName("first");
+        first.setOrder(1);
+        first.setRules(new ArrayList<>(Arrays.asList(orderedRule("b", 2), orderedRule("a", 1))));
+        PluginConfig second = new PluginConfig();
+        second.setName("second");
+        second.setOrder(2);
+        second.setRules(new ArrayList<>(Arrays.asList(orderedRule("c", null))));
+        PluginConfig empty = new PluginConfig();
+        empty.setName("empty");
+        List<PluginConfig> pluginConfigs = new ArrayList<>(Arrays.asList(empty, second, first));
+        MybatisPluginsConfig config = new MybatisPluginsConfig();
+        config.setPlugins(pluginConfigs);
+
+        PluginsSnapshot snapshot = PluginsSnapshot.of(config);
+        assert snapshot.pluginCount() == 2;
+        assert snapshot.ruleCount() == 3;
+        assert snapshot.plugin(0) == first;
+        assert snapshot.rules(0)[0].getName().equals("a");
+        assert snapshot.plugin(1) == second;
+        // 构建快照不修改原配置
+        assert pluginConfigs.get(0) == empty;
+        assert first.getRules().get(0).getName().equals("b");
+        assert PluginsSnapshot.of(null).isEmpty();
+    }
+
+    private PluginRule orderedRule(String name, Integer order) {
+        PluginRule rule = new PluginRule();
+        rule.setName(name);
+        rule.setOrder(order);
+        return rule;
+    }
+}
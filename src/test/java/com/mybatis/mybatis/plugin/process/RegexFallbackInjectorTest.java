@@ -0,0 +1,136 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
+import net.sf.jsqlparser.expression.StringValue;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@RunWith(SpringRunner.class)
+public class RegexFallbackInjectorTest {
+
+    private static final List<RuleAction> TENANT = Collections.singletonList(
+            new RuleAction(PluginRuleValueType.add_where_field, "tenant_id", new StringValue("t1")));
+
+    @Test
+    public void where() {
+        assert RegexFallbackInjector.inject("select * from user where id = 1 or id = 2 lock in share mode", TENANT)
+                .equals("select * from user where tenant_id = 't1' AND (id = 1 or id = 2) lock in share mode");
+        assert RegexFallbackInjector.inject("select * from user u where u.id <=> ?", TENANT)
+                .equals("select * from user u where tenant_id = 't1' AND (u.id <=> ?)");
+        // 括号、字符串、注释中的关键字不影响
+        assert RegexFallbackInjector.inject("SELECT * FROM user WHERE id IN (1, 2) and a = 'order by, join'"
+                + " /* limit */ ORDER BY id LIMIT 10;", TENANT)
+                .equals("SELECT * FROM user WHERE tenant_id = 't1' AND (id IN (1, 2) and a = 'order by, join'"
+                        + " /* limit */) ORDER BY id LIMIT 10;");
+        assert RegexFallbackInjector.inject("delete from user where id = ? returning id", TENANT)
+                .equals("delete from user where tenant_id = 't1' AND (id = ?) returning id");
+    }
+
+    @Test
+    public void noWhere() {
+        assert RegexFallbackInjector.inject("select * from user group by id with rollup", TENANT)
+                .equals("select * from user WHERE tenant_id = 't1' group by id with rollup");
+        assert RegexFallbackInjector.inject("select * from user\nlock in share mode", TENANT)
+                .equals("select * from user WHERE tenant_id = 't1'\nlock in share mode");
+        assert RegexFallbackInjector.inject("update user set name = ?", TENANT)
+                .equals("update user set name = ? WHERE tenant_id = 't1'");
+    }
+
+    @Test
+    public void actions() {
+        List<RuleAction> actions = Arrays.asList(
+                new RuleAction(PluginRuleValueType.add_where_field, "tenant_id", new StringValue("t1")),
+                new RuleAction(PluginRuleValueType.add_insert_field, "creator", new StringValue("c1")),
+                new RuleAction(PluginRuleValueType.add_field, "updater", new StringValue("u1")),
+                new RuleAction(PluginRuleValueType.add_where_field, "region", new StringValue("r1")));
+        // 查询、delete 只处理 where 条件
+        assert RegexFallbackInjector.inject("select * from user where id = 1 lock in share mode", actions)
+                .equals("select * from user where tenant_id = 't1' AND region = 'r1' AND (id = 1) lock in share mode");
+        // update 的 set 子句无法注入
+        assert RegexFallbackInjector.inject("update user set name = ? where id = ?", actions) == null;
+        assert RegexFallbackInjector.inject("select * from user", Collections.singletonList(
+                new RuleAction(PluginRuleValueType.change_tableName, "user_1", new StringValue("x")))) == null;
+        assert RegexFallbackInjector.inject("select * from user", Collections.emptyList()).equals("select * from user");
+    }
+
+    @Test
+    public void unsupported() {
+        for (String sql : Arrays.asList(
+                "insert into user (id) values (1)",
+                "select id from user where id = 1 union select id from orders where id = 2",
+                "select * from user u, orders o where u.id = o.user_id and o.id in (1) where",
+                "select 1",
+                "select * from user where name = 'a\\'b'",
+                "select * from user where name = 'a",
+                "select * from user where id in (1",
+                "call proc(1)")) {
+            assert RegexFallbackInjector.inject(sql, TENANT) == null : sql;
+        }
+    }
+
+    /**
+     * 条件只加在最外层的一张表上时其他表的数据会泄露，不注入
+     */
+    @Test
+    public void multiTable() {
+        for (String sql : Arrays.asList(
+                "select * from user where id in (select uid from orders) lock in share mode",
+                "select * from user where exists (select 1 from orders o where o.uid = user.id) lock in share mode",
+                "select * from (select * from user) t lock in share mode",
+                "select * from user u, orders o where u.id = o.uid lock in share mode",
+                "select * from user u join orders o on u.id = o.uid lock in share mode",
+                "select * from user u straight_join orders o on u.id = o.uid lock in share mode",
+                "select * from user u left join orders o using (id) lock in share mode",
+                "update user u, orders o set u.name = o.name where u.id = o.uid",
+                "update user u join orders o on u.id = o.uid set u.name = ?",
+                "delete u, o from user u join orders o on u.id = o.uid where u.id = ?",
+                "delete from user using user, orders where user.id = orders.uid")) {
+            assert RegexFallbackInjector.inject(sql, TENANT) == null : sql;
+        }
+        // 列表中的逗号、括号中的非查询内容不影响
+        assert RegexFallbackInjector.inject("select id, name from user where id in (1, 2) and f(a, b) lock in share mode",
+                TENANT).equals("select id, name from user where tenant_id = 't1' AND (id in (1, 2) and f(a, b))"
+                + " lock in share mode");
+        assert RegexFallbackInjector.inject("update user set a = 1, b = 2 where id = ?", TENANT)
+                .equals("update user set a = 1, b = 2 where tenant_id = 't1' AND (id = ?)");
+    }
+
+    @Test
+    public void commandType() {
+        assert RegexFallbackInjector.commandType("/* hint */ SELECT 1").equals(SqlCommandType.SELECT);
+        // WITH 之后可能是写语句
+        assert RegexFallbackInjector.commandType("with t as (select 1) select * from t").equals(SqlCommandType.UNKNOWN);
+        assert RegexFallbackInjector.commandType("replace into user (id) values (1)").equals(SqlCommandType.INSERT);
+        assert RegexFallbackInjector.commandType("-- x\nupdate user set a = 1").equals(SqlCommandType.UPDATE);
+        assert RegexFallbackInjector.commandType("delete from user").equals(SqlCommandType.DELETE);
+        assert RegexFallbackInjector.commandType("(select 1) union (select 2)").equals(SqlCommandType.UNKNOWN);
+        assert RegexFallbackInjector.commandType("select 'a").equals(SqlCommandType.UNKNOWN);
+    }
+
+    @Test
+    public void commandTypeMatchesMask() {
+        // 不复制 SQL 的判断与按 mask 结果匹配第一个单词相同
+        Pattern firstWord = Pattern.compile("^\\s*(\\w+)");
+        for (String sql : Arrays.asList("\tSELECT * FROM user", "select(1)", "'x' select 1", "(select 1)",
+                "select ')' from t", "select a from t where b = 'it''s'", "update t set a = 'a\\b'",
+                "/* unterminated", "select a) from t", "delete from t where (a = 1", "`select` 1",
+                "-- only comment", "", "  ", "insert/* x */into t values (1)", "update_log set a = 1")) {
+            String masked = RegexFallbackInjector.mask(sql);
+            Matcher matcher = masked == null ? null : firstWord.matcher(masked);
+            String word = matcher != null && matcher.find() ? matcher.group(1).toLowerCase() : "";
+            SqlCommandType expected = word.equals("select") ? SqlCommandType.SELECT
+                    : word.equals("insert") || word.equals("replace") ? SqlCommandType.INSERT
+                    : word.equals("update") ? SqlCommandType.UPDATE
+                    : word.equals("delete") ? SqlCommandType.DELETE : SqlCommandType.UNKNOWN;
+            assert RegexFallbackInjector.commandType(sql).equals(expected) : sql;
+        }
+    }
+}
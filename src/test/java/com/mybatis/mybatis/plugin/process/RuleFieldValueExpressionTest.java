@@ -0,0 +1,63 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.RuleFieldValueType;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+
+@RunWith(SpringRunner.class)
+public class RuleFieldValueExpressionTest {
+
+    @Test
+    public void literal() {
+        assert RuleFieldValueExpression.of("42", RuleFieldValueType.string).toString().equals("'42'");
+        assert RuleFieldValueExpression.of("42", null).toString().equals("'42'");
+        assert RuleFieldValueExpression.of("42", RuleFieldValueType.number).toString().equals("42");
+        assert RuleFieldValueExpression.of("-4.20", RuleFieldValueType.number).toString().equals("-4.20");
+        assert RuleFieldValueExpression.of("2020-8-1", RuleFieldValueType.date).toString()
+                .equals("DATE '2020-08-01'");
+        assert RuleFieldValueExpression.of("2020-08-14 10:00:00", RuleFieldValueType.timestamp).toString()
+                .equals("TIMESTAMP '2020-08-14 10:00:00.0'");
+        // 不符合类型时按字符串处理，不会直接拼接进 SQL
+        assert RuleFieldValueExpression.of("1 or 1=1", RuleFieldValueType.number).toString().equals("'1 or 1=1'");
+        assert RuleFieldValueExpression.of("1e3", RuleFieldValueType.number).toString().equals("'1e3'");
+        assert RuleFieldValueExpression.of("4.", RuleFieldValueType.number).toString().equals("'4.'");
+        assert RuleFieldValueExpression.of("today", RuleFieldValueType.date).toString().equals("'today'");
+    }
+
+    @Test
+    public void parameter() {
+        assert RuleFieldValueExpression.parameter("42", RuleFieldValueType.string).equals("42");
+        assert RuleFieldValueExpression.parameter("42", RuleFieldValueType.number).equals(42L);
+        assert RuleFieldValueExpression.parameter("99999999999999999999", RuleFieldValueType.number)
+                .equals(new BigDecimal("99999999999999999999"));
+        assert RuleFieldValueExpression.parameter("4.2", RuleFieldValueType.number).equals(new BigDecimal("4.2"));
+        assert RuleFieldValueExpression.parameter("2020-08-01", RuleFieldValueType.date)
+                .equals(Date.valueOf("2020-08-01"));
+        assert RuleFieldValueExpression.parameter("2020-08-14 10:00:00", RuleFieldValueType.timestamp)
+                .equals(Timestamp.valueOf("2020-08-14 10:00:00"));
+        assert RuleFieldValueExpression.parameter("x", RuleFieldValueType.number).equals("x");
+    }
+
+    @Test
+    public void ruleProcess() throws JSQLParserException {
+        Statement select = CCJSqlParserUtil.parse("select * from user where id = 1");
+        new AddWhereFieldPluginRuleProcess().ruleProcess(select, "tenant_id",
+                RuleFieldValueExpression.of("42", RuleFieldValueType.number));
+        assert select.toString().equals("SELECT * FROM user WHERE id = 1 AND user.tenant_id = 42");
+
+        Statement insert = CCJSqlParserUtil.parse("insert into user (id) values (1)");
+        new AddInsertFieldPluginRuleProcess().ruleProcess(insert, "created",
+                RuleFieldValueExpression.of("2020-08-01", RuleFieldValueType.date));
+        assert insert.toString().equals("INSERT INTO user (id, created) VALUES (1, DATE '2020-08-01')");
+        // 重新解析结果一致
+        assert CCJSqlParserUtil.parse(insert.toString()).toString().equals(insert.toString());
+    }
+}
@@ -0,0 +1,207 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.config.PluginConfig;
+import com.mybatis.mybatis.plugin.config.PluginLevelType;
+import com.mybatis.mybatis.plugin.config.PluginRule;
+import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
+import com.mybatis.mybatis.plugin.config.RuleFieldValueType;
+import com.mybatis.mybatis.plugin.utils.RuleFieldDetector;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.Statement;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+@RunWith(SpringRunner.class)
+public class SimpleSqlRecognizerTest {
+
+    /**
+     * 都能被快速识别的单表语句
+     */
+    private static final List<String> SIMPLE = Arrays.asList(
+            "select * from user",
+            "SELECT * FROM user WHERE id = 1",
+            "select id, name from user where id = ? and name = 'a'",
+            "select u.id, u.name as n from user u where u.id = ? or u.name like 'a%'",
+            "select * from user as u where u.tenant_id = ?",
+            "select * from user where tenant_id in (1, 2) and id = 1",
+            "select * from user where (tenant_id = 1 or id = 2) and name = 'a'",
+            "select * from user where not (tenant_id = 1)",
+            "select * from user where tenant_id is null",
+            "select * from user where tenant_id is not null or id = 1",
+            "select * from user where id between ? and ? and tenant_id not in (?, ?)",
+            "select * from user where lower(tenant_id) = ? and name not like ?",
+            "select * from user where id + 1 > 2 and age <> 3 and score >= -1.5 and code != 'x'",
+            "select distinct org_id from user where id = 1 group by org_id order by org_id desc",
+            "select count(*) from user where name = 'it''s' limit 10",
+            "select * from user order by id limit 10 offset 20",
+            "select * from user u where u.id = 1 order by u.id, u.name asc limit ?, ?",
+            "select * from db.user where id = 1",
+            "select * from `user` where `tenant_id` = 1",
+            "select * from \"user\" where \"id\" = 1",
+            "select /*+ INDEX(u idx_id) */ * from user u -- users\nwhere u.id = 1 /* by id */ order by u.id",
+            "select name || 'x' from user where name = '中文';",
+            "select now() from user where created > date(?)",
+            "insert into user (id, name) values (1, 'a')",
+            "insert into user(id,name)\nvalues(1,'a'),\n(2,'b')",
+            "insert into user (id, tenant_id) values (?, ?)",
+            "insert into db.user (`id`, `name`) values (?, now())",
+            "insert into user (id) values (-1);",
+            "update user set name = 'b' where id = 1",
+            "update user u set u.name = ?, age = age + 1 where u.id = ? or u.id = ?",
+            "update user set name = 'b'",
+            "update user set name = ? where tenant_id = ?",
+            "update user set name = ? where (id = 1 or id = 2)",
+            "delete from user where id = 1 or id = 2",
+            "delete from user where id in (?, ?, ?)",
+            "delete from user",
+            "delete from user;");
+
+    /**
+     * 不属于识别子集的语句，回退到 JSqlParser
+     */
+    private static final List<String> COMPLEX = Arrays.asList(
+            "select * from user u where u.id in (select user_id from orders)",
+            "select * from user u left join orders o on o.user_id = u.id",
+            "select * from user, orders",
+            "select * from (select * from user) t",
+            "select id from user union select id from orders",
+            "select org_id, count(*) from user group by org_id having count(*) > 1",
+            "select * from user where exists (select 1 from orders)",
+            "select case when id = 1 then 'a' else 'b' end from user",
+            "select cast(id as char) from user",
+            "select * from user where not id = 1",
+            "select * from user where (id + 1) = 2",
+            "select * from user where name like 'a!%' escape '!'",
+            "select * from user where name = 'a\\'b'",
+            "select * from user where id = 1e3",
+            "select * from user where id = :id",
+            "select * from user for update",
+            "select * from user where flag",
+            "select * from user where select = 1",
+            "select * from user u where u.id = 1 /* unterminated",
+            "select sum(x) over (partition by org_id) from user",
+            "with t as (select 1) select * from t",
+            "insert into user values (1, 'a')",
+            "insert into user (id) select id from orders",
+            "insert into user (id) values (1) on duplicate key update id = 1",
+            "update user set name = (select name from orders where id = 1) where id = 2",
+            "update user set name = 'b' order by id limit 1",
+            "update user u join orders o on o.user_id = u.id set u.name = 'b'",
+            "delete from user u where u.id = 1",
+            "delete from user where id = 1 limit 1",
+            "replace into user (id) values (1)",
+            "");
+
+    /**
+     * 联接表按快照判断
+     */
+    private PluginsSnapshot plugins;
+
+    @Before
+    public void setUp() {
+        PluginConfig plugin = new PluginConfig();
+        plugin.setName("tenant");
+        plugin.setLevel(PluginLevelType.table);
+        plugin.setValue(Arrays.asList("user", "orders"));
+        plugin.setRules(new ArrayList<>(Collections.singletonList(new PluginRule())));
+        MybatisPluginsConfig config = new MybatisPluginsConfig();
+        config.setPlugins(new ArrayList<>(Collections.singletonList(plugin)));
+        plugins = PluginsSnapshot.of(config);
+    }
+
+    private SqlStatementContext context(String sql) {
+        SqlStatementContext context = new SqlStatementContext(null, sql);
+        context.setPlugins(plugins);
+        return context;
+    }
+
+    private RuleAction action(PluginRuleValueType type, String field, String value) {
+        return new RuleAction(type, field, new StringValue(value));
+    }
+
+    private List<List<RuleAction>> ruleSets() {
+        return Arrays.asList(
+                Collections.singletonList(action(PluginRuleValueType.add_where_field, "tenant_id", "t1")),
+                Arrays.asList(action(PluginRuleValueType.add_where_field, "tenant_id", "t1"),
+                        new RuleAction(PluginRuleValueType.add_where_field, "scope",
+                                RuleFieldValueExpression.of("3", RuleFieldValueType.number)),
+                        action(PluginRuleValueType.add_where_field, "region", "r1")),
+                Arrays.asList(action(PluginRuleValueType.add_field, "updater", "u1"),
+                        action(PluginRuleValueType.add_where_field, "tenant_id", "t1"),
+                        action(PluginRuleValueType.add_insert_field, "creator", "c1"),
+                        action(PluginRuleValueType.add_update_field, "version", "2")));
+    }
+
+    /**
+     * 与 JSqlParser 路径对比：改写结果与拼接模式逐字节相同，重新解析后与语法树改写相同；
+     * 主表、语句类型和规则字段检测结果与语法树一致
+     */
+    @Test
+    public void sameAsParser() throws JSQLParserException {
+        RuleFieldDetector detector = RuleFieldDetector.of(Arrays.asList("tenant_id", "name"));
+        for (String sql : SIMPLE) {
+            SimpleStatement simple = SimpleSqlRecognizer.recognize(sql);
+            assert simple != null : sql;
+            Statement statement = CCJSqlParserUtil.parse(sql);
+
+            Table expectedTable = PluginLevelValidate.statementTable(statement);
+            Table table = simple.getTable();
+            assert expectedTable.getName().equals(table.getName()) : sql;
+            assert Objects.equals(expectedTable.getSchemaName(), table.getSchemaName()) : sql;
+            assert Objects.equals(expectedTable.getAlias() == null ? null : expectedTable.getAlias().getName(),
+                    table.getAlias() == null ? null : table.getAlias().getName()) : sql;
+            boolean hasField = detector.whereHasField(statement) || detector.insertHasField(statement);
+            assert hasField == detector.hasField(simple) : sql;
+
+            for (List<RuleAction> actions : ruleSets()) {
+                String actual = simple.rewrite(actions);
+                String spliced = SpliceRewriter.rewrite(context(sql), actions);
+                assert actual.equals(spliced) : sql + "\n" + spliced + "\n" + actual;
+
+                Statement rewritten = CCJSqlParserUtil.parse(sql);
+                FusedRuleEngine.apply(rewritten, actions, plugins);
+                assert rewritten.toString().equals(CCJSqlParserUtil.parse(actual).toString()) : sql + "\n" + actual;
+            }
+        }
+    }
+
+    @Test
+    public void unrecognized() {
+        for (String sql : COMPLEX) {
+            assert SimpleSqlRecognizer.recognize(sql) == null : sql;
+        }
+        assert SimpleSqlRecognizer.recognize(null) == null;
+    }
+
+    @Test
+    public void whereColumns() {
+        // 括号、not、is null 中的字段在语法树中不会被规则字段检测遍历到
+        SimpleStatement simple = SimpleSqlRecognizer.recognize(
+                "select * from user u where u.a = 1 and (b = 2 or c = 3) and not (d = 4) and e is null"
+                        + " and f in (g, 1) and h between i and j and k like l and m(n) = (o)");
+        assert simple.getWhereColumns().equals(Arrays.asList("a", "f", "g", "h", "i", "j", "k", "l", "n"))
+                : simple.getWhereColumns();
+        assert simple.getTable().getAlias().getName().equals("u");
+    }
+
+    @Test
+    public void fastPathContext() {
+        SqlStatementContext context = new SqlStatementContext(null, "select * from user where id = 1", true);
+        assert context.getSimpleStatement() != null;
+        assert !context.isParsed();
+        // 未开启时不识别
+        assert new SqlStatementContext(null, "select * from user where id = 1").getSimpleStatement() == null;
+    }
+}
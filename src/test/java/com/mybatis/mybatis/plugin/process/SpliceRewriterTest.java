@@ -0,0 +1,186 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.config.PluginConfig;
+import com.mybatis.mybatis.plugin.config.PluginLevelType;
+import com.mybatis.mybatis.plugin.config.PluginRule;
+import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
+import com.mybatis.mybatis.plugin.config.RuleFieldValueType;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+public class SpliceRewriterTest {
+
+    private static final List<String> SQLS = Arrays.asList(
+            "select * from user",
+            "select * from user where id = 1",
+            "select * from user where id = 1 or name = 'a'",
+            "select * from user where not id = 1",
+            "select * from user where (id = 1 or id = 2) and name = 'a'",
+            "select * from user u where u.id in (select user_id from orders where status = 1)",
+            "select * from user where id = 1 and org_id in (select id from org)",
+            "select * from user where org_id in (select id from org) and id = 1 and name = 'a'",
+            "select * from user where (select count(*) from orders) > 0",
+            "select * from user where exists (select 1 from orders o where o.user_id = user.id)",
+            "select * from user where name like 'a%' and id between 1 and 10 and age is not null",
+            "select * from user where 1 = 1 or id between ? and ? order by id",
+            "select * from user where id = ? or name is null limit 1",
+            "select * from user u left join orders o on o.user_id = u.id where u.id = 1",
+            "select * from user u join orders o on o.user_id = u.id or o.code = u.code join dict d on d.id = o.type",
+            "select * from (select * from user where id = 1) t join orders o on o.user_id = t.id",
+            "select * from (select * from user) t",
+            "select id from user where name = 'a' union all select id from orders where id in (select id from dict)",
+            "select id from user union select id from orders",
+            "(select id from user) union (select id from orders order by id)",
+            "select * from (user u join orders o on o.user_id = u.id)",
+            "select * from user, orders",
+            "select org_id, count(*) from user group by org_id having count(*) > 1 order by org_id limit 10",
+            "select * from user order by id desc limit 10 offset 20",
+            "select * from user u order by u.id",
+            "select * from user for update",
+            "select * from user where id = 1 order by (select max(id) from orders)",
+            "select sum(x) over (partition by org_id order by id) from user",
+            "insert into user (id, name) values (1, 'a')",
+            "insert into user (id, name) values (1, 'a'), (2, 'b')",
+            "insert into user (id, name) values (?, now())",
+            "insert into user (id, name) values (?, ?), (?, ?)",
+            "insert into user (id, name) values ((select max(id) from orders), 'a')",
+            "insert into user (id) select id from orders",
+            "insert into user values (1, 'a')",
+            "update user set name = 'b' where id = 1",
+            "update user u set name = 'b' where id = 1 or id = 2",
+            "update user set name = 'b'",
+            "update user set name = 'b', age = age + 1 where id = 1",
+            "update user set name = (select name from orders where id = 1) where id = 2",
+            "update user set name = 'b' order by id limit 1",
+            "update user set name = ? where 1 = 1 or id = ?",
+            "delete from user where id = 1 or id = 2",
+            "delete from user where id in (select user_id from orders)",
+            "delete from user where id = ? or 1 = 1 limit 1",
+            "delete from user");
+
+    /**
+     * 联接表按快照判断
+     */
+    private PluginsSnapshot plugins;
+
+    @Before
+    public void setUp() {
+        PluginConfig plugin = new PluginConfig();
+        plugin.setName("tenant");
+        plugin.setLevel(PluginLevelType.table);
+        plugin.setValue(Arrays.asList("user", "orders"));
+        plugin.setRules(new ArrayList<>(Collections.singletonList(new PluginRule())));
+        MybatisPluginsConfig config = new MybatisPluginsConfig();
+        config.setPlugins(new ArrayList<>(Collections.singletonList(plugin)));
+        plugins = PluginsSnapshot.of(config);
+    }
+
+    private SqlStatementContext context(String sql) {
+        SqlStatementContext context = new SqlStatementContext(null, sql);
+        context.setPlugins(plugins);
+        return context;
+    }
+
+    private RuleAction action(PluginRuleValueType type, String field, String value) {
+        return new RuleAction(type, field, new StringValue(value));
+    }
+
+    private List<List<RuleAction>> ruleSets() {
+        return Arrays.asList(
+                Collections.singletonList(action(PluginRuleValueType.add_where_field, "tenant_id", "t1")),
+                Arrays.asList(action(PluginRuleValueType.add_where_field, "tenant_id", "t1"),
+                        new RuleAction(PluginRuleValueType.add_where_field, "scope",
+                                RuleFieldValueExpression.of("3", RuleFieldValueType.number)),
+                        action(PluginRuleValueType.add_where_field, "region", "r1")),
+                Arrays.asList(action(PluginRuleValueType.add_field, "updater", "u1"),
+                        action(PluginRuleValueType.add_where_field, "tenant_id", "t1"),
+                        action(PluginRuleValueType.add_insert_field, "creator", "c1"),
+                        action(PluginRuleValueType.add_update_field, "version", "2")));
+    }
+
+    /**
+     * 拼接结果重新解析后与语法树改写的结果一致；无法拼接时与语法树改写相同，包括抛出的异常
+     */
+    @Test
+    public void sameAsSyntaxTree() throws JSQLParserException {
+        int spliced = 0;
+        for (List<RuleAction> actions : ruleSets()) {
+            for (String sql : SQLS) {
+                Statement statement = CCJSqlParserUtil.parse(sql);
+                String expected;
+                try {
+                    FusedRuleEngine.apply(statement, actions, plugins);
+                    expected = statement.toString();
+                } catch (RuntimeException e) {
+                    expected = e.getClass().getName();
+                }
+                String actual = SpliceRewriter.rewrite(context(sql), actions);
+                if (actual == null) {
+                    continue;
+                }
+                spliced++;
+                String reparsed = CCJSqlParserUtil.parse(actual).toString();
+                assert expected.equals(reparsed) : sql + "\n" + expected + "\n" + actual;
+            }
+        }
+        // 只有 insert select、不带字段列表的 insert、逗号连接的 join 需要回退
+        assert spliced == ruleSets().size() * (SQLS.size() - 3) : spliced;
+    }
+
+    @Test
+    public void preserveOriginalText() {
+        List<RuleAction> tenant = Collections.singletonList(
+                action(PluginRuleValueType.add_where_field, "tenant_id", "t1"));
+        assert rewrite("select *\n\tfrom user u -- users\nwhere u.id = 1 /* by id */ order by u.id", tenant)
+                .equals("select *\n\tfrom user u -- users\nwhere u.id = 1 AND u.tenant_id = 't1' /* by id */ order by u.id");
+        assert rewrite("select * from user\r\nwhere id = 1\r\n   or id = 2", tenant)
+                .equals("select * from user\r\nwhere (id = 1\r\n   or id = 2) AND user.tenant_id = 't1'");
+        assert rewrite("select * from `user` /* no where */\norder by id", tenant)
+                .equals("select * from `user` WHERE `user`.tenant_id = 't1' /* no where */\norder by id");
+        assert rewrite("select name from user where name = '中文' limit 1", tenant)
+                .equals("select name from user where name = '中文' AND user.tenant_id = 't1' limit 1");
+        assert rewrite("delete from user;", tenant).equals("delete from user WHERE user.tenant_id = 't1';");
+        assert rewrite("update user set name = 'b'\nwhere id = 1 or id = 2", tenant)
+                .equals("update user set name = 'b'\nwhere user.tenant_id = 't1' AND (id = 1 or id = 2)");
+
+        List<RuleAction> fields = Arrays.asList(action(PluginRuleValueType.add_field, "updater", "u1"),
+                action(PluginRuleValueType.add_where_field, "tenant_id", "t1"));
+        assert rewrite("insert into user(id,name)\nvalues(1,'a'),\n(2,'b')", fields)
+                .equals("insert into user(id,name, updater, tenant_id)\nvalues(1,'a', 'u1', 't1'),\n(2,'b', 'u1', 't1')");
+        assert rewrite("update user set name = 'b' order by id limit 1", fields)
+                .equals("update user set name = 'b', updater = 'u1' WHERE user.tenant_id = 't1' order by id limit 1");
+    }
+
+    @Test
+    public void unsupported() {
+        List<RuleAction> tenant = Collections.singletonList(
+                action(PluginRuleValueType.add_where_field, "tenant_id", "t1"));
+        // 逗号连接的 join 没有 on 条件，语法树改写时同样失败
+        assert SpliceRewriter.rewrite(context("select * from user, orders"), tenant) == null;
+        // 无法解析的 SQL
+        assert SpliceRewriter.rewrite(context("select from"), tenant) == null;
+
+        // 没有规则时原样返回
+        assert SpliceRewriter.rewrite(context("select  *  from user"),
+                Collections.emptyList()).equals("select  *  from user");
+    }
+
+    private String rewrite(String sql, List<RuleAction> actions) {
+        String result = SpliceRewriter.rewrite(context(sql), actions);
+        assert result != null : sql;
+        return result;
+    }
+}
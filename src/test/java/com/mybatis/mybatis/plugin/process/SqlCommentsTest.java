@@ -0,0 +1,157 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.RuleFieldThreadLocal;
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import com.mybatis.mybatis.plugin.config.PluginConfig;
+import com.mybatis.mybatis.plugin.config.PluginLevelType;
+import com.mybatis.mybatis.plugin.config.PluginRule;
+import com.mybatis.mybatis.plugin.config.PluginRuleValueType;
+import com.mybatis.mybatis.plugin.config.RuleFieldPolicy;
+import com.mybatis.mybatis.plugin.config.RuleFieldPolicyType;
+import com.mybatis.mybatis.plugin.config.RuleFieldValueFailPolicyType;
+import com.mybatis.mybatis.plugin.config.RuleFieldValuePolicy;
+import com.mybatis.mybatis.plugin.config.RuleFieldValuePolicyType;
+import com.mybatis.mybatis.plugin.exception.RulePolicyNoSupportException;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldPolicyProcessImpl;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldValueFailPolicyProcess;
+import com.mybatis.mybatis.plugin.process.field.RuleFieldValuePolicyProcessImpl;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@RunWith(SpringRunner.class)
+public class SqlCommentsTest {
+
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/|--[^\\n]*");
+
+    private static final List<String> SQLS = Arrays.asList(
+            // MySQL
+            "SELECT /*+ INDEX(o idx_tenant_created) */ * FROM orders o WHERE o.status = 1",
+            "/* FORCE_MASTER */ SELECT * FROM orders WHERE id = ?",
+            "SELECT /*+ MAX_EXECUTION_TIME(1000) */ o.id FROM orders o JOIN user u ON u.id = o.user_id -- report\nWHERE o.id > 10",
+            "INSERT /*+ SET_VAR(foreign_key_checks=OFF) */ INTO orders (id, name) VALUES (?, ?)",
+            "UPDATE /*+ NO_MERGE(o) */ orders o SET o.name = ? WHERE o.id = ?",
+            "DELETE /* FORCE_MASTER */ FROM orders WHERE id = ?",
+            // Oracle
+            "SELECT /*+ INDEX(o idx_tenant_created) FIRST_ROWS(10) */ o.id FROM orders o WHERE o.id = ? OR o.code = ?",
+            "UPDATE /*+ INDEX(orders idx_orders_id) */ orders SET name = 'a' WHERE id = 1",
+            "INSERT /*+ APPEND */ INTO orders (id) VALUES (1)",
+            "DELETE /*+ PARALLEL(orders 4) */ FROM orders WHERE id = 1",
+            // PostgreSQL pg_hint_plan
+            "/*+ IndexScan(orders idx_tenant_created) */ SELECT * FROM orders WHERE id = ?",
+            "/*+ SeqScan(o) */ SELECT o.id FROM orders o /* inner */ WHERE o.id IN (SELECT order_id FROM items) ORDER BY o.id",
+            "/*+ Set(enable_seqscan off) */ UPDATE orders SET name = ? WHERE id = ? /* by id */");
+
+    @Before
+    public void setUp() {
+        RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+    }
+
+    @After
+    public void tearDown() {
+        RuleFieldThreadLocal.remove();
+    }
+
+    /**
+     * 每种规则改写后注释都只出现一次，并且仍然在原来的词法单元前面；去掉注释后与不带注释的 SQL 改写结果一致
+     */
+    @Test
+    public void preservedForEveryRule() throws JSQLParserException {
+        for (PluginRuleValueType type : PluginRuleValueType.values()) {
+            for (boolean splice : new boolean[]{false, true}) {
+                PluginsProcessImpl process = new PluginsProcessImpl(pluginsConfig(type, splice), realRuleProcess());
+                for (String sql : SQLS) {
+                    String actual;
+                    try {
+                        actual = process.pluginsProcess(new SqlStatementContext("id", sql));
+                    } catch (RulePolicyNoSupportException e) {
+                        // delete_field 没有实现
+                        continue;
+                    }
+                    String expected = process.pluginsProcess(new SqlStatementContext("id", strip(sql)));
+                    String message = type + " " + splice + "\n" + sql + "\n" + actual;
+                    assert CCJSqlParserUtil.parse(strip(actual)).toString()
+                            .equals(CCJSqlParserUtil.parse(expected).toString()) : message;
+                    Matcher matcher = COMMENT.matcher(sql);
+                    while (matcher.find()) {
+                        String comment = matcher.group();
+                        assert actual.indexOf(comment) == actual.lastIndexOf(comment) : message;
+                        assert following(actual, comment).equalsIgnoreCase(following(sql, comment)) : message;
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void restore() {
+        SqlStatementContext context = new SqlStatementContext(null,
+                "/* FORCE_MASTER */ update /*+ INDEX(t idx) */ t set a = 1 -- one\n where id = 2");
+        context.getStatement();
+        assert context.deparse()
+                .equals("/* FORCE_MASTER */ UPDATE /*+ INDEX(t idx) */ t SET a = 1 -- one\nWHERE id = 2");
+
+        // select 后面的提示由解析器保留，不会重复
+        context = new SqlStatementContext(null, "select /*+ INDEX(t idx) */ * from t");
+        context.getStatement();
+        assert context.deparse().equals("SELECT /*+ INDEX(t idx) */ * FROM t");
+
+        // 没有注释时与直接转成字符串相同
+        context = new SqlStatementContext(null, "select  *  from t");
+        assert context.getStatement().toString().equals(context.deparse());
+    }
+
+    private static String strip(String sql) {
+        return COMMENT.matcher(sql).replaceAll(" ");
+    }
+
+    /**
+     * 注释后面的第一个词法单元，注释在末尾时返回空字符串
+     */
+    private static String following(String sql, String comment) {
+        String rest = sql.substring(sql.indexOf(comment) + comment.length()).trim();
+        Matcher matcher = Pattern.compile("^(\\w+|\\S)").matcher(rest);
+        return matcher.find() ? matcher.group() : "";
+    }
+
+    private MybatisPluginsConfig pluginsConfig(PluginRuleValueType type, boolean splice) {
+        MybatisPluginsConfig config = new MybatisPluginsConfig();
+        config.setSplice(splice);
+        config.getCache().setEnable(false);
+        PluginConfig pluginConfig = new PluginConfig();
+        pluginConfig.setName("tenant");
+        pluginConfig.setLevel(PluginLevelType.dml);
+        pluginConfig.setValue(Arrays.asList("select", "insert", "update", "delete"));
+
+        PluginRule rule = new PluginRule();
+        rule.setName(type.name());
+        rule.setValue(type);
+        RuleFieldPolicy ruleFieldPolicy = new RuleFieldPolicy();
+        ruleFieldPolicy.setName(RuleFieldPolicyType.conf);
+        ruleFieldPolicy.setValue("tenant_id");
+        rule.setFieldPolicy(ruleFieldPolicy);
+        RuleFieldValuePolicy ruleFieldValuePolicy = new RuleFieldValuePolicy();
+        ruleFieldValuePolicy.setName(RuleFieldValuePolicyType.threadLocal);
+        ruleFieldValuePolicy.setValue("tenant_id_value");
+        rule.setFieldValuePolicy(ruleFieldValuePolicy);
+        rule.setFieldValueFailPolicy(RuleFieldValueFailPolicyType.run);
+        pluginConfig.setRules(new ArrayList<>(Arrays.asList(rule)));
+        config.setPlugins(new ArrayList<>(Arrays.asList(pluginConfig)));
+        return config;
+    }
+
+    private RuleProcess realRuleProcess() {
+        return new RuleProcessImpl(new RuleFieldPolicyProcessImpl(),
+                new RuleFieldValuePolicyProcessImpl(), new RuleFieldValueFailPolicyProcess(), new PluginRuleProcessImpl());
+    }
+}
@@ -0,0 +1,131 @@
+package com.mybatis.mybatis.plugin.process;
+
+import com.mybatis.mybatis.plugin.config.ParseLimitConfig;
+import com.mybatis.mybatis.plugin.exception.SqlParseLimitException;
+import net.sf.jsqlparser.JSQLParserException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(SpringRunner.class)
+public class SqlParseGuardTest {
+
+    /**
+     * 10 层括号，JSqlParser 4.2 解析需要 1 秒以上
+     */
+    private static final String NESTED = "select * from user where id = ((((((((((1))))))))))";
+
+    @Test
+    public void limits() throws JSQLParserException {
+        ParseLimitConfig config = new ParseLimitConfig();
+        config.setMaxLength(40);
+        config.setMaxTokens(8);
+        SqlParseGuard guard = new SqlParseGuard(config);
+        assert guard.parse(null, "select * from user where id = 1", null) != null;
+        try {
+            guard.parse(null, "select * from user where id = 1 and name = 'abc'", null);
+            assert false;
+        } catch (SqlParseLimitException e) {
+            assert e.getMessage().contains("length");
+            assert e.getReason() == SqlParseLimitException.Reason.length;
+        }
+        try {
+            guard.parse(null, "select a,b,c from user where id = 1", null);
+            assert false;
+        } catch (SqlParseLimitException e) {
+            assert e.getMessage().contains("tokens");
+        }
+        // 语法不支持不是超过限制
+        try {
+            guard.parse(null, "select * from", null);
+            assert false;
+        } catch (JSQLParserException e) {
+            assert !(e instanceof SqlParseLimitException);
+        }
+    }
+
+    @Test
+    public void countTokens() {
+        assert SqlParseGuard.countTokens("select * from user where id = 1", 100) == 8;
+        assert SqlParseGuard.countTokens("select /* a b c */ `a b`, 'x y' -- c d\nfrom u.t", 100) == 8;
+        // 超过上限后不再统计
+        assert SqlParseGuard.countTokens("a b c d e f g", 3) == 4;
+    }
+
+    @Test
+    public void timeout() throws JSQLParserException {
+        ParseLimitConfig config = new ParseLimitConfig();
+        config.setTimeoutMillis(50L);
+        config.setThreads(1);
+        SqlParseGuard guard = new SqlParseGuard(config);
+        assert guard.parse("select", "select * from user where id = 1", null) != null;
+
+        long start = System.nanoTime();
+        try {
+            guard.parse("nested", NESTED, null);
+            assert false;
+        } catch (SqlParseLimitException e) {
+            assert e.getMessage().contains("50 ms");
+            assert e.getReason() == SqlParseLimitException.Reason.timeout;
+        }
+        assert TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000;
+        SlowSqlRecorder.SlowSql slowest = guard.getSlowest().slowest().get(0);
+        assert slowest.getStatementId().equals("nested");
+        assert slowest.isTimedOut();
+    }
+
+    @Test
+    public void busy() throws JSQLParserException {
+        ParseLimitConfig config = new ParseLimitConfig();
+        config.setTimeoutMillis(50L);
+        config.setThreads(1);
+        config.setQueueSize(1);
+        SqlParseGuard guard = new SqlParseGuard(config);
+        try {
+            guard.parse("nested", NESTED, null);
+            assert false;
+        } catch (SqlParseLimitException e) {
+            assert e.getReason() == SqlParseLimitException.Reason.timeout;
+        }
+        // 唯一的解析线程还在执行超时的解析，排队超过耗时上限不算解析超时
+        try {
+            guard.parse("select", "select * from user where id = 1", null);
+            assert false;
+        } catch (SqlParseLimitException e) {
+            assert e.getReason() == SqlParseLimitException.Reason.busy;
+            assert e.getMessage().contains("queue");
+        }
+        // 取消的任务还在队列中，队列已满
+        try {
+            guard.parse("select", "select * from user where id = 2", null);
+            assert false;
+        } catch (SqlParseLimitException e) {
+            assert e.getReason() == SqlParseLimitException.Reason.busy;
+            assert e.getMessage().contains("full");
+        }
+    }
+
+    @Test
+    public void slowest() {
+        SlowSqlRecorder recorder = new SlowSqlRecorder(3);
+        recorder.record("a", "select a", 10, false);
+        recorder.record("b", "select b", 30, false);
+        recorder.record("c", "select c", 20, false);
+        recorder.record("d", "select d", 5, false);
+        recorder.record("a", "select a", 40, false);
+        recorder.record("e", "select e", 25, true);
+        List<SlowSqlRecorder.SlowSql> slowest = recorder.slowest();
+        assert slowest.size() == 3;
+        assert slowest.get(0).getSql().equals("select a") && slowest.get(0).getNanos() == 40;
+        assert slowest.get(1).getSql().equals("select b");
+        assert slowest.get(2).getSql().equals("select e") && slowest.get(2).isTimedOut();
+        recorder.reset();
+        assert recorder.slowest().isEmpty();
+        SlowSqlRecorder disabled = new SlowSqlRecorder(0);
+        disabled.record("a", "select a", 10, false);
+        assert disabled.slowest().isEmpty();
+    }
+}
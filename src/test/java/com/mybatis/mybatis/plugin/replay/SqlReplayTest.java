@@ -0,0 +1,148 @@
+package com.mybatis.mybatis.plugin.replay;
+
+import com.mybatis.mybatis.plugin.RuleFieldThreadLocal;
+import com.mybatis.mybatis.plugin.config.MybatisPluginsConfig;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+public class SqlReplayTest {
+
+    private static final String CONFIG = "guarder:\n"
+            + "  enable: true\n"
+            + "  plugins:\n"
+            + "    - name: tenant\n"
+            + "      level: dml\n"
+            + "      value: [select, update, delete]\n"
+            + "      rules:\n"
+            + "        - name: add_tenant\n"
+            + "          value: add_where_field\n"
+            + "          field-policy:\n"
+            + "            name: conf\n"
+            + "            value: tenant_id\n"
+            + "          field-value-policy:\n"
+            + "            name: threadLocal\n"
+            + "            value: tenant_id_value\n"
+            + "          field-value-fail-policy: run\n";
+
+    private static final String CORPUS = "10:00:00.001 [main] DEBUG c.d.UserMapper.selectById - ==>  Preparing: "
+            + "select * from user where id = ? \n"
+            + "10:00:00.002 [main] DEBUG c.d.UserMapper.selectById - ==> Parameters: 1(Long)\n"
+            + "10:00:00.003 [main] DEBUG c.d.UserMapper.selectById - <==      Total: 1\n"
+            + "2026-10-20 10:00:00.004 DEBUG 1 --- [exec-1] c.d.UserMapper.selectById : ==>  Preparing: "
+            + "select * from user where id = ?\n"
+            + "com.demo.UserMapper.lock\tselect * from user where id = 1 lock in share mode\n"
+            + "com.demo.UserMapper.tenant\tselect * from user where tenant_id = ?\n";
+
+    @After
+    public void tearDown() {
+        RuleFieldThreadLocal.remove();
+    }
+
+    @Test
+    public void corpus() throws IOException {
+        List<ReplayStatement> statements = ReplayCorpus.read(new BufferedReader(new StringReader(CORPUS)));
+        assert statements.equals(Arrays.asList(
+                new ReplayStatement("c.d.UserMapper.selectById", "select * from user where id = ?"),
+                new ReplayStatement("com.demo.UserMapper.lock", "select * from user where id = 1 lock in share mode"),
+                new ReplayStatement("com.demo.UserMapper.tenant", "select * from user where tenant_id = ?")));
+        assert SqlReplayer.commandType(" WITH t AS (select 1) select * from t") == SqlCommandType.SELECT;
+        assert SqlReplayer.commandType("replace into user values (1)") == SqlCommandType.INSERT;
+    }
+
+    @Test
+    public void replay() throws IOException {
+        MybatisPluginsConfig config = SqlReplay.loadConfig(write("config.yaml", CONFIG));
+        assert config.getPlugins().get(0).getRules().get(0).getFieldPolicy().getValue().equals("tenant_id");
+        RuleFieldThreadLocal.setVariable("tenant_id_value", "t1");
+        List<ReplayResult> results = new SqlReplayer(config).replay(
+                ReplayCorpus.read(new BufferedReader(new StringReader(CORPUS))), 10);
+        assert results.get(0).getStatus() == ReplayResult.Status.rewritten;
+        assert results.get(0).getRewrittenSql()
+                .equals("SELECT * FROM user WHERE id = ? AND user.tenant_id = 't1'");
+        assert results.get(0).getNanosPerCall() > 0;
+        assert results.get(1).getStatus() == ReplayResult.Status.parse_failed;
+        assert results.get(1).getParseError() != null;
+        assert results.get(2).getStatus() == ReplayResult.Status.unchanged;
+
+        StringWriter output = new StringWriter();
+        ReplayReport.writeOutput(results, new PrintWriter(output));
+        assert output.toString().startsWith("c.d.UserMapper.selectById\trewritten\tselect * from user where id = ?\t"
+                + "SELECT * FROM user WHERE id = ? AND user.tenant_id = 't1'");
+        // 不包含耗时，重复回放输出相同
+        StringWriter again = new StringWriter();
+        ReplayReport.writeOutput(new SqlReplayer(config).replay(
+                ReplayCorpus.read(new BufferedReader(new StringReader(CORPUS))), 0), new PrintWriter(again));
+        assert again.toString().equals(output.toString());
+
+        StringWriter summary = new StringWriter();
+        ReplayReport.writeSummary(results, new PrintWriter(summary));
+        assert summary.toString().startsWith("statements=3 {rewritten=1, unchanged=1, parse_failed=1, error=0}");
+    }
+
+    @Test
+    public void run() throws IOException {
+        File corpus = write("corpus.log", CORPUS);
+        File before = write("before.yaml", CONFIG);
+        File after = write("after.yaml", CONFIG.replace("value: tenant_id\n", "value: org_id\n"));
+        File beforeOutput = File.createTempFile("before", ".tsv");
+        File afterOutput = File.createTempFile("after", ".tsv");
+        beforeOutput.deleteOnExit();
+        afterOutput.deleteOnExit();
+        String[] variables = {"--var", "tenant_id_value=t1", "--iterations", "1"};
+
+        StringWriter out = new StringWriter();
+        assert SqlReplay.run(concat(new String[]{"replay", corpus.getPath(), before.getPath(), "--output",
+                beforeOutput.getPath()}, variables), new PrintWriter(out)) == 0;
+        assert SqlReplay.run(concat(new String[]{"replay", corpus.getPath(), after.getPath(), "--output",
+                afterOutput.getPath()}, variables), new PrintWriter(out)) == 0;
+        assert SqlReplay.run(new String[]{"diff", beforeOutput.getPath(), beforeOutput.getPath()},
+                new PrintWriter(out)) == 0;
+
+        StringWriter diff = new StringWriter();
+        assert SqlReplay.run(new String[]{"diff", beforeOutput.getPath(), afterOutput.getPath()},
+                new PrintWriter(diff)) == 1;
+        assert diff.toString().contains("@ c.d.UserMapper.selectById\tselect * from user where id = ?");
+        assert diff.toString().contains("+ rewritten\tSELECT * FROM user WHERE id = ? AND user.org_id = 't1'");
+
+        StringWriter compare = new StringWriter();
+        assert SqlReplay.run(concat(new String[]{"compare", corpus.getPath(), before.getPath(), after.getPath()},
+                variables), new PrintWriter(compare)) == 1;
+        // 已经带有 tenant_id 的语句在新配置下需要改写
+        assert compare.toString().endsWith("2 statements differ" + System.lineSeparator());
+        assert SqlReplay.run(new String[]{"replay"}, new PrintWriter(new StringWriter())) == 2;
+        StringWriter usage = new StringWriter();
+        assert SqlReplay.run(new String[]{"replay", corpus.getPath(), before.getPath(), "--iterations", "ten"},
+                new PrintWriter(usage)) == 2;
+        assert usage.toString().startsWith("usage:");
+        assert SqlReplay.run(new String[]{"replay", corpus.getPath(), before.getPath(), "--iterations", "0"},
+                new PrintWriter(new StringWriter())) == 2;
+    }
+
+    private static File write(String name, String content) throws IOException {
+        File file = File.createTempFile("replay", name);
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String[] concat(String[] first, String[] second) {
+        String[] all = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        return all;
+    }
+}
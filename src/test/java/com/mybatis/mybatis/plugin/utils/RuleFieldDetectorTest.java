@@ -0,0 +1,65 @@
+package com.mybatis.mybatis.plugin.utils;
+
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+public class RuleFieldDetectorTest {
+
+    private static final List<String> SQLS = Arrays.asList(
+            "select * from user",
+            "select * from user where tenant_id = 1",
+            "select * from user where TENANT_ID = 1",
+            "select * from user where id = 1 and (tenant_id = 1)",
+            "select * from user where id = 1 or user.tenant_id = 1",
+            "select * from user where id in (select id from orders where tenant_id = 1)",
+            "select * from user where tenant_id in (1, 2)",
+            "select * from user where id between tenant_id and 10",
+            "select * from user where concat(tenant_id, name) = 'a'",
+            "select * from user where exists (select 1 from orders where tenant_id = 1)",
+            "select * from user u join orders o on u.id = o.user_id and o.tenant_id = 1",
+            "select * from (select * from user where tenant_id = 1) t",
+            "select tenant_id from user where id = 1",
+            "select * from user where id = 1 union all select * from user where tenant_id = 2",
+            "select * from user where \"tenant_id\" = 1",
+            "update user set name = 'a' where tenant_id = 1",
+            "delete from user where tenant_id = 1",
+            "insert into user (id, tenant_id) values (1, 1)",
+            "insert into user (id, `tenant_id`) values (1, 1)",
+            "insert into user (id, \"TENANT_ID\") values (1, 1)",
+            "insert into user (id, name) values (1, 'tenant_id')",
+            "insert into user set id = 1, tenant_id = 1");
+
+    @Test
+    public void sameAsSqlParserUtil() throws JSQLParserException {
+        for (String sql : SQLS) {
+            Statement statement = CCJSqlParserUtil.parse(sql);
+            assert RuleFieldDetector.DEFAULT.whereHasField(statement) == SqlParserUtil.whereHasTenantId(statement) : sql;
+            assert RuleFieldDetector.DEFAULT.insertHasField(statement) == SqlParserUtil.insertHasTenantId(statement) : sql;
+            assert RuleFieldDetector.DEFAULT.mayContain(sql) == sql.toLowerCase().contains("tenant_id") : sql;
+        }
+    }
+
+    @Test
+    public void configuredFields() throws JSQLParserException {
+        RuleFieldDetector detector = RuleFieldDetector.of(Arrays.asList("Org_Id", " "));
+        assert Arrays.equals(detector.getFields(), new String[]{"org_id"});
+        assert detector.mayContain("select * from user where ORG_ID = 1");
+        assert !detector.mayContain("select * from user where tenant_id = 1");
+        assert detector.whereHasField(CCJSqlParserUtil.parse("select * from user where org_id = 1"));
+        assert !detector.whereHasField(CCJSqlParserUtil.parse("select * from user where tenant_id = 1"));
+        assert detector.insertHasField(CCJSqlParserUtil.parse("insert into user (id, `org_id`) values (1, 1)"));
+
+        assert RuleFieldDetector.of(null) == RuleFieldDetector.DEFAULT;
+        assert RuleFieldDetector.of(Collections.emptyList()) == RuleFieldDetector.DEFAULT;
+        assert !RuleFieldDetector.DEFAULT.whereHasField(null);
+    }
+}
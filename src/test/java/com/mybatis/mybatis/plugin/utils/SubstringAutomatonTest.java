@@ -0,0 +1,33 @@
+package com.mybatis.mybatis.plugin.utils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+public class SubstringAutomatonTest {
+
+    @Test
+    public void matches() {
+        List<String> patterns = Arrays.asList("order", "t_user", "sers", "abcabd");
+        SubstringAutomaton automaton = SubstringAutomaton.of(patterns);
+        List<String> texts = Arrays.asList("t_order_item", "T_USER", "users", "user", "xabcabcabdx", "abcab", "",
+                "t_use_r", "sub_orde");
+        for (String text : texts) {
+            boolean expected = patterns.stream().anyMatch(p -> text.toLowerCase().contains(p));
+            assert automaton.matches(text) == expected : text;
+        }
+    }
+
+    @Test
+    public void emptyPattern() {
+        assert SubstringAutomaton.of(Collections.singletonList("")).matches("anything");
+        assert !SubstringAutomaton.of(Collections.emptyList()).matches("anything");
+        assert SubstringAutomaton.of(Collections.emptyList()).isEmpty();
+        assert !SubstringAutomaton.of(Collections.singletonList("a")).matches(null);
+    }
+}